@@ -0,0 +1,45 @@
+#!/usr/bin/env bash
+#
+# Benchmark the time-to-first-eval of the blisp interpreter with and without
+# the class-data-sharing (CDS) archive. The benchmark script exits from its
+# first expression, so each run measures JVM startup, interpreter setup and the
+# first evaluation. Build with 'mvn package' first.
+#
+# Usage: bench-startup.sh [RUNS]
+#
+RUNS=${1:-20}
+BLISP_HOME=$(cd "$(dirname "${BASH_SOURCE[0]}")" && pwd)
+TARGET_DIR=${BLISP_TARGET_DIR:-$BLISP_HOME/target}
+JAVA=${JAVA_HOME:+$JAVA_HOME/bin/}java
+
+JAR=$(ls "$TARGET_DIR"/blisp-*.jar 2>/dev/null | head -n 1)
+JSA="${JAR%.jar}.jsa"
+if [ -z "$JAR" ] || [ ! -f "$JSA" ]; then
+    echo "bench-startup: JAR and CDS archive not found in $TARGET_DIR, run 'mvn package' first" >&2
+    exit 1
+fi
+
+SCRIPT=$(mktemp --suffix=.blisp)
+trap 'rm -f "$SCRIPT"' EXIT
+echo '(exit 0)' > "$SCRIPT"
+
+# Run the benchmark script RUNS times and print the mean and minimum wall time
+bench() {
+    local label=$1; shift
+    local total=0 min=
+    for ((i = 0; i < RUNS; i++)); do
+        local start=$(date +%s%N)
+        "$JAVA" "$@" -jar "$JAR" "$SCRIPT" > /dev/null 2>&1
+        local elapsed=$(( ($(date +%s%N) - start) / 1000000 ))
+        total=$((total + elapsed))
+        if [ -z "$min" ] || [ "$elapsed" -lt "$min" ]; then
+            min=$elapsed
+        fi
+    done
+    printf "%-24s mean %5d ms   min %5d ms\n" "$label" $((total / RUNS)) "$min"
+}
+
+echo "Time to first eval over $RUNS runs:"
+bench "No CDS" -Xshare:off
+bench "JDK CDS (before)" -Xshare:auto
+bench "App CDS archive (after)" -XX:SharedArchiveFile="$JSA" -Xshare:auto
@@ -0,0 +1,23 @@
+#!/usr/bin/env bash
+#
+# Launch the blisp interpreter. The class-data-sharing (CDS) archive created by
+# the build next to the JAR is used when it is present, which cuts the JVM
+# startup time of short script runs.
+#
+BLISP_HOME=$(cd "$(dirname "${BASH_SOURCE[0]}")" && pwd)
+TARGET_DIR=${BLISP_TARGET_DIR:-$BLISP_HOME/target}
+JAVA=${JAVA_HOME:+$JAVA_HOME/bin/}java
+
+JAR=$(ls "$TARGET_DIR"/blisp-*.jar 2>/dev/null | head -n 1)
+if [ -z "$JAR" ]; then
+    echo "blisp: no JAR found in $TARGET_DIR, run 'mvn package' first" >&2
+    exit 1
+fi
+JSA="${JAR%.jar}.jsa"
+
+# -Xshare:auto falls back to a normal start if the archive doesn't match the JVM
+if [ -f "$JSA" ]; then
+    exec "$JAVA" -XX:SharedArchiveFile="$JSA" -Xshare:auto $JAVA_OPTS -jar "$JAR" "$@"
+else
+    exec "$JAVA" $JAVA_OPTS -jar "$JAR" "$@"
+fi
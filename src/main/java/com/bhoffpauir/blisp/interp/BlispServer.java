@@ -0,0 +1,200 @@
+package com.bhoffpauir.blisp.interp;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import com.bhoffpauir.blisp.lib.Environment;
+import com.bhoffpauir.blisp.lib.EvaluationService;
+import com.bhoffpauir.blisp.lib.Evaluator;
+import com.bhoffpauir.blisp.lib.Parser;
+import com.bhoffpauir.blisp.lib.Procedure;
+import com.bhoffpauir.blisp.lib.Tokenizer;
+import com.bhoffpauir.blisp.lib.exception.LispRuntimeException;
+
+/**
+ * Long-lived blisp daemon that evaluates scripts sent over a local socket.
+ *
+ * <p>The server listens on a Unix domain socket or on a TCP port bound to the loopback address.
+ * A request is the script source, read until the client shuts down its side of the connection.
+ * The forms are evaluated in a fresh child of the server's global environment, so definitions
+ * made by one request never leak into another, and the output is streamed back as the script
+ * runs. Errors are written to the stream in the same form the interpreter prints them. The
+ * connection is closed once the script is done or calls {@code (exit)}.</p>
+ *
+ * <p>Since the JVM, the builtins and any preloaded definitions are already warm, a request costs
+ * little more than evaluating the script itself. Any client that can half-close a socket works,
+ * e.g. {@code socat - UNIX-CONNECT:/tmp/blisp.sock < script.blisp}, and {@link #connect}
+ * provides the same for the interpreter's {@code --connect} option.</p>
+ */
+public class BlispServer {
+	private final EvaluationService service;
+	private final SocketAddress address;
+
+	/**
+	 * Constructs a server evaluating its requests with the given service.
+	 *
+	 * @param service The service that evaluates the requests and limits their concurrency.
+	 * @param address The address to listen on, see {@link #parseAddress(String)}.
+	 */
+	public BlispServer(EvaluationService service, SocketAddress address) {
+		this.service = service;
+		this.address = address;
+	}
+
+	/**
+	 * Parse a server address. A port number selects TCP on the loopback address, anything else
+	 * is the path of a Unix domain socket.
+	 *
+	 * @param address The address string, e.g. {@code 7777} or {@code /tmp/blisp.sock}.
+	 * @return The socket address.
+	 */
+	public static SocketAddress parseAddress(String address) {
+		if (address.matches("\\d{1,5}")) {
+			return new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(address));
+		}
+		return UnixDomainSocketAddress.of(address);
+	}
+
+	/**
+	 * Accept and evaluate requests until the process is stopped or the serving thread is
+	 * interrupted. Each connection is read and written on its own virtual thread.
+	 *
+	 * <p>While serving, the global {@code exit} builtin ends the request calling it instead of
+	 * the process, however it is reached (e.g. through a procedure defined by the prelude).</p>
+	 *
+	 * @throws IOException if the server socket cannot be opened.
+	 */
+	public void serve() throws IOException {
+		Environment globalEnv = service.getGlobalEnv();
+		Object exit = globalEnv.nullableLookup("exit");
+		globalEnv.define("exit", (Procedure) (args) -> {
+			throw new RequestExit();
+		});
+		try (ServerSocketChannel server = open(address)) {
+			while (server.isOpen()) {
+				SocketChannel channel = server.accept();
+				Thread.ofVirtual().name("blisp-request").start(() -> handle(channel));
+			}
+		} finally {
+			if (exit != null)
+				globalEnv.define("exit", exit);
+		}
+	}
+
+	/**
+	 * Send a script to a server and copy the output it streams back.
+	 *
+	 * @param address The server address.
+	 * @param source The script source.
+	 * @param output Where the output of the script is written.
+	 * @throws IOException if the server cannot be reached.
+	 */
+	public static void connect(SocketAddress address, InputStream source, OutputStream output) throws IOException {
+		try (SocketChannel channel = SocketChannel.open(address)) {
+			OutputStream out = Channels.newOutputStream(channel);
+			source.transferTo(out);
+			out.flush();
+			channel.shutdownOutput(); // Marks the end of the request
+			Channels.newInputStream(channel).transferTo(output);
+			output.flush();
+		}
+	}
+
+	private static ServerSocketChannel open(SocketAddress address) throws IOException {
+		if (address instanceof UnixDomainSocketAddress unixAddress) {
+			Path path = unixAddress.getPath();
+			Files.deleteIfExists(path); // Stale socket from a previous server
+			ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+			server.bind(address);
+			path.toFile().deleteOnExit();
+			return server;
+		}
+		return ServerSocketChannel.open().bind(address);
+	}
+
+	/**
+	 * Read a request from the connection, evaluate it and stream the output back.
+	 */
+	private void handle(SocketChannel channel) {
+		try (channel) {
+			String source = new String(Channels.newInputStream(channel).readAllBytes(), StandardCharsets.UTF_8);
+			PrintStream out = new PrintStream(new BufferedOutputStream(Channels.newOutputStream(channel)), true, StandardCharsets.UTF_8);
+			Future<Object> request = service.submit((evaluator, env) -> evaluate(source, evaluator, env, out), out);
+			try {
+				request.get();
+			} catch (ExecutionException ex) {
+				out.printf("Fatal Error:\n  %s\n", ex.getCause().getMessage());
+			} catch (InterruptedException ex) {
+				request.cancel(true);
+			}
+			out.flush();
+		} catch (IOException ex) {
+			// The client went away; nothing is left to report to
+		}
+	}
+
+	/**
+	 * Evaluate the forms of a request. Like a script, an error is reported and evaluation
+	 * continues with the next form.
+	 *
+	 * @param source The script source.
+	 * @param evaluator The evaluator of the request.
+	 * @param requestEnv The environment of the request.
+	 * @param out The output stream of the request.
+	 * @return Always null, the output is the result of a request.
+	 */
+	private static Object evaluate(String source, Evaluator evaluator, Environment requestEnv, PrintStream out) {
+		List<Object> forms;
+		try {
+			List<String> tokens = new Tokenizer(source).tokenize();
+			if (tokens.isEmpty())
+				return null;
+			forms = new Parser(tokens).parseAll();
+		} catch (LispRuntimeException ex) {
+			out.printf("Error:\n  %s\n", ex.getMessage());
+			return null;
+		}
+
+		for (var form : forms) {
+			try {
+				evaluator.evaluateTopLevel(form, requestEnv);
+			} catch (LispRuntimeException ex) {
+				out.printf("Error:\n  %s\n", ex.getMessage());
+			} catch (RequestExit ex) {
+				return null;
+			} catch (Exception ex) {
+				out.printf("Fatal Error:\n  %s\n", ex.getMessage());
+				return null;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Thrown by {@code exit} to end the current request.
+	 */
+	private static class RequestExit extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		RequestExit() {
+			super(null, null, false, false);
+		}
+	}
+}
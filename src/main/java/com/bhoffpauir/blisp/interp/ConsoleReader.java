@@ -0,0 +1,67 @@
+package com.bhoffpauir.blisp.interp;
+
+import java.nio.file.Paths;
+
+import org.jline.keymap.KeyMap;
+import org.jline.reader.Binding;
+import org.jline.reader.EndOfFileException;
+import org.jline.reader.LineReader;
+import org.jline.reader.LineReaderBuilder;
+import org.jline.reader.Reference;
+import org.jline.reader.UserInterruptException;
+
+/**
+ * Line editor for the REPL, backed by JLine.
+ *
+ * <p>All JLine usage of the interpreter lives in this class, so the terminal and JLine classes
+ * are only loaded once the REPL actually reads a line. Script execution never touches them.</p>
+ */
+class ConsoleReader {
+	private static final String HISTORY_FILE = ".blisp_history";
+	private static final int HISTORY_FILE_SIZE = 100;
+
+	private final LineReader lineReader;
+
+	/**
+	 * Creates the line editor with persistent history, the GNU/Emacs keymap and the Ctrl+G
+	 * input cancel binding.
+	 *
+	 * @param secondaryPrompt The prompt shown for continuation lines.
+	 * @param onCancel Called when the user cancels the current input with Ctrl+G.
+	 */
+	ConsoleReader(String secondaryPrompt, Runnable onCancel) {
+		lineReader = LineReaderBuilder.builder().parser(new ImmediateLineParser()).build();
+		lineReader.setVariable(LineReader.HISTORY_FILE, Paths.get(System.getProperty("user.home"), HISTORY_FILE).toString());
+		lineReader.setVariable(LineReader.HISTORY_FILE_SIZE, HISTORY_FILE_SIZE);
+		lineReader.setVariable(LineReader.SECONDARY_PROMPT_PATTERN, secondaryPrompt);
+		lineReader.setKeyMap(LineReader.EMACS); // Set keymap to GNU/Emacs
+
+		lineReader.getWidgets().put("input-cancel", () -> {
+			// Clear the buffer and expression
+			lineReader.getBuffer().clear();
+			onCancel.run();
+			// Redraw the prompt
+			lineReader.callWidget(LineReader.REDISPLAY);
+			return true; // Continue the loop
+		});
+
+		// Bind the input cancel widget to Ctrl+G
+		KeyMap<Binding> keyMap = lineReader.getKeyMaps().get(LineReader.MAIN);
+		keyMap.bind(new Reference("input-cancel"), "\u0007"); // \u0007 = Ctrl+G
+	}
+
+	/**
+	 * Prompt for and read a line. The line is added to the history.
+	 *
+	 * @param prompt The prompt to display.
+	 * @return The line that was read, or null on Ctrl+D or Ctrl+C.
+	 */
+	String readLine(String prompt) {
+		try {
+			return lineReader.readLine(prompt);
+		} catch (EndOfFileException | UserInterruptException ex) {
+			// Handle Ctrl+C & Ctrl+D with JLine gracefully
+			return null;
+		}
+	}
+}
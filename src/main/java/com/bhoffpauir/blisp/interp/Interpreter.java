@@ -8,11 +8,14 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.PrintStream;
 import java.net.MalformedURLException;
+import java.net.SocketAddress;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
+import java.time.Duration;
 import java.util.List;
 
 import org.apache.commons.cli.CommandLine;
@@ -20,28 +23,26 @@ import org.apache.commons.cli.CommandLineParser;
 import org.apache.commons.cli.DefaultParser;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
-import org.jline.keymap.KeyMap;
-import org.jline.reader.Binding;
-import org.jline.reader.EndOfFileException;
-import org.jline.reader.History;
-import org.jline.reader.LineReader;
-import org.jline.reader.LineReaderBuilder;
-import org.jline.reader.Reference;
-import org.jline.reader.UserInterruptException;
-import org.jline.reader.impl.history.DefaultHistory;
 
+import jdk.jfr.Recording;
+
+import com.bhoffpauir.blisp.lib.Budget;
 import com.bhoffpauir.blisp.lib.Environment;
+import com.bhoffpauir.blisp.lib.EnvironmentImage;
+import com.bhoffpauir.blisp.lib.EvaluationService;
 import com.bhoffpauir.blisp.lib.Evaluator;
 import com.bhoffpauir.blisp.lib.Parser;
 import com.bhoffpauir.blisp.lib.Procedure;
-import com.bhoffpauir.blisp.lib.TokenTreeViewer;
+import com.bhoffpauir.blisp.lib.Profiler;
+import com.bhoffpauir.blisp.lib.ScriptCache;
 import com.bhoffpauir.blisp.lib.Tokenizer;
-import com.bhoffpauir.blisp.lib.TreeViewer;
 import com.bhoffpauir.blisp.lib.Utils;
 import com.bhoffpauir.blisp.lib.Version;
 import com.bhoffpauir.blisp.lib.atom.Atom;
 import com.bhoffpauir.blisp.lib.atom.SymbolAtom;
 import com.bhoffpauir.blisp.lib.exception.LispRuntimeException;
+import com.bhoffpauir.blisp.lib.jfr.BlispEvents;
+import com.bhoffpauir.blisp.lib.jfr.ScriptLoadEvent;
 
 /**
  * Interpreter implementation for the blisp language supporting both interactive REPL and
@@ -49,7 +50,7 @@ import com.bhoffpauir.blisp.lib.exception.LispRuntimeException;
  */
 public class Interpreter {
 	private static final String PRGNAM = "blisp";
-	private static final Version VERSION = new Version(1, 0, 0);
+	private static final Version VERSION = Version.CURRENT;
 	private static final int EXIT_SUCCESS = 0, EXIT_FAILURE = 1;
 	// Prompt strings:
 	private static final String PS1 = ">>> "; // Primary prompt
@@ -77,6 +78,17 @@ public class Interpreter {
 	private boolean showParser = false;
 	private boolean showStackTrace = false;
 	private boolean extendedPrint = false;
+	private boolean useScriptCache = false;
+	private Path cacheDir = ScriptCache.defaultCacheDir();
+	private Path imageFile = null;
+	private Path saveImageFile = null;
+	private SocketAddress serverAddress = null;
+	private SocketAddress connectAddress = null;
+	private int maxConcurrent = 1000;
+	private Budget requestBudget = null;
+	private boolean profile = false;
+	private Path profileOutputFile = null;
+	private Path jfrFile = null;
 	// Interpreter runtime:
 	private File scriptFile = null;
 	private InterpreterMode mode = InterpreterMode.SCRIPT; // Default is SCRIPT
@@ -109,6 +121,20 @@ public class Interpreter {
     	options.addOption("p", "show-parser", false, "Show each expression parsed from the input.");
     	options.addOption("st", "stack-trace", false, "Show Java exception stack trace output.");
     	options.addOption("ep", "extended-print", false, "Turn on extented print in REPL Print stage.");
+    	options.addOption("sc", "script-cache", false, "Cache the parsed script on disk and reuse it while the script is unchanged.");
+    	options.addOption("cd", "cache-dir", true, "Directory for the script cache (default: " + cacheDir + ").");
+    	options.addOption("im", "image", true, "Restore the global environment from an image file before running.");
+    	options.addOption("si", "save-image", true, "Save the global environment to an image file after the script runs.");
+    	options.addOption("sv", "server", true, "Run as a daemon evaluating scripts sent to a localhost TCP port or Unix socket path.");
+    	options.addOption("mc", "max-concurrent", true, "Maximum number of requests the daemon evaluates at once (default: " + maxConcurrent + ").");
+    	options.addOption("rs", "request-steps", true, "Maximum number of evaluation steps of a daemon request.");
+    	options.addOption("rt", "request-timeout", true, "Maximum time in milliseconds of a daemon request.");
+    	options.addOption("rd", "request-depth", true, "Maximum lambda recursion depth of a daemon request.");
+    	options.addOption("rl", "request-list-size", true, "Maximum size of the lists made by builtins in a daemon request.");
+    	options.addOption("cn", "connect", true, "Send the script (or standard input) to a running daemon and print its output.");
+    	options.addOption("pf", "profile", false, "Profile procedure calls and print a report at exit.");
+    	options.addOption("po", "profile-output", true, "Write the profile as collapsed stacks for flame graph tools (implies --profile).");
+    	options.addOption("jf", "jfr", true, "Record a Java Flight Recorder file including the blisp parse, eval and call events.");
     	
     	parseArguments(args);
     }
@@ -150,6 +176,49 @@ public class Interpreter {
     		if (cmd.hasOption("ep")) {
     			extendedPrint = true;
     		}
+    		if (cmd.hasOption("sc")) {
+    			useScriptCache = true;
+    		}
+    		if (cmd.hasOption("cd")) {
+    			cacheDir = Paths.get(cmd.getOptionValue("cd"));
+    		}
+    		if (cmd.hasOption("im")) {
+    			imageFile = Paths.get(cmd.getOptionValue("im"));
+    		}
+    		if (cmd.hasOption("si")) {
+    			saveImageFile = Paths.get(cmd.getOptionValue("si"));
+    		}
+    		if (cmd.hasOption("sv")) {
+    			serverAddress = BlispServer.parseAddress(cmd.getOptionValue("sv"));
+    		}
+    		if (cmd.hasOption("mc")) {
+    			maxConcurrent = Integer.parseInt(cmd.getOptionValue("mc"));
+    		}
+    		if (cmd.hasOption("rs")) {
+    			requestBudget().maxSteps(Long.parseLong(cmd.getOptionValue("rs")));
+    		}
+    		if (cmd.hasOption("rt")) {
+    			requestBudget().timeout(Duration.ofMillis(Long.parseLong(cmd.getOptionValue("rt"))));
+    		}
+    		if (cmd.hasOption("rd")) {
+    			requestBudget().maxDepth(Integer.parseInt(cmd.getOptionValue("rd")));
+    		}
+    		if (cmd.hasOption("rl")) {
+    			requestBudget().maxListSize(Integer.parseInt(cmd.getOptionValue("rl")));
+    		}
+    		if (cmd.hasOption("pf")) {
+    			profile = true;
+    		}
+    		if (cmd.hasOption("po")) {
+    			profile = true;
+    			profileOutputFile = Paths.get(cmd.getOptionValue("po"));
+    		}
+    		if (cmd.hasOption("jf")) {
+    			jfrFile = Paths.get(cmd.getOptionValue("jf"));
+    		}
+    		if (cmd.hasOption("cn")) {
+    			connectAddress = BlispServer.parseAddress(cmd.getOptionValue("cn"));
+    		}
     		// Handle script file argument
     		for (int i = 0; i < args.length; i++) {
     			var arg = args[i];
@@ -183,9 +252,10 @@ public class Interpreter {
     }
     
     /**
-     * Instance for the most recently opened tree viewer.
+     * The REPL line editor, created on first use so that script execution never loads the
+     * terminal classes.
      */
-    private TreeViewer lastTokenTreeViewer = null;
+    private ConsoleReader console = null;
     
     /**
      * Starts the main loop for the interpreter.
@@ -194,26 +264,24 @@ public class Interpreter {
      * @throws IOException
      */
     private int mainLoop() throws IOException {
-    	// Set the appropriate code source
+    	// Thin client, the daemon does all of the work
+    	if (connectAddress != null) {
+    		return connect();
+    	}
+    	
+    	// The token display options need the token stream, so they bypass the script cache
+    	final boolean runCachedScript = (scriptFile != null && useScriptCache && !showTokens && !showTokensTree);
     	
-    	final LineReader lineReader = createLineReader();
-    	lineReader.setVariable(LineReader.HISTORY_FILE, Paths.get(System.getProperty("user.home"), ".blisp_history").toString());
-        lineReader.setVariable(LineReader.HISTORY_FILE_SIZE, 100); // Sset history file size
-        lineReader.setVariable(LineReader.SECONDARY_PROMPT_PATTERN, PS2);
-        lineReader.setKeyMap(LineReader.EMACS); // Set keymap to GNU/Emacs
-        
-    	//InputStream in = new LineReaderInputStream(lineReader);
+    	// Set the appropriate code source
     	InputStream in = System.in;
-    	if (scriptFile != null) {
+    	if (scriptFile != null && !runCachedScript) {
     		in = new FileInputStream(scriptFile);
     	}
     	InputStreamReader input = new InputStreamReader(in);
     	BufferedReader reader = new BufferedReader(input);
     	
-    	History history = new DefaultHistory(lineReader);
-    	
     	// Show initial messages at REPL
-    	if (mode == InterpreterMode.REPL) {
+    	if (mode == InterpreterMode.REPL && serverAddress == null) {
     		replHello();
     	}
     	// Turn on extended print
@@ -221,8 +289,28 @@ public class Interpreter {
     		Atom.setExtendedPrint(true);
     	}
     	
+    	// Record procedure calls, reporting at exit (including exit through the exit procedure)
+    	if (profile) {
+    		Profiler.setEnabled(true);
+    		Runtime.getRuntime().addShutdownHook(new Thread(this::reportProfile));
+    	}
+    	// Record a flight recording, written at exit
+    	if (jfrFile != null) {
+    		try {
+    			Recording recording = BlispEvents.startRecording(jfrFile);
+    			Runtime.getRuntime().addShutdownHook(new Thread(recording::close));
+    		} catch (IOException ex) {
+    			reportFatalError(ex);
+    			return EXIT_FAILURE;
+    		}
+    	}
+    	
     	// Create the environment for the session
     	Environment env = Environment.createGlobalEnv();
+    	if (scriptFile != null) {
+    		// Modules required by the script are found next to it
+    		env.getModuleRegistry().setBaseDirectory(scriptFile.getAbsoluteFile().toPath().getParent());
+    	}
     	env.define("help", (Procedure) (args) -> {
     		replUsage();
     		return SymbolAtom.nil;
@@ -239,27 +327,31 @@ public class Interpreter {
     		Utils.openUrlInBrowser(JAVADOC_URL);
     		return SymbolAtom.nil;
     	});
+    	// Restore the environment image on top of the builtins
+    	if (imageFile != null) {
+    		try {
+    			EnvironmentImage.restore(imageFile, env);
+    		} catch (IOException ex) {
+    			reportFatalError(ex);
+    			return EXIT_FAILURE;
+    		}
+    	}
+    	// Serve requests on top of the environment, the script is a prelude
+    	if (serverAddress != null) {
+    		return serve(env);
+    	}
     	// Build up input expressions line by line
     	StringBuilder expression = new StringBuilder();
     	int retcode = EXIT_SUCCESS; // REPL return value
     	
-    	lineReader.getWidgets().put("input-cancel", () -> {
-    		//lineReader.callWidget(LineReader.CLEAR_SCREEN);
-    		// Clear the buffer and expression
-    	    lineReader.getBuffer().clear();
-    	    expression.setLength(0);
-
-    	    // Reset prompt depending on the context
-    	    //lineReader.setPrompt(expression.length() == 0 ? PS1 : PS2);
-
-    	    // Redraw the prompt
-    	    lineReader.callWidget(LineReader.REDISPLAY);
-    	    return true; // Continue the loop
-    	});
-    	
-    	// Bind the input cancel widget to Ctrl+G
-    	KeyMap<Binding> keyMap = lineReader.getKeyMaps().get(LineReader.MAIN);
-    	keyMap.bind(new Reference("input-cancel"), "\u0007"); // \u0007 = Ctrl+G
+    	// Evaluate the whole script up front from its cached parse
+    	if (runCachedScript) {
+    		retcode = evaluateScript(env, true);
+    		if (retcode != EXIT_SUCCESS || mode == InterpreterMode.SCRIPT) {
+    			return finish(env, retcode);
+    		}
+    		mode = InterpreterMode.REPL; // Continue with the REPL
+    	}
     	
     	do {
     		try {
@@ -268,8 +360,11 @@ public class Interpreter {
     	        if (mode == InterpreterMode.REPL) {
     	            // Primary prompt for the first line
     	            String prompt = expression.length() == 0 ? PS1 : PS2;
-    	            // Read input, secondary prompt is handled automatically by LineReader
-    	            line = lineReader.readLine(prompt);
+    	            // Read input, secondary prompt is handled automatically by the console
+    	            if (console == null) {
+    	            	console = new ConsoleReader(PS2, () -> expression.setLength(0));
+    	            }
+    	            line = console.readLine(prompt);
     	        } else {
     	            line = reader.readLine();
     	        }
@@ -278,11 +373,7 @@ public class Interpreter {
     			if (line == null) {
     				// The script file is done executing now switch to REPL mode
     				if (mode == InterpreterMode.SCRIPT_AND_REPL) {
-    					mode = InterpreterMode.REPL;
-    					// Reconstruct the input stream and buffered reader
-    					//lineReader = createLineReader();
-    			    	input = new InputStreamReader(new LineReaderInputStream(lineReader));
-    			    	reader = new BufferedReader(input);
+    					mode = InterpreterMode.REPL; // Read from the console from now on
     					continue;
     				}
     				running = false;
@@ -291,8 +382,6 @@ public class Interpreter {
     			
     			// Append the line as well as a newline to the expression string builder
     			expression.append(line).append('\n');
-    			// Add the line to the history
-    			history.add(line);
     			
     			// Continue reading if the expression string has unbalanced parentheses
     			final String exprStr = expression.toString();
@@ -308,60 +397,225 @@ public class Interpreter {
     			}
     			// Display token tree (Swing dialog)
     			if (showTokensTree) {
-    				// Close the viewer if one is already open
-    				if (lastTokenTreeViewer != null)
-    					lastTokenTreeViewer.closeViewer();
-    				
-    				List<Object> temp = new ArrayList<>(tokens);
-    				lastTokenTreeViewer = new TokenTreeViewer(temp);
-    				lastTokenTreeViewer.showViewer();
+    				TokenTreeDisplay.show(tokens);
     			}
     			
     			// Parse the tokenized input
     			Parser parser = new Parser(tokens);
     			Object parsedExpr = parser.parse();
-    			// Display the parsing stage output
-    			if (showParser) {
-    				ps.printf("  Parsed Expr(s): %s\n", parsedExpr);
-    			}
-    			
-    			//System.out.println(env);
-    			// Evaluate using the global environment	
-    			Evaluator evaluator = new Evaluator(env);
-    			Object result = evaluator.evaluate(parsedExpr, env);
-    			if (mode == InterpreterMode.REPL) {
-        			// Output the result of evaluating the given expression
-    				ps.println(result);
-    			}
+    			// Evaluate using the global environment
+    			evaluateExpression(parsedExpr, env);
     			// Reset the expression string builder
     			expression.setLength(0);
-    		} catch (EndOfFileException | UserInterruptException ex) {
-    			// Handle Ctrl+C & Ctrl+D with JLine gracefully
-    			running = false;
-    			break;
     		} catch (LispRuntimeException ex) {
         		// Process blisp runtime exceptions
-        		es.printf("Error:\n  %s\n", ex.getMessage());
-    			if (showStackTrace)
-        			ex.printStackTrace();
+        		reportError(ex);
+        		// Drop the failed expression, so it isn't evaluated again with the next line
+        		expression.setLength(0);
         	} catch (Exception ex) {
         		// Any exception not derived from LispRuntimeExeception should result in an exit
-        		es.printf("Fatal Error:\n  %s\n", ex.getMessage());
-        		if (showStackTrace)
-        			ex.printStackTrace();
+        		reportFatalError(ex);
         		// Prepare for exit
         		running = false;
         		retcode = EXIT_FAILURE;
         		break;
         	}
     	} while (running);
+    	return finish(env, retcode);
+    }
+    
+    /**
+     * Run the daemon, after evaluating the script file (if any) into its global environment.
+     * 
+     * @param env The global environment of the daemon.
+     * @return The application exit code.
+     */
+    private int serve(Environment env) {
+    	if (scriptFile != null) {
+    		int retcode = evaluateScript(env, useScriptCache);
+    		if (retcode != EXIT_SUCCESS)
+    			return retcode;
+    	}
+    	try (EvaluationService service = new EvaluationService(env, maxConcurrent)) {
+    		service.setBudget(requestBudget);
+    		new BlispServer(service, serverAddress).serve();
+    	} catch (IOException ex) {
+    		reportFatalError(ex);
+    		return EXIT_FAILURE;
+    	}
+    	return EXIT_SUCCESS;
+    }
+    
+    /**
+     * Send the script file (or standard input) to the daemon and print its output.
+     * 
+     * @return The application exit code.
+     */
+    private int connect() {
+    	try (InputStream source = (scriptFile != null) ? new FileInputStream(scriptFile) : System.in) {
+    		BlispServer.connect(connectAddress, source, ps);
+    	} catch (IOException ex) {
+    		reportFatalError(ex);
+    		return EXIT_FAILURE;
+    	}
+    	return EXIT_SUCCESS;
+    }
+    
+    /**
+     * Finish the session, saving the environment image if requested.
+     * 
+     * @param env The environment of the session.
+     * @param retcode The exit code of the session.
+     * @return The application exit code.
+     */
+    private int finish(Environment env, int retcode) {
+    	if (saveImageFile != null && retcode == EXIT_SUCCESS) {
+    		try {
+    			EnvironmentImage.save(env, saveImageFile);
+    		} catch (IOException ex) {
+    			reportFatalError(ex);
+    			return EXIT_FAILURE;
+    		}
+    	}
     	return retcode;
     }
-
-    private LineReader createLineReader() {
-    	return LineReaderBuilder.builder().parser(new ImmediateLineParser()).build();
+    
+    /**
+     * Evaluate a parsed expression, printing the result in REPL mode.
+     * 
+     * @param parsedExpr The parsed expression.
+     * @param env The environment to evaluate the expression in.
+     */
+    private void evaluateExpression(Object parsedExpr, Environment env) {
+    	// Display the parsing stage output
+    	if (showParser) {
+    		ps.printf("  Parsed Expr(s): %s\n", parsedExpr);
+    	}
+    	
+    	//System.out.println(env);
+    	Evaluator evaluator = new Evaluator(env);
+    	Object result = evaluator.evaluateTopLevel(parsedExpr, env);
+    	if (mode == InterpreterMode.REPL) {
+    		// Output the result of evaluating the given expression
+    		ps.println(result);
+    	}
+    }
+    
+    /**
+     * Evaluate every top-level form of the script file. With {@code cached} the parsed forms are
+     * loaded from the script cache (parsing and caching the script on a miss).
+     * 
+     * @param env The environment to evaluate the script in.
+     * @param cached Whether to use the script cache.
+     * @return The application exit code.
+     */
+    private int evaluateScript(Environment env, boolean cached) {
+    	List<Object> forms;
+    	try {
+    		if (cached) {
+    			forms = new ScriptCache(cacheDir).load(scriptFile.toPath());
+    		} else {
+    			forms = loadScript(scriptFile.toPath());
+    		}
+    	} catch (LispRuntimeException ex) {
+    		// The whole script is parsed up front, so a syntax error stops the script
+    		reportError(ex);
+    		return EXIT_FAILURE;
+    	} catch (Exception ex) {
+    		reportFatalError(ex);
+    		return EXIT_FAILURE;
+    	}
+    	
+    	for (var form : forms) {
+    		try {
+    			evaluateExpression(form, env);
+    		} catch (LispRuntimeException ex) {
+    			reportError(ex);
+    		} catch (Exception ex) {
+    			reportFatalError(ex);
+    			return EXIT_FAILURE;
+    		}
+    	}
+    	return EXIT_SUCCESS;
+    }
+    
+    /**
+     * Retrieve the budget of daemon requests, creating it on first use.
+     * 
+     * @return The request budget.
+     */
+    private Budget requestBudget() {
+    	if (requestBudget == null) {
+    		requestBudget = new Budget();
+    	}
+    	return requestBudget;
+    }
+    
+    /**
+     * Read, tokenize and parse the script file.
+     * 
+     * @param path The script file.
+     * @return The parsed top-level forms.
+     * @throws IOException if the script file cannot be read.
+     */
+    private List<Object> loadScript(Path path) throws IOException {
+    	ScriptLoadEvent event = BlispEvents.isEnabled() ? new ScriptLoadEvent() : null;
+    	if (event != null) {
+    		event.begin();
+    	}
+    	String source = Files.readString(path);
+    	List<String> tokens = new Tokenizer(source).tokenize();
+    	List<Object> forms = tokens.isEmpty() ? List.of() : new Parser(tokens).parseAll();
+    	if (event != null) {
+    		event.end();
+    		if (event.shouldCommit()) {
+    			event.path = path.toString();
+    			event.size = source.length();
+    			event.forms = forms.size();
+    			event.cached = false;
+    			event.commit();
+    		}
+    	}
+    	return forms;
+    }
+    
+    /**
+     * Print the profile report and write the collapsed stacks file, if requested.
+     */
+    private void reportProfile() {
+    	Profiler.setEnabled(false);
+    	Profiler.report(es, 30);
+    	if (profileOutputFile != null) {
+    		try {
+    			Profiler.writeCollapsedStacks(profileOutputFile);
+    		} catch (IOException ex) {
+    			reportFatalError(ex);
+    		}
+    	}
     }
     
+    /**
+     * Report a blisp runtime error; the interpreter keeps running.
+     * 
+     * @param ex The runtime exception.
+     */
+    private void reportError(LispRuntimeException ex) {
+    	es.printf("Error:\n  %s\n", ex.getMessage());
+    	if (showStackTrace)
+    		ex.printStackTrace();
+    }
+    
+    /**
+     * Report an error that ends the interpreter.
+     * 
+     * @param ex The exception.
+     */
+    private void reportFatalError(Exception ex) {
+    	es.printf("Fatal Error:\n  %s\n", ex.getMessage());
+    	if (showStackTrace)
+    		ex.printStackTrace();
+    }
+
     /**
      * Show command line help information.
      */
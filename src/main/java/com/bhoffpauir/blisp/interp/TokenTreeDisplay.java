@@ -0,0 +1,38 @@
+package com.bhoffpauir.blisp.interp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.bhoffpauir.blisp.lib.TokenTreeViewer;
+import com.bhoffpauir.blisp.lib.TreeViewer;
+
+/**
+ * Shows the token tree viewer for the interpreter.
+ *
+ * <p>Kept apart from {@link Interpreter} so that the Swing classes are only loaded once a
+ * viewer is opened, rather than whenever the interpreter class is verified.</p>
+ */
+final class TokenTreeDisplay {
+	/**
+	 * Instance for the most recently opened tree viewer.
+	 */
+	private static TreeViewer lastTokenTreeViewer = null;
+
+	private TokenTreeDisplay() {
+	}
+
+	/**
+	 * Open a tree viewer for the tokens, closing the previously opened viewer.
+	 *
+	 * @param tokens The tokens to display.
+	 */
+	static void show(List<String> tokens) {
+		// Close the viewer if one is already open
+		if (lastTokenTreeViewer != null)
+			lastTokenTreeViewer.closeViewer();
+
+		List<Object> temp = new ArrayList<>(tokens);
+		lastTokenTreeViewer = new TokenTreeViewer(temp);
+		lastTokenTreeViewer.showViewer();
+	}
+}
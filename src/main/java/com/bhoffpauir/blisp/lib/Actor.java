@@ -0,0 +1,176 @@
+package com.bhoffpauir.blisp.lib;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import com.bhoffpauir.blisp.lib.atom.ActorAtom;
+import com.bhoffpauir.blisp.lib.exception.EvaluationCancelledException;
+import com.bhoffpauir.blisp.lib.exception.LispRuntimeException;
+
+/**
+ * An independent worker that processes messages from its own {@link Mailbox}, backing the
+ * {@code spawn}, {@code send} and {@code receive} forms.
+ *
+ * <p>Each actor runs its body on a virtual thread; the JVM schedules virtual threads on a
+ * work-stealing pool of carrier threads, so a blocked actor (an empty mailbox or a full mailbox
+ * it sends to) only parks its virtual thread. The body is evaluated in a child environment of
+ * the spawning environment, so its definitions are private to the actor.</p>
+ *
+ * <p>Any thread may receive: a thread that is not an actor gets a mailbox the first time it
+ * calls {@code self} or {@code receive}, which lets scripts collect replies from the main
+ * thread.</p>
+ */
+public final class Actor {
+	/**
+	 * Mailbox capacity of actors spawned without an explicit capacity.
+	 */
+	public static final int DEFAULT_CAPACITY = 1024;
+	private static final AtomicLong ids = new AtomicLong();
+	private static final ThreadLocal<Actor> current = new ThreadLocal<>();
+
+	private final long id = ids.incrementAndGet();
+	private final Mailbox mailbox;
+	private final ActorAtom atom;
+	private final CompletableFuture<Object> completion = new CompletableFuture<>();
+	private volatile Thread thread;
+
+	private Actor(int capacity) {
+		this.mailbox = new Mailbox(capacity);
+		this.atom = new ActorAtom(this);
+	}
+
+	/**
+	 * Start an actor running {@code body}.
+	 *
+	 * @param capacity The mailbox capacity.
+	 * @param body The body of the actor.
+	 * @return The new actor.
+	 */
+	public static Actor spawn(int capacity, Supplier<Object> body) {
+		Actor actor = new Actor(capacity);
+		actor.thread = Thread.ofVirtual().name("blisp-actor-" + actor.id).start(() -> {
+			current.set(actor);
+			try {
+				actor.completion.complete(body.get());
+			} catch (Throwable ex) {
+				actor.completion.completeExceptionally(ex);
+			} finally {
+				actor.mailbox.close(); // No one is left to make room
+			}
+		});
+		return actor;
+	}
+
+	/**
+	 * Retrieve the actor of the current thread, giving the thread a mailbox if it has none.
+	 *
+	 * @return The current actor.
+	 */
+	public static Actor current() {
+		Actor actor = current.get();
+		if (actor == null) {
+			actor = new Actor(DEFAULT_CAPACITY);
+			actor.thread = Thread.currentThread();
+			current.set(actor);
+		}
+		return actor;
+	}
+
+	/**
+	 * Send a message, waiting while the mailbox is full.
+	 *
+	 * @param message The message.
+	 * @param timeoutMillis The maximum time to wait, or a negative value to wait indefinitely.
+	 * @return True if the message was queued, false on timeout.
+	 * @throws LispRuntimeException if the actor has terminated, or terminates while waiting.
+	 */
+	public boolean send(Object message, long timeoutMillis) {
+		if (!completion.isDone() && mailbox.put(message, (timeoutMillis < 0) ? -1 : timeoutMillis * 1_000_000))
+			return true;
+		if (completion.isDone() || mailbox.isClosed())
+			throw new LispRuntimeException("Cannot send to a terminated actor: " + atom);
+		return false; // Timed out
+	}
+
+	/**
+	 * Receive the next message of the current thread's actor.
+	 *
+	 * @param timeoutMillis The maximum time to wait, or a negative value to wait indefinitely.
+	 * @return The message, or null on timeout.
+	 */
+	public static Object receive(long timeoutMillis) {
+		return current().mailbox.take((timeoutMillis < 0) ? -1 : timeoutMillis * 1_000_000);
+	}
+
+	/**
+	 * Wait for the body of the actor to finish.
+	 *
+	 * @return The result of the body.
+	 * @throws LispRuntimeException if the body failed.
+	 */
+	public Object join() {
+		try {
+			return completion.get();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new EvaluationCancelledException();
+		} catch (CancellationException ex) {
+			throw new LispRuntimeException("Actor was stopped");
+		} catch (ExecutionException ex) {
+			if (ex.getCause() instanceof LispRuntimeException lispEx)
+				throw lispEx;
+			throw new LispRuntimeException("Error in actor: " + ex.getCause());
+		}
+	}
+
+	/**
+	 * Stop the actor by interrupting its thread.
+	 */
+	public void stop() {
+		Thread t = thread;
+		if (t != null && completion.cancel(false)) {
+			mailbox.close();
+			t.interrupt();
+		}
+	}
+
+	/**
+	 * Check if the body of the actor is still running. Threads given a mailbox by
+	 * {@link #current()} are always alive.
+	 *
+	 * @return True while the actor is running.
+	 */
+	public boolean isAlive() {
+		return !completion.isDone();
+	}
+
+	/**
+	 * Retrieve the id of the actor.
+	 *
+	 * @return The actor id.
+	 */
+	public long getId() {
+		return id;
+	}
+
+	/**
+	 * Retrieve the mailbox of the actor, e.g. to read its queue metrics.
+	 *
+	 * @return The mailbox.
+	 */
+	public Mailbox getMailbox() {
+		return mailbox;
+	}
+
+	/**
+	 * Retrieve the atom representing this actor in blisp code.
+	 *
+	 * @return The actor atom.
+	 */
+	public ActorAtom getAtom() {
+		return atom;
+	}
+}
@@ -0,0 +1,151 @@
+package com.bhoffpauir.blisp.lib;
+
+import com.bhoffpauir.blisp.lib.atom.ArrayAtom;
+import com.bhoffpauir.blisp.lib.exception.LispRuntimeException;
+
+/**
+ * Numeric kernels behind the {@link ArrayAtom} builtins.
+ *
+ * <p>The kernels are plain counted loops over {@code double[]} with no calls or branches in the
+ * loop body, the shape the HotSpot C2 compiler turns into SIMD code on its own (superword
+ * vectorization), so they are vectorized wherever the JIT supports it and run as scalar loops
+ * everywhere else. Floating-point sums cannot be reordered by the JIT, so the reductions keep
+ * four independent partial sums instead, which hides the latency of the additions; their results
+ * may differ from a left-to-right sum in the last bits.</p>
+ *
+ * @see ArrayAtom
+ */
+public final class ArrayOps {
+	/**
+	 * Element-wise arithmetic operators.
+	 */
+	public enum Operator {
+		ADD("+"), SUBTRACT("-"), MULTIPLY("*"), DIVIDE("/");
+
+		private final String symbol;
+
+		Operator(String symbol) {
+			this.symbol = symbol;
+		}
+
+		/**
+		 * Retrieve the symbol of the operator.
+		 *
+		 * @return The symbol, e.g. {@code "+"}.
+		 */
+		public String getSymbol() {
+			return symbol;
+		}
+	}
+
+	private ArrayOps() {
+	}
+
+	/**
+	 * Sum the elements of an array.
+	 *
+	 * @param a The array.
+	 * @return The sum.
+	 */
+	public static double sum(double[] a) {
+		double s0 = 0.0, s1 = 0.0, s2 = 0.0, s3 = 0.0;
+		int i = 0;
+		for (; i + 3 < a.length; i += 4) {
+			s0 += a[i];
+			s1 += a[i + 1];
+			s2 += a[i + 2];
+			s3 += a[i + 3];
+		}
+		for (; i < a.length; i++) {
+			s0 += a[i];
+		}
+		return (s0 + s1) + (s2 + s3);
+	}
+
+	/**
+	 * Compute the dot product of two arrays.
+	 *
+	 * @param a The first array.
+	 * @param b The second array, of the same length.
+	 * @return The dot product.
+	 * @throws LispRuntimeException if the lengths differ.
+	 */
+	public static double dot(double[] a, double[] b) {
+		checkLengths("dot", a, b);
+		double s0 = 0.0, s1 = 0.0, s2 = 0.0, s3 = 0.0;
+		int i = 0;
+		for (; i + 3 < a.length; i += 4) {
+			s0 += a[i] * b[i];
+			s1 += a[i + 1] * b[i + 1];
+			s2 += a[i + 2] * b[i + 2];
+			s3 += a[i + 3] * b[i + 3];
+		}
+		for (; i < a.length; i++) {
+			s0 += a[i] * b[i];
+		}
+		return (s0 + s1) + (s2 + s3);
+	}
+
+	/**
+	 * Combine two arrays element by element. Division follows IEEE 754, dividing by zero gives
+	 * an infinity or NaN element rather than an error.
+	 *
+	 * @param op The operator.
+	 * @param a The first array.
+	 * @param b The second array, of the same length.
+	 * @return A new array with {@code a[i] op b[i]}.
+	 * @throws LispRuntimeException if the lengths differ.
+	 */
+	public static double[] apply(Operator op, double[] a, double[] b) {
+		checkLengths("array" + op.getSymbol(), a, b);
+		double[] r = new double[a.length];
+		// One loop per operator, so each loop body is a single vectorizable operation
+		switch (op) {
+			case ADD -> {
+				for (int i = 0; i < r.length; i++) r[i] = a[i] + b[i];
+			}
+			case SUBTRACT -> {
+				for (int i = 0; i < r.length; i++) r[i] = a[i] - b[i];
+			}
+			case MULTIPLY -> {
+				for (int i = 0; i < r.length; i++) r[i] = a[i] * b[i];
+			}
+			case DIVIDE -> {
+				for (int i = 0; i < r.length; i++) r[i] = a[i] / b[i];
+			}
+		}
+		return r;
+	}
+
+	/**
+	 * Combine every element of an array with a number.
+	 *
+	 * @param op The operator.
+	 * @param a The array.
+	 * @param b The number.
+	 * @return A new array with {@code a[i] op b}.
+	 */
+	public static double[] apply(Operator op, double[] a, double b) {
+		double[] r = new double[a.length];
+		switch (op) {
+			case ADD -> {
+				for (int i = 0; i < r.length; i++) r[i] = a[i] + b;
+			}
+			case SUBTRACT -> {
+				for (int i = 0; i < r.length; i++) r[i] = a[i] - b;
+			}
+			case MULTIPLY -> {
+				for (int i = 0; i < r.length; i++) r[i] = a[i] * b;
+			}
+			case DIVIDE -> {
+				for (int i = 0; i < r.length; i++) r[i] = a[i] / b;
+			}
+		}
+		return r;
+	}
+
+	private static void checkLengths(String operation, double[] a, double[] b) {
+		if (a.length != b.length)
+			throw new LispRuntimeException("Array lengths differ for " + operation + ": " + a.length + " and " + b.length);
+	}
+}
@@ -0,0 +1,226 @@
+package com.bhoffpauir.blisp.lib;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StreamCorruptedException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.bhoffpauir.blisp.lib.atom.ArrayAtom;
+import com.bhoffpauir.blisp.lib.atom.BooleanAtom;
+import com.bhoffpauir.blisp.lib.atom.CharacterAtom;
+import com.bhoffpauir.blisp.lib.atom.ListAtom;
+import com.bhoffpauir.blisp.lib.atom.NumberAtom;
+import com.bhoffpauir.blisp.lib.atom.Ratio;
+import com.bhoffpauir.blisp.lib.atom.StringAtom;
+import com.bhoffpauir.blisp.lib.atom.SymbolAtom;
+
+/**
+ * Input stream that reads blisp atoms written by an {@link AtomOutputStream}, in the order they
+ * were written.
+ *
+ * <p>The counts and lengths read are not trusted: storage for the elements of a list, array or
+ * string is grown as the elements are actually read, so a corrupt count ends in an
+ * {@link java.io.EOFException} rather than a huge allocation.</p>
+ *
+ * @see AtomOutputStream
+ */
+public class AtomInputStream extends DataInputStream {
+	// Elements allocated ahead of those read, for counts read from the stream
+	private static final int CHUNK_SIZE = 8192;
+	private final List<String> symbols = new ArrayList<>(); // Symbols read, by number
+	
+	/**
+	 * Creates an atom input stream that reads from the given stream.
+	 *
+	 * @param in The underlying input stream.
+	 */
+	public AtomInputStream(InputStream in) {
+		super(in);
+	}
+
+	/**
+	 * Read a single atom, recursively reading the elements of lists.
+	 *
+	 * @return The atom that was read.
+	 * @throws IOException if an I/O error occurs or the stream holds an unknown tag.
+	 */
+	public Object readAtom() throws IOException {
+		return readAtom(readByte());
+	}
+
+	/**
+	 * Read the next atom, if the stream holds another one.
+	 *
+	 * @return The atom that was read, or null at the end of the stream.
+	 * @throws IOException if an I/O error occurs or the stream holds an unknown tag.
+	 */
+	public Object readNextAtom() throws IOException {
+		int tag = read();
+		return (tag < 0) ? null : readAtom((byte) tag);
+	}
+
+	/**
+	 * Read the payload of an atom whose tag has already been read. Subclasses can override this
+	 * method to support additional tags.
+	 *
+	 * @param tag The atom tag.
+	 * @return The atom that was read.
+	 * @throws IOException if an I/O error occurs or the tag is unknown.
+	 */
+	protected Object readAtom(byte tag) throws IOException {
+		return switch (tag) {
+			case AtomOutputStream.TAG_BOOLEAN -> new BooleanAtom(readBoolean());
+			case AtomOutputStream.TAG_CHARACTER -> new CharacterAtom((char) readVarInt(Character.MAX_VALUE));
+			case AtomOutputStream.TAG_INTEGER -> new NumberAtom((int) readSignedVarLong());
+			case AtomOutputStream.TAG_DOUBLE -> new NumberAtom(readDouble());
+			case AtomOutputStream.TAG_LONG -> NumberAtom.valueOf(readSignedVarLong());
+			case AtomOutputStream.TAG_BIGINT -> new NumberAtom(readBigInteger());
+			case AtomOutputStream.TAG_RATIO -> {
+				BigInteger numerator = readBigInteger(), denominator = readBigInteger();
+				if (denominator.signum() == 0) {
+					throw new StreamCorruptedException("Invalid ratio denominator: 0");
+				}
+				yield NumberAtom.valueOf(Ratio.of(numerator, denominator));
+			}
+			case AtomOutputStream.TAG_STRING -> new StringAtom(readString());
+			case AtomOutputStream.TAG_SYMBOL, AtomOutputStream.TAG_SYMBOL_REF -> new SymbolAtom(readSymbol(tag));
+			case AtomOutputStream.TAG_LIST -> {
+				int size = readVarInt(Integer.MAX_VALUE);
+				List<Object> elements = new ArrayList<>(Math.min(size, CHUNK_SIZE));
+				for (int i = 0; i < size; i++) {
+					elements.add(readAtom());
+				}
+				yield new ListAtom(elements);
+			}
+			case AtomOutputStream.TAG_ARRAY -> {
+				int length = readVarInt(Integer.MAX_VALUE);
+				double[] elements = new double[Math.min(length, CHUNK_SIZE)];
+				for (int i = 0; i < length; i++) {
+					if (i == elements.length) {
+						elements = Arrays.copyOf(elements, (int) Math.min(length, 2L * i));
+					}
+					elements[i] = readDouble();
+				}
+				yield new ArrayAtom(elements);
+			}
+			default -> throw new StreamCorruptedException("Unknown atom tag: " + tag);
+		};
+	}
+
+	/**
+	 * Read a big integer written by {@link AtomOutputStream#writeBigInteger(BigInteger)}.
+	 *
+	 * @return The integer that was read.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public BigInteger readBigInteger() throws IOException {
+		int length = readVarInt(Integer.MAX_VALUE);
+		if (length == 0) {
+			throw new StreamCorruptedException("Invalid integer length: " + length);
+		}
+		return new BigInteger(readBytes(length));
+	}
+
+	/**
+	 * Read a length-prefixed UTF-8 string written by {@link AtomOutputStream#writeString(String)}.
+	 *
+	 * @return The string that was read.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public String readString() throws IOException {
+		int length = readVarInt(Integer.MAX_VALUE);
+		return new String(readBytes(length), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Read a number of bytes, growing the array as they are read.
+	 */
+	private byte[] readBytes(int length) throws IOException {
+		byte[] bytes = new byte[Math.min(length, CHUNK_SIZE)];
+		int read = 0;
+		while (true) {
+			readFully(bytes, read, bytes.length - read);
+			read = bytes.length;
+			if (read == length) {
+				return bytes;
+			}
+			bytes = Arrays.copyOf(bytes, (int) Math.min(length, 2L * read));
+		}
+	}
+
+	/**
+	 * Read a symbol name written by {@link AtomOutputStream#writeSymbol(String)}, tag included.
+	 *
+	 * @return The symbol name.
+	 * @throws IOException if an I/O error occurs or the stream holds no symbol.
+	 */
+	public String readSymbol() throws IOException {
+		return readSymbol(readByte());
+	}
+
+	private String readSymbol(byte tag) throws IOException {
+		if (tag == AtomOutputStream.TAG_SYMBOL_REF) {
+			int index = readVarInt(Integer.MAX_VALUE);
+			if (index >= symbols.size()) {
+				throw new StreamCorruptedException("Invalid symbol reference: " + index);
+			}
+			return symbols.get(index);
+		}
+		if (tag != AtomOutputStream.TAG_SYMBOL) {
+			throw new StreamCorruptedException("Expected a symbol, found tag: " + tag);
+		}
+		String name = readString();
+		symbols.add(name);
+		return name;
+	}
+
+	/**
+	 * Read a variable-length integer written by {@link AtomOutputStream#writeVarLong(long)}.
+	 *
+	 * @return The integer.
+	 * @throws IOException if an I/O error occurs or the integer is longer than 64 bits.
+	 */
+	public long readVarLong() throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = readUnsignedByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new StreamCorruptedException("Variable-length integer too long");
+	}
+
+	/**
+	 * Read a zigzag encoded integer written by
+	 * {@link AtomOutputStream#writeSignedVarLong(long)}.
+	 *
+	 * @return The integer.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public long readSignedVarLong() throws IOException {
+		long value = readVarLong();
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * Read a variable-length count, length or index.
+	 *
+	 * @param max The largest valid value.
+	 * @return The value.
+	 * @throws IOException if an I/O error occurs or the value is out of range.
+	 */
+	public int readVarInt(int max) throws IOException {
+		long value = readVarLong();
+		if (value < 0 || value > max) {
+			throw new StreamCorruptedException("Invalid count: " + value);
+		}
+		return (int) value;
+	}
+}
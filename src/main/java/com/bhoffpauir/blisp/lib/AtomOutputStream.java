@@ -0,0 +1,268 @@
+package com.bhoffpauir.blisp.lib;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.bhoffpauir.blisp.lib.atom.ArrayAtom;
+import com.bhoffpauir.blisp.lib.atom.BooleanAtom;
+import com.bhoffpauir.blisp.lib.atom.CharacterAtom;
+import com.bhoffpauir.blisp.lib.atom.ListAtom;
+import com.bhoffpauir.blisp.lib.atom.NumberAtom;
+import com.bhoffpauir.blisp.lib.atom.Ratio;
+import com.bhoffpauir.blisp.lib.atom.StringAtom;
+import com.bhoffpauir.blisp.lib.atom.SymbolAtom;
+
+/**
+ * Output stream that writes blisp atoms in a compact tagged binary form.
+ *
+ * <p>Each atom is written as a single tag byte followed by its payload. Lists are written as
+ * an element count followed by each element, so any parsed expression can be written and later
+ * restored with {@link AtomInputStream} without going through the {@link Tokenizer} or
+ * {@link Parser}.</p>
+ *
+ * <p>Integers, counts and lengths are written as variable-length integers of 7 bits per byte,
+ * with signed integers zigzag encoded first, so small numbers take a single byte. The first
+ * occurrence of each symbol in a stream is written out and numbered; later occurrences are
+ * written as a reference to that number. Atoms can be written one at a time, the stream and its
+ * reader only have to agree on the order. Only data atoms can be written: booleans, characters,
+ * numbers, strings, symbols, lists and arrays.</p>
+ *
+ * @see AtomInputStream
+ */
+public class AtomOutputStream extends DataOutputStream {
+	/**
+	 * Version of the atom encoding, part of the header of the files holding atoms.
+	 */
+	public static final int FORMAT_VERSION = 2;
+	// Atom tags:
+	static final byte TAG_BOOLEAN   = 1;
+	static final byte TAG_CHARACTER = 2;
+	static final byte TAG_INTEGER   = 3;
+	static final byte TAG_DOUBLE    = 4;
+	static final byte TAG_STRING    = 5;
+	static final byte TAG_SYMBOL    = 6;
+	static final byte TAG_LIST      = 7;
+	static final byte TAG_ARRAY     = 8;
+	static final byte TAG_LONG      = 9;
+	static final byte TAG_BIGINT    = 10;
+	static final byte TAG_RATIO     = 11;
+	static final byte TAG_SYMBOL_REF = 12;
+	private final Map<String, Integer> symbols = new HashMap<>(); // Numbers of the symbols written
+
+	/**
+	 * Writes the content of a file.
+	 *
+	 * @param <S> The type of the stream of the file.
+	 */
+	@FunctionalInterface
+	public interface Content<S extends AtomOutputStream> {
+		/**
+		 * Write the content.
+		 *
+		 * @param out The stream of the file.
+		 * @throws IOException if an I/O error occurs.
+		 */
+		void write(S out) throws IOException;
+	}
+
+	/**
+	 * Creates an atom output stream that writes to the given stream.
+	 *
+	 * @param out The underlying output stream.
+	 */
+	public AtomOutputStream(OutputStream out) {
+		super(out);
+	}
+
+	/**
+	 * Write a file through a temporary file in the same directory, moved into place once it is
+	 * complete. If writing fails, e.g. on an atom that cannot be written, the file is left as it
+	 * was, and readers never see a partially written file.
+	 *
+	 * @param file The file to write.
+	 * @param content Writes the content of the file.
+	 * @throws IOException if an I/O error occurs.
+	 * @throws IllegalArgumentException if the content holds an atom that cannot be written.
+	 */
+	public static void writeFile(Path file, Content<AtomOutputStream> content) throws IOException {
+		writeFile(file, AtomOutputStream::new, content);
+	}
+
+	/**
+	 * Write a file like {@link #writeFile(Path, Content)}, through a subclass of
+	 * {@code AtomOutputStream}.
+	 *
+	 * @param <S> The type of the stream.
+	 * @param file The file to write.
+	 * @param open Creates the stream over the (buffered) stream of the file.
+	 * @param content Writes the content of the file.
+	 * @throws IOException if an I/O error occurs.
+	 * @throws IllegalArgumentException if the content holds an atom that cannot be written.
+	 */
+	public static <S extends AtomOutputStream> void writeFile(Path file, Function<OutputStream, S> open,
+			Content<? super S> content) throws IOException {
+		Path dir = file.toAbsolutePath().getParent();
+		Path tempFile = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+		try {
+			try (S out = open.apply(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+				content.write(out);
+			}
+			try {
+				Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException ex) {
+				Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(tempFile); // Unless it was moved
+		}
+	}
+
+	/**
+	 * Write a single atom, recursively writing the elements of lists.
+	 *
+	 * @param atom The atom to write.
+	 * @throws IOException if an I/O error occurs.
+	 * @throws IllegalArgumentException if the atom type cannot be written.
+	 */
+	public void writeAtom(Object atom) throws IOException {
+		switch (atom) {
+			case BooleanAtom bool -> {
+				writeByte(TAG_BOOLEAN);
+				writeBoolean(bool.getValue());
+			}
+			case CharacterAtom ch -> {
+				writeByte(TAG_CHARACTER);
+				writeVarLong(ch.getValue());
+			}
+			case NumberAtom num -> {
+				switch (num.getValue()) {
+					case Integer i -> {
+						writeByte(TAG_INTEGER);
+						writeSignedVarLong(i);
+					}
+					case Long l -> {
+						writeByte(TAG_LONG);
+						writeSignedVarLong(l);
+					}
+					case BigInteger b -> {
+						writeByte(TAG_BIGINT);
+						writeBigInteger(b);
+					}
+					case Ratio r -> {
+						writeByte(TAG_RATIO);
+						writeBigInteger(r.getNumerator());
+						writeBigInteger(r.getDenominator());
+					}
+					default -> {
+						writeByte(TAG_DOUBLE);
+						writeDouble(num.getValue().doubleValue());
+					}
+				}
+			}
+			case StringAtom str -> {
+				writeByte(TAG_STRING);
+				writeString(str.getValue());
+			}
+			case SymbolAtom sym -> writeSymbol(sym.getValue());
+			case ListAtom lst -> {
+				List<Object> elements = lst.getValue();
+				writeByte(TAG_LIST);
+				writeVarLong(elements.size());
+				for (var elem : elements) {
+					writeAtom(elem);
+				}
+			}
+			case ArrayAtom array -> {
+				double[] elements = array.getValue();
+				writeByte(TAG_ARRAY);
+				writeVarLong(elements.length);
+				for (var element : elements) {
+					writeDouble(element);
+				}
+			}
+			default -> throw new IllegalArgumentException("Cannot write atom: " + atom);
+		}
+	}
+
+	/**
+	 * Write a big integer as its length-prefixed two's-complement bytes.
+	 *
+	 * @param value The integer to write.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public void writeBigInteger(BigInteger value) throws IOException {
+		byte[] bytes = value.toByteArray();
+		writeVarLong(bytes.length);
+		write(bytes);
+	}
+
+	/**
+	 * Write a length-prefixed UTF-8 string. Unlike {@link #writeUTF(String)} the length of the
+	 * string is not limited to 64 KiB.
+	 *
+	 * @param str The string to write.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public void writeString(String str) throws IOException {
+		byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+		writeVarLong(bytes.length);
+		write(bytes);
+	}
+
+	/**
+	 * Write a symbol name, tag included: the name itself the first time it is written to this
+	 * stream, a reference to its first occurrence afterwards.
+	 *
+	 * @param name The symbol name.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public void writeSymbol(String name) throws IOException {
+		Integer index = symbols.get(name);
+		if (index != null) {
+			writeByte(TAG_SYMBOL_REF);
+			writeVarLong(index);
+			return;
+		}
+		symbols.put(name, symbols.size());
+		writeByte(TAG_SYMBOL);
+		writeString(name);
+	}
+
+	/**
+	 * Write a non-negative integer in 7-bit groups, least significant first, with the high bit
+	 * of each byte set if more bytes follow.
+	 *
+	 * @param value The integer, treated as unsigned.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public void writeVarLong(long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			write((int) (value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		write((int) value);
+	}
+
+	/**
+	 * Write a signed integer as a zigzag encoded variable-length integer, so integers of small
+	 * magnitude take few bytes whatever their sign.
+	 *
+	 * @param value The integer.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public void writeSignedVarLong(long value) throws IOException {
+		writeVarLong((value << 1) ^ (value >> 63));
+	}
+}
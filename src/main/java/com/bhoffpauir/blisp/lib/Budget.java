@@ -0,0 +1,285 @@
+package com.bhoffpauir.blisp.lib;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import com.bhoffpauir.blisp.lib.exception.BudgetExceededException;
+import com.bhoffpauir.blisp.lib.exception.BudgetExceededException.Limit;
+import com.bhoffpauir.blisp.lib.exception.EvaluationCancelledException;
+
+/**
+ * Limits of a single evaluation: the number of reduction steps, a wall-clock timeout, the
+ * recursion depth of blisp lambdas and the size of the lists made by builtins such as
+ * {@code range}. An evaluation that exceeds a limit stops with a {@link BudgetExceededException},
+ * which leaves the thread free to evaluate something else.
+ *
+ * <p>The limits are enforced by a meter attached to the evaluating thread while
+ * {@link #run(Supplier)} runs. Every list evaluated by the {@link Evaluator}, and every iteration
+ * of a loop, is one step. The checks are counter decrements: a meter takes steps from the
+ * evaluation {@value #CLOCK_INTERVAL} at a time, and only reads the clock when it takes more, so a
+ * single step of a slow builtin (e.g. {@code sleep}) can overrun the timeout. Threads without a
+ * meter skip the checks after reading a shared count of running budgets, so budgets cost nothing
+ * noticeable when none are in use.</p>
+ *
+ * <p>Futures and actors started by the evaluation run on meters of their own that take their
+ * steps from the same evaluation, and share its deadline; their depth starts over. When the
+ * evaluation finishes, however it finishes, the futures and actors it started that are still
+ * running are interrupted, so nothing it started outlives it.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>
+ *     Budget budget = new Budget()
+ *         .maxSteps(1_000_000)
+ *         .timeout(Duration.ofSeconds(2))
+ *         .maxDepth(200)
+ *         .maxListSize(100_000);
+ *     Object result = evaluator.evaluate(expr, env, budget);
+ * </pre>
+ */
+public final class Budget {
+	/**
+	 * Number of steps between two reads of the clock.
+	 */
+	public static final int CLOCK_INTERVAL = 1024;
+	private static final AtomicInteger running = new AtomicInteger();
+	private static final ThreadLocal<Meter> meter = new ThreadLocal<>();
+
+	private long maxSteps = Long.MAX_VALUE;
+	private Duration timeout = null;
+	private int maxDepth = Integer.MAX_VALUE;
+	private int maxListSize = Integer.MAX_VALUE;
+
+	/**
+	 * Constructs a budget without limits.
+	 */
+	public Budget() {
+	}
+
+	/**
+	 * Limit the number of reduction steps.
+	 *
+	 * @param steps The maximum number of steps.
+	 * @return This budget.
+	 */
+	public Budget maxSteps(long steps) {
+		if (steps < 1)
+			throw new IllegalArgumentException("Step limit must be positive: " + steps);
+		this.maxSteps = steps;
+		return this;
+	}
+
+	/**
+	 * Limit the wall-clock time of the evaluation.
+	 *
+	 * @param timeout The maximum time.
+	 * @return This budget.
+	 */
+	public Budget timeout(Duration timeout) {
+		if (timeout.isNegative() || timeout.isZero())
+			throw new IllegalArgumentException("Timeout must be positive: " + timeout);
+		this.timeout = timeout;
+		return this;
+	}
+
+	/**
+	 * Limit the number of nested calls of blisp lambdas.
+	 *
+	 * @param depth The maximum depth.
+	 * @return This budget.
+	 */
+	public Budget maxDepth(int depth) {
+		if (depth < 1)
+			throw new IllegalArgumentException("Depth limit must be positive: " + depth);
+		this.maxDepth = depth;
+		return this;
+	}
+
+	/**
+	 * Limit the number of elements of the lists made by builtins.
+	 *
+	 * @param size The maximum list size.
+	 * @return This budget.
+	 */
+	public Budget maxListSize(int size) {
+		if (size < 0)
+			throw new IllegalArgumentException("List size limit must not be negative: " + size);
+		this.maxListSize = size;
+		return this;
+	}
+
+	/**
+	 * Run {@code body} on the current thread within this budget. A budget running inside
+	 * another replaces it until it finishes.
+	 *
+	 * @param <T> The result type.
+	 * @param body The evaluation to run.
+	 * @return The result of the body.
+	 * @throws BudgetExceededException if the body exceeds a limit.
+	 */
+	public <T> T run(Supplier<T> body) {
+		Evaluation evaluation = new Evaluation(this);
+		try {
+			return run(evaluation, body);
+		} finally {
+			evaluation.finish();
+		}
+	}
+
+	/**
+	 * Wrap the body of a future or actor about to be started by the current thread, so it runs
+	 * within what is left of the budget of the current thread, if any.
+	 *
+	 * @param <T> The result type.
+	 * @param body The body of the future or actor.
+	 * @return The body to run on the new thread.
+	 */
+	public static <T> Supplier<T> inherit(Supplier<T> body) {
+		if (running.get() == 0)
+			return body;
+		Meter current = meter.get();
+		if (current == null)
+			return body;
+		Evaluation evaluation = current.evaluation;
+		return () -> evaluation.budget.run(evaluation, body);
+	}
+
+	private <T> T run(Evaluation evaluation, Supplier<T> body) {
+		Meter previous = meter.get();
+		meter.set(new Meter(evaluation));
+		running.incrementAndGet();
+		Thread thread = Thread.currentThread();
+		boolean started = evaluation.threads.add(thread);
+		try {
+			if (evaluation.finished)
+				throw new EvaluationCancelledException(); // Started after the evaluation ended
+			return body.get();
+		} finally {
+			if (started)
+				evaluation.threads.remove(thread);
+			running.decrementAndGet();
+			if (previous == null)
+				meter.remove();
+			else
+				meter.set(previous);
+		}
+	}
+
+	/**
+	 * Count a reduction step of the current thread.
+	 */
+	static void step() {
+		if (running.get() == 0)
+			return;
+		Meter current = meter.get();
+		if (current != null)
+			current.step();
+	}
+
+	/**
+	 * Count the entry into a blisp lambda on the current thread. The returned meter, if any,
+	 * must be given back to {@link Meter#exit()} when the lambda returns.
+	 *
+	 * @return The meter of the current thread, or null if it has no budget.
+	 */
+	static Meter enter() {
+		if (running.get() == 0)
+			return null;
+		Meter current = meter.get();
+		if (current != null)
+			current.enter();
+		return current;
+	}
+
+	/**
+	 * Check the size of a list about to be made by a builtin against the budget of the current
+	 * thread.
+	 *
+	 * @param size The number of elements of the list.
+	 * @throws BudgetExceededException if the list is larger than the budget allows.
+	 */
+	public static void checkListSize(long size) {
+		if (running.get() == 0)
+			return;
+		Meter current = meter.get();
+		if (current != null && size > current.budget.maxListSize)
+			throw new BudgetExceededException(Limit.LIST_SIZE, current.budget.maxListSize);
+	}
+
+	/**
+	 * One run of a budget, shared by the threads evaluating for it.
+	 */
+	private static final class Evaluation {
+		final Budget budget;
+		final long deadline;
+		final AtomicLong stepsLeft; // Not yet taken by a meter
+		final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+		volatile boolean finished = false;
+
+		Evaluation(Budget budget) {
+			this.budget = budget;
+			this.deadline = (budget.timeout != null) ? System.nanoTime() + budget.timeout.toNanos() : 0;
+			this.stepsLeft = new AtomicLong(budget.maxSteps);
+		}
+
+		// Take up to count steps, returns the number taken
+		long take(long count) {
+			long left = stepsLeft.getAndUpdate((steps) -> Math.max(steps - count, 0));
+			return Math.min(left, count);
+		}
+
+		// Interrupt the futures and actors still running
+		void finish() {
+			finished = true;
+			Thread self = Thread.currentThread();
+			for (Thread thread : threads) {
+				if (thread != self)
+					thread.interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Consumption of a budget by one running evaluation.
+	 */
+	static final class Meter {
+		private final Evaluation evaluation;
+		private final Budget budget;
+		private long stepsLeft = 0; // Taken from the evaluation
+		private int depth;
+
+		private Meter(Evaluation evaluation) {
+			this.evaluation = evaluation;
+			this.budget = evaluation.budget;
+		}
+
+		private void step() {
+			if (--stepsLeft < 0)
+				takeSteps();
+		}
+
+		private void takeSteps() {
+			stepsLeft = 0;
+			if (budget.timeout != null && System.nanoTime() - evaluation.deadline > 0)
+				throw new BudgetExceededException(Limit.TIME, budget.timeout.toMillis());
+			long taken = evaluation.take(CLOCK_INTERVAL);
+			if (taken == 0)
+				throw new BudgetExceededException(Limit.STEPS, budget.maxSteps);
+			stepsLeft = taken - 1; // Including this step
+		}
+
+		private void enter() {
+			if (++depth > budget.maxDepth) {
+				depth--;
+				throw new BudgetExceededException(Limit.DEPTH, budget.maxDepth);
+			}
+		}
+
+		void exit() {
+			depth--;
+		}
+	}
+}
@@ -0,0 +1,338 @@
+package com.bhoffpauir.blisp.lib;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.regex.Pattern;
+
+import com.bhoffpauir.blisp.lib.atom.BooleanAtom;
+import com.bhoffpauir.blisp.lib.atom.CharacterAtom;
+import com.bhoffpauir.blisp.lib.atom.ListAtom;
+import com.bhoffpauir.blisp.lib.atom.NumberAtom;
+import com.bhoffpauir.blisp.lib.atom.StringAtom;
+import com.bhoffpauir.blisp.lib.atom.SymbolAtom;
+import com.bhoffpauir.blisp.lib.exception.LispRuntimeException;
+import com.bhoffpauir.blisp.lib.exception.UnbalancedParenthesisException;
+
+/**
+ * Reads data, s-expressions that are not evaluated, straight from a {@link Reader}.
+ *
+ * <p>Unlike the {@link Tokenizer} and {@link Parser}, which need the whole source as a string
+ * and then a list of all its tokens, a data reader scans characters from its own buffer and
+ * builds the atoms as it goes, one top-level datum per call to {@link #read()}. Reading a large
+ * dataset one datum at a time holds only that datum. Lists are read without recursion, so deeply
+ * nested data cannot overflow the stack.</p>
+ *
+ * <p>The syntax is that of scripts: lists, quote, quasiquote and unquote, strings, characters,
+ * numbers, booleans, symbols, and {@code ;} comments.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>
+ *     try (DataReader reader = new DataReader(Files.newBufferedReader(path))) {
+ *         for (Object datum; (datum = reader.read()) != null; ) {
+ *             ...
+ *         }
+ *     }
+ * </pre>
+ */
+public class DataReader implements Closeable {
+	private static final int BUFFER_SIZE = 64 << 10;
+	private static final Pattern CHARACTER = new CharacterAtom('A').getRegexPattern();
+	private static final Pattern SYMBOL = new SymbolAtom("").getRegexPattern();
+	private static final Pattern NUMBER = new NumberAtom().getRegexPattern();
+	private final Reader reader;
+	private final char[] buffer = new char[BUFFER_SIZE];
+	private final StringBuilder token = new StringBuilder();
+	private int position = 0;
+	private int limit = 0;
+	private int line = 1;
+
+	/**
+	 * Constructs a new {@code DataReader} reading from {@code reader}. The reader is buffered
+	 * by the data reader, it need not be buffered itself.
+	 *
+	 * @param reader The source of the data.
+	 */
+	public DataReader(Reader reader) {
+		this.reader = reader;
+	}
+
+	/**
+	 * Read every datum of a string.
+	 *
+	 * @param source The string.
+	 * @return The data, in order.
+	 */
+	public static List<Object> readAll(String source) {
+		try (DataReader reader = new DataReader(new StringReader(source))) {
+			return reader.readAll();
+		}
+	}
+
+	/**
+	 * Read the next top-level datum.
+	 *
+	 * @return The datum, or null at the end of the input.
+	 * @throws LispRuntimeException if the input is not valid data, or cannot be read.
+	 */
+	public Object read() {
+		// Open lists, and the quote forms waiting for their datum, innermost first
+		Deque<Object> open = new ArrayDeque<>();
+		while (true) {
+			int ch = skipBlanks();
+			Object datum;
+			switch (ch) {
+				case -1:
+					if (open.isEmpty())
+						return null;
+					throw new LispRuntimeException("Unexpected end of data at line " + line);
+				case '(':
+					position++;
+					open.push(new ArrayList<Object>());
+					continue;
+				case ')':
+					position++;
+					if (!(open.peek() instanceof List<?>))
+						throw new UnbalancedParenthesisException(open.isEmpty()
+							? "Unexpected closing parenthesis at line " + line
+							: "Missing datum after " + open.peek() + " at line " + line);
+					@SuppressWarnings("unchecked")
+					List<Object> elements = (List<Object>) open.pop();
+					datum = new ListAtom(elements);
+					break;
+				case '\'', '`', ',':
+					position++;
+					if (ch == ',' && peek() == '@') {
+						position++;
+						open.push("unquote-splicing");
+					} else {
+						open.push((ch == '\'') ? "quote" : (ch == '`') ? "quasiquote" : "unquote");
+					}
+					continue;
+				case '"':
+					datum = readString();
+					break;
+				default:
+					datum = readAtom();
+					break;
+			}
+			// Hand the datum to the innermost open form, closing the quote forms it completes
+			while (true) {
+				if (open.isEmpty())
+					return datum;
+				if (open.peek() instanceof String quote) {
+					open.pop();
+					datum = new ListAtom(new ArrayList<>(List.of(new SymbolAtom(quote), datum)));
+					continue;
+				}
+				@SuppressWarnings("unchecked")
+				List<Object> elements = (List<Object>) open.peek();
+				elements.add(datum);
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Read the remaining data.
+	 *
+	 * @return The data, in order.
+	 */
+	public List<Object> readAll() {
+		List<Object> data = new ArrayList<>();
+		for (Object datum; (datum = read()) != null; ) {
+			data.add(datum);
+		}
+		return data;
+	}
+
+	/**
+	 * Retrieve the remaining data, read one at a time as the iterator is advanced.
+	 *
+	 * @return An iterator over the data.
+	 */
+	public Iterator<Object> iterator() {
+		return new Iterator<>() {
+			private Object next = null;
+
+			@Override
+			public boolean hasNext() {
+				if (next == null)
+					next = read();
+				return next != null;
+			}
+
+			@Override
+			public Object next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				Object datum = next;
+				next = null;
+				return datum;
+			}
+		};
+	}
+
+	/**
+	 * Retrieve the current line number, for error messages.
+	 *
+	 * @return The line number, starting at 1.
+	 */
+	public int getLine() {
+		return line;
+	}
+
+	/**
+	 * Close the underlying reader.
+	 */
+	@Override
+	public void close() {
+		try {
+			reader.close();
+		} catch (IOException ex) {
+			throw new LispRuntimeException("Cannot close data: " + ex.getMessage());
+		}
+	}
+
+	// Skip whitespace and comments, returns the next character without consuming it, or -1
+	private int skipBlanks() {
+		while (true) {
+			int ch = peek();
+			if (ch == ';') {
+				while (ch != -1 && ch != '\n') {
+					position++;
+					ch = peek();
+				}
+				continue;
+			}
+			if (ch == -1 || !Character.isWhitespace(ch))
+				return ch;
+			if (ch == '\n')
+				line++;
+			position++;
+		}
+	}
+
+	private Object readString() {
+		position++; // Skip over the initial quote
+		token.setLength(0);
+		while (true) {
+			if (position == limit && !fill())
+				throw new LispRuntimeException("Unterminated string at line " + line);
+			// Copy up to the next quote, escape or end of the buffer at once
+			int start = position;
+			char ch = 0;
+			while (position < limit && (ch = buffer[position]) != '"' && ch != '\\') {
+				if (ch == '\n')
+					line++;
+				position++;
+			}
+			token.append(buffer, start, position - start);
+			if (position == limit)
+				continue;
+			position++;
+			if (ch == '"')
+				return new StringAtom(token.toString());
+			int next = peek();
+			if (next == -1)
+				throw new LispRuntimeException("Unterminated escape sequence at line " + line);
+			position++;
+			switch (next) {
+				case 'n' -> token.append('\n');
+				case 't' -> token.append('\t');
+				case 'b' -> token.append('\b');
+				case 'r' -> token.append('\r');
+				case 'f' -> token.append('\f');
+				case '"' -> token.append('"');
+				case '\\' -> token.append('\\');
+				default -> token.append('\\').append((char) next); // Kept as is
+			}
+		}
+	}
+
+	private Object readAtom() {
+		token.setLength(0);
+		if (peek() == '\\') {
+			// A character takes at least one character, even a delimiter
+			token.append('\\');
+			position++;
+			if (peek() != -1)
+				token.append(buffer[position++]);
+		}
+		while (true) {
+			if (position == limit && !fill())
+				break;
+			int start = position;
+			while (position < limit && !isDelimiter(buffer[position])) {
+				position++;
+			}
+			token.append(buffer, start, position - start);
+			if (position < limit)
+				break;
+		}
+		return atom(token);
+	}
+
+	private Object atom(CharSequence text) {
+		int length = text.length();
+		char first = text.charAt(0);
+		if (first == '\\') {
+			if (!CHARACTER.matcher(text).matches())
+				throw new LispRuntimeException(text + " is not a valid character at line " + line);
+			if (length > 3 && text.charAt(1) == '0' && text.charAt(2) == 'x')
+				return new CharacterAtom((char) Integer.parseInt(text, 3, length, 16));
+			return new CharacterAtom(text.charAt(1));
+		}
+		// Plain integers of up to 18 digits, the most common numbers, fit a long
+		int digits = (first == '-' || first == '+') ? 1 : 0;
+		if (length > digits && length - digits <= 18) {
+			int i = digits;
+			while (i < length && text.charAt(i) >= '0' && text.charAt(i) <= '9') {
+				i++;
+			}
+			if (i == length)
+				return NumberAtom.valueOf(Long.parseLong(text, 0, length, 10));
+		}
+		String str = text.toString();
+		if (NUMBER.matcher(str).matches())
+			return Parser.parseNumber(str);
+		if (SYMBOL.matcher(str).matches()) {
+			if (str.equalsIgnoreCase("true") || str.equalsIgnoreCase("false"))
+				return new BooleanAtom(Boolean.parseBoolean(str));
+			return new SymbolAtom(str);
+		}
+		throw new LispRuntimeException("Invalid datum " + str + " at line " + line);
+	}
+
+	private static boolean isDelimiter(char ch) {
+		return ch == '(' || ch == ')' || ch == '"' || ch == ';' || Character.isWhitespace(ch);
+	}
+
+	private int peek() {
+		if (position == limit && !fill())
+			return -1;
+		return buffer[position];
+	}
+
+	// Refill the consumed buffer, returns false at the end of the input
+	private boolean fill() {
+		try {
+			int read;
+			do {
+				read = reader.read(buffer, 0, buffer.length);
+			} while (read == 0);
+			position = 0;
+			limit = Math.max(read, 0);
+			return read > 0;
+		} catch (IOException ex) {
+			throw new LispRuntimeException("Cannot read data: " + ex.getMessage());
+		}
+	}
+}
@@ -1,43 +1,62 @@
 package com.bhoffpauir.blisp.lib;
 
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 
+import com.bhoffpauir.blisp.lib.atom.ActorAtom;
+import com.bhoffpauir.blisp.lib.atom.ArrayAtom;
 import com.bhoffpauir.blisp.lib.atom.BooleanAtom;
+import com.bhoffpauir.blisp.lib.atom.CellAtom;
 import com.bhoffpauir.blisp.lib.atom.CharacterAtom;
+import com.bhoffpauir.blisp.lib.atom.FutureAtom;
 import com.bhoffpauir.blisp.lib.atom.ListAtom;
 import com.bhoffpauir.blisp.lib.atom.NumberAtom;
+import com.bhoffpauir.blisp.lib.atom.PortAtom;
+import com.bhoffpauir.blisp.lib.atom.RefAtom;
+import com.bhoffpauir.blisp.lib.atom.SeqAtom;
 import com.bhoffpauir.blisp.lib.atom.StringAtom;
 import com.bhoffpauir.blisp.lib.atom.SymbolAtom;
+import com.bhoffpauir.blisp.lib.exception.EvaluationCancelledException;
 import com.bhoffpauir.blisp.lib.exception.LispRuntimeException;
 import com.bhoffpauir.blisp.lib.exception.RebindKeywordSymbolException;
 import com.bhoffpauir.blisp.lib.exception.UnboundSymbolException;
+import com.bhoffpauir.blisp.lib.jfr.BlispEvents;
+import com.bhoffpauir.blisp.lib.jfr.BuiltinEvent;
 
 /**
  * 
  */
 public class Environment {
-	static private Set<String> keywords;
+	private static final int DATA_MAGIC = 0x424C5344; // "BLSD", header of serialized data files
     private Map<String, Object> bindings;
     private Environment parent;
+    private ModuleRegistry modules = null; // Modules loaded into a global environment
+    private volatile boolean shared = false; // Bindings can't be changed with set!
+    private volatile boolean captured = false; // Held by a closure, future or actor
 
-    static {
-    	keywords = new HashSet<>(Arrays.asList(
-    		"define", "λ", "lambda", "if", "begin"
-    	));
-    }
-    
     /**
      * 
      */
     public Environment() {
-        this.bindings = new HashMap<>();
+        this.bindings = new ConcurrentHashMap<>();
         this.parent = null;
+    	RuntimeMetrics.environmentCreated();
     }
     
     /**
@@ -46,8 +65,9 @@ public class Environment {
      * @param bindings
      */
     public Environment(Map<String, Object> bindings) {
-    	this.bindings = new HashMap<>(bindings);
+    	this.bindings = new ConcurrentHashMap<>(bindings);
     	this.parent = null;
+    	RuntimeMetrics.environmentCreated();
     }
     
     /**
@@ -56,8 +76,9 @@ public class Environment {
      * @param parent
      */
     public Environment(Environment parent) {
-        this.bindings = new HashMap<>();
+        this.bindings = new ConcurrentHashMap<>();
         this.parent = parent;
+    	RuntimeMetrics.environmentCreated();
     }
     
     /**
@@ -67,8 +88,9 @@ public class Environment {
      * @param bindings
      */
     public Environment(Environment parent, Map<String, Object> bindings) {
-    	this.bindings = new HashMap<>(bindings);
+    	this.bindings = new ConcurrentHashMap<>(bindings);
     	this.parent = parent;
+    	RuntimeMetrics.environmentCreated();
     }
     
     /**
@@ -77,7 +99,7 @@ public class Environment {
      * @param value
      */
     public void define(String symbol, Object value) {
-    	if (keywords.contains(symbol)) {
+    	if (SpecialForms.get(symbol) != null) { // Special forms take precedence, the binding would never be seen
     		throw new RebindKeywordSymbolException(symbol);
     	}
     	
@@ -90,7 +112,75 @@ public class Environment {
      * @param proc
      */
     public void define(String symbol, Procedure proc) {
-    	define(symbol, (Object)new Lambda(proc, this, new Evaluator(this)));
+    	Lambda lambda = new Lambda(proc, this, new Evaluator(this));
+    	lambda.setName(symbol.toLowerCase());
+    	define(symbol, (Object) lambda);
+    }
+    
+    /**
+     * Change the value of an existing binding, in this environment or the nearest parent
+     * that binds {@code symbol}.
+     * 
+     * @param symbol The symbol to change.
+     * @param value The new value.
+     * @throws UnboundSymbolException if the symbol doesn't exist.
+     * @throws LispRuntimeException if the symbol is bound in a shared environment.
+     */
+    public void set(String symbol, Object value) {
+    	var loweredSym = symbol.toLowerCase();
+    	for (Environment env = this; env != null; env = env.parent) {
+    		if (env.bindings.containsKey(loweredSym)) {
+    			if (env.shared) {
+    				throw new LispRuntimeException("Cannot set! " + symbol + ", it is bound in a shared environment");
+    			}
+    			if (env.bindings.replace(loweredSym, value) != null) {
+    				return;
+    			}
+    		}
+    	}
+    	throw new UnboundSymbolException(symbol);
+    }
+    
+    /**
+     * Mark this environment as shared by concurrent evaluations, e.g. the global environment of
+     * an {@link EvaluationService}. {@code set!} cannot change the bindings of a shared
+     * environment, so one evaluation cannot change what the others see.
+     * 
+     * @param shared True to share the environment, false to allow {@code set!} again.
+     */
+    void setShared(boolean shared) {
+    	this.shared = shared;
+    }
+    
+    /**
+     * Mark this environment and its parents as held by a closure, future or actor, which may
+     * still use their bindings after the form that created them has returned.
+     */
+    void capture() {
+    	for (Environment env = this; env != null && !env.captured; env = env.parent) {
+    		env.captured = true;
+    	}
+    }
+    
+    /**
+     * Check if a closure, future or actor holds on to this environment, in which case its bindings
+     * can't be updated in place for the next iteration of a loop.
+     * 
+     * @return True if the environment has been captured.
+     */
+    boolean isCaptured() {
+    	return captured;
+    }
+    
+    /**
+     * Bind {@code symbol} in this environment without the keyword check and case folding of
+     * {@link #define(String, Object)}, for the loop forms updating their variables.
+     * 
+     * @param loweredSymbol The lowercase symbol.
+     * @param value The value.
+     */
+    void rebind(String loweredSymbol, Object value) {
+    	bindings.put(loweredSymbol, value);
     }
     
     /**
@@ -106,7 +196,7 @@ public class Environment {
      * @param value
      */
     public static void define(Map<String, Object> bindings, String symbol, Object value) {
-    	if (keywords.contains(symbol)) {
+    	if (SpecialForms.get(symbol) != null) { // Special forms take precedence, the binding would never be seen
     		throw new RebindKeywordSymbolException(symbol);
     	}
     	
@@ -121,36 +211,38 @@ public class Environment {
     }
     
     /**
-     * Lookup {@code symbol} in this environment.
+     * Lookup {@code symbol} in this environment and its parents. Bindings of child environments
+     * overshadow the bindings of their parents.
      * 
      * @throws UnboundSymbolException if the symbol doesn't exist.
      * @param symbol The symbol to lookup.
      * @return The symbol value.
      */
     public Object lookup(final String symbol) {
-    	var loweredSym = symbol.toLowerCase();
-        // Lookup a variable in the current environment
-    	if (bindings.containsKey(loweredSym)) {
-    		return bindings.get(loweredSym);
+    	Object value = nullableLookup(symbol);
+    	if (value == null) {
+    		throw new UnboundSymbolException(symbol); // Symbol doesn't exist
     	}
-    	
-    	// TODO: Should traverse through the parent environment and child environments should overshadow parent bindings. 
-    	throw new UnboundSymbolException(symbol); // Symbol doesn't exist
+    	return value;
     }
     
     /**
-     * Lookup {@code symbol} in this environment.
+     * Lookup {@code symbol} in this environment and its parents. Bindings of child environments
+     * overshadow the bindings of their parents.
      * 
      * @param symbol The symbol to lookup.
      * @return The symbol value or null if it doesn't exist.
      */
     public Object nullableLookup(final String symbol) {
     	var loweredSym = symbol.toLowerCase();
-        if (bindings.containsKey(loweredSym)) {
-        	return bindings.get(loweredSym);
-        } else {
-        	return null; // Symbol doesn't exist
-        }
+    	// Walk up through the enclosing environments
+    	for (Environment env = this; env != null; env = env.parent) {
+    		Object value = env.bindings.get(loweredSym);
+    		if (value != null) {
+    			return value;
+    		}
+    	}
+    	return null; // Symbol doesn't exist
     }
     
     /**
@@ -174,6 +266,48 @@ public class Environment {
     	return nullableLookup(symbol.getValue());
     }
     
+    /**
+     * Retrieve the parent of this environment.
+     * 
+     * @return The parent environment, or null if this is a top-level environment.
+     */
+    Environment getParent() {
+    	return parent;
+    }
+    
+    /**
+     * Set the parent of this environment. Used when restoring environments from an image.
+     * 
+     * @param parent The parent environment.
+     */
+    void setParent(Environment parent) {
+    	this.parent = parent;
+    }
+    
+    /**
+     * Retrieve the symbol bindings of this environment, without copying.
+     * 
+     * @return The bindings of this environment.
+     */
+    Map<String, Object> getBindings() {
+    	return bindings;
+    }
+    
+    /**
+     * Retrieve the registry of the modules loaded into the global environment this environment
+     * belongs to.
+     * 
+     * @return The module registry, or null if this environment isn't part of a global environment.
+     */
+    public ModuleRegistry getModuleRegistry() {
+    	for (Environment env = this; env != null; env = env.parent) {
+    		if (env.modules != null) {
+    			return env.modules;
+    		}
+    	}
+    	return null;
+    }
+    
     /**
      * Factory method for creating global environments. Global environments have access
      * to built-in symbol bindings.
@@ -183,10 +317,13 @@ public class Environment {
     public static Environment createGlobalEnv() {
     	Environment env = new Environment();
     	Evaluator evaluator = new Evaluator(env);
+    	env.modules = new ModuleRegistry(env);
     	// env.defineBindings();
     	Map<String, Object> builtins = env.defineBuiltIns();
     	builtins.forEach((key, value) -> {
-    		env.bindings.put(key, new Lambda((Procedure) value, env, evaluator));
+    		Lambda lambda = new Lambda((Procedure) value, env, evaluator);
+    		lambda.setName(key);
+    		env.bindings.put(key, lambda);
     	});
     	/*builtins.forEach((key, value) -> {
     		// Merge with the new binding
@@ -200,6 +337,229 @@ public class Environment {
     	return env;
     }
     
+    /**
+     * Wait for a future, turning a timeout into an error.
+     * 
+     * @param future The future to wait for.
+     * @param timeoutMillis The timeout in milliseconds, or a negative value to wait indefinitely.
+     * @return The value of the future.
+     */
+    private static Object awaitFuture(FutureAtom future, long timeoutMillis) {
+    	try {
+    		return Futures.await(future, timeoutMillis);
+    	} catch (TimeoutException ex) {
+    		throw new LispRuntimeException("Timed out after " + timeoutMillis + " ms waiting for " + future);
+    	}
+    }
+    
+    /**
+     * Apply the update function of {@code alter} or {@code swap!}: {@code (f value args...)},
+     * where the extra arguments follow the target and function in {@code args}.
+     * 
+     * @param update The update function.
+     * @param value The current value.
+     * @param args The arguments of the builtin.
+     * @return The new value.
+     */
+    private static Object applyUpdate(Lambda update, Object value, List<Object> args) {
+    	List<Object> updateArgs = new ArrayList<>(args.size() - 1);
+    	updateArgs.add(value);
+    	updateArgs.addAll(args.subList(2, args.size()));
+    	return update.apply(updateArgs);
+    }
+    
+    /**
+     * Create a {@code (name value)} pair for a statistics list.
+     * 
+     * @param name The statistic name.
+     * @param value The statistic value.
+     * @return The pair.
+     */
+    private static ListAtom statPair(String name, long value) {
+    	return new ListAtom(List.of(new SymbolAtom(name), NumberAtom.valueOf(value)));
+    }
+    
+    /**
+     * Check if an element satisfies a {@code filter} predicate.
+     * 
+     * @param predicate The predicate.
+     * @param element The element.
+     * @return The boolean result of the predicate.
+     */
+    private static boolean satisfies(Lambda predicate, Object element) {
+    	Object result = predicate.apply(List.of(element));
+    	// Check return type of predicate
+    	if (!(result instanceof BooleanAtom booleanResult))
+    		throw new LispRuntimeException("Invalid return type for filter predicate: " + result);
+    	return booleanResult.getValue();
+    }
+    
+    /**
+     * Parse the first datum of a line for {@code line-seq}.
+     * 
+     * @param line The line.
+     * @return The datum, or null for a blank line.
+     */
+    private static Object parseLine(String line) {
+    	if (line.isBlank())
+    		return null;
+    	return new Parser(new Tokenizer(line).tokenize()).parse();
+    }
+    
+    /**
+     * Retrieve the atoms of a stream written by {@code serialize}, read one at a time as the
+     * iterator is advanced.
+     * 
+     * @param in The stream.
+     * @param name The name of the source, for error messages.
+     * @return An iterator over the atoms.
+     * @throws IOException if the header cannot be read.
+     */
+    private static Iterator<Object> atoms(AtomInputStream in, String name) throws IOException {
+    	int count = readDataHeader(in, name);
+    	return new Iterator<>() {
+    		private int read = 0;
+    		private Object next = null;
+    		
+    		@Override
+    		public boolean hasNext() {
+    			try {
+    				if (next == null && read < count) {
+    					next = in.readAtom();
+    					read++;
+    				}
+    			} catch (EOFException ex) {
+    				throw new LispRuntimeException("Cannot deserialize " + name + ": truncated after " + read + " of " + count + " values");
+    			} catch (IOException ex) {
+    				throw new LispRuntimeException("Cannot deserialize " + name + ": " + ex);
+    			}
+    			return next != null;
+    		}
+    		
+    		@Override
+    		public Object next() {
+    			if (!hasNext())
+    				throw new NoSuchElementException();
+    			Object value = next;
+    			next = null;
+    			return value;
+    		}
+    	};
+    }
+    
+    /**
+     * Read the header of a stream written by {@code serialize}.
+     * 
+     * @param in The stream.
+     * @param name The name of the source, for error messages.
+     * @return The number of atoms that follow.
+     * @throws IOException if the header cannot be read.
+     */
+    private static int readDataHeader(AtomInputStream in, String name) throws IOException {
+    	if (in.readInt() != DATA_MAGIC || in.readInt() != AtomOutputStream.FORMAT_VERSION)
+    		throw new LispRuntimeException("Not serialized data of this version: " + name);
+    	return in.readVarInt(Integer.MAX_VALUE);
+    }
+    
+    /**
+     * Check the argument count of a port builtin and retrieve its port, the first argument.
+     * 
+     * @param args The arguments.
+     * @param count The expected number of arguments.
+     * @param name The builtin name, for the error message.
+     * @return The port.
+     */
+    private static FilePort portArg(List<Object> args, int count, String name) {
+    	if (args.size() != count || !(args.get(0) instanceof PortAtom port))
+    		throw new LispRuntimeException("Invalid argument(s) for " + name + ": " + args);
+    	return port.getValue();
+    }
+    
+    /**
+     * Check the argument count of an array builtin and retrieve one of its array arguments.
+     * 
+     * @param args The arguments.
+     * @param index The index of the array argument.
+     * @param count The expected number of arguments.
+     * @param name The builtin name, for the error message.
+     * @return The elements of the array.
+     */
+    private static double[] arrayArg(List<Object> args, int index, int count, String name) {
+    	if (args.size() != count)
+    		throw new LispRuntimeException("Invalid number of argument(s) to " + name + ": " + args.size());
+    	if (!(args.get(index) instanceof ArrayAtom array))
+    		throw new LispRuntimeException("Invalid argument(s) for " + name + ": " + args);
+    	return array.getValue();
+    }
+    
+    /**
+     * Check an index argument of an array builtin.
+     * 
+     * @param arg The index argument.
+     * @param elements The array indexed.
+     * @param name The builtin name, for the error message.
+     * @return The index.
+     */
+    private static int arrayIndex(Object arg, double[] elements, String name) {
+    	if (!(arg instanceof NumberAtom num))
+    		throw new LispRuntimeException("Invalid index for " + name + ": " + arg);
+    	int index = num.getValue().intValue();
+    	if (index < 0 || index >= elements.length)
+    		throw new LispRuntimeException("Index out of bounds for " + name + ": " + index);
+    	return index;
+    }
+    
+    /**
+     * Unbox a list of numbers into an array.
+     * 
+     * @param numbers The numbers.
+     * @param name The builtin name, for the error message.
+     * @return The array.
+     */
+    private static ArrayAtom toArray(List<Object> numbers, String name) {
+    	Budget.checkListSize(numbers.size());
+    	double[] elements = new double[numbers.size()];
+    	for (int i = 0; i < elements.length; i++) {
+    		if (!(numbers.get(i) instanceof NumberAtom num))
+    			throw new LispRuntimeException("Invalid argument(s) for " + name + ": " + numbers.get(i));
+    		elements[i] = num.getValue().doubleValue();
+    	}
+    	return new ArrayAtom(elements);
+    }
+    
+    /**
+     * Wrap an allocation-heavy builtin so its calls emit a {@link BuiltinEvent} while the blisp
+     * JFR events are enabled.
+     * 
+     * @param name The builtin name.
+     * @param proc The builtin.
+     * @return The wrapped builtin.
+     */
+    private static Procedure recorded(String name, Procedure proc) {
+    	return (args) -> {
+    		if (!BlispEvents.isEnabled())
+    			return proc.apply(args);
+    		
+    		BuiltinEvent event = new BuiltinEvent();
+    		event.begin();
+    		Object result = proc.apply(args);
+    		event.end();
+    		if (event.shouldCommit()) {
+    			event.builtin = name;
+    			for (var arg : args) {
+    				if (arg instanceof ListAtom list) {
+    					event.inputSize = list.getValue().size();
+    					break;
+    				}
+    			}
+    			if (result instanceof ListAtom list)
+    				event.resultSize = list.getValue().size();
+    			event.commit();
+    		}
+    		return result;
+    	};
+    }
+    
     /**
      * Define builtin global variable bindings.
      */
@@ -233,50 +593,32 @@ public class Environment {
     		for (int i = 0; i < args.size(); i++) {
     			Object arg = args.get(i);
     			if (arg instanceof StringAtom) {
-    				System.out.print(((StringAtom) arg).getValue());
+    				OutputPort.current().print(((StringAtom) arg).getValue());
     			} else {
-    				System.out.print(args.get(i));
+    				OutputPort.current().print(args.get(i));
     			}
     			
     			if (i < args.size() - 1) {
-    				System.out.print(' ');
+    				OutputPort.current().print(' ');
     			}
     		}
     		return new SymbolAtom("nil");
     	});
     	// Define "sprintf" procedure
     	define(builtins, "sprintf", (Procedure) (args) -> {
-    		if (args.isEmpty() || !(args.get(0) instanceof StringAtom)) {
+    		if (args.isEmpty() || !(args.get(0) instanceof StringAtom fmt)) {
     			throw new LispRuntimeException("First argument to sprintf is a format string");
     		}
-    		String fmt = ((StringAtom) args.get(0)).getValue(); // Format string
-    		
-    		// Only print of the format string
-    		if (args.size() == 1) {
-    			System.out.printf(fmt);
-    			return new StringAtom(String.format(fmt));
-    		}
-    		// Continue and print using the varargs [1, size)
-    		List<Object> subArgsList = args.subList(1, args.size());
-    		Object[] subArgsArray = new Object[subArgsList.size()];
-    		for (int i = 0; i < subArgsArray.length; i++) {
-    			var atom = subArgsList.get(i);
-    			
-    			subArgsArray[i] = switch (atom) {
-    				case StringAtom str -> str.getValue();
-    				case CharacterAtom ch -> ch.getValue();
-    				case NumberAtom num -> num.getValue();
-					default -> atom;
-    			};
-    		}
-    		return new StringAtom(String.format(fmt, subArgsArray));
+    		// The format string is parsed once and cached, format the varargs [1, size)
+    		return new StringAtom(FormatString.of(fmt.getValue()).format(args.subList(1, args.size())));
     	});
     	// Define "printf" procedure
     	define(builtins, "printf", (Procedure) (args) -> {
-    		// Define in term of the "sprintf" procedure
-    		Procedure sprintf = (Procedure)builtins.get("sprintf");
-    		String formatStr = ((StringAtom) sprintf.apply(args)).getValue();
-    		System.out.print(formatStr);
+    		if (args.isEmpty() || !(args.get(0) instanceof StringAtom fmt)) {
+    			throw new LispRuntimeException("First argument to printf is a format string");
+    		}
+    		// Formatted straight into the output port
+    		FormatString.of(fmt.getValue()).print(OutputPort.current(), args.subList(1, args.size()));
     		return new SymbolAtom("nil");
     	});
     	// Define "println" procedure
@@ -284,9 +626,535 @@ public class Environment {
     		// Defined in terms of "print"
     		Procedure print = (Procedure)builtins.get("print");
     		print.apply(args);
-    		System.out.println();
+    		OutputPort.current().println();
     		return new SymbolAtom("nil");
     	});
+    	// Define "str" procedure
+    	define(builtins, "str", (Procedure) (args) -> {
+    		// Strings and characters as they are, anything else as printed
+    		StringBuilder sb = new StringBuilder();
+    		for (var arg : args) {
+    			switch (arg) {
+    				case StringAtom str -> sb.append(str.getValue());
+    				case CharacterAtom ch -> sb.append(ch.getValue().charValue());
+    				default -> sb.append(arg);
+    			}
+    		}
+    		return new StringAtom(sb.toString());
+    	});
+    	// Define "string-append" procedure
+    	define(builtins, "string-append", (Procedure) (args) -> {
+    		// Joins without copying, the result is flattened once when its value is needed
+    		StringAtom result = new StringAtom();
+    		for (var arg : args) {
+    			if (!(arg instanceof StringAtom str))
+    				throw new LispRuntimeException("Invalid argument(s) for string-append: " + arg);
+    			result = result.concat(str);
+    		}
+    		return result;
+    	});
+    	// Define "string-length" procedure
+    	define(builtins, "string-length", (Procedure) (args) -> {
+    		if (args.size() != 1 || !(args.get(0) instanceof StringAtom str))
+    			throw new LispRuntimeException("Invalid argument(s) for string-length: " + args);
+    		return NumberAtom.valueOf(str.length());
+    	});
+    	// Define "substring" procedure
+    	define(builtins, "substring", (Procedure) (args) -> {
+    		// (substring string start [end])
+    		if (args.size() < 2 || args.size() > 3 || !(args.get(0) instanceof StringAtom str)
+    				|| !(args.get(1) instanceof NumberAtom start) || (args.size() == 3 && !(args.get(2) instanceof NumberAtom)))
+    			throw new LispRuntimeException("Invalid argument(s) for substring: " + args);
+    		int from = start.getValue().intValue();
+    		int to = (args.size() == 3) ? ((NumberAtom) args.get(2)).getValue().intValue() : str.length();
+    		if (from < 0 || to > str.length() || from > to)
+    			throw new LispRuntimeException("Invalid range for substring: " + from + " to " + to);
+    		return new StringAtom(str.getValue().substring(from, to));
+    	});
+    	// Define "string-join" procedure
+    	define(builtins, "string-join", (Procedure) (args) -> {
+    		// (string-join list [separator])
+    		if (args.isEmpty() || args.size() > 2 || !(args.get(0) instanceof ListAtom list)
+    				|| (args.size() == 2 && !(args.get(1) instanceof StringAtom)))
+    			throw new LispRuntimeException("Invalid argument(s) for string-join: " + args);
+    		String separator = (args.size() == 2) ? ((StringAtom) args.get(1)).getValue() : "";
+    		StringBuilder sb = new StringBuilder();
+    		List<Object> elements = list.getValue();
+    		for (int i = 0; i < elements.size(); i++) {
+    			if (!(elements.get(i) instanceof StringAtom str))
+    				throw new LispRuntimeException("Invalid element for string-join: " + elements.get(i));
+    			if (i > 0)
+    				sb.append(separator);
+    			sb.append(str.getValue());
+    		}
+    		return new StringAtom(sb.toString());
+    	});
+    	// Define "split" procedure
+    	define(builtins, "split", (Procedure) (args) -> {
+    		// (split string separator) splits at every occurrence of the literal separator
+    		if (args.size() != 2 || !(args.get(0) instanceof StringAtom str) || !(args.get(1) instanceof StringAtom sep)
+    				|| sep.length() == 0)
+    			throw new LispRuntimeException("Invalid argument(s) for split: " + args);
+    		String value = str.getValue(), separator = sep.getValue();
+    		List<Object> parts = new ArrayList<>();
+    		int from = 0;
+    		for (int at; (at = value.indexOf(separator, from)) >= 0; from = at + separator.length()) {
+    			parts.add(new StringAtom(value.substring(from, at)));
+    		}
+    		parts.add(new StringAtom(value.substring(from)));
+    		Budget.checkListSize(parts.size());
+    		return new ListAtom(parts);
+    	});
+    	// Define "open-input-file" procedure
+    	define(builtins, "open-input-file", (Procedure) (args) -> {
+    		if (args.size() != 1 || !(args.get(0) instanceof StringAtom path))
+    			throw new LispRuntimeException("Invalid argument(s) for open-input-file: " + args);
+    		return new PortAtom(FilePort.openInput(Path.of(path.getValue())));
+    	});
+    	// Define "open-output-file" procedure
+    	define(builtins, "open-output-file", (Procedure) (args) -> {
+    		// (open-output-file path [append])
+    		if (args.isEmpty() || args.size() > 2 || !(args.get(0) instanceof StringAtom path)
+    				|| (args.size() == 2 && !(args.get(1) instanceof BooleanAtom)))
+    			throw new LispRuntimeException("Invalid argument(s) for open-output-file: " + args);
+    		boolean append = (args.size() == 2) && ((BooleanAtom) args.get(1)).getValue();
+    		return new PortAtom(FilePort.openOutput(Path.of(path.getValue()), append));
+    	});
+    	// Define "read-line" procedure
+    	define(builtins, "read-line", (Procedure) (args) -> {
+    		String line = portArg(args, 1, "read-line").readLine();
+    		return (line != null) ? new StringAtom(line) : SymbolAtom.nil;
+    	});
+    	// Define "read-lines" procedure
+    	define(builtins, "read-lines", (Procedure) (args) -> {
+    		// Lines are read as the sequence is consumed
+    		Iterator<String> lines = portArg(args, 1, "read-lines").lines();
+    		return new SeqAtom(new Iterator<Object>() {
+    			@Override
+    			public boolean hasNext() {
+    				return lines.hasNext();
+    			}
+
+    			@Override
+    			public Object next() {
+    				return new StringAtom(lines.next());
+    			}
+    		});
+    	});
+    	// Define "line-seq" procedure
+    	define(builtins, "line-seq", (Procedure) (args) -> {
+    		// (line-seq path-or-port [parse]), a file given by path is closed at its end
+    		if (args.isEmpty() || args.size() > 2 || !(args.get(0) instanceof StringAtom || args.get(0) instanceof PortAtom)
+    				|| (args.size() == 2 && !(args.get(1) instanceof BooleanAtom)))
+    			throw new LispRuntimeException("Invalid argument(s) for line-seq: " + args);
+    		boolean parse = (args.size() == 2) && ((BooleanAtom) args.get(1)).getValue();
+    		FilePort port = (args.get(0) instanceof PortAtom portAtom) ? portAtom.getValue()
+    			: FilePort.openInput(Path.of(((StringAtom) args.get(0)).getValue()));
+    		// Lines are read and converted ahead of time on another thread, given a processor to spare
+    		return new SeqAtom(ReadAhead.over(port.lines(), (line) -> parse ? parseLine((String) line) : new StringAtom((String) line),
+    			(args.get(0) instanceof PortAtom) ? null : port::close));
+    	});
+    	// Define "read" procedure
+    	define(builtins, "read", (Procedure) (args) -> {
+    		// (read string) gives the first datum of the string, unevaluated
+    		if (args.size() != 1 || !(args.get(0) instanceof StringAtom str))
+    			throw new LispRuntimeException("Invalid argument(s) for read: " + args);
+    		Object datum = new DataReader(new StringReader(str.getValue())).read();
+    		return (datum != null) ? datum : SymbolAtom.nil;
+    	});
+    	// Define "read-file-data" procedure
+    	define(builtins, "read-file-data", (Procedure) (args) -> {
+    		// (read-file-data path [lazy]) reads the data of a file without evaluating it
+    		if (args.isEmpty() || args.size() > 2 || !(args.get(0) instanceof StringAtom path)
+    				|| (args.size() == 2 && !(args.get(1) instanceof BooleanAtom)))
+    			throw new LispRuntimeException("Invalid argument(s) for read-file-data: " + args);
+    		DataReader reader;
+    		try {
+    			reader = new DataReader(new InputStreamReader(Files.newInputStream(Path.of(path.getValue())), StandardCharsets.UTF_8));
+    		} catch (IOException ex) {
+    			throw new LispRuntimeException("Cannot open " + path.getValue() + ": " + ex);
+    		}
+    		if (args.size() == 2 && ((BooleanAtom) args.get(1)).getValue()) {
+    			// One datum at a time, read ahead given a processor to spare
+    			return new SeqAtom(ReadAhead.over(reader.iterator(), (datum) -> datum, reader::close));
+    		}
+    		try (reader) {
+    			List<Object> data = reader.readAll();
+    			Budget.checkListSize(data.size());
+    			return new ListAtom(data);
+    		}
+    	});
+    	// Define "serialize" procedure
+    	define(builtins, "serialize", (Procedure) (args) -> {
+    		// (serialize path value...) writes the values to a file in the binary atom encoding
+    		if (args.isEmpty() || !(args.get(0) instanceof StringAtom path))
+    			throw new LispRuntimeException("Invalid argument(s) for serialize: " + args);
+    		List<Object> values = args.subList(1, args.size());
+    		try {
+    			// The count lets deserialize tell a truncated file from a complete one
+    			AtomOutputStream.writeFile(Path.of(path.getValue()), (out) -> {
+    				out.writeInt(DATA_MAGIC);
+    				out.writeInt(AtomOutputStream.FORMAT_VERSION);
+    				out.writeVarLong(values.size());
+    				for (var value : values) {
+    					out.writeAtom(value);
+    				}
+    			});
+    		} catch (IOException | IllegalArgumentException ex) {
+    			throw new LispRuntimeException("Cannot serialize to " + path.getValue() + ": " + ex.getMessage());
+    		}
+    		return SymbolAtom.nil;
+    	});
+    	// Define "deserialize" procedure
+    	define(builtins, "deserialize", (Procedure) (args) -> {
+    		// (deserialize path [lazy]) reads the values written by serialize
+    		if (args.isEmpty() || args.size() > 2 || !(args.get(0) instanceof StringAtom path)
+    				|| (args.size() == 2 && !(args.get(1) instanceof BooleanAtom)))
+    			throw new LispRuntimeException("Invalid argument(s) for deserialize: " + args);
+    		AtomInputStream in = null;
+    		try {
+    			in = new AtomInputStream(new BufferedInputStream(Files.newInputStream(Path.of(path.getValue()))));
+    			Iterator<Object> atoms = atoms(in, path.getValue());
+    			if (args.size() == 2 && ((BooleanAtom) args.get(1)).getValue()) {
+    				// One value at a time, read ahead given a processor to spare
+    				AtomInputStream stream = in;
+    				in = null; // Closed at the end of the sequence
+    				return new SeqAtom(ReadAhead.over(atoms, (value) -> value, () -> {
+    					try {
+    						stream.close();
+    					} catch (IOException ex) {
+    						// Nothing left to read
+    					}
+    				}));
+    			}
+    			List<Object> values = new ArrayList<>();
+    			while (atoms.hasNext()) {
+    				values.add(atoms.next());
+    				Budget.checkListSize(values.size());
+    			}
+    			return new ListAtom(values);
+    		} catch (IOException ex) {
+    			throw new LispRuntimeException("Cannot deserialize " + path.getValue() + ": " + ex);
+    		} finally {
+    			try {
+    				if (in != null)
+    					in.close();
+    			} catch (IOException ex) {
+    				// Everything was read
+    			}
+    		}
+    	});
+    	// Define "read-bytes" procedure
+    	define(builtins, "read-bytes", (Procedure) (args) -> {
+    		// (read-bytes port count) gives a list of up to count bytes in [0, 255]
+    		FilePort port = portArg(args, 2, "read-bytes");
+    		if (!(args.get(1) instanceof NumberAtom count) || !count.isInteger() || Numbers.compare(count.getValue(), 0) < 0
+    				|| Numbers.compare(count.getValue(), Integer.MAX_VALUE) > 0)
+    			throw new LispRuntimeException("Invalid byte count for read-bytes: " + args.get(1));
+    		Budget.checkListSize(count.getValue().longValue());
+    		byte[] bytes = port.readBytes(count.getValue().intValue());
+    		if (bytes == null)
+    			return SymbolAtom.nil;
+    		List<Object> values = new ArrayList<>(bytes.length);
+    		for (byte b : bytes) {
+    			values.add(NumberAtom.valueOf(b & 0xff));
+    		}
+    		return new ListAtom(values);
+    	});
+    	// Define "write-string" procedure
+    	define(builtins, "write-string", (Procedure) (args) -> {
+    		// (write-string port value...) writes strings and characters as they are, anything else as printed
+    		if (args.isEmpty() || !(args.get(0) instanceof PortAtom port))
+    			throw new LispRuntimeException("Invalid argument(s) for write-string: " + args);
+    		for (var arg : args.subList(1, args.size())) {
+    			switch (arg) {
+    				case StringAtom str -> port.getValue().write(str.getValue());
+    				case CharacterAtom ch -> port.getValue().write(String.valueOf(ch.getValue().charValue()));
+    				default -> port.getValue().write(arg.toString());
+    			}
+    		}
+    		return SymbolAtom.nil;
+    	});
+    	// Define "close" procedure
+    	define(builtins, "close", (Procedure) (args) -> {
+    		portArg(args, 1, "close").close();
+    		return SymbolAtom.nil;
+    	});
+    	// Define "seq->list" procedure
+    	define(builtins, "seq->list", (Procedure) (args) -> {
+    		if (args.size() != 1 || !(args.get(0) instanceof SeqAtom seq))
+    			throw new LispRuntimeException("Invalid argument(s) for seq->list: " + args);
+    		List<Object> elements = new ArrayList<>();
+    		Iterator<?> iterator = seq.getValue();
+    		while (iterator.hasNext()) {
+    			elements.add(iterator.next());
+    			Budget.checkListSize(elements.size());
+    		}
+    		return new ListAtom(elements);
+    	});
+    	// Define "sleep" procedure
+    	define(builtins, "sleep", (Procedure) (args) -> {
+    		if (args.size() != 1 || !(args.get(0) instanceof NumberAtom))
+    			throw new LispRuntimeException("Invalid argument(s) for sleep: " + args);
+    		
+    		long millis = ((NumberAtom) args.get(0)).getValue().longValue();
+    		try {
+    			Thread.sleep(millis);
+    		} catch (InterruptedException ex) {
+    			Thread.currentThread().interrupt(); // Keep the cancellation visible to the caller
+    			throw new EvaluationCancelledException();
+    		}
+    		return new SymbolAtom("nil");
+    	});
+    	// Define "promise" procedure
+    	define(builtins, "promise", (Procedure) (args) -> {
+    		if (!args.isEmpty())
+    			throw new LispRuntimeException("Invalid number of arguments for promise: " + args.size());
+    		return Futures.promise();
+    	});
+    	// Define "deliver" procedure
+    	define(builtins, "deliver", (Procedure) (args) -> {
+    		if (args.size() != 2 || !(args.get(0) instanceof FutureAtom))
+    			throw new LispRuntimeException("Invalid argument(s) for deliver: " + args);
+    		
+    		FutureAtom promise = (FutureAtom) args.get(0);
+    		Futures.deliver(promise, args.get(1));
+    		return promise;
+    	});
+    	// Define "deref" procedure
+    	define(builtins, "deref", (Procedure) (args) -> {
+    		if (args.size() == 1) {
+    			switch (args.get(0)) {
+    			case RefAtom ref: {
+    				// Inside dosync read the transaction's snapshot
+    				Transaction tx = Transaction.current();
+    				return (tx != null) ? tx.read(ref) : ref.latest().getValue();
+    			}
+    			case CellAtom cell:
+    				return cell.getValue().get();
+    			case FutureAtom future:
+    				return awaitFuture(future, -1);
+    			case ActorAtom actor:
+    				return actor.getValue().join(); // Wait for the actor to finish
+    			default:
+    				break;
+    			}
+    		}
+    		// (deref f timeout-ms timeout-value) gives up waiting for a future after the timeout
+    		if (args.size() != 3 || !(args.get(0) instanceof FutureAtom))
+    			throw new LispRuntimeException("Invalid argument(s) for deref: " + args);
+    		
+    		FutureAtom future = (FutureAtom) args.get(0);
+    		if (!(args.get(1) instanceof NumberAtom timeout))
+    			throw new LispRuntimeException("Invalid timeout for deref: " + args.get(1));
+    		try {
+    			return Futures.await(future, timeout.getValue().longValue());
+    		} catch (TimeoutException ex) {
+    			return args.get(2);
+    		}
+    	});
+    	// Define "await" procedure
+    	define(builtins, "await", (Procedure) (args) -> {
+    		// (await f) waits, (await f timeout-ms) fails after the timeout
+    		if ((args.size() != 1 && args.size() != 2) || !(args.get(0) instanceof FutureAtom))
+    			throw new LispRuntimeException("Invalid argument(s) for await: " + args);
+    		
+    		long timeout = -1;
+    		if (args.size() == 2) {
+    			if (!(args.get(1) instanceof NumberAtom num))
+    				throw new LispRuntimeException("Invalid timeout for await: " + args.get(1));
+    			timeout = num.getValue().longValue();
+    		}
+    		return awaitFuture((FutureAtom) args.get(0), timeout);
+    	});
+    	// Define "future-cancel" procedure
+    	define(builtins, "future-cancel", (Procedure) (args) -> {
+    		if (args.size() != 1 || !(args.get(0) instanceof FutureAtom))
+    			throw new LispRuntimeException("Invalid argument(s) for future-cancel: " + args);
+    		return new BooleanAtom(Futures.cancel((FutureAtom) args.get(0)));
+    	});
+    	// Define "future-done?" procedure
+    	define(builtins, "future-done?", (Procedure) (args) -> {
+    		if (args.size() != 1 || !(args.get(0) instanceof FutureAtom))
+    			throw new LispRuntimeException("Invalid argument(s) for future-done?: " + args);
+    		return new BooleanAtom(((FutureAtom) args.get(0)).getValue().isDone());
+    	});
+    	// Define "ref" procedure
+    	define(builtins, "ref", (Procedure) (args) -> {
+    		if (args.size() != 1)
+    			throw new LispRuntimeException("Invalid number of arguments for ref: " + args.size());
+    		return new RefAtom(args.get(0));
+    	});
+    	// Define "alter" procedure
+    	define(builtins, "alter", (Procedure) (args) -> {
+    		// (alter ref f args...) sets ref to (f value args...)
+    		if (args.size() < 2 || !(args.get(0) instanceof RefAtom) || !(args.get(1) instanceof Lambda))
+    			throw new LispRuntimeException("Invalid argument(s) for alter: " + args);
+    		
+    		RefAtom ref = (RefAtom) args.get(0);
+    		Transaction tx = Transaction.require("alter");
+    		return tx.write(ref, applyUpdate((Lambda) args.get(1), tx.read(ref), args));
+    	});
+    	// Define "ref-set" procedure
+    	define(builtins, "ref-set", (Procedure) (args) -> {
+    		if (args.size() != 2 || !(args.get(0) instanceof RefAtom))
+    			throw new LispRuntimeException("Invalid argument(s) for ref-set: " + args);
+    		return Transaction.require("ref-set").write((RefAtom) args.get(0), args.get(1));
+    	});
+    	// Define "atom" procedure
+    	define(builtins, "atom", (Procedure) (args) -> {
+    		if (args.size() != 1)
+    			throw new LispRuntimeException("Invalid number of arguments for atom: " + args.size());
+    		return new CellAtom(args.get(0));
+    	});
+    	// Define "swap!" procedure
+    	define(builtins, "swap!", (Procedure) (args) -> {
+    		// (swap! cell f args...) sets cell to (f value args...), retrying when another thread wins
+    		if (args.size() < 2 || !(args.get(0) instanceof CellAtom) || !(args.get(1) instanceof Lambda))
+    			throw new LispRuntimeException("Invalid argument(s) for swap!: " + args);
+    		
+    		AtomicReference<Object> cell = ((CellAtom) args.get(0)).getValue();
+    		Lambda update = (Lambda) args.get(1);
+    		while (true) {
+    			Object oldValue = cell.get();
+    			Object newValue = applyUpdate(update, oldValue, args);
+    			if (cell.compareAndSet(oldValue, newValue))
+    				return newValue;
+    		}
+    	});
+    	// Define "reset!" procedure
+    	define(builtins, "reset!", (Procedure) (args) -> {
+    		if (args.size() != 2 || !(args.get(0) instanceof CellAtom))
+    			throw new LispRuntimeException("Invalid argument(s) for reset!: " + args);
+    		((CellAtom) args.get(0)).getValue().set(args.get(1));
+    		return args.get(1);
+    	});
+    	// Define "compare-and-set!" procedure
+    	define(builtins, "compare-and-set!", (Procedure) (args) -> {
+    		// Compares by identity, like the underlying compare-and-set
+    		if (args.size() != 3 || !(args.get(0) instanceof CellAtom))
+    			throw new LispRuntimeException("Invalid argument(s) for compare-and-set!: " + args);
+    		return new BooleanAtom(((CellAtom) args.get(0)).getValue().compareAndSet(args.get(1), args.get(2)));
+    	});
+    	// Define "self" procedure
+    	define(builtins, "self", (Procedure) (args) -> {
+    		if (!args.isEmpty())
+    			throw new LispRuntimeException("Invalid number of arguments for self: " + args.size());
+    		return Actor.current().getAtom();
+    	});
+    	// Define "send" procedure
+    	define(builtins, "send", (Procedure) (args) -> {
+    		// (send actor msg) waits while the mailbox is full, (send actor msg timeout-ms) gives up
+    		if (args.size() < 2 || args.size() > 3 || !(args.get(0) instanceof ActorAtom))
+    			throw new LispRuntimeException("Invalid argument(s) for send: " + args);
+    		
+    		long timeout = -1;
+    		if (args.size() == 3) {
+    			if (!(args.get(2) instanceof NumberAtom num))
+    				throw new LispRuntimeException("Invalid timeout for send: " + args.get(2));
+    			timeout = num.getValue().longValue();
+    		}
+    		return new BooleanAtom(((ActorAtom) args.get(0)).getValue().send(args.get(1), timeout));
+    	});
+    	// Define "receive" procedure
+    	define(builtins, "receive", (Procedure) (args) -> {
+    		// (receive) waits for a message, (receive timeout-ms timeout-value) gives up
+    		if (args.isEmpty())
+    			return Actor.receive(-1);
+    		if (args.size() != 2 || !(args.get(0) instanceof NumberAtom timeout))
+    			throw new LispRuntimeException("Invalid argument(s) for receive: " + args);
+    		
+    		Object message = Actor.receive(timeout.getValue().longValue());
+    		return (message != null) ? message : args.get(1);
+    	});
+    	// Define "actor-alive?" procedure
+    	define(builtins, "actor-alive?", (Procedure) (args) -> {
+    		if (args.size() != 1 || !(args.get(0) instanceof ActorAtom))
+    			throw new LispRuntimeException("Invalid argument(s) for actor-alive?: " + args);
+    		return new BooleanAtom(((ActorAtom) args.get(0)).getValue().isAlive());
+    	});
+    	// Define "actor-stop" procedure
+    	define(builtins, "actor-stop", (Procedure) (args) -> {
+    		if (args.size() != 1 || !(args.get(0) instanceof ActorAtom))
+    			throw new LispRuntimeException("Invalid argument(s) for actor-stop: " + args);
+    		((ActorAtom) args.get(0)).getValue().stop();
+    		return SymbolAtom.nil;
+    	});
+    	// Define "actor-stats" procedure
+    	define(builtins, "actor-stats", (Procedure) (args) -> {
+    		// Queue metrics as a list of (name value) pairs
+    		if (args.size() != 1 || !(args.get(0) instanceof ActorAtom))
+    			throw new LispRuntimeException("Invalid argument(s) for actor-stats: " + args);
+    		
+    		Mailbox mailbox = ((ActorAtom) args.get(0)).getValue().getMailbox();
+    		List<Object> stats = new ArrayList<>();
+    		stats.add(statPair("depth", mailbox.size()));
+    		stats.add(statPair("capacity", mailbox.getCapacity()));
+    		stats.add(statPair("high-water", mailbox.getHighWater()));
+    		stats.add(statPair("sent", mailbox.getSentCount()));
+    		stats.add(statPair("received", mailbox.getReceivedCount()));
+    		stats.add(statPair("blocked-sends", mailbox.getBlockedSendCount()));
+    		return new ListAtom(stats);
+    	});
+    	// Define "require" procedure
+    	define(builtins, "require", (Procedure) (args) -> {
+    		// (require "file" ['prefix]) loads the module once and imports its definitions. The requires
+    		// opening a module load their modules in parallel, before the rest of the module runs
+    		if (args.isEmpty() || args.size() > 2 || !(args.get(0) instanceof StringAtom file))
+    			throw new LispRuntimeException("Invalid argument(s) for require: " + args);
+    		String prefix = null;
+    		if (args.size() == 2) {
+    			if (!(args.get(1) instanceof SymbolAtom prefixSym))
+    				throw new LispRuntimeException("Invalid prefix for require: " + args.get(1));
+    			prefix = prefixSym.getValue();
+    		}
+    		
+    		Module module = modules.require(file.getValue());
+    		modules.importModule(module, prefix);
+    		return module.getAtom();
+    	});
+    	// Define "load" procedure
+    	define(builtins, "load", (Procedure) (args) -> {
+    		if (args.size() != 1 || !(args.get(0) instanceof StringAtom file))
+    			throw new LispRuntimeException("Invalid argument(s) for load: " + args);
+    		return modules.load(file.getValue());
+    	});
+    	// Define "module-stats" procedure
+    	define(builtins, "module-stats", (Procedure) (args) -> {
+    		// One (path forms parse-ms load-ms) list per module, in load order
+    		if (!args.isEmpty())
+    			throw new LispRuntimeException("Invalid number of argument(s) to module-stats: " + args.size());
+    		
+    		List<Object> stats = new ArrayList<>();
+    		for (var module : modules.getModules()) {
+    			stats.add(new ListAtom(List.of(
+    				new StringAtom(module.getPath().toString()),
+    				NumberAtom.valueOf(module.getFormCount()),
+    				new NumberAtom(module.getParseNanos() / 1e6),
+    				new NumberAtom(module.getLoadNanos() / 1e6))));
+    		}
+    		return new ListAtom(stats);
+    	});
+    	// Define "runtime-stats" procedure
+    	define(builtins, "runtime-stats", (Procedure) (args) -> {
+    		// Runtime counters as a list of (name value) pairs, builtin calls nested by name
+    		if (!args.isEmpty())
+    			throw new LispRuntimeException("Invalid number of argument(s) to runtime-stats: " + args.size());
+    		
+    		RuntimeMetrics metrics = RuntimeMetrics.getInstance();
+    		List<Object> builtinCalls = new ArrayList<>();
+    		metrics.getBuiltinCallCounts().forEach((name, calls) -> builtinCalls.add(statPair(name, calls)));
+    		List<Object> stats = new ArrayList<>();
+    		stats.add(statPair("forms", metrics.getFormsEvaluated()));
+    		stats.add(statPair("form-errors", metrics.getFormErrors()));
+    		stats.add(new ListAtom(List.of(new SymbolAtom("error-rate"), new NumberAtom(metrics.getErrorRate()))));
+    		stats.add(statPair("lambda-calls", metrics.getLambdaCalls()));
+    		stats.add(statPair("builtin-calls", metrics.getBuiltinCalls()));
+    		stats.add(statPair("environments", metrics.getEnvironmentsCreated()));
+    		stats.add(statPair("global-lookup-fallbacks", metrics.getGlobalLookupFallbacks()));
+    		stats.add(new ListAtom(List.of(new SymbolAtom("builtins"), new ListAtom(builtinCalls))));
+    		return new ListAtom(stats);
+    	});
     	// Define "inc" procedure
 		define(builtins, "inc", (Procedure) (args) -> {
 			if (args.size() != 1)
@@ -295,8 +1163,7 @@ public class Environment {
 			if (!(args.get(0) instanceof NumberAtom))
 				throw new LispRuntimeException("Invalid argument(s) for inc: " + args);
 				
-			var newNum = ((NumberAtom) args.get(0)).getValue().intValue() + 1;
-			return new NumberAtom(newNum);
+			return NumberAtom.valueOf(Numbers.add(((NumberAtom) args.get(0)).getValue(), 1L));
 		});
 		// Define "dec" procedure
 		define(builtins, "dec", (Procedure) (args) -> {
@@ -306,19 +1173,18 @@ public class Environment {
 			if (!(args.get(0) instanceof NumberAtom))
 				throw new LispRuntimeException("Invalid argument(s) for dec: " + args);
 				
-			var newNum = ((NumberAtom) args.get(0)).getValue().intValue() - 1;
-			return new NumberAtom(newNum);
+			return NumberAtom.valueOf(Numbers.subtract(((NumberAtom) args.get(0)).getValue(), 1L));
 		});
     	// Define "+" procedure
 		define(builtins, "+", (Procedure) (args) -> {
-			double sum = 0.0;
-			for (var arg : args) {
-				if (!(arg instanceof NumberAtom)) {
-					throw new LispRuntimeException("Invalid argument(s) for +: " + arg);
+			Number sum = 0L;
+			for (int i = 0; i < args.size(); i++) {
+				if (!(args.get(i) instanceof NumberAtom arg)) {
+					throw new LispRuntimeException("Invalid argument(s) for +: " + args.get(i));
 				}
-				sum += ((NumberAtom) arg).getValue().doubleValue();
+				sum = (i == 0) ? arg.getValue() : Numbers.add(sum, arg.getValue());
 			}
-			return new NumberAtom(sum);
+			return NumberAtom.valueOf(sum);
 		});
 		// Define "-" procedure
 		define(builtins, "-", (Procedure) (args) -> {
@@ -330,27 +1196,27 @@ public class Environment {
 			}
 			
 			// Start with the first argument as the base
-			double difference = ((NumberAtom) args.get(0)).getValue().doubleValue();
+			Number difference = ((NumberAtom) args.get(0)).getValue();
 			// Subtract subsequent arguments
 			for (int i = 1; i < args.size(); i++) {
 				var arg = args.get(i);
 				if (!(arg instanceof NumberAtom)) {
 					throw new LispRuntimeException("Invalid argument(s) for -: " + arg);
 				}
-				difference -= ((NumberAtom) arg).getValue().doubleValue();
+				difference = Numbers.subtract(difference, ((NumberAtom) arg).getValue());
 			}
-			return new NumberAtom(difference);
+			return NumberAtom.valueOf(difference);
 		});
 		// Define "*" procedure
 		define(builtins, "*", (Procedure) (args) -> {
-			double product = 1.0;
-			for (var arg : args) {
-				if (!(arg instanceof NumberAtom)) {
-					throw new LispRuntimeException("Invalid argument(s) for *: " + arg);
+			Number product = 1L;
+			for (int i = 0; i < args.size(); i++) {
+				if (!(args.get(i) instanceof NumberAtom arg)) {
+					throw new LispRuntimeException("Invalid argument(s) for *: " + args.get(i));
 				}
-				product *= ((NumberAtom) arg).getValue().doubleValue();
+				product = (i == 0) ? arg.getValue() : Numbers.multiply(product, arg.getValue());
 			}
-			return new NumberAtom(product);
+			return NumberAtom.valueOf(product);
 		});
 		// Define "/" procedure
 		define(builtins, "/", (Procedure) (args) -> {
@@ -362,20 +1228,16 @@ public class Environment {
 			}
 			
 			// Start with the first argument as the base
-			double quotient = ((NumberAtom) args.get(0)).getValue().doubleValue();
-			// Divide by subsequent arguments
+			Number quotient = ((NumberAtom) args.get(0)).getValue();
+			// Divide by subsequent arguments, exact numbers give exact ratios
 			for (int i = 1; i < args.size(); i++) {
 				var arg = args.get(i);
 				if (!(arg instanceof NumberAtom)) {
 					throw new LispRuntimeException("Invalid argument(s) for /: " + arg);
 				}
-				double value = ((NumberAtom) arg).getValue().doubleValue();
-				if (value == 0.0) {
-					throw new LispRuntimeException("Division by zero");
-				}
-				quotient /= value;
+				quotient = Numbers.divide(quotient, ((NumberAtom) arg).getValue());
 			}
-			return new NumberAtom(quotient);
+			return NumberAtom.valueOf(quotient);
 		});
 		// Define "mod" procedure
 		define(builtins, "mod", (Procedure) (args) -> {
@@ -388,10 +1250,11 @@ public class Environment {
 			}
 			
 			NumberAtom arg1 = (NumberAtom)args.get(0), arg2 = (NumberAtom)args.get(1);
-			return new NumberAtom(Math.floor(arg1.getValue().intValue()) % (int)Math.floor(arg2.getValue().intValue()));
+			return NumberAtom.valueOf(Numbers.remainder(arg1.getValue(), arg2.getValue()));
 		});
 		// Define "list" procedure
 		define(builtins, "list", (Procedure) (args) -> {
+			Budget.checkListSize(args.size());
 			return args.isEmpty() ? new ListAtom() : new ListAtom(args);
 		});
 		// Define "first" procedure
@@ -438,16 +1301,39 @@ public class Environment {
 		define(builtins, "count", (Procedure) (args) -> {
 			if (args.size() != 1)
 				throw new LispRuntimeException("Invalid number of argument(s) to count: " + args.size());
+			if (args.get(0) instanceof SeqAtom seq) {
+				// Consumes the sequence without keeping its elements
+				long count = 0;
+				for (Iterator<?> elements = seq.getValue(); elements.hasNext(); elements.next()) {
+					count++;
+				}
+				return NumberAtom.valueOf(count);
+			}
 			if (!(args.get(0) instanceof ListAtom))
 				throw new LispRuntimeException("Invalid arguments for count: " + args);
 			ListAtom listAtom = (ListAtom) args.get(0);
-			return new NumberAtom((double) listAtom.getValue().size());
+			return NumberAtom.valueOf(listAtom.getValue().size());
 		});
 		// Define "map" procedure
-		define(builtins, "map", (Procedure) (args) -> {
+		define(builtins, "map", recorded("map", (args) -> {
 			if (args.size() != 2)
 				throw new LispRuntimeException("Invalid number of argument(s) to map:" + args.size());
 			
+			if (args.get(0) instanceof Lambda lambda && args.get(1) instanceof SeqAtom seq) {
+				// A sequence is mapped lazily, as the result is consumed
+				Iterator<?> input = seq.getValue();
+				return new SeqAtom(new Iterator<Object>() {
+					@Override
+					public boolean hasNext() {
+						return input.hasNext();
+					}
+
+					@Override
+					public Object next() {
+						return lambda.apply(List.of(input.next()));
+					}
+				});
+			}
 			if (!(args.get(0) instanceof Lambda) || !(args.get(1) instanceof ListAtom))
 				throw new LispRuntimeException("Invalid arguments for map: " + args);
 
@@ -462,12 +1348,38 @@ public class Environment {
 			}
 			// Create the new ListAtom from the newly transformed list
 			return new ListAtom(outputList);
-		});
+		}));
 		// Define "filter" procedure
-		define(builtins, "filter", (Procedure) (args) -> {
+		define(builtins, "filter", recorded("filter", (args) -> {
 			if (args.size() != 2)
 				throw new LispRuntimeException("Invalid number of argument(s) to filter:" + args.size());
 
+			if (args.get(0) instanceof Lambda lambda && args.get(1) instanceof SeqAtom seq) {
+				// A sequence is filtered lazily, as the result is consumed
+				Iterator<?> input = seq.getValue();
+				return new SeqAtom(new Iterator<Object>() {
+					private Object pending = null; // The next element satisfying the predicate
+					
+					@Override
+					public boolean hasNext() {
+						while (pending == null && input.hasNext()) {
+							Object element = input.next();
+							if (satisfies(lambda, element))
+								pending = element;
+						}
+						return pending != null;
+					}
+
+					@Override
+					public Object next() {
+						if (!hasNext())
+							throw new NoSuchElementException();
+						Object element = pending;
+						pending = null;
+						return element;
+					}
+				});
+			}
 			if (!(args.get(0) instanceof Lambda) || !(args.get(1) instanceof ListAtom))
 				throw new LispRuntimeException("Invalid arguments for filter: " + args);
 			
@@ -476,43 +1388,33 @@ public class Environment {
 			List<Object> outputList = new ArrayList<>(inputList.size()); // Output list
 				
 			for (int i = 0; i < inputList.size(); i++) {
-				// TODO: Should a new evaluator be created?
-				Object result = lambda.apply(List.of(inputList.get(i)));
-				// Check return type of predicate
-				if (!(result instanceof BooleanAtom))
-					throw new LispRuntimeException("Invalid return type for filter predicate: " + result);
-				
 				// Include the element in the list if the predicate is satisfied
-				BooleanAtom booleanResult = (BooleanAtom) result;
-				if (booleanResult.getValue())
+				if (satisfies(lambda, inputList.get(i)))
 					outputList.add(inputList.get(i));
 			}
 			// Create the new ListAtom from the newly transformed list
 			return new ListAtom(outputList);
-		});
+		}));
 		// Define "reduce" procedure
-		define(builtins, "reduce", (Procedure) (args) -> {
+		define(builtins, "reduce", recorded("reduce", (args) -> {
 			if (args.size() != 3)
 				throw new LispRuntimeException("Invalid number of argument(s) to map:" + args.size());
 
-			if (!(args.get(0) instanceof Lambda) || !(args.get(2) instanceof ListAtom))
+			if (!(args.get(0) instanceof Lambda) || !(args.get(2) instanceof ListAtom || args.get(2) instanceof SeqAtom))
 				throw new LispRuntimeException("Invalid arguments for map: " + args);
 			
 			Lambda lambda = (Lambda) args.get(0); // Transformation function
 			Object initial = args.get(1);
-			List<Object> inputList = ((ListAtom) args.get(2)).getValue(); // Input list
-			List<Object> outputList = new ArrayList<>(inputList.size()); // Output list
+			// A sequence is consumed one element at a time
+			Iterator<?> input = (args.get(2) instanceof SeqAtom seq) ? seq.getValue() : ((ListAtom) args.get(2)).getValue().iterator();
 			
-			// Transform the elements of the input list into the output list by applying the lambda
-			for (int i = 0; i < inputList.size(); i++) {
-				// TODO: Should a new evaluator be created?
-				initial = lambda.apply(List.of(initial, inputList.get(i)));
-				outputList.add(initial);
+			// Fold the elements into the accumulated value by applying the lambda
+			while (input.hasNext()) {
+				initial = lambda.apply(List.of(initial, input.next()));
 			}
-			// Create the new ListAtom from the newly transformed list
 			return initial;
-		});
-		define(builtins, "range", (Procedure) (args) -> {
+		}));
+		define(builtins, "range", recorded("range", (args) -> {
 			if (args.size() < 1 || args.size() > 3)
 				throw new LispRuntimeException("Invalid number of argument(s) to range: " + args.size());
 			
@@ -543,12 +1445,114 @@ public class Environment {
 					throw new LispRuntimeException("Invalid arguments to range: " + args); 
 			}
 			
+			if (step <= 0 && start < end)
+				throw new LispRuntimeException("Invalid step for range: " + step); // Would never end
+			Budget.checkListSize((start < end) ? ((long) end - start + step - 1) / step : 0);
 			List<Object> results = new ArrayList<>();
 			for (int num = start; num < end; num += step) {
 				results.add(new NumberAtom(num));
 			}
 			return new ListAtom(results);
+		}));
+		// Define "make-array" procedure
+		define(builtins, "make-array", (Procedure) (args) -> {
+			// (make-array length [fill])
+			if (args.isEmpty() || args.size() > 2 || !(args.get(0) instanceof NumberAtom length)
+					|| (args.size() == 2 && !(args.get(1) instanceof NumberAtom)))
+				throw new LispRuntimeException("Invalid argument(s) for make-array: " + args);
+			if (length.getValue().intValue() < 0)
+				throw new LispRuntimeException("Invalid length for make-array: " + length);
+			
+			Budget.checkListSize(length.getValue().intValue());
+			double[] elements = new double[length.getValue().intValue()];
+			if (args.size() == 2)
+				Arrays.fill(elements, ((NumberAtom) args.get(1)).getValue().doubleValue());
+			return new ArrayAtom(elements);
+		});
+		// Define "array" procedure
+		define(builtins, "array", (Procedure) (args) -> toArray(args, "array"));
+		// Define "list->array" procedure
+		define(builtins, "list->array", (Procedure) (args) -> {
+			if (args.size() != 1 || !(args.get(0) instanceof ListAtom list))
+				throw new LispRuntimeException("Invalid argument(s) for list->array: " + args);
+			return toArray(list.getValue(), "list->array");
+		});
+		// Define "array->list" procedure
+		define(builtins, "array->list", (Procedure) (args) -> {
+			double[] elements = arrayArg(args, 0, 1, "array->list");
+			Budget.checkListSize(elements.length);
+			List<Object> list = new ArrayList<>(elements.length);
+			for (var element : elements) {
+				list.add(new NumberAtom(element));
+			}
+			return new ListAtom(list);
+		});
+		// Define "array-length" procedure
+		define(builtins, "array-length", (Procedure) (args) -> {
+			return NumberAtom.valueOf(arrayArg(args, 0, 1, "array-length").length);
+		});
+		// Define "array-ref" procedure
+		define(builtins, "array-ref", (Procedure) (args) -> {
+			double[] elements = arrayArg(args, 0, 2, "array-ref");
+			return new NumberAtom(elements[arrayIndex(args.get(1), elements, "array-ref")]);
+		});
+		// Define "array-set!" procedure
+		define(builtins, "array-set!", (Procedure) (args) -> {
+			double[] elements = arrayArg(args, 0, 3, "array-set!");
+			int index = arrayIndex(args.get(1), elements, "array-set!");
+			if (!(args.get(2) instanceof NumberAtom value))
+				throw new LispRuntimeException("Invalid argument(s) for array-set!: " + args);
+			elements[index] = value.getValue().doubleValue();
+			return value;
 		});
+		// Define "array-slice" procedure
+		define(builtins, "array-slice", (Procedure) (args) -> {
+			// (array-slice array start [end]) copies the elements start .. end - 1
+			if (args.size() < 2 || args.size() > 3)
+				throw new LispRuntimeException("Invalid number of argument(s) to array-slice: " + args.size());
+			double[] elements = arrayArg(args, 0, args.size(), "array-slice");
+			if (!(args.get(1) instanceof NumberAtom start) || (args.size() == 3 && !(args.get(2) instanceof NumberAtom)))
+				throw new LispRuntimeException("Invalid argument(s) for array-slice: " + args);
+			int from = start.getValue().intValue();
+			int to = (args.size() == 3) ? ((NumberAtom) args.get(2)).getValue().intValue() : elements.length;
+			if (from < 0 || to > elements.length || from > to)
+				throw new LispRuntimeException("Invalid range for array-slice: " + from + " to " + to);
+			return new ArrayAtom(Arrays.copyOfRange(elements, from, to));
+		});
+		// Define "array-sum" procedure
+		define(builtins, "array-sum", (Procedure) (args) -> {
+			return new NumberAtom(ArrayOps.sum(arrayArg(args, 0, 1, "array-sum")));
+		});
+		// Define "dot" procedure
+		define(builtins, "dot", (Procedure) (args) -> {
+			return new NumberAtom(ArrayOps.dot(arrayArg(args, 0, 2, "dot"), arrayArg(args, 1, 2, "dot")));
+		});
+		// Define "array-map" procedure
+		define(builtins, "array-map", recorded("array-map", (args) -> {
+			if (args.size() != 2 || !(args.get(0) instanceof Lambda lambda))
+				throw new LispRuntimeException("Invalid argument(s) for array-map: " + args);
+			double[] elements = arrayArg(args, 1, 2, "array-map");
+			double[] results = new double[elements.length];
+			for (int i = 0; i < elements.length; i++) {
+				if (!(lambda.apply(List.of(new NumberAtom(elements[i]))) instanceof NumberAtom result))
+					throw new LispRuntimeException("array-map function must return a number");
+				results[i] = result.getValue().doubleValue();
+			}
+			return new ArrayAtom(results);
+		}));
+		// Define "array+", "array-", "array*" and "array/" procedures
+		for (var op : ArrayOps.Operator.values()) {
+			String name = "array" + op.getSymbol();
+			define(builtins, name, (Procedure) (args) -> {
+				// The second argument is an array of the same length, or a number applied to every element
+				double[] elements = arrayArg(args, 0, 2, name);
+				return switch (args.get(1)) {
+					case ArrayAtom other -> new ArrayAtom(ArrayOps.apply(op, elements, other.getValue()));
+					case NumberAtom num -> new ArrayAtom(ArrayOps.apply(op, elements, num.getValue().doubleValue()));
+					default -> throw new LispRuntimeException("Invalid argument(s) for " + name + ": " + args);
+				};
+			});
+		}
 		// Define "=" predicate
 		define(builtins, "=", (Procedure) (args) -> {
 			boolean result = false;
@@ -689,6 +1693,30 @@ public class Environment {
 			Object arg1 = args.get(0);
 			return new BooleanAtom(arg1 instanceof ListAtom);
 		});
+		// Define "array?" predicate
+		define(builtins, "array?", (Procedure) (args) -> {
+			if (args.isEmpty()) {
+				throw new LispRuntimeException("Invalid argument(s) for array?");
+			}
+			Object arg1 = args.get(0);
+			return new BooleanAtom(arg1 instanceof ArrayAtom);
+		});
+		// Define "port?" predicate
+		define(builtins, "port?", (Procedure) (args) -> {
+			if (args.isEmpty()) {
+				throw new LispRuntimeException("Invalid argument(s) for port?");
+			}
+			Object arg1 = args.get(0);
+			return new BooleanAtom(arg1 instanceof PortAtom);
+		});
+		// Define "seq?" predicate
+		define(builtins, "seq?", (Procedure) (args) -> {
+			if (args.isEmpty()) {
+				throw new LispRuntimeException("Invalid argument(s) for seq?");
+			}
+			Object arg1 = args.get(0);
+			return new BooleanAtom(arg1 instanceof SeqAtom);
+		});
 		return builtins;
 	}
     
@@ -0,0 +1,315 @@
+package com.bhoffpauir.blisp.lib;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.NotSerializableException;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.bhoffpauir.blisp.lib.atom.ListAtom;
+import com.bhoffpauir.blisp.lib.atom.SymbolAtom;
+
+/**
+ * Snapshot and restore of a fully-initialized global {@link Environment}.
+ *
+ * <p>An image holds every user binding of a global environment: data atoms, user lambdas and
+ * the closure environments they captured, and macros. Builtin procedures are not written; they are stored
+ * as references by name and resolved against the global environment the image is restored
+ * into. Shared and cyclic references (e.g. the {@code recur} binding of a closure environment)
+ * are preserved, so restoring an image saved after loading a prelude gives the same environment
+ * without evaluating the prelude again. Bindings to runtime values, such as refs, cells, futures
+ * and ports, cannot be saved.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>
+ *     EnvironmentImage.save(env, Path.of("prelude.img"));
+ *     // Later, possibly in another process
+ *     Environment env = EnvironmentImage.restore(Path.of("prelude.img"));
+ * </pre>
+ *
+ * @see Environment
+ * @see Lambda
+ */
+public final class EnvironmentImage {
+	private static final int MAGIC = 0x424C5349; // "BLSI"
+	private static final int FORMAT_VERSION = 3;
+	// Value tags, following the atom tags of AtomOutputStream:
+	private static final byte TAG_LAMBDA     = 16;
+	private static final byte TAG_LAMBDA_REF = 17;
+	private static final byte TAG_BUILTIN    = 18;
+	private static final byte TAG_MACRO      = 19;
+	// Environment tags:
+	private static final byte ENV_NULL = 0;
+	private static final byte ENV_NEW  = 1;
+	private static final byte ENV_REF  = 2;
+	// The global environment is always the first environment
+	private static final int GLOBAL_ENV_ID = 0;
+
+	private EnvironmentImage() {
+	}
+
+	/**
+	 * Save the user bindings of a global environment to an image file. The file is only
+	 * replaced once the image is complete, so a failed save leaves it as it was.
+	 *
+	 * @param globalEnv The global environment to save.
+	 * @param file The image file to write.
+	 * @throws IOException if an I/O error occurs.
+	 * @throws NotSerializableException if a binding holds a value that cannot be saved.
+	 */
+	public static void save(Environment globalEnv, Path file) throws IOException {
+		AtomOutputStream.writeFile(file, (out) -> new ImageOutputStream(out, globalEnv), (ios) -> {
+			ios.writeInt(MAGIC);
+			ios.writeInt(FORMAT_VERSION);
+			ios.writeGlobalBindings();
+		});
+	}
+
+	/**
+	 * Restore an image into a newly created global environment.
+	 *
+	 * @param file The image file to read.
+	 * @return The restored global environment.
+	 * @throws IOException if an I/O error occurs or the image is invalid.
+	 */
+	public static Environment restore(Path file) throws IOException {
+		Environment globalEnv = Environment.createGlobalEnv();
+		restore(file, globalEnv);
+		return globalEnv;
+	}
+
+	/**
+	 * Restore an image into an existing global environment. Bindings from the image replace
+	 * bindings of the same name. Builtins referenced by the image must be bound in
+	 * {@code globalEnv}.
+	 *
+	 * @param file The image file to read.
+	 * @param globalEnv The global environment to restore the bindings into.
+	 * @throws IOException if an I/O error occurs or the image is invalid.
+	 */
+	public static void restore(Path file, Environment globalEnv) throws IOException {
+		try (InputStream in = Files.newInputStream(file);
+			 ImageInputStream iis = new ImageInputStream(new BufferedInputStream(in), globalEnv)) {
+			if (iis.readInt() != MAGIC) {
+				throw new StreamCorruptedException("Not a blisp image: " + file);
+			}
+			int version = iis.readInt();
+			if (version != FORMAT_VERSION) {
+				throw new StreamCorruptedException("Unsupported image version: " + version);
+			}
+			iis.readGlobalBindings();
+		}
+	}
+
+	/**
+	 * Check if {@code value} is the builtin procedure bound under {@code symbol}.
+	 */
+	private static boolean isBuiltinBinding(String symbol, Object value) {
+		return (value instanceof Lambda lambda) && lambda.isProcedure() && symbol.equals(lambda.getName());
+	}
+
+	/**
+	 * Writes lambdas and environments in addition to atoms, preserving shared references.
+	 */
+	private static class ImageOutputStream extends AtomOutputStream {
+		private final Environment globalEnv;
+		private final Map<Environment, Integer> envIds = new IdentityHashMap<>();
+		private final Map<Lambda, Integer> lambdaIds = new IdentityHashMap<>();
+
+		ImageOutputStream(OutputStream out, Environment globalEnv) {
+			super(out);
+			this.globalEnv = globalEnv;
+			envIds.put(globalEnv, GLOBAL_ENV_ID);
+		}
+
+		/**
+		 * Write the bindings of the global environment, skipping the builtins bound under their
+		 * own names.
+		 */
+		void writeGlobalBindings() throws IOException {
+			List<Map.Entry<String, Object>> entries = new ArrayList<>();
+			for (var entry : globalEnv.getBindings().entrySet()) {
+				if (!isBuiltinBinding(entry.getKey(), entry.getValue()))
+					entries.add(entry);
+			}
+			writeBindings(entries);
+		}
+
+		private void writeBindings(List<Map.Entry<String, Object>> entries) throws IOException {
+			writeVarLong(entries.size());
+			for (var entry : entries) {
+				writeSymbol(entry.getKey());
+				writeAtom(entry.getValue());
+			}
+		}
+
+		@Override
+		public void writeAtom(Object atom) throws IOException {
+			if (atom instanceof Lambda lambda) {
+				writeLambda(lambda);
+			} else if (atom instanceof Macro macro) {
+				writeByte(TAG_MACRO);
+				writeBoolean(macro.isVariadic());
+				writeLambda(macro.getExpander());
+			} else {
+				try {
+					super.writeAtom(atom);
+				} catch (IllegalArgumentException ex) {
+					throw new NotSerializableException("Cannot save " + atom + " in an image");
+				}
+			}
+		}
+
+		private void writeLambda(Lambda lambda) throws IOException {
+			if (lambda.isProcedure()) {
+				if (lambda.getName() == null)
+					throw new NotSerializableException("Anonymous procedure: " + lambda);
+				writeByte(TAG_BUILTIN);
+				writeSymbol(lambda.getName());
+				return;
+			}
+
+			Integer id = lambdaIds.get(lambda);
+			if (id != null) {
+				writeByte(TAG_LAMBDA_REF);
+				writeVarLong(id);
+				return;
+			}
+			// Register the lambda before its closure, which may refer back to it
+			lambdaIds.put(lambda, lambdaIds.size());
+			writeByte(TAG_LAMBDA);
+			writeBoolean(lambda.getName() != null);
+			if (lambda.getName() != null)
+				writeSymbol(lambda.getName());
+			List<SymbolAtom> parameters = lambda.getParameters();
+			writeVarLong(parameters.size());
+			for (var param : parameters) {
+				writeSymbol(param.getValue());
+			}
+			writeAtom(lambda.getBody());
+			writeEnvironment(lambda.getParentEnv());
+		}
+
+		private void writeEnvironment(Environment env) throws IOException {
+			if (env == null) {
+				writeByte(ENV_NULL);
+				return;
+			}
+
+			Integer id = envIds.get(env);
+			if (id != null) {
+				writeByte(ENV_REF);
+				writeVarLong(id);
+				return;
+			}
+			// Register the environment before its bindings, which may refer back to it
+			envIds.put(env, envIds.size());
+			writeByte(ENV_NEW);
+			writeEnvironment(env.getParent());
+			writeBindings(new ArrayList<>(env.getBindings().entrySet()));
+		}
+	}
+
+	/**
+	 * Reads the lambdas and environments written by {@link ImageOutputStream}.
+	 */
+	private static class ImageInputStream extends AtomInputStream {
+		private final Environment globalEnv;
+		private final Evaluator evaluator;
+		private final List<Environment> envs = new ArrayList<>();
+		private final List<Lambda> lambdas = new ArrayList<>();
+
+		ImageInputStream(InputStream in, Environment globalEnv) {
+			super(in);
+			this.globalEnv = globalEnv;
+			this.evaluator = new Evaluator(globalEnv);
+			envs.add(globalEnv); // GLOBAL_ENV_ID
+		}
+
+		void readGlobalBindings() throws IOException {
+			readBindings(globalEnv);
+		}
+
+		private void readBindings(Environment env) throws IOException {
+			int count = readVarInt(Integer.MAX_VALUE);
+			for (int i = 0; i < count; i++) {
+				String symbol = readSymbol();
+				env.getBindings().put(symbol, readAtom());
+			}
+		}
+
+		@Override
+		protected Object readAtom(byte tag) throws IOException {
+			return switch (tag) {
+				case TAG_BUILTIN -> {
+					String name = readSymbol();
+					Object builtin = globalEnv.nullableLookup(name);
+					if (!(builtin instanceof Lambda))
+						throw new StreamCorruptedException("Image refers to unknown builtin: " + name);
+					yield builtin;
+				}
+				case TAG_LAMBDA_REF -> lambdas.get(readIndex(lambdas.size()));
+				case TAG_LAMBDA -> readLambda();
+				case TAG_MACRO -> {
+					boolean variadic = readBoolean();
+					if (!(readAtom() instanceof Lambda expander))
+						throw new StreamCorruptedException("Macro expander must be a lambda");
+					yield new Macro(expander, variadic);
+				}
+				default -> super.readAtom(tag);
+			};
+		}
+
+		private Lambda readLambda() throws IOException {
+			String name = readBoolean() ? readSymbol() : null;
+			int paramCount = readVarInt(Integer.MAX_VALUE);
+			List<SymbolAtom> parameters = new ArrayList<>();
+			for (int i = 0; i < paramCount; i++) {
+				parameters.add(new SymbolAtom(readSymbol()));
+			}
+			if (!(readAtom() instanceof ListAtom body))
+				throw new StreamCorruptedException("Lambda body must be a list");
+			// Register the lambda before its closure, which may refer back to it
+			Lambda lambda = new Lambda(parameters, body, null, evaluator);
+			if (name != null)
+				lambda.setName(name);
+			lambdas.add(lambda);
+			lambda.setParentEnv(readEnvironment());
+			return lambda;
+		}
+
+		private Environment readEnvironment() throws IOException {
+			byte tag = readByte();
+			switch (tag) {
+			case ENV_NULL:
+				return null;
+			case ENV_REF:
+				return envs.get(readIndex(envs.size()));
+			case ENV_NEW: {
+				// Register the environment before its bindings, which may refer back to it
+				Environment env = new Environment();
+				envs.add(env);
+				env.setParent(readEnvironment());
+				readBindings(env);
+				return env;
+			}
+			default:
+				throw new StreamCorruptedException("Unknown environment tag: " + tag);
+			}
+		}
+
+		private int readIndex(int limit) throws IOException {
+			long index = readVarLong();
+			if (index < 0 || index >= limit)
+				throw new StreamCorruptedException("Invalid reference: " + index);
+			return (int) index;
+		}
+	}
+}
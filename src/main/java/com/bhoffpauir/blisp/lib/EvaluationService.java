@@ -0,0 +1,191 @@
+package com.bhoffpauir.blisp.lib;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+import com.bhoffpauir.blisp.lib.atom.SymbolAtom;
+import com.bhoffpauir.blisp.lib.exception.EvaluationCancelledException;
+
+/**
+ * Runs script evaluations concurrently for servers and embedding applications.
+ *
+ * <p>Every request is evaluated on its own thread, a virtual thread by default, in a fresh child
+ * {@link Environment} of the shared global environment. Requests that block (e.g. in
+ * {@code sleep} or on I/O) therefore only park a cheap virtual thread, and definitions made by one
+ * request are never seen by another. The global environment must not be modified while the
+ * service is running, and {@code set!} cannot change its bindings: a request that wants to
+ * change a global binding must {@code define} its own.</p>
+ *
+ * <p>The number of requests evaluating at once is capped by {@code maxConcurrent}; further
+ * requests wait for a permit. A request is cancelled through its {@link Future}:
+ * {@code future.cancel(true)} interrupts the evaluation, which stops at the next procedure call or
+ * blocking builtin with an {@link EvaluationCancelledException}. Futures and actors started by a
+ * request are stopped when the request finishes or is cancelled.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>
+ *     try (EvaluationService service = new EvaluationService(Environment.createGlobalEnv(), 1000)) {
+ *         Future&lt;Object&gt; result = service.submit("(+ 1 2)", System.out);
+ *         System.out.println(result.get()); // 3
+ *     }
+ * </pre>
+ *
+ * @see OutputPort
+ */
+public class EvaluationService implements AutoCloseable {
+	private final Environment globalEnv;
+	private final ExecutorService executor;
+	private final Semaphore permits;
+	private final int maxConcurrent;
+	private static final Budget UNLIMITED = new Budget();
+	private volatile Budget budget = null;
+
+	/**
+	 * A unit of work evaluated by the service.
+	 *
+	 * @param <T> The result type of the request.
+	 */
+	@FunctionalInterface
+	public interface Request<T> {
+		/**
+		 * Evaluate the request.
+		 *
+		 * @param evaluator The evaluator of the request.
+		 * @param env The environment of the request, a child of the global environment.
+		 * @return The result of the request.
+		 */
+		T evaluate(Evaluator evaluator, Environment env);
+	}
+
+	/**
+	 * Constructs a service evaluating each request on a new virtual thread.
+	 *
+	 * @param globalEnv The environment requests are evaluated on top of.
+	 * @param maxConcurrent The maximum number of requests evaluating at once.
+	 */
+	public EvaluationService(Environment globalEnv, int maxConcurrent) {
+		this(globalEnv, Executors.newVirtualThreadPerTaskExecutor(), maxConcurrent);
+	}
+
+	/**
+	 * Constructs a service evaluating requests on the given executor, e.g. a platform thread
+	 * pool. The service owns the executor and shuts it down when closed.
+	 *
+	 * @param globalEnv The environment requests are evaluated on top of.
+	 * @param executor The executor that runs the requests.
+	 * @param maxConcurrent The maximum number of requests evaluating at once.
+	 */
+	public EvaluationService(Environment globalEnv, ExecutorService executor, int maxConcurrent) {
+		if (maxConcurrent < 1)
+			throw new IllegalArgumentException("maxConcurrent must be positive: " + maxConcurrent);
+		this.globalEnv = globalEnv;
+		this.executor = executor;
+		this.permits = new Semaphore(maxConcurrent);
+		this.maxConcurrent = maxConcurrent;
+		globalEnv.setShared(true);
+		RuntimeMetrics.registerMBean(); // Long-running host, make the counters visible over JMX
+	}
+
+	/**
+	 * Submit a script for evaluation. Evaluation stops at the first error, which is reported
+	 * through the returned future.
+	 *
+	 * @param source The script source.
+	 * @param out The output port of the request, or null for {@link System#out}.
+	 * @return The value of the last form of the script.
+	 */
+	public Future<Object> submit(String source, PrintStream out) {
+		return submit((evaluator, env) -> {
+			List<String> tokens = new Tokenizer(source).tokenize();
+			if (tokens.isEmpty())
+				return SymbolAtom.nil;
+
+			Object result = SymbolAtom.nil;
+			for (var form : new Parser(tokens).parseAll()) {
+				result = evaluator.evaluateTopLevel(form, env);
+			}
+			return result;
+		}, out);
+	}
+
+	/**
+	 * Submit a request for evaluation.
+	 *
+	 * @param <T> The result type of the request.
+	 * @param request The request to evaluate.
+	 * @param out The output port of the request, or null for {@link System#out}.
+	 * @return The future result of the request.
+	 */
+	public <T> Future<T> submit(Request<T> request, PrintStream out) {
+		return executor.submit(() -> {
+			try {
+				permits.acquire();
+			} catch (InterruptedException ex) {
+				throw new EvaluationCancelledException(); // Cancelled while waiting for a permit
+			}
+			try {
+				Environment requestEnv = new Environment(globalEnv);
+				Evaluator evaluator = new Evaluator(globalEnv);
+				// Even without limits, a budget stops the futures and actors of the request with it
+				Budget requestBudget = (budget != null) ? budget : UNLIMITED;
+				Supplier<T> evaluation = () -> requestBudget.run(() -> request.evaluate(evaluator, requestEnv));
+				if (out == null)
+					return evaluation.get();
+				return OutputPort.callWith(out, evaluation);
+			} finally {
+				permits.release();
+			}
+		});
+	}
+
+	/**
+	 * Set the limits every request is evaluated within, e.g. to keep a runaway script from
+	 * occupying a worker. Applies to requests that start evaluating after the call.
+	 *
+	 * @param budget The limits of each request, or null for no limits.
+	 */
+	public void setBudget(Budget budget) {
+		this.budget = budget;
+	}
+
+	/**
+	 * Retrieve the number of requests evaluating right now.
+	 *
+	 * @return The number of active requests.
+	 */
+	public int getActiveCount() {
+		return maxConcurrent - permits.availablePermits();
+	}
+
+	/**
+	 * Retrieve the maximum number of requests evaluating at once.
+	 *
+	 * @return The concurrency limit.
+	 */
+	public int getMaxConcurrent() {
+		return maxConcurrent;
+	}
+
+	/**
+	 * Retrieve the environment requests are evaluated on top of.
+	 *
+	 * @return The global environment.
+	 */
+	public Environment getGlobalEnv() {
+		return globalEnv;
+	}
+
+	/**
+	 * Stop accepting requests and wait for the submitted requests to finish.
+	 */
+	@Override
+	public void close() {
+		executor.close();
+		globalEnv.setShared(false);
+	}
+}
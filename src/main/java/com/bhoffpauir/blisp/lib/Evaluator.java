@@ -2,18 +2,22 @@ package com.bhoffpauir.blisp.lib;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
+import com.bhoffpauir.blisp.lib.atom.Atom;
 import com.bhoffpauir.blisp.lib.atom.BooleanAtom;
 import com.bhoffpauir.blisp.lib.atom.CharacterAtom;
 import com.bhoffpauir.blisp.lib.atom.ListAtom;
 import com.bhoffpauir.blisp.lib.atom.NumberAtom;
+import com.bhoffpauir.blisp.lib.atom.PortAtom;
 import com.bhoffpauir.blisp.lib.atom.StringAtom;
 import com.bhoffpauir.blisp.lib.atom.SymbolAtom;
+import com.bhoffpauir.blisp.lib.exception.EvaluationCancelledException;
 import com.bhoffpauir.blisp.lib.exception.LispRuntimeException;
+import com.bhoffpauir.blisp.lib.jfr.BlispEvents;
+import com.bhoffpauir.blisp.lib.jfr.FormEvaluationEvent;
 
 public class Evaluator {
 	private Environment globalEnv;
@@ -22,6 +26,51 @@ public class Evaluator {
 		this.globalEnv = globalEnv;
 	}
 	
+	/**
+	 * Evaluate a top-level form of a script or REPL line. Same as {@link #evaluate(Object, Environment)},
+	 * but also counts the form in the {@link RuntimeMetrics} and emits a {@link FormEvaluationEvent}
+	 * when the blisp JFR events are enabled.
+	 * 
+	 * @param form The form to evaluate.
+	 * @param env The environment to evaluate the form in.
+	 * @return The value of the form.
+	 */
+	public Object evaluateTopLevel(Object form, final Environment env) {
+		RuntimeMetrics.formEvaluated();
+		FormEvaluationEvent event = null;
+		if (BlispEvents.isEnabled()) {
+			event = new FormEvaluationEvent();
+			event.begin();
+		}
+		try {
+			return evaluate(form, env);
+		} catch (RuntimeException ex) {
+			RuntimeMetrics.formFailed();
+			throw ex;
+		} finally {
+			if (event != null) {
+				event.end();
+				if (event.shouldCommit()) {
+					event.form = BlispEvents.describe(form);
+					event.commit();
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Evaluate an expression within the limits of a {@link Budget}.
+	 * 
+	 * @param expr The expression to evaluate.
+	 * @param env The environment to evaluate the expression in.
+	 * @param budget The limits of the evaluation.
+	 * @return The value of the expression.
+	 * @throws com.bhoffpauir.blisp.lib.exception.BudgetExceededException if the evaluation exceeds a limit.
+	 */
+	public Object evaluate(Object expr, final Environment env, Budget budget) {
+		return budget.run(() -> evaluate(expr, env));
+	}
+	
 	/**
 	 * 
 	 * @param expr
@@ -29,8 +78,6 @@ public class Evaluator {
 	 * @return
 	 */
 	public Object evaluate(Object expr, final Environment env) {
-		// TODO: Handle syntax quote evaluation.
-		
 		return switch (expr) {
 			case SymbolAtom sym -> {
 				// nil symbol should always evaluate to itself
@@ -42,8 +89,10 @@ public class Evaluator {
 				Object symbolValue = (env != null) ? env.nullableLookup(symbolStr) : null;
 				
 				// If the symbol didn't resolve try the global environment
-				if (symbolValue == null)
+				if (symbolValue == null) {
+					RuntimeMetrics.globalLookupFallback();
 					yield globalEnv.lookup(symbolStr);
+				}
 				else
 					yield symbolValue;
 			}
@@ -52,6 +101,7 @@ public class Evaluator {
 			case CharacterAtom ch -> ch;
 			case StringAtom str -> str;
 			case ListAtom lst -> evaluateList(lst, env);
+			case Atom<?> atom -> atom; // Runtime values (e.g. futures) evaluate to themselves
 			default -> throw new LispRuntimeException("Unexpected expression type: " + expr);
 		};
 	}
@@ -67,24 +117,30 @@ public class Evaluator {
 		if (elements.isEmpty()) {
 			throw new LispRuntimeException("Empty list");
 		}
+		Budget.step();
 		
 		//Assume the first element is the operator
 		Object operator = elements.get(0); // Unevaluated operator
-		if ((operator instanceof SymbolAtom)) {
-			String operatorStr = ((SymbolAtom) operator).getValue();
-			Optional<Object> result = evaluateSpecialForm(operatorStr, elements.subList(1, elements.size()), env);
-			if (result.isPresent()) {
-				return result.get();
+		if (operator instanceof SymbolAtom sym) {
+			SpecialForm form = SpecialForms.lookup(sym);
+			if (form != null) {
+				return form.evaluate(this, elements.subList(1, elements.size()), env);
 			}
 		}
 
 		// Now evaluate the operator if it is not a special form 
 		Object evaluatedOperator = evaluate(elements.get(0), env);
+		if (evaluatedOperator instanceof Macro macro) {
+			return evaluate(expand(list, macro), env);
+		}
+		if (evaluatedOperator instanceof LoopFrame frame) {
+			return frame.recur(this, elements.subList(1, elements.size()), env);
+		}
 		
 		// Evaluate all arguments before sending them to a procedure/lambda
 		List<Object> args = elements.subList(1, elements.size());
 		List<Object> evaluatedArgs = new ArrayList<>(args.size());
-		args.forEach(arg -> evaluatedArgs.add(evaluate(arg, env)));
+		args.forEach(arg -> evaluatedArgs.add(notRecur(evaluate(arg, env))));
 		
 		//System.out.println("Evaluated operator: " + evaluatedOperator);
 		//System.out.println("Class name: " + evaluatedOperator.getClass().getSimpleName());
@@ -100,107 +156,501 @@ public class Evaluator {
 	}
 	
 	/**
+	 * Evaluate a sequence of forms, like {@code begin}.
 	 * 
-	 * @param operator
-	 * @param args
-	 * @param env
-	 * @return
+	 * @param body The forms.
+	 * @param env The environment to evaluate the forms in.
+	 * @return The value of the last form, or nil if there are none.
 	 */
-	private Optional<Object> evaluateSpecialForm(final String operator, List<Object> args, final Environment env) {
-		String op = operator.toLowerCase();
-		// Process special forms
-		switch (op) {
-		case "define": {
-			// TODO: Implement error checking.
-			if (args.size() < 2) {
-				throw new LispRuntimeException("Incorrect define syntax");
-			}
-			
-			Object nameOrFuncDecl = args.get(0), value = SymbolAtom.nil;
-			SymbolAtom name;
-			if (nameOrFuncDecl instanceof SymbolAtom) {
-				name = (SymbolAtom) nameOrFuncDecl;
-				value = evaluate(args.get(1), env); 
-			} else if (nameOrFuncDecl instanceof ListAtom) {
-				ListAtom funcDecl = (ListAtom) args.get(0);
-				List<Object> declList = funcDecl.getValue();
-				name = (SymbolAtom) declList.get(0);
-				// Collect the parameter symbols
-				List<SymbolAtom> parameters = new ArrayList<>();
-				List<Object> paramList = ((ListAtom) args.get(0)).getValue();
-				for (var param : declList.subList(1, declList.size())) {
-					if (!(param instanceof SymbolAtom))
-						throw new LispRuntimeException("Parameter names must be symbols.");
-
-					parameters.add((SymbolAtom) param);
+	private Object evaluateBody(List<Object> body, final Environment env) {
+		Object result = SymbolAtom.nil;
+		for (int i = 0; i < body.size(); i++) {
+			if (i > 0)
+				notRecur(result); // Only the last form is in tail position
+			result = evaluate(body.get(i), env);
+		}
+		return result;
+	}
+	
+	/**
+	 * Check that a value is not the {@link LoopFrame} returned by a {@code recur} call. The frame
+	 * may only be the value of the last form of a loop body, which hands it to its loop; anywhere
+	 * else the {@code recur} would be lost or leak into data.
+	 * 
+	 * @param value The value.
+	 * @return The value.
+	 * @throws LispRuntimeException if the value is a loop frame.
+	 */
+	static Object notRecur(Object value) {
+		if (value instanceof LoopFrame) {
+			throw new LispRuntimeException("recur is not in tail position");
+		}
+		return value;
+	}
+	
+	/**
+	 * Check the bindings of a {@code let} or {@code loop} form.
+	 * 
+	 * @param bindings The binding list, {@code ((name value)...)}.
+	 * @param form The name of the form, for the error message.
+	 * @return The bindings.
+	 */
+	private static List<ListAtom> bindingList(Object bindings, String form) {
+		if (!(bindings instanceof ListAtom list)) {
+			throw new LispRuntimeException("Incorrect " + form + " bindings: " + bindings);
+		}
+		List<ListAtom> result = new ArrayList<>(list.getValue().size());
+		for (var binding : list.getValue()) {
+			if (!(binding instanceof ListAtom pair) || pair.getValue().size() != 2
+					|| !(pair.getValue().get(0) instanceof SymbolAtom)) {
+				throw new LispRuntimeException("Incorrect " + form + " binding: " + binding);
+			}
+			result.add(pair);
+		}
+		return result;
+	}
+	
+	/**
+	 * Start the next iteration of a loop: stop it if its evaluation has been cancelled, and charge
+	 * a step to the budget. Loops repeat work without procedure calls, which is where cancellation
+	 * is checked otherwise, and their test and body may be atoms that cost no step themselves.
+	 */
+	private static void nextIteration() {
+		if (Thread.currentThread().isInterrupted()) {
+			throw new EvaluationCancelledException();
+		}
+		Budget.step();
+	}
+	
+	/**
+	 * Expand a macro call site, reusing the expansion cached on the call site if the macro
+	 * hasn't been redefined since.
+	 * 
+	 * @param callSite The call site, a list starting with the macro name.
+	 * @param macro The macro.
+	 * @return The expansion.
+	 */
+	private Object expand(ListAtom callSite, Macro macro) {
+		Object expansion = callSite.getExpansion(macro);
+		if (expansion == null) {
+			List<Object> elements = callSite.getValue();
+			expansion = macro.expand(elements.subList(1, elements.size()));
+			callSite.setExpansion(macro, expansion);
+		}
+		return expansion;
+	}
+	
+	/**
+	 * Build the value of a quasiquoted template: the template is copied, except for
+	 * {@code (unquote x)} forms, which are replaced by the value of {@code x}, and
+	 * {@code (unquote-splicing x)} forms, which are replaced by the elements of the list
+	 * {@code x} evaluates to. Unquotes inside nested quasiquotes belong to the inner quasiquote.
+	 * 
+	 * @param template The template.
+	 * @param env The environment to evaluate unquoted forms in.
+	 * @param depth The quasiquote nesting depth, 1 for the outermost quasiquote.
+	 * @return The value of the template.
+	 */
+	private Object quasiquote(Object template, final Environment env, int depth) {
+		if (!(template instanceof ListAtom list) || list.getValue().isEmpty()) {
+			return template;
+		}
+		List<Object> elements = list.getValue();
+		String head = quasiquoteOperator(template);
+		if ("unquote".equals(head)) {
+			if (depth == 1) {
+				return notRecur(evaluate(elements.get(1), env));
+			}
+			return new ListAtom(new ArrayList<>(List.of(elements.get(0), quasiquote(elements.get(1), env, depth - 1))));
+		} else if ("quasiquote".equals(head)) {
+			return new ListAtom(new ArrayList<>(List.of(elements.get(0), quasiquote(elements.get(1), env, depth + 1))));
+		}
+		
+		List<Object> result = new ArrayList<>(elements.size());
+		for (var element : elements) {
+			if (depth == 1 && "unquote-splicing".equals(quasiquoteOperator(element))) {
+				Object spliced = notRecur(evaluate(((ListAtom) element).getValue().get(1), env));
+				if (spliced instanceof ListAtom splicedList) {
+					result.addAll(splicedList.getValue());
+				} else if (!SymbolAtom.nil.equals(spliced)) {
+					throw new LispRuntimeException("unquote-splicing requires a list: " + spliced);
 				}
-				// Get the body atom
-				ListAtom body = (ListAtom) args.get(1);
-				// Create and return the lambda expression
-				value = new Lambda(parameters, body, env, this);
 			} else {
-				throw new LispRuntimeException("Incorrect args to define");
+				result.add(quasiquote(element, env, depth));
 			}
-			//System.out.println("Defining: " + name + " " + value);
-			//System.out.println("Defining environment:\n" + env);
-			env.define(name.getValue(), value);
-			return Optional.of(value);
 		}
-		case "λ":
-		case "lambda": {
+		return new ListAtom(result);
+	}
+	
+	/**
+	 * Retrieve the name of a {@code (quasiquote x)}, {@code (unquote x)} or
+	 * {@code (unquote-splicing x)} form.
+	 * 
+	 * @param form The form.
+	 * @return The lowercase operator name, or null if the form is not a two-element list
+	 *         starting with a symbol.
+	 */
+	private static String quasiquoteOperator(Object form) {
+		if (form instanceof ListAtom list && list.getValue().size() == 2
+				&& list.getValue().get(0) instanceof SymbolAtom sym) {
+			return sym.getValue().toLowerCase();
+		}
+		return null;
+	}
+	
+	/**
+	 * Special form {@code (define name value)} or {@code (define (name params...) body)}.
+	 */
+	Object evaluateDefine(List<Object> args, final Environment env) {
+		// TODO: Implement error checking.
+		if (args.size() < 2) {
+			throw new LispRuntimeException("Incorrect define syntax");
+		}
+		
+		Object nameOrFuncDecl = args.get(0), value = SymbolAtom.nil;
+		SymbolAtom name;
+		if (nameOrFuncDecl instanceof SymbolAtom) {
+			name = (SymbolAtom) nameOrFuncDecl;
+			value = notRecur(evaluate(args.get(1), env));
+		} else if (nameOrFuncDecl instanceof ListAtom) {
+			ListAtom funcDecl = (ListAtom) args.get(0);
+			List<Object> declList = funcDecl.getValue();
+			name = (SymbolAtom) declList.get(0);
 			// Collect the parameter symbols
-			//List<Object> parameters = args.get(0);
 			List<SymbolAtom> parameters = new ArrayList<>();
 			List<Object> paramList = ((ListAtom) args.get(0)).getValue();
-			for (var param : paramList) {
-				if (!(param instanceof SymbolAtom)) {
+			for (var param : declList.subList(1, declList.size())) {
+				if (!(param instanceof SymbolAtom))
 					throw new LispRuntimeException("Parameter names must be symbols.");
-				}
+
 				parameters.add((SymbolAtom) param);
 			}
 			// Get the body atom
 			ListAtom body = (ListAtom) args.get(1);
 			// Create and return the lambda expression
-			return Optional.of(new Lambda(parameters, body, env, this));
+			value = new Lambda(parameters, body, env, this);
+		} else {
+			throw new LispRuntimeException("Incorrect args to define");
+		}
+		// Name lambdas after their first binding, for profiles and error reports
+		if (value instanceof Lambda lambda && lambda.getName() == null) {
+			lambda.setName(name.getValue().toLowerCase());
 		}
-		case "if": {
-			if (args.size() != 3) {
-				throw new LispRuntimeException("Incorrect args to if");
+		//System.out.println("Defining: " + name + " " + value);
+		//System.out.println("Defining environment:\n" + env);
+		env.define(name.getValue(), value);
+		return value;
+	}
+	
+	/**
+	 * Special form {@code (lambda (params...) body)}.
+	 */
+	Object evaluateLambda(List<Object> args, final Environment env) {
+		// Collect the parameter symbols
+		//List<Object> parameters = args.get(0);
+		List<SymbolAtom> parameters = new ArrayList<>();
+		List<Object> paramList = ((ListAtom) args.get(0)).getValue();
+		for (var param : paramList) {
+			if (!(param instanceof SymbolAtom)) {
+				throw new LispRuntimeException("Parameter names must be symbols.");
 			}
-			Object expr = evaluate(args.get(0), env);
-			Object trueBody = args.get(1);
-			Object falseBody = args.get(2);
-			
-			if (!(expr instanceof BooleanAtom)) {
-				throw new LispRuntimeException("Incorrect args to if");
+			parameters.add((SymbolAtom) param);
+		}
+		// Get the body atom
+		ListAtom body = (ListAtom) args.get(1);
+		// Create and return the lambda expression
+		return new Lambda(parameters, body, env, this);
+	}
+	
+	/**
+	 * Special form {@code (if test then else)}.
+	 */
+	Object evaluateIf(List<Object> args, final Environment env) {
+		if (args.size() != 3) {
+			throw new LispRuntimeException("Incorrect args to if");
+		}
+		Object expr = notRecur(evaluate(args.get(0), env));
+		Object trueBody = args.get(1);
+		Object falseBody = args.get(2);
+		
+		if (!(expr instanceof BooleanAtom)) {
+			throw new LispRuntimeException("Incorrect args to if");
+		}
+		boolean evaluatedExpr = ((BooleanAtom) expr).getValue();
+		Object bodyToRun = (evaluatedExpr) ? trueBody : falseBody;
+		Object resultExpr = evaluate(bodyToRun, env);
+		return resultExpr;	
+	}
+	
+	/**
+	 * Special form {@code (begin forms...)}.
+	 */
+	Object evaluateBegin(List<Object> args, final Environment env) {
+		return evaluateBody(args, env);
+	}
+	
+	/**
+	 * Special form {@code (future body...)}, evaluated on another thread.
+	 */
+	Object evaluateFuture(List<Object> args, final Environment env) {
+		if (args.isEmpty()) {
+			throw new LispRuntimeException("Incorrect args to future");
+		}
+		// Definitions made by the body stay local to the future
+		final Environment futureEnv = new Environment(env);
+		futureEnv.capture();
+		// Within the budget of the caller, if any
+		return Futures.submit(Budget.inherit(() -> notRecur(evaluateBody(args, futureEnv))));
+	}
+	
+	/**
+	 * Special form {@code (spawn [capacity] body...)}, starting an actor.
+	 */
+	Object evaluateSpawn(List<Object> args, final Environment env) {
+		// An optional leading number literal sets the mailbox capacity
+		int capacity = Actor.DEFAULT_CAPACITY;
+		List<Object> body = args;
+		if (!args.isEmpty() && args.get(0) instanceof NumberAtom num) {
+			capacity = num.getValue().intValue();
+			body = args.subList(1, args.size());
+		}
+		if (body.isEmpty() || capacity < 1) {
+			throw new LispRuntimeException("Incorrect args to spawn");
+		}
+		// Definitions made by the actor are private to it
+		final Environment actorEnv = new Environment(env);
+		actorEnv.capture();
+		final List<Object> actorBody = body;
+		Actor actor = Actor.spawn(capacity, Budget.inherit(() -> notRecur(evaluateBody(actorBody, actorEnv))));
+		return actor.getAtom();
+	}
+	
+	/**
+	 * Special form {@code (dosync body...)}, evaluated in a transaction.
+	 */
+	Object evaluateDosync(List<Object> args, final Environment env) {
+		// Ref updates in the body commit together, or the body runs again
+		return Transaction.run(() -> evaluateBody(args, env));
+	}
+	
+	/**
+	 * Special form {@code (quote x)}.
+	 */
+	Object evaluateQuote(List<Object> args, final Environment env) {
+		if (args.size() != 1) {
+			throw new LispRuntimeException("Incorrect args to quote");
+		}
+		// Return unevaluated lists or atoms
+		return args.get(0);
+	}
+	
+	/**
+	 * Special form {@code (quasiquote template)}.
+	 */
+	Object evaluateQuasiquote(List<Object> args, final Environment env) {
+		if (args.size() != 1) {
+			throw new LispRuntimeException("Incorrect args to quasiquote");
+		}
+		return quasiquote(args.get(0), env, 1);
+	}
+	
+	/**
+	 * Special form {@code (let ((name value)...) body...)}.
+	 */
+	Object evaluateLet(List<Object> args, final Environment env) {
+		// (let ((name value)...) body...), each value can refer to the names before it
+		if (args.isEmpty()) {
+			throw new LispRuntimeException("Incorrect let syntax");
+		}
+		Environment letEnv = new Environment(env);
+		for (var binding : bindingList(args.get(0), "let")) {
+			letEnv.define(((SymbolAtom) binding.getValue().get(0)).getValue(), notRecur(evaluate(binding.getValue().get(1), letEnv)));
+		}
+		return evaluateBody(args.subList(1, args.size()), letEnv);
+	}
+	
+	/**
+	 * Special form {@code (loop ((name init)...) body...)}.
+	 */
+	Object evaluateLoop(List<Object> args, final Environment env) {
+		// (loop ((name init)...) body...), a recur in tail position rebinds the names in place,
+		// unless a closure, future or actor holds on to them, then the next iteration gets its own
+		if (args.isEmpty()) {
+			throw new LispRuntimeException("Incorrect loop syntax");
+		}
+		List<ListAtom> bindings = bindingList(args.get(0), "loop");
+		Environment loopEnv = new Environment(env);
+		String[] names = new String[bindings.size()];
+		for (int i = 0; i < names.length; i++) {
+			names[i] = ((SymbolAtom) bindings.get(i).getValue().get(0)).getValue().toLowerCase();
+			loopEnv.define(names[i], notRecur(evaluate(bindings.get(i).getValue().get(1), loopEnv)));
+		}
+		LoopFrame frame = new LoopFrame(names);
+		loopEnv.define("recur", (Object) frame);
+		List<Object> body = args.subList(1, args.size());
+		try {
+			while (true) {
+				Object result = evaluateBody(body, loopEnv);
+				if (result != frame) {
+					return notRecur(result); // e.g. the frame of an enclosing loop
+				}
+				nextIteration();
+				if (loopEnv.isCaptured()) {
+					loopEnv = new Environment(env);
+					loopEnv.rebind("recur", frame);
+				}
+				frame.rebind(loopEnv);
 			}
-			boolean evaluatedExpr = ((BooleanAtom) expr).getValue();
-			Object bodyToRun = (evaluatedExpr) ? trueBody : falseBody;
-			Object resultExpr = evaluate(bodyToRun, env);
-			return Optional.of(resultExpr);	
+		} finally {
+			frame.finish();
+		}
+	}
+	
+	/**
+	 * Special form {@code (dotimes (name count) body...)}.
+	 */
+	Object evaluateDotimes(List<Object> args, final Environment env) {
+		// (dotimes (name count) body...) runs the body with name bound to 0 .. count - 1, in place
+		// like the variables of loop
+		if (args.isEmpty() || !(args.get(0) instanceof ListAtom spec) || spec.getValue().size() != 2
+				|| !(spec.getValue().get(0) instanceof SymbolAtom name)) {
+			throw new LispRuntimeException("Incorrect dotimes syntax");
 		}
-		case "begin": {
-			if (args.isEmpty()) {
-				return Optional.of(SymbolAtom.nil);
+		if (!(notRecur(evaluate(spec.getValue().get(1), env)) instanceof NumberAtom count)) {
+			throw new LispRuntimeException("dotimes count must be a number");
+		}
+		Environment loopEnv = new Environment(env);
+		String loweredName = name.getValue().toLowerCase();
+		List<Object> body = args.subList(1, args.size());
+		long times = count.getValue().longValue();
+		loopEnv.define(loweredName, SymbolAtom.nil);
+		for (long i = 0; i < times; i++) {
+			nextIteration();
+			if (loopEnv.isCaptured()) {
+				loopEnv = new Environment(env); // Keep the binding of the previous iteration as it was
 			}
-			
-			List<Object> exprs = args;
-			Object lastEvaluatedExpr = SymbolAtom.nil;
-			for (var expr : exprs) {
-				lastEvaluatedExpr = evaluate(expr, env);
+			loopEnv.rebind(loweredName, NumberAtom.valueOf(i));
+			notRecur(evaluateBody(body, loopEnv));
+		}
+		return SymbolAtom.nil;
+	}
+	
+	/**
+	 * Special form {@code (while test body...)}.
+	 */
+	Object evaluateWhile(List<Object> args, final Environment env) {
+		// (while test body...) runs the body as long as test is true
+		if (args.isEmpty()) {
+			throw new LispRuntimeException("Incorrect while syntax");
+		}
+		List<Object> body = args.subList(1, args.size());
+		while (true) {
+			if (!(notRecur(evaluate(args.get(0), env)) instanceof BooleanAtom test)) {
+				throw new LispRuntimeException("while test must be a boolean");
+			}
+			if (!test.getValue()) {
+				return SymbolAtom.nil;
 			}
-			return Optional.of(lastEvaluatedExpr);
+			nextIteration();
+			notRecur(evaluateBody(body, env));
+		}
+	}
+	
+	/**
+	 * Special form {@code (set! name value)}.
+	 */
+	Object evaluateSet(List<Object> args, final Environment env) {
+		// (set! name value) changes the nearest existing binding of name
+		if (args.size() != 2 || !(args.get(0) instanceof SymbolAtom name)) {
+			throw new LispRuntimeException("Incorrect set! syntax");
 		}
-		case "quote": {
-			if (args.size() != 1) {
-				throw new LispRuntimeException("Incorrect args to quote");
+		Object value = notRecur(evaluate(args.get(1), env));
+		env.set(name.getValue(), value);
+		return value;
+	}
+	
+	/**
+	 * Special form {@code (with-open ((name port)...) body...)}.
+	 */
+	Object evaluateWithOpen(List<Object> args, final Environment env) {
+		// (with-open ((name port)...) body...), the ports are closed in reverse order however the body exits
+		if (args.isEmpty()) {
+			throw new LispRuntimeException("Incorrect with-open syntax");
+		}
+		List<ListAtom> bindings = bindingList(args.get(0), "with-open");
+		Environment openEnv = new Environment(env);
+		List<PortAtom> ports = new ArrayList<>(bindings.size());
+		try {
+			for (var binding : bindings) {
+				Object value = notRecur(evaluate(binding.getValue().get(1), openEnv));
+				if (!(value instanceof PortAtom port)) {
+					throw new LispRuntimeException("with-open binds ports: " + value);
+				}
+				ports.add(port);
+				openEnv.define(((SymbolAtom) binding.getValue().get(0)).getValue(), port);
+			}
+			return evaluateBody(args.subList(1, args.size()), openEnv);
+		} finally {
+			for (int i = ports.size() - 1; i >= 0; i--) {
+				ports.get(i).getValue().close();
+			}
+		}
+	}
+	
+	/**
+	 * Special form {@code (defmacro name (params...) body...)}.
+	 */
+	Object evaluateDefmacro(List<Object> args, final Environment env) {
+		// (defmacro name (params... [&rest rest]) body...)
+		if (args.size() < 3 || !(args.get(0) instanceof SymbolAtom name) || !(args.get(1) instanceof ListAtom paramList)) {
+			throw new LispRuntimeException("Incorrect defmacro syntax");
+		}
+		List<SymbolAtom> parameters = new ArrayList<>();
+		boolean variadic = false;
+		List<Object> params = paramList.getValue();
+		for (int i = 0; i < params.size(); i++) {
+			if (!(params.get(i) instanceof SymbolAtom param)) {
+				throw new LispRuntimeException("Parameter names must be symbols.");
 			}
-			// Return unevaluated lists or atoms
-			return Optional.of(args.get(0));
+			if (param.getValue().equalsIgnoreCase("&rest")) {
+				if (i != params.size() - 2) {
+					throw new LispRuntimeException("&rest must be followed by exactly one parameter");
+				}
+				variadic = true;
+				continue;
+			}
+			parameters.add(param);
+		}
+		// Several body forms run in sequence, like begin
+		Object body = (args.size() == 3) ? args.get(2) : null;
+		if (!(body instanceof ListAtom)) {
+			List<Object> forms = new ArrayList<>();
+			forms.add(new SymbolAtom("begin"));
+			forms.addAll(args.subList(2, args.size()));
+			body = new ListAtom(forms);
+		}
+		Lambda expander = new Lambda(parameters, (ListAtom) body, env, this);
+		expander.setName(name.getValue().toLowerCase());
+		Macro macro = new Macro(expander, variadic);
+		env.define(name.getValue(), macro);
+		return macro;
+	}
+	
+	/**
+	 * Special form {@code (macroexpand form)}.
+	 */
+	Object evaluateMacroexpand(List<Object> args, final Environment env) {
+		// Expand the form the argument evaluates to once, without evaluating the expansion
+		if (args.size() != 1) {
+			throw new LispRuntimeException("Incorrect args to macroexpand");
 		}
-		default:
-			return Optional.empty();
+		Object form = evaluate(args.get(0), env);
+		if (form instanceof ListAtom call && !call.getValue().isEmpty()
+				&& call.getValue().get(0) instanceof SymbolAtom sym
+				&& env.nullableLookup(sym.getValue()) instanceof Macro macro) {
+			return macro.expand(call.getValue().subList(1, call.getValue().size()));
 		}
+		return form;
 	}
 	
 	/*private Object evaluateProcedure(Procedure func, List<Object> args, Environment env) {
@@ -0,0 +1,313 @@
+package com.bhoffpauir.blisp.lib;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.bhoffpauir.blisp.lib.exception.LispRuntimeException;
+
+/**
+ * A file opened by the file builtins, read or written through a {@link FileChannel}.
+ *
+ * <p>Input files of at least {@link #MAP_THRESHOLD} bytes are memory-mapped one window of
+ * {@link #MAP_WINDOW} bytes at a time; smaller files are read into a direct buffer. Either way a
+ * file is streamed: reading a file of any size line by line holds at most one window and one
+ * line. Output is encoded as UTF-8 into a direct buffer that is written when full and when the
+ * port is closed.</p>
+ *
+ * <p>Text is UTF-8, and lines end with {@code \n} or {@code \r\n}. I/O errors are reported as
+ * {@link LispRuntimeException}s.</p>
+ */
+public final class FilePort implements Closeable {
+	/**
+	 * Size from which input files are memory-mapped.
+	 */
+	public static final long MAP_THRESHOLD = 1 << 20;
+	/**
+	 * Size of the mapped windows of large input files.
+	 */
+	public static final int MAP_WINDOW = 64 << 20;
+	private static final int BUFFER_SIZE = 64 << 10;
+	private final Path path;
+	private final FileChannel channel;
+	private final boolean input;
+	private final boolean mapped;
+	private final long size; // Of input files
+	private long mappedTo; // File position after the current window
+	private ByteBuffer buffer;
+	private CharsetEncoder encoder;
+	private byte[] line = new byte[256];
+	private boolean closed = false;
+
+	private FilePort(Path path, FileChannel channel, boolean input) throws IOException {
+		this.path = path;
+		this.channel = channel;
+		this.input = input;
+		if (input) {
+			size = channel.size();
+			mapped = size >= MAP_THRESHOLD;
+			buffer = mapped ? ByteBuffer.allocate(0) : ByteBuffer.allocateDirect(BUFFER_SIZE).limit(0);
+		} else {
+			size = 0;
+			mapped = false;
+			buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+			encoder = StandardCharsets.UTF_8.newEncoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		}
+	}
+
+	/**
+	 * Open a file for reading.
+	 *
+	 * @param path The path of the file.
+	 * @return The port.
+	 */
+	public static FilePort openInput(Path path) {
+		try {
+			return new FilePort(path, FileChannel.open(path, StandardOpenOption.READ), true);
+		} catch (IOException ex) {
+			throw new LispRuntimeException("Cannot open " + path + ": " + ex);
+		}
+	}
+
+	/**
+	 * Open a file for writing, creating it if it doesn't exist.
+	 *
+	 * @param path The path of the file.
+	 * @param append True to append to the file, false to truncate it.
+	 * @return The port.
+	 */
+	public static FilePort openOutput(Path path, boolean append) {
+		try {
+			var channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+				append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+			return new FilePort(path, channel, false);
+		} catch (IOException ex) {
+			throw new LispRuntimeException("Cannot open " + path + ": " + ex);
+		}
+	}
+
+	/**
+	 * Check if the port reads a file.
+	 *
+	 * @return True for input ports, false for output ports.
+	 */
+	public boolean isInput() {
+		return input;
+	}
+
+	/**
+	 * Check if the port reads a memory-mapped file.
+	 *
+	 * @return True if the file is memory-mapped.
+	 */
+	public boolean isMapped() {
+		return mapped;
+	}
+
+	/**
+	 * Retrieve the path of the file.
+	 *
+	 * @return The path.
+	 */
+	public Path getPath() {
+		return path;
+	}
+
+	/**
+	 * Read the next line, without its line terminator.
+	 *
+	 * @return The line, or null at the end of the file.
+	 */
+	public synchronized String readLine() {
+		checkOpen(true);
+		int length = 0;
+		boolean any = false;
+		while (true) {
+			if (!buffer.hasRemaining() && !fill()) {
+				if (!any)
+					return null;
+				break;
+			}
+			any = true;
+			int start = buffer.position(), end = buffer.limit(), newline = start;
+			while (newline < end && buffer.get(newline) != '\n') {
+				newline++;
+			}
+			int count = newline - start;
+			if (length + count > line.length)
+				line = Arrays.copyOf(line, Math.max(line.length * 2, length + count));
+			buffer.get(line, length, count);
+			length += count;
+			if (newline < end) {
+				buffer.get(); // The '\n'
+				break;
+			}
+		}
+		if (length > 0 && line[length - 1] == '\r')
+			length--;
+		String result = new String(line, 0, length, StandardCharsets.UTF_8);
+		if (line.length > BUFFER_SIZE)
+			line = new byte[256]; // Don't hold on to one huge line
+		return result;
+	}
+
+	/**
+	 * Read up to {@code count} bytes. The result grows as the bytes are read, so a count far
+	 * beyond the end of the file costs no more memory than the bytes that are there.
+	 *
+	 * @param count The maximum number of bytes.
+	 * @return The bytes read, fewer than {@code count} only at the end of the file, or null at
+	 *         the end of the file.
+	 */
+	public synchronized byte[] readBytes(int count) {
+		checkOpen(true);
+		byte[] bytes = new byte[Math.min(count, BUFFER_SIZE)];
+		int read = 0;
+		while (read < count && (buffer.hasRemaining() || fill())) {
+			if (read == bytes.length)
+				bytes = Arrays.copyOf(bytes, (int) Math.min(count, 2L * read));
+			int chunk = Math.min(bytes.length - read, buffer.remaining());
+			buffer.get(bytes, read, chunk);
+			read += chunk;
+		}
+		if (read == 0 && count > 0)
+			return null;
+		return (read == count) ? bytes : Arrays.copyOf(bytes, read);
+	}
+
+	/**
+	 * Retrieve the remaining lines. Each line is read when the iterator is advanced, and reading
+	 * lines of the port in another way also advances the iterator.
+	 *
+	 * @return An iterator over the lines.
+	 */
+	public Iterator<String> lines() {
+		return new Iterator<>() {
+			private String next = null;
+
+			@Override
+			public boolean hasNext() {
+				if (next == null && !closed)
+					next = readLine();
+				return next != null;
+			}
+
+			@Override
+			public String next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				String line = next;
+				next = null;
+				return line;
+			}
+		};
+	}
+
+	/**
+	 * Write a string, encoded as UTF-8.
+	 *
+	 * @param str The string.
+	 */
+	public synchronized void write(CharSequence str) {
+		checkOpen(false);
+		CharBuffer chars = CharBuffer.wrap(str);
+		while (true) {
+			CoderResult result = encoder.encode(chars, buffer, false);
+			if (!result.isOverflow())
+				break;
+			flush();
+		}
+	}
+
+	/**
+	 * Write the buffered output to the file.
+	 */
+	public synchronized void flush() {
+		checkOpen(false);
+		try {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			buffer.clear();
+		} catch (IOException ex) {
+			throw new LispRuntimeException("Cannot write " + path + ": " + ex);
+		}
+	}
+
+	/**
+	 * Close the port, writing the buffered output of output ports. Closing a closed port has no
+	 * effect.
+	 */
+	@Override
+	public synchronized void close() {
+		if (closed)
+			return;
+		try {
+			if (!input)
+				flush();
+		} finally {
+			closed = true;
+			buffer = null; // Lets a mapped window be unmapped
+			try {
+				channel.close();
+			} catch (IOException ex) {
+				throw new LispRuntimeException("Cannot close " + path + ": " + ex);
+			}
+		}
+	}
+
+	/**
+	 * Check if the port is closed.
+	 *
+	 * @return True if the port is closed.
+	 */
+	public synchronized boolean isClosed() {
+		return closed;
+	}
+
+	// Refill the empty input buffer, returns false at the end of the file
+	private boolean fill() {
+		try {
+			if (mapped) {
+				if (mappedTo >= size)
+					return false;
+				long length = Math.min(MAP_WINDOW, size - mappedTo);
+				buffer = channel.map(FileChannel.MapMode.READ_ONLY, mappedTo, length);
+				mappedTo += length;
+				return true;
+			}
+			buffer.clear();
+			int read = channel.read(buffer);
+			buffer.flip();
+			return read > 0;
+		} catch (IOException ex) {
+			throw new LispRuntimeException("Cannot read " + path + ": " + ex);
+		}
+	}
+
+	private void checkOpen(boolean forInput) {
+		if (closed)
+			throw new LispRuntimeException("Port is closed: " + path);
+		if (forInput != input)
+			throw new LispRuntimeException("Not an " + (forInput ? "input" : "output") + " port: " + path);
+	}
+
+	@Override
+	public String toString() {
+		return (input ? "input " : "output ") + path;
+	}
+}
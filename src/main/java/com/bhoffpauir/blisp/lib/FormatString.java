@@ -0,0 +1,266 @@
+package com.bhoffpauir.blisp.lib;
+
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.text.DecimalFormatSymbols;
+import java.util.ArrayList;
+import java.util.Formatter;
+import java.util.List;
+import java.util.Locale;
+import java.util.MissingFormatArgumentException;
+import java.util.UnknownFormatConversionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.bhoffpauir.blisp.lib.atom.CharacterAtom;
+import com.bhoffpauir.blisp.lib.atom.NumberAtom;
+import com.bhoffpauir.blisp.lib.atom.Ratio;
+import com.bhoffpauir.blisp.lib.atom.StringAtom;
+
+/**
+ * A format string of the {@code sprintf} and {@code printf} builtins, parsed once.
+ *
+ * <p>{@link String#format} parses its format string on every call. A {@code FormatString} splits
+ * it into literal text and specifiers once, and is cached by {@link #of(String)}, so a script
+ * printing with the same format string in a loop only pays for the formatting itself. Plain
+ * {@code %s}, {@code %d}, {@code %c}, {@code %n} and {@code %%} specifiers are appended directly;
+ * specifiers with flags, a width or a precision are handed to a {@link Formatter}, one specifier
+ * at a time. The output is the same as {@link String#format} with the default locale.</p>
+ *
+ * <p>Arguments are atoms: strings and characters are formatted as their values and numbers are
+ * converted for the conversion they are formatted with.</p>
+ */
+public final class FormatString {
+	// %[index$][flags][width][.precision][t]conversion, as read by String.format
+	private static final Pattern SPECIFIER = Pattern.compile("%(?:(\\d+)\\$)?([-#+ 0,(<]*)(\\d+)?(\\.\\d+)?([tT])?([a-zA-Z%])");
+	private static final int CACHE_LIMIT = 1024;
+	private static final ConcurrentHashMap<String, FormatString> cache = new ConcurrentHashMap<>();
+	// Integers can only be appended directly when the locale formats them with ASCII digits
+	private static final boolean ASCII_DIGITS;
+	private static final ThreadLocal<Buffer> buffers = ThreadLocal.withInitial(Buffer::new);
+	private final String format;
+	private final Object[] parts; // Literal strings and specifiers, in order
+
+	static {
+		var symbols = DecimalFormatSymbols.getInstance(Locale.getDefault(Locale.Category.FORMAT));
+		ASCII_DIGITS = symbols.getZeroDigit() == '0' && symbols.getMinusSign() == '-';
+	}
+
+	/**
+	 * A specifier. {@code pattern} is the specifier for a {@link Formatter}, without its argument
+	 * index, or null if it is appended directly.
+	 */
+	private record Specifier(int index, char conversion, String text, String pattern) {
+	}
+
+	/**
+	 * The text being formatted on a thread, and the formatter appending to it.
+	 */
+	private static final class Buffer {
+		final StringBuilder text = new StringBuilder();
+		final Formatter formatter = new Formatter(text);
+	}
+
+	private FormatString(String format) {
+		this.format = format;
+		List<Object> parts = new ArrayList<>();
+		Matcher matcher = SPECIFIER.matcher(format);
+		int start = 0, next = 0, last = -1;
+		while (matcher.find()) {
+			addLiteral(parts, literal(format, start, matcher.start()));
+			start = matcher.end();
+			String flags = matcher.group(2);
+			char conversion = matcher.group(6).charAt(0);
+			boolean plain = flags.replace("<", "").isEmpty() && matcher.group(3) == null && matcher.group(4) == null
+				&& matcher.group(5) == null;
+			String pattern = "%" + flags.replace("<", "") + nonNull(matcher.group(3)) + nonNull(matcher.group(4))
+				+ nonNull(matcher.group(5)) + conversion;
+			if (conversion == '%' || conversion == 'n') {
+				// No argument
+				if (plain)
+					addLiteral(parts, (conversion == '%') ? "%" : System.lineSeparator());
+				else
+					parts.add(new Specifier(-1, conversion, matcher.group(), pattern));
+				continue;
+			}
+			int index;
+			if (matcher.group(1) != null)
+				index = Integer.parseInt(matcher.group(1)) - 1;
+			else if (flags.indexOf('<') >= 0)
+				index = last;
+			else
+				index = next++;
+			if (index < 0)
+				throw new MissingFormatArgumentException(matcher.group());
+			char effective = (matcher.group(5) != null) ? 't' : conversion;
+			boolean direct = plain && (conversion == 's' || conversion == 'c' || (conversion == 'd' && ASCII_DIGITS));
+			parts.add(new Specifier(index, effective, matcher.group(), direct ? null : pattern));
+			last = index;
+		}
+		addLiteral(parts, literal(format, start, format.length()));
+		this.parts = parts.toArray();
+	}
+
+	/**
+	 * Retrieve the parsed form of a format string, parsing it on first use.
+	 *
+	 * @param format The format string.
+	 * @return The parsed format string.
+	 * @throws java.util.IllegalFormatException if the format string is malformed.
+	 */
+	public static FormatString of(String format) {
+		FormatString parsed = cache.get(format);
+		if (parsed == null) {
+			parsed = new FormatString(format);
+			if (cache.size() >= CACHE_LIMIT)
+				cache.clear(); // Scripts building format strings on the fly shouldn't grow the cache
+			cache.put(format, parsed);
+		}
+		return parsed;
+	}
+
+	/**
+	 * Format the arguments.
+	 *
+	 * @param args The argument atoms.
+	 * @return The formatted string.
+	 */
+	public String format(List<Object> args) {
+		Buffer buffer = buffers.get();
+		try {
+			formatTo(buffer, args);
+			return buffer.text.toString();
+		} finally {
+			release(buffer);
+		}
+	}
+
+	/**
+	 * Format the arguments and print them to a stream. The parts are formatted into a buffer
+	 * reused by the thread, and the stream then copies the whole text in a single write, so lines
+	 * printed to the same stream by several threads don't interleave. The write makes one
+	 * {@code String} of the text, as a {@link PrintStream} cannot print part of a buffer.
+	 *
+	 * @param out The stream.
+	 * @param args The argument atoms.
+	 */
+	public void print(PrintStream out, List<Object> args) {
+		Buffer buffer = buffers.get();
+		try {
+			formatTo(buffer, args);
+			out.append(buffer.text);
+		} finally {
+			release(buffer);
+		}
+	}
+
+	private void formatTo(Buffer buffer, List<Object> args) {
+		StringBuilder text = buffer.text;
+		for (Object part : parts) {
+			if (part instanceof String literal) {
+				text.append(literal);
+				continue;
+			}
+			Specifier spec = (Specifier) part;
+			if (spec.index() < 0) {
+				buffer.formatter.format(spec.pattern());
+				continue;
+			}
+			if (spec.index() >= args.size())
+				throw new MissingFormatArgumentException(spec.text());
+			Object arg = formatArgument(args.get(spec.index()), spec.conversion());
+			if (spec.pattern() != null) {
+				buffer.formatter.format(spec.pattern(), arg);
+				continue;
+			}
+			switch (spec.conversion()) {
+				case 's' -> text.append(arg);
+				case 'c' -> {
+					if (arg instanceof Character ch)
+						text.append(ch.charValue());
+					else
+						buffer.formatter.format("%c", arg);
+				}
+				default -> { // 'd'
+					if (arg instanceof Long || arg instanceof Integer)
+						text.append(((Number) arg).longValue());
+					else if (arg instanceof BigInteger)
+						text.append(arg);
+					else
+						buffer.formatter.format("%d", arg);
+				}
+			}
+		}
+	}
+
+	private static void release(Buffer buffer) {
+		if (buffer.text.capacity() > 64 * 1024)
+			buffers.remove(); // Don't hold on to the memory of one huge line
+		else
+			buffer.text.setLength(0);
+	}
+
+	/**
+	 * Convert an atom to the argument of a format conversion. Strings and characters become their
+	 * values. Exact numbers formatted as floating-point are passed as {@link BigDecimal}s, which
+	 * keeps the digits of bignums, and integral doubles formatted as integers are passed as
+	 * integers.
+	 *
+	 * @param atom The atom.
+	 * @param conversion The conversion character.
+	 * @return The format argument.
+	 */
+	private static Object formatArgument(Object atom, char conversion) {
+		return switch (atom) {
+			case StringAtom str -> str.getValue();
+			case CharacterAtom ch -> ch.getValue();
+			case NumberAtom num -> formatNumber(num.getValue(), conversion);
+			default -> atom;
+		};
+	}
+
+	private static Object formatNumber(Number value, char conversion) {
+		switch (conversion) {
+			case 'e', 'E', 'f', 'g', 'G', 'a', 'A':
+				if (value instanceof Ratio)
+					return value.doubleValue();
+				if (Numbers.isExactInteger(value) && conversion != 'a' && conversion != 'A')
+					return (value instanceof BigInteger big) ? new BigDecimal(big) : BigDecimal.valueOf(value.longValue());
+				return value.doubleValue();
+			case 'd', 'o', 'x', 'X':
+				if (value instanceof Double d && d == Math.rint(d) && !Double.isInfinite(d))
+					return new BigDecimal(d).toBigInteger();
+				return value;
+			default:
+				return value;
+		}
+	}
+
+	private static String literal(String format, int start, int end) {
+		int percent = format.indexOf('%', start);
+		if (percent >= 0 && percent < end) // Not a specifier
+			throw new UnknownFormatConversionException(format.substring(percent, Math.min(percent + 2, format.length())));
+		return format.substring(start, end);
+	}
+
+	private static void addLiteral(List<Object> parts, String literal) {
+		if (literal.isEmpty())
+			return;
+		// Merge with the previous literal, e.g. around %%
+		if (!parts.isEmpty() && parts.get(parts.size() - 1) instanceof String previous)
+			parts.set(parts.size() - 1, previous + literal);
+		else
+			parts.add(literal);
+	}
+
+	private static String nonNull(String group) {
+		return (group != null) ? group : "";
+	}
+
+	@Override
+	public String toString() {
+		return format;
+	}
+}
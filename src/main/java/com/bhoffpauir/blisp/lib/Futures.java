@@ -0,0 +1,129 @@
+package com.bhoffpauir.blisp.lib;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import com.bhoffpauir.blisp.lib.atom.FutureAtom;
+import com.bhoffpauir.blisp.lib.exception.EvaluationCancelledException;
+import com.bhoffpauir.blisp.lib.exception.LispRuntimeException;
+
+/**
+ * Support for the {@code future}, {@code promise}, {@code deliver}, {@code deref} and
+ * {@code await} forms.
+ *
+ * <p>Future bodies run on a shared executor that starts a virtual thread per future, so futures
+ * that block are cheap. The thread inherits the {@link OutputPort} of the thread that created the
+ * future. Cancelling a future interrupts its thread, which stops the evaluation at the next
+ * procedure call. Errors, timeouts and cancellation surface as {@link LispRuntimeException}s in
+ * the thread that waits for the result.</p>
+ *
+ * @see FutureAtom
+ */
+public final class Futures {
+	private static final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+	private Futures() {
+	}
+
+	/**
+	 * Run {@code body} on the shared executor.
+	 *
+	 * @param body The computation.
+	 * @return The future of the computation.
+	 */
+	public static FutureAtom submit(Supplier<Object> body) {
+		CompletableFuture<Object> result = new CompletableFuture<>();
+		Future<?> task = executor.submit(() -> {
+			try {
+				result.complete(body.get());
+			} catch (Throwable ex) {
+				result.completeExceptionally(ex);
+			}
+		});
+		// CompletableFuture never interrupts, so forward the cancellation to the task
+		result.whenComplete((value, ex) -> {
+			if (result.isCancelled())
+				task.cancel(true);
+		});
+		return new FutureAtom(result, false);
+	}
+
+	/**
+	 * Create a promise, to be completed with {@link #deliver(FutureAtom, Object)}.
+	 *
+	 * @return The promise.
+	 */
+	public static FutureAtom promise() {
+		return new FutureAtom(new CompletableFuture<>(), true);
+	}
+
+	/**
+	 * Deliver the value of a promise. Only the first delivery has an effect.
+	 *
+	 * @param promise The promise.
+	 * @param value The value.
+	 * @return True if this call delivered the value.
+	 */
+	public static boolean deliver(FutureAtom promise, Object value) {
+		if (!promise.isPromise())
+			throw new LispRuntimeException("Cannot deliver to a future: " + promise);
+		return promise.getValue().complete(value);
+	}
+
+	/**
+	 * Wait for the value of a future or promise.
+	 *
+	 * @param future The future or promise.
+	 * @param timeoutMillis The maximum time to wait in milliseconds, or a negative value to wait
+	 *                      indefinitely.
+	 * @return The value.
+	 * @throws TimeoutException if the value is not available in time.
+	 * @throws LispRuntimeException if the computation failed or was cancelled.
+	 */
+	public static Object await(FutureAtom future, long timeoutMillis) throws TimeoutException {
+		try {
+			if (timeoutMillis < 0)
+				return future.getValue().get();
+			return future.getValue().get(timeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new EvaluationCancelledException();
+		} catch (CancellationException ex) {
+			throw new LispRuntimeException("Future was cancelled");
+		} catch (ExecutionException ex) {
+			throw rethrow(ex.getCause());
+		}
+	}
+
+	/**
+	 * Cancel a future or promise, interrupting its computation.
+	 *
+	 * @param future The future or promise.
+	 * @return True if the future was cancelled by this call.
+	 */
+	public static boolean cancel(FutureAtom future) {
+		return future.getValue().cancel(true);
+	}
+
+	/**
+	 * Convert the failure of a computation for the waiting thread. blisp errors are passed on as
+	 * they are, so the waiting code sees the original message.
+	 */
+	private static RuntimeException rethrow(Throwable cause) {
+		if (cause instanceof CompletionException && cause.getCause() != null)
+			cause = cause.getCause();
+		if (cause instanceof LispRuntimeException ex)
+			return ex;
+		if (cause instanceof StackOverflowError)
+			return new LispRuntimeException("Stack overflow in future");
+		return new LispRuntimeException("Error in future: " + cause);
+	}
+}
@@ -1,11 +1,15 @@
 package com.bhoffpauir.blisp.lib;
 
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
 import java.util.regex.Pattern;
 
 import com.bhoffpauir.blisp.lib.atom.ListAtom;
 import com.bhoffpauir.blisp.lib.atom.SymbolAtom;
+import com.bhoffpauir.blisp.lib.exception.EvaluationCancelledException;
+import com.bhoffpauir.blisp.lib.jfr.BlispEvents;
+import com.bhoffpauir.blisp.lib.jfr.LambdaInvocationEvent;
 
 /**
  * Represents a Lambda function in blisp.
@@ -28,6 +32,8 @@ public class Lambda implements Procedure { // Atom<Procedure>
     private Procedure procBody;           // The body of the lambda, if defined internally
     private Environment parentEnv;        // The closure environment where the lambda was defined
     private Evaluator evaluator;          // The evaluator to use to evaluate this lambda
+    private String name;                  // The name of this lambda (builtin or first define), or null
+    private LongAdder callCounter;        // The builtin call counter, looked up on the first call
     
     private Lambda(Environment parentEnv, Evaluator evaluator) {
     	this.parameters = null;
@@ -35,6 +41,7 @@ public class Lambda implements Procedure { // Atom<Procedure>
     	this.procBody = null;
     	this.parentEnv = parentEnv;
     	this.evaluator = evaluator; // Save the environment where the lambda was defined
+    	this.name = null;
     }
     
     /**
@@ -51,6 +58,9 @@ public class Lambda implements Procedure { // Atom<Procedure>
         this(parentEnv, evaluator);
     	this.parameters = parameters;
         this.body = body;
+        if (parentEnv != null) {
+        	parentEnv.capture(); // Loops can't update the bindings of the closure in place
+        }
     }
     
     public Lambda(Procedure proc, Environment parentEnv, Evaluator evaluator) {
@@ -72,22 +82,73 @@ public class Lambda implements Procedure { // Atom<Procedure>
      */
     @Override
     public Object apply(List<Object> args) {
+    	if (BlispEvents.isEnabled()) {
+    		return invokeRecorded(args);
+    	}
+    	if (Profiler.isEnabled()) {
+    		return Profiler.profile(this, args);
+    	}
+    	return invoke(args);
+    }
+    
+    /**
+     * Calls this lambda, emitting a {@link LambdaInvocationEvent} if the call is slow enough.
+     */
+    private Object invokeRecorded(List<Object> args) {
+    	LambdaInvocationEvent event = new LambdaInvocationEvent();
+    	event.begin();
+    	try {
+    		return Profiler.isEnabled() ? Profiler.profile(this, args) : invoke(args);
+    	} finally {
+    		event.end();
+    		if (event.shouldCommit()) {
+    			event.procedure = (name != null) ? name : "lambda";
+    			event.arguments = args.size();
+    			event.commit();
+    		}
+    	}
+    }
+    
+    /**
+     * Calls this lambda, without recording the call in the {@link Profiler}.
+     * 
+     * @param args A list of argument values to pass to the lambda.
+     * @return The result of evaluating the lambda body.
+     */
+    Object invoke(List<Object> args) {
     	if (procBody == null) {
+    		// Stop a cancelled evaluation at every call; loop iterations check in Evaluator.nextIteration
+    		if (Thread.currentThread().isInterrupted()) {
+    			throw new EvaluationCancelledException();
+    		}
     		if (args.size() != parameters.size()) {
     			throw new RuntimeException("Argument count mistmatch. Expected " + parameters.size() + " but got " + args.size());
     		}
     	
+    		RuntimeMetrics.lambdaCalled();
     		// Create a new environment for the lambda execution
     		Environment lambdaEnv = new Environment(parentEnv); // Use the closure's environment as parent
-    		lambdaEnv.define("recur", this);
+    		lambdaEnv.define("recur", (Object) this); // Bind the lambda itself, not a procedure wrapper
     		for (int i = 0; i < parameters.size(); i++) {
     			lambdaEnv.define(parameters.get(i).getValue(), args.get(i));
     		}
     		// System.out.println(lambdaEnv);
 
     		// Evaluate the body of the lambda in the new environment
-    		return evaluator.evaluate(body, lambdaEnv);
+    		Budget.Meter meter = Budget.enter();
+    		try {
+    			return evaluator.evaluate(body, lambdaEnv);
+    		} finally {
+    			if (meter != null) {
+    				meter.exit();
+    			}
+    		}
     	} else {
+    		LongAdder counter = callCounter;
+    		if (counter == null) {
+    			callCounter = counter = RuntimeMetrics.builtinCounter((name != null) ? name : "lambda");
+    		}
+    		counter.increment();
     		return procBody.apply(args);
     	}
     }
@@ -101,6 +162,53 @@ public class Lambda implements Procedure { // Atom<Procedure>
     	return parameters;
     }
     
+    /**
+     * Retrieve the name of the lambda.
+     * 
+     * @return The name of the lambda, or null if it is anonymous.
+     */
+    public String getName() {
+    	return name;
+    }
+    
+    /**
+     * Set the name of the lambda.
+     * 
+     * @param name The name of the lambda.
+     */
+    public void setName(String name) {
+    	this.name = name;
+    	this.callCounter = null;
+    }
+    
+    /**
+     * Check if the lambda is implemented by a Java {@link Procedure} rather than a blisp body.
+     * 
+     * @return True if the lambda wraps a procedure, false otherwise.
+     */
+    boolean isProcedure() {
+    	return procBody != null;
+    }
+    
+    /**
+     * Retrieve the closure environment of the lambda.
+     * 
+     * @return The environment where the lambda was defined.
+     */
+    Environment getParentEnv() {
+    	return parentEnv;
+    }
+    
+    /**
+     * Set the closure environment of the lambda. Used when restoring lambdas whose closure
+     * refers back to the lambda itself.
+     * 
+     * @param parentEnv The environment where the lambda was defined.
+     */
+    void setParentEnv(Environment parentEnv) {
+    	this.parentEnv = parentEnv;
+    }
+    
     /**
      * Retrieve the body of the lambda.
      * 
@@ -0,0 +1,84 @@
+package com.bhoffpauir.blisp.lib;
+
+import java.util.List;
+
+import com.bhoffpauir.blisp.lib.exception.LispRuntimeException;
+
+/**
+ * The {@code recur} target of a running {@code loop} special form.
+ *
+ * <p>A loop binds {@code recur} to its frame. Calling it evaluates the new values of the loop
+ * variables into the frame and returns the frame itself, which travels back through the tail
+ * position of the loop body (e.g. an {@code if} branch) to the loop. The loop then stores the
+ * values into the existing bindings and runs the body again, so iterating allocates neither
+ * environments nor Java stack frames. Only when a closure, future or actor created by the body
+ * holds on to the bindings does the next iteration get new ones, leaving the captured values
+ * as they were. A {@code recur} call that is not in tail position is
+ * therefore an error: the evaluator rejects the frame wherever else it shows up as a value (see
+ * {@link Evaluator#notRecur(Object)}), and the frame cannot be called once its loop has ended or
+ * from another thread.</p>
+ */
+final class LoopFrame {
+	private final String[] names;
+	private final Object[] next;
+	private final Thread owner = Thread.currentThread(); // The thread running the loop
+	private boolean called = false; // recur was called since the last rebind
+	private boolean finished = false;
+
+	/**
+	 * Constructs the frame of a loop.
+	 *
+	 * @param names The lowercase names of the loop variables.
+	 */
+	LoopFrame(String[] names) {
+		this.names = names;
+		this.next = new Object[names.length];
+	}
+
+	/**
+	 * Evaluate the arguments of a {@code recur} call as the next values of the loop variables.
+	 *
+	 * @param evaluator The evaluator.
+	 * @param args The unevaluated arguments.
+	 * @param env The environment of the call.
+	 * @return This frame, signalling the loop to run again.
+	 */
+	LoopFrame recur(Evaluator evaluator, List<Object> args, Environment env) {
+		if (finished || Thread.currentThread() != owner)
+			throw new LispRuntimeException("recur is not in tail position");
+		if (args.size() != names.length)
+			throw new LispRuntimeException("recur expects " + names.length + " argument(s) but got " + args.size());
+		for (int i = 0; i < names.length; i++) {
+			next[i] = Evaluator.notRecur(evaluator.evaluate(args.get(i), env));
+		}
+		called = true;
+		return this;
+	}
+
+	/**
+	 * Store the values of the last {@code recur} call into the loop bindings.
+	 *
+	 * @param loopEnv The environment of the loop.
+	 */
+	void rebind(Environment loopEnv) {
+		if (!called)
+			throw new LispRuntimeException("recur is not in tail position"); // The frame itself, not a call
+		called = false;
+		for (int i = 0; i < names.length; i++) {
+			loopEnv.rebind(names[i], next[i]);
+			next[i] = null;
+		}
+	}
+
+	/**
+	 * Mark the loop as ended, after which {@code recur} can no longer be called.
+	 */
+	void finish() {
+		finished = true;
+	}
+
+	@Override
+	public String toString() {
+		return "#<loop>";
+	}
+}
@@ -0,0 +1,89 @@
+package com.bhoffpauir.blisp.lib;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.bhoffpauir.blisp.lib.atom.ListAtom;
+import com.bhoffpauir.blisp.lib.exception.LispRuntimeException;
+
+/**
+ * A macro defined with {@code defmacro}.
+ *
+ * <p>A macro is a {@link Lambda} (the expander) called with the unevaluated forms of a call
+ * site; the form it returns, the expansion, is evaluated in place of the call. If the last
+ * parameter follows {@code &rest}, it receives the list of the remaining forms.</p>
+ *
+ * <p>The {@link Evaluator} expands each call site once and keeps the expansion on the call
+ * site's {@link ListAtom}, so a macro call in a lambda body is not expanded again on later calls
+ * of the lambda. Expanders must therefore depend only on the forms they are given. Redefining a
+ * macro invalidates the expansions it made.</p>
+ *
+ * @see Evaluator
+ */
+public class Macro {
+	private final Lambda expander;
+	private final boolean variadic;
+
+	/**
+	 * Constructs a macro.
+	 *
+	 * @param expander The expander, with one parameter per form of a call site.
+	 * @param variadic Whether the last parameter of the expander collects the remaining forms.
+	 */
+	public Macro(Lambda expander, boolean variadic) {
+		this.expander = expander;
+		this.variadic = variadic;
+	}
+
+	/**
+	 * Expand a call site.
+	 *
+	 * @param forms The unevaluated forms following the macro name.
+	 * @return The expansion.
+	 */
+	public Object expand(List<Object> forms) {
+		int fixed = expander.getParameters().size() - (variadic ? 1 : 0);
+		if (variadic ? forms.size() < fixed : forms.size() != fixed) {
+			throw new LispRuntimeException("Invalid number of forms for macro " + getName() + ": " + forms.size());
+		}
+		if (!variadic)
+			return expander.apply(forms);
+
+		List<Object> args = new ArrayList<>(fixed + 1);
+		args.addAll(forms.subList(0, fixed));
+		args.add(new ListAtom(new ArrayList<>(forms.subList(fixed, forms.size()))));
+		return expander.apply(args);
+	}
+
+	/**
+	 * Retrieve the expander of the macro.
+	 *
+	 * @return The expander.
+	 */
+	public Lambda getExpander() {
+		return expander;
+	}
+
+	/**
+	 * Check if the last parameter of the expander collects the remaining forms.
+	 *
+	 * @return True if the macro takes a variable number of forms.
+	 */
+	public boolean isVariadic() {
+		return variadic;
+	}
+
+	/**
+	 * Retrieve the name of the macro.
+	 *
+	 * @return The name of the macro, or null if it is anonymous.
+	 */
+	public String getName() {
+		return expander.getName();
+	}
+
+	@Override
+	public String toString() {
+		return "Macro: " + getName();
+	}
+}
@@ -0,0 +1,277 @@
+package com.bhoffpauir.blisp.lib;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import com.bhoffpauir.blisp.lib.exception.EvaluationCancelledException;
+
+/**
+ * Bounded message queue of an {@link Actor}, with many senders and a single receiver.
+ *
+ * <p>The queue is a lock-free ring buffer (Dmitry Vyukov's bounded queue): every slot carries a
+ * sequence number that tells senders and the receiver whose turn the slot is, so both sides
+ * claim slots with a single compare-and-set and never take a lock. Blocking is layered on top
+ * with {@link LockSupport}: the receiver parks while the queue is empty, and senders park while
+ * it is full, which slows fast producers down to the pace of the actor (backpressure).</p>
+ *
+ * <p>Once the actor terminates its mailbox is closed: sends fail instead of waiting for room
+ * that would never be made, and the senders already waiting are woken up.</p>
+ *
+ * <p>The mailbox also keeps the counters reported by {@code actor-stats}: messages sent and
+ * received, sends that had to wait for room, and the highest depth reached.</p>
+ */
+public final class Mailbox {
+	private final int capacity;
+	// Slots of the ring: the sequence numbers need at least two to tell a full slot from a free one
+	private final int size;
+	private final AtomicReferenceArray<Object> slots;
+	private final AtomicLongArray sequences;
+	private final AtomicLong enqueuePos = new AtomicLong();
+	private final AtomicLong dequeuePos = new AtomicLong();
+	// Parked threads waiting for a message or for room
+	private volatile Thread receiver;
+	private final ConcurrentLinkedQueue<Thread> senders = new ConcurrentLinkedQueue<>();
+	private volatile boolean closed = false;
+	// Metrics
+	private final LongAdder sent = new LongAdder();
+	private final LongAdder blockedSends = new LongAdder();
+	private volatile long received;
+	private volatile int highWater;
+
+	/**
+	 * Constructs an empty mailbox.
+	 *
+	 * @param capacity The maximum number of queued messages.
+	 */
+	public Mailbox(int capacity) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("Mailbox capacity must be positive: " + capacity);
+		this.capacity = capacity;
+		this.size = Math.max(capacity, 2);
+		this.slots = new AtomicReferenceArray<>(size);
+		this.sequences = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++) {
+			sequences.set(i, i);
+		}
+	}
+
+	/**
+	 * Add a message if there is room, without blocking.
+	 *
+	 * @param message The message.
+	 * @return True if the message was queued, false if the mailbox is full or closed.
+	 */
+	public boolean offer(Object message) {
+		if (closed)
+			return false;
+		long pos = enqueuePos.get();
+		while (true) {
+			int index = (int) (pos % size);
+			long diff = sequences.get(index) - pos;
+			if (diff == 0) {
+				if (size != capacity && pos - dequeuePos.get() >= capacity)
+					return false; // Full, with a slot to spare
+				// The slot is free for this position, claim it
+				if (enqueuePos.compareAndSet(pos, pos + 1))
+					break;
+				pos = enqueuePos.get();
+			} else if (diff < 0) {
+				return false; // The slot still holds a message from the previous lap: full
+			} else {
+				pos = enqueuePos.get(); // Another sender claimed the slot, catch up
+			}
+		}
+		int index = (int) (pos % size);
+		slots.set(index, message);
+		sequences.set(index, pos + 1); // Publish to the receiver
+
+		sent.increment();
+		int depth = size();
+		if (depth > highWater)
+			highWater = depth; // Racy maximum, good enough for a metric
+		Thread waiting = receiver;
+		if (waiting != null)
+			LockSupport.unpark(waiting);
+		return true;
+	}
+
+	/**
+	 * Add a message, waiting while the mailbox is full.
+	 *
+	 * @param message The message.
+	 * @param timeoutNanos The maximum time to wait, or a negative value to wait indefinitely.
+	 * @return True if the message was queued, false on timeout or if the mailbox is closed.
+	 */
+	public boolean put(Object message, long timeoutNanos) {
+		if (offer(message))
+			return true;
+		if (closed)
+			return false;
+
+		blockedSends.increment();
+		final Thread current = Thread.currentThread();
+		final long deadline = System.nanoTime() + timeoutNanos;
+		while (true) {
+			senders.add(current);
+			// Room may have been made before we were visible to the receiver
+			if (offer(message)) {
+				senders.remove(current);
+				return true;
+			}
+			// Checked once visible to close(), which wakes the waiting senders
+			if (closed) {
+				senders.remove(current);
+				return false;
+			}
+			if (timeoutNanos < 0) {
+				LockSupport.park(this);
+			} else {
+				long remaining = deadline - System.nanoTime();
+				if (remaining <= 0) {
+					senders.remove(current);
+					return false;
+				}
+				LockSupport.parkNanos(this, remaining);
+			}
+			senders.remove(current);
+			if (Thread.currentThread().isInterrupted())
+				throw new EvaluationCancelledException();
+		}
+	}
+
+	/**
+	 * Remove the oldest message without blocking. Must only be called by the receiver.
+	 *
+	 * @return The message, or null if the mailbox is empty.
+	 */
+	public Object poll() {
+		long pos = dequeuePos.get();
+		int index = (int) (pos % size);
+		if (sequences.get(index) != pos + 1)
+			return null; // Empty, or a sender has claimed the slot but not published yet
+
+		Object message = slots.get(index);
+		slots.set(index, null);
+		dequeuePos.set(pos + 1);
+		sequences.set(index, pos + size); // Hand the slot to the sender of the next lap
+		received++;
+
+		Thread waiting = senders.poll();
+		if (waiting != null)
+			LockSupport.unpark(waiting);
+		return message;
+	}
+
+	/**
+	 * Remove the oldest message, waiting while the mailbox is empty. Must only be called by the
+	 * receiver.
+	 *
+	 * @param timeoutNanos The maximum time to wait, or a negative value to wait indefinitely.
+	 * @return The message, or null on timeout.
+	 */
+	public Object take(long timeoutNanos) {
+		Object message = poll();
+		if (message != null)
+			return message;
+
+		final long deadline = System.nanoTime() + timeoutNanos;
+		receiver = Thread.currentThread();
+		try {
+			// Poll again now that senders can see us, so a message sent in between isn't missed
+			while ((message = poll()) == null) {
+				if (Thread.currentThread().isInterrupted())
+					throw new EvaluationCancelledException();
+				if (timeoutNanos < 0) {
+					LockSupport.park(this);
+				} else {
+					long remaining = deadline - System.nanoTime();
+					if (remaining <= 0)
+						return null;
+					LockSupport.parkNanos(this, remaining);
+				}
+			}
+			return message;
+		} finally {
+			receiver = null;
+		}
+	}
+
+	/**
+	 * Close the mailbox: later sends fail, and the senders waiting for room are woken up to fail
+	 * too. Messages already queued can still be received.
+	 */
+	public void close() {
+		closed = true;
+		for (Thread sender; (sender = senders.poll()) != null; ) {
+			LockSupport.unpark(sender);
+		}
+	}
+
+	/**
+	 * Check if the mailbox is closed.
+	 *
+	 * @return True once {@link #close()} has been called.
+	 */
+	public boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * Retrieve the number of queued messages.
+	 *
+	 * @return The queue depth.
+	 */
+	public int size() {
+		long depth = enqueuePos.get() - dequeuePos.get();
+		return (int) Math.max(0, Math.min(depth, capacity));
+	}
+
+	/**
+	 * Retrieve the maximum number of queued messages.
+	 *
+	 * @return The capacity.
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Retrieve the number of messages queued so far.
+	 *
+	 * @return The sent message count.
+	 */
+	public long getSentCount() {
+		return sent.sum();
+	}
+
+	/**
+	 * Retrieve the number of messages removed so far.
+	 *
+	 * @return The received message count.
+	 */
+	public long getReceivedCount() {
+		return received;
+	}
+
+	/**
+	 * Retrieve the number of sends that found the mailbox full and had to wait.
+	 *
+	 * @return The blocked send count.
+	 */
+	public long getBlockedSendCount() {
+		return blockedSends.sum();
+	}
+
+	/**
+	 * Retrieve the highest queue depth seen so far.
+	 *
+	 * @return The high-water mark.
+	 */
+	public int getHighWater() {
+		return highWater;
+	}
+}
@@ -0,0 +1,130 @@
+package com.bhoffpauir.blisp.lib;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.bhoffpauir.blisp.lib.atom.ModuleAtom;
+
+/**
+ * A script file loaded by {@code require}, evaluated once into its own {@link Environment}.
+ *
+ * <p>The environment of a module is a child of the global environment, so modules see the
+ * builtins and global definitions but their own definitions stay private until a script
+ * requires the module, which imports its definitions. Definitions a module imported itself from
+ * other modules are not exported again.</p>
+ *
+ * @see ModuleRegistry
+ */
+public final class Module {
+	private final Path path;
+	private final Environment env;
+	private final ModuleAtom atom;
+	private final Set<String> imported = ConcurrentHashMap.newKeySet();
+	private volatile int forms;
+	private volatile long parseNanos;
+	private volatile long loadNanos;
+
+	/**
+	 * Constructs a module that is about to be loaded.
+	 *
+	 * @param path The canonical path of the module file.
+	 * @param globalEnv The global environment, parent of the module environment.
+	 */
+	Module(Path path, Environment globalEnv) {
+		this.path = path;
+		this.env = new Environment(globalEnv);
+		this.atom = new ModuleAtom(this);
+	}
+
+	/**
+	 * Retrieve the path of the module file.
+	 *
+	 * @return The canonical path of the module.
+	 */
+	public Path getPath() {
+		return path;
+	}
+
+	/**
+	 * Retrieve the environment the module was evaluated in.
+	 *
+	 * @return The module environment.
+	 */
+	public Environment getEnvironment() {
+		return env;
+	}
+
+	/**
+	 * Retrieve the atom representing the module in blisp.
+	 *
+	 * @return The module atom.
+	 */
+	public ModuleAtom getAtom() {
+		return atom;
+	}
+
+	/**
+	 * Retrieve the definitions of the module, without those it imported.
+	 *
+	 * @return The exported bindings, sorted by name.
+	 */
+	public Map<String, Object> getExports() {
+		Map<String, Object> exports = new TreeMap<>();
+		env.getBindings().forEach((name, value) -> {
+			if (!imported.contains(name))
+				exports.put(name, value);
+		});
+		return exports;
+	}
+
+	/**
+	 * Import the definitions of another module into this module.
+	 *
+	 * @param other The module to import.
+	 * @param prefix The prefix of the imported names, or null to import them as they are.
+	 */
+	void importModule(Module other, String prefix) {
+		other.getExports().forEach((name, value) -> {
+			String importedName = (prefix == null) ? name : prefix + "/" + name;
+			imported.add(importedName.toLowerCase());
+			env.define(importedName, value);
+		});
+	}
+
+	/**
+	 * Retrieve the number of top-level forms of the module.
+	 *
+	 * @return The form count.
+	 */
+	public int getFormCount() {
+		return forms;
+	}
+
+	/**
+	 * Retrieve the time taken to read, tokenize and parse the module file.
+	 *
+	 * @return The parse time in nanoseconds.
+	 */
+	public long getParseNanos() {
+		return parseNanos;
+	}
+
+	/**
+	 * Retrieve the time taken to load the module, from reading the file to the end of its
+	 * evaluation, including the time spent waiting for the modules it requires.
+	 *
+	 * @return The load time in nanoseconds.
+	 */
+	public long getLoadNanos() {
+		return loadNanos;
+	}
+
+	void setLoadStats(int forms, long parseNanos, long loadNanos) {
+		this.forms = forms;
+		this.parseNanos = parseNanos;
+		this.loadNanos = loadNanos;
+	}
+}
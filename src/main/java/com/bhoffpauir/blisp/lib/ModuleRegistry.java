@@ -0,0 +1,297 @@
+package com.bhoffpauir.blisp.lib;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.bhoffpauir.blisp.lib.atom.ListAtom;
+import com.bhoffpauir.blisp.lib.atom.StringAtom;
+import com.bhoffpauir.blisp.lib.atom.SymbolAtom;
+import com.bhoffpauir.blisp.lib.exception.EvaluationCancelledException;
+import com.bhoffpauir.blisp.lib.exception.LispRuntimeException;
+
+/**
+ * Registry of the {@link Module}s loaded into a global environment, backing the {@code require}
+ * and {@code load} builtins.
+ *
+ * <p>Every module file is read, parsed and evaluated once; later requires of the same file (by
+ * canonical path) return the cached module, and concurrent requires wait for the one load in
+ * progress. Before a module is evaluated, the {@code (require "file")} forms that open it,
+ * before any other top-level form, are looked at and the modules they name start loading in
+ * parallel on virtual threads, so independent dependencies load at the same time while each
+ * module still sees its dependencies fully loaded. The dependencies of that leading run of
+ * requires are therefore evaluated in no particular order among themselves, but always before
+ * the rest of the module; a require after any other form loads its module when it is reached,
+ * after the side effects of the forms before it. A module that fails to load is dropped from the registry, so a
+ * fixed file can be required again. Requiring a module that is still being loaded by the chain
+ * of requires leading to it is an error, and so is a require that would wait for a module whose
+ * loading is, through other threads, waiting for the requiring module.</p>
+ *
+ * <p>Relative file names are resolved against the directory of the module being loaded, or the
+ * base directory outside of modules.</p>
+ *
+ * @see Module
+ */
+public final class ModuleRegistry {
+	private static final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+	// The module being evaluated on this thread, and the chain of requires that led to it
+	private static final ThreadLocal<Loading> current = new ThreadLocal<>();
+
+	private final Environment globalEnv;
+	private final ConcurrentHashMap<Path, CompletableFuture<Module>> modules = new ConcurrentHashMap<>();
+	private final List<Module> loaded = new CopyOnWriteArrayList<>();
+	// Module being loaded -> module its loader is waiting for, guarded by itself
+	private final Map<Path, Path> waits = new HashMap<>();
+	private volatile Path baseDir = Paths.get("").toAbsolutePath();
+
+	/**
+	 * Constructs an empty registry.
+	 *
+	 * @param globalEnv The global environment, parent of the module environments.
+	 */
+	public ModuleRegistry(Environment globalEnv) {
+		this.globalEnv = globalEnv;
+	}
+
+	/**
+	 * Set the directory relative file names are resolved against outside of modules, e.g. the
+	 * directory of the main script.
+	 *
+	 * @param dir The base directory.
+	 */
+	public void setBaseDirectory(Path dir) {
+		this.baseDir = dir.toAbsolutePath();
+	}
+
+	/**
+	 * Retrieve a module, loading it on the current thread unless it is loaded or loading
+	 * already.
+	 *
+	 * @param file The module file name.
+	 * @return The loaded module.
+	 * @throws LispRuntimeException if the module cannot be found or fails to load.
+	 */
+	public Module require(String file) {
+		Path path = resolve(file);
+		Loading loading = current.get();
+		Set<Path> chain = (loading != null) ? loading.chain() : Set.of();
+		if (chain.contains(path))
+			throw new LispRuntimeException("Circular require of " + path);
+		if (loading == null)
+			return await(path, start(path, chain, false));
+		Path waiter = loading.module().getPath();
+		waitFor(waiter, path);
+		try {
+			return await(path, start(path, chain, false));
+		} finally {
+			synchronized (waits) {
+				waits.remove(waiter);
+			}
+		}
+	}
+
+	/**
+	 * Import the definitions of a module where {@code require} was called: into the module
+	 * being loaded on the current thread, or into the global environment.
+	 *
+	 * @param module The module to import.
+	 * @param prefix The prefix of the imported names ({@code prefix/name}), or null to import
+	 *               them as they are.
+	 */
+	public void importModule(Module module, String prefix) {
+		Loading loading = current.get();
+		if (loading != null) {
+			loading.module().importModule(module, prefix);
+			return;
+		}
+		module.getExports().forEach((name, value) -> globalEnv.define((prefix == null) ? name : prefix + "/" + name, value));
+	}
+
+	/**
+	 * Evaluate a file where {@code load} was called: in the module being loaded on the current
+	 * thread, or in the global environment. Unlike {@link #require(String)}, the file is
+	 * evaluated again on every call.
+	 *
+	 * @param file The file name.
+	 * @return The value of the last form of the file.
+	 */
+	public Object load(String file) {
+		Path path = resolve(file);
+		Loading loading = current.get();
+		Environment env = (loading != null) ? loading.module().getEnvironment() : globalEnv;
+		Evaluator evaluator = new Evaluator(globalEnv);
+		Object result = SymbolAtom.nil;
+		for (var form : parse(path)) {
+			result = evaluator.evaluateTopLevel(form, env);
+		}
+		return result;
+	}
+
+	/**
+	 * Retrieve the modules loaded so far, in the order they finished loading.
+	 *
+	 * @return The loaded modules.
+	 */
+	public List<Module> getModules() {
+		return List.copyOf(loaded);
+	}
+
+	/**
+	 * Retrieve the load of a module, starting it if needed.
+	 *
+	 * @param path The canonical module path.
+	 * @param chain The chain of requires leading to the module.
+	 * @param async Whether to load on the shared executor rather than the current thread.
+	 * @return The future module.
+	 */
+	private CompletableFuture<Module> start(Path path, Set<Path> chain, boolean async) {
+		CompletableFuture<Module> future = new CompletableFuture<>();
+		CompletableFuture<Module> existing = modules.putIfAbsent(path, future);
+		if (existing != null)
+			return existing;
+
+		Set<Path> moduleChain = new HashSet<>(chain);
+		moduleChain.add(path);
+		if (async)
+			executor.execute(() -> load(path, Set.copyOf(moduleChain), future));
+		else
+			load(path, Set.copyOf(moduleChain), future);
+		return future;
+	}
+
+	private void load(Path path, Set<Path> chain, CompletableFuture<Module> future) {
+		long start = System.nanoTime();
+		Module module = new Module(path, globalEnv);
+		Loading previous = current.get();
+		try {
+			List<Object> forms = parse(path);
+			long parsed = System.nanoTime();
+			// Load the dependencies required up front in parallel, cycles are reported when evaluated
+			current.set(new Loading(module, chain));
+			for (var form : forms) {
+				String dependency = literalRequire(form);
+				if (dependency == null)
+					break; // Later requires run in source order, after the forms before them
+				Path dependencyPath = tryResolve(dependency);
+				if (dependencyPath != null && !chain.contains(dependencyPath))
+					start(dependencyPath, chain, true);
+			}
+
+			Evaluator evaluator = new Evaluator(globalEnv);
+			for (var form : forms) {
+				evaluator.evaluateTopLevel(form, module.getEnvironment());
+			}
+			module.setLoadStats(forms.size(), parsed - start, System.nanoTime() - start);
+			loaded.add(module);
+			future.complete(module);
+		} catch (Throwable ex) {
+			modules.remove(path, future);
+			future.completeExceptionally(ex);
+		} finally {
+			if (previous == null)
+				current.remove();
+			else
+				current.set(previous);
+		}
+	}
+
+	/**
+	 * Record that the loader of a module waits for another module to load, unless the other
+	 * module's loader is already waiting, directly or through other modules, for the waiting
+	 * one. Dependencies loading in parallel each have their own chain of requires, so this
+	 * catches the cycles between them that the chains cannot.
+	 *
+	 * @throws LispRuntimeException if waiting would never end.
+	 */
+	private void waitFor(Path waiter, Path path) {
+		synchronized (waits) {
+			// Every module waits for at most one other, and no cycle is ever recorded
+			for (Path next = path; next != null; next = waits.get(next)) {
+				if (next.equals(waiter))
+					throw new LispRuntimeException("Circular require of " + path);
+			}
+			waits.put(waiter, path);
+		}
+	}
+
+	private Module await(Path path, CompletableFuture<Module> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new EvaluationCancelledException();
+		} catch (ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			if (cause instanceof StackOverflowError)
+				throw new LispRuntimeException("Stack overflow loading " + path);
+			throw new LispRuntimeException("Error loading " + path + ": " + cause.getMessage());
+		}
+	}
+
+	/**
+	 * Read, tokenize and parse a file.
+	 */
+	private static List<Object> parse(Path path) {
+		String source;
+		try {
+			source = Files.readString(path);
+		} catch (IOException ex) {
+			throw new LispRuntimeException("Cannot read " + path + ": " + ex.getMessage());
+		}
+		List<String> tokens = new Tokenizer(source).tokenize();
+		return tokens.isEmpty() ? new ArrayList<>() : new Parser(tokens).parseAll();
+	}
+
+	/**
+	 * Resolve a file name against the directory of the current module or the base directory.
+	 */
+	private Path resolve(String file) {
+		Path path = tryResolve(file);
+		if (path == null)
+			throw new LispRuntimeException("Module not found: " + file);
+		return path;
+	}
+
+	private Path tryResolve(String file) {
+		Loading loading = current.get();
+		Path dir = (loading != null) ? loading.module().getPath().getParent() : baseDir;
+		try {
+			return dir.resolve(file).toRealPath();
+		} catch (NoSuchFileException ex) {
+			return null;
+		} catch (IOException ex) {
+			throw new LispRuntimeException("Cannot resolve " + file + ": " + ex.getMessage());
+		}
+	}
+
+	/**
+	 * Retrieve the file name of a {@code (require "file" ...)} form.
+	 *
+	 * @return The file name, or null if the form is not a require of a string literal.
+	 */
+	private static String literalRequire(Object form) {
+		if (form instanceof ListAtom list && list.getValue().size() >= 2
+				&& list.getValue().get(0) instanceof SymbolAtom sym && sym.getValue().equalsIgnoreCase("require")
+				&& list.getValue().get(1) instanceof StringAtom file) {
+			return file.getValue();
+		}
+		return null;
+	}
+
+	private record Loading(Module module, Set<Path> chain) {
+	}
+}
@@ -0,0 +1,234 @@
+package com.bhoffpauir.blisp.lib;
+
+import java.math.BigInteger;
+
+import com.bhoffpauir.blisp.lib.atom.NumberAtom;
+import com.bhoffpauir.blisp.lib.atom.Ratio;
+import com.bhoffpauir.blisp.lib.exception.LispRuntimeException;
+
+/**
+ * Arithmetic on the numeric tower of {@link NumberAtom}: fixnums ({@link Integer} and
+ * {@link Long}), bignums ({@link BigInteger}), exact rationals ({@link Ratio}) and floating-point
+ * numbers ({@link Double}).
+ *
+ * <p>Both operands are promoted to the higher of their two levels before an operation, so exact
+ * numbers stay exact until they meet a double. Operations on two fixnums are done on
+ * {@code long}s, with an overflow check instead of an exception, and only promote to a bignum
+ * when the result does not fit; bignum and rational results are demoted again as soon as they
+ * fit a fixnum or are whole numbers.</p>
+ *
+ * @see NumberAtom
+ * @see Ratio
+ */
+public final class Numbers {
+	// Levels of the tower
+	private static final int FIXNUM = 0;
+	private static final int BIGNUM = 1;
+	private static final int RATIO = 2;
+	private static final int FLONUM = 3;
+
+	private Numbers() {
+	}
+
+	/**
+	 * Check if a number is a fixnum.
+	 *
+	 * @param n The number.
+	 * @return True if {@code n} is an {@link Integer} or {@link Long}.
+	 */
+	public static boolean isFixnum(Number n) {
+		return (n instanceof Long) || (n instanceof Integer);
+	}
+
+	/**
+	 * Check if a number is exact, any number but a double.
+	 *
+	 * @param n The number.
+	 * @return True if {@code n} is a fixnum, bignum or ratio.
+	 */
+	public static boolean isExact(Number n) {
+		return level(n) != FLONUM;
+	}
+
+	/**
+	 * Check if a number is an exact integer.
+	 *
+	 * @param n The number.
+	 * @return True if {@code n} is a fixnum or bignum.
+	 */
+	public static boolean isExactInteger(Number n) {
+		return level(n) <= BIGNUM;
+	}
+
+	/**
+	 * Check if a number is zero.
+	 *
+	 * @param n The number.
+	 * @return True if {@code n} is zero.
+	 */
+	public static boolean isZero(Number n) {
+		return switch (level(n)) {
+			case FIXNUM -> n.longValue() == 0;
+			case BIGNUM -> ((BigInteger) n).signum() == 0;
+			case RATIO -> false; // Never zero in lowest terms
+			default -> n.doubleValue() == 0.0;
+		};
+	}
+
+	/**
+	 * Add two numbers.
+	 *
+	 * @param a The first number.
+	 * @param b The second number.
+	 * @return The sum.
+	 */
+	public static Number add(Number a, Number b) {
+		if (isFixnum(a) && isFixnum(b)) {
+			long x = a.longValue(), y = b.longValue(), r = x + y;
+			if (((x ^ r) & (y ^ r)) < 0) // Both operands have the sign the result lacks
+				return BigInteger.valueOf(x).add(BigInteger.valueOf(y));
+			return r;
+		}
+		return switch (Math.max(level(a), level(b))) {
+			case BIGNUM -> demote(big(a).add(big(b)));
+			case RATIO -> Ratio.of(numerator(a).multiply(denominator(b)).add(numerator(b).multiply(denominator(a))),
+				denominator(a).multiply(denominator(b)));
+			default -> a.doubleValue() + b.doubleValue();
+		};
+	}
+
+	/**
+	 * Subtract {@code b} from {@code a}.
+	 *
+	 * @param a The first number.
+	 * @param b The second number.
+	 * @return The difference.
+	 */
+	public static Number subtract(Number a, Number b) {
+		if (isFixnum(a) && isFixnum(b)) {
+			long x = a.longValue(), y = b.longValue(), r = x - y;
+			if (((x ^ y) & (x ^ r)) < 0) // Operands of different signs and the result lost the sign of x
+				return BigInteger.valueOf(x).subtract(BigInteger.valueOf(y));
+			return r;
+		}
+		return switch (Math.max(level(a), level(b))) {
+			case BIGNUM -> demote(big(a).subtract(big(b)));
+			case RATIO -> Ratio.of(numerator(a).multiply(denominator(b)).subtract(numerator(b).multiply(denominator(a))),
+				denominator(a).multiply(denominator(b)));
+			default -> a.doubleValue() - b.doubleValue();
+		};
+	}
+
+	/**
+	 * Multiply two numbers.
+	 *
+	 * @param a The first number.
+	 * @param b The second number.
+	 * @return The product.
+	 */
+	public static Number multiply(Number a, Number b) {
+		if (isFixnum(a) && isFixnum(b)) {
+			long x = a.longValue(), y = b.longValue();
+			long high = Math.multiplyHigh(x, y), low = x * y;
+			if ((high == 0 && low >= 0) || (high == -1 && low < 0)) // The high half only extends the sign
+				return low;
+			return BigInteger.valueOf(x).multiply(BigInteger.valueOf(y));
+		}
+		return switch (Math.max(level(a), level(b))) {
+			case BIGNUM -> demote(big(a).multiply(big(b)));
+			case RATIO -> Ratio.of(numerator(a).multiply(numerator(b)), denominator(a).multiply(denominator(b)));
+			default -> a.doubleValue() * b.doubleValue();
+		};
+	}
+
+	/**
+	 * Divide two numbers. Exact numbers that don't divide evenly give a {@link Ratio}.
+	 *
+	 * @param a The dividend.
+	 * @param b The divisor.
+	 * @return The quotient.
+	 * @throws LispRuntimeException if {@code b} is zero.
+	 */
+	public static Number divide(Number a, Number b) {
+		if (isZero(b))
+			throw new LispRuntimeException("Division by zero");
+		if (isFixnum(a) && isFixnum(b)) {
+			long x = a.longValue(), y = b.longValue();
+			if (x % y == 0 && !(x == Long.MIN_VALUE && y == -1))
+				return x / y;
+		}
+		if (Math.max(level(a), level(b)) == FLONUM)
+			return a.doubleValue() / b.doubleValue();
+		return Ratio.of(numerator(a).multiply(denominator(b)), denominator(a).multiply(numerator(b)));
+	}
+
+	/**
+	 * Retrieve the remainder of a division truncated toward zero, which has the sign of
+	 * {@code a}. The remainder of exact integers is exact, anything else gives a double.
+	 *
+	 * @param a The dividend.
+	 * @param b The divisor.
+	 * @return The remainder.
+	 * @throws LispRuntimeException if {@code b} is zero.
+	 */
+	public static Number remainder(Number a, Number b) {
+		if (isZero(b))
+			throw new LispRuntimeException("Division by zero");
+		if (isFixnum(a) && isFixnum(b))
+			return a.longValue() % b.longValue(); // Long.MIN_VALUE % -1 is 0, no overflow
+		if (Math.max(level(a), level(b)) == BIGNUM)
+			return demote(big(a).remainder(big(b)));
+		return a.doubleValue() % b.doubleValue();
+	}
+
+	/**
+	 * Compare two numbers by value. Exact numbers are compared exactly; a double and an exact
+	 * number are compared as doubles.
+	 *
+	 * @param a The first number.
+	 * @param b The second number.
+	 * @return A negative integer, zero, or a positive integer as {@code a} is less than, equal to,
+	 *         or greater than {@code b}.
+	 */
+	public static int compare(Number a, Number b) {
+		if (isFixnum(a) && isFixnum(b))
+			return Long.compare(a.longValue(), b.longValue());
+		return switch (Math.max(level(a), level(b))) {
+			case BIGNUM -> big(a).compareTo(big(b));
+			case RATIO -> numerator(a).multiply(denominator(b)).compareTo(numerator(b).multiply(denominator(a)));
+			default -> Double.compare(a.doubleValue(), b.doubleValue());
+		};
+	}
+
+	/**
+	 * Demote a bignum result to a fixnum if it fits one.
+	 *
+	 * @param n The bignum.
+	 * @return The number as a {@link Long} if it fits, otherwise {@code n}.
+	 */
+	public static Number demote(BigInteger n) {
+		return (n.bitLength() < 64) ? (Number) n.longValue() : n;
+	}
+
+	private static int level(Number n) {
+		if (n instanceof Long || n instanceof Integer)
+			return FIXNUM;
+		if (n instanceof BigInteger)
+			return BIGNUM;
+		if (n instanceof Ratio)
+			return RATIO;
+		return FLONUM;
+	}
+
+	private static BigInteger big(Number n) {
+		return (n instanceof BigInteger b) ? b : BigInteger.valueOf(n.longValue());
+	}
+
+	private static BigInteger numerator(Number n) {
+		return (n instanceof Ratio r) ? r.getNumerator() : big(n);
+	}
+
+	private static BigInteger denominator(Number n) {
+		return (n instanceof Ratio r) ? r.getDenominator() : BigInteger.ONE;
+	}
+}
@@ -0,0 +1,56 @@
+package com.bhoffpauir.blisp.lib;
+
+import java.io.PrintStream;
+import java.util.function.Supplier;
+
+/**
+ * The current output port, the destination of the printing builtins ({@code print},
+ * {@code println} and {@code printf}).
+ *
+ * <p>The port is bound per thread, so several evaluations may run at once with their output sent
+ * to different streams (e.g. one connection each in server mode). Threads started by a thread
+ * inherit its port. When no port is bound, output goes to {@link System#out}.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>
+ *     OutputPort.callWith(out, () -> evaluator.evaluate(expr, env));
+ * </pre>
+ */
+public final class OutputPort {
+	private static final InheritableThreadLocal<PrintStream> port = new InheritableThreadLocal<>();
+
+	private OutputPort() {
+	}
+
+	/**
+	 * Retrieve the output port of the current thread.
+	 *
+	 * @return The bound output port, or {@link System#out} if none is bound.
+	 */
+	public static PrintStream current() {
+		PrintStream out = port.get();
+		return (out != null) ? out : System.out;
+	}
+
+	/**
+	 * Run {@code body} with {@code out} bound as the output port of the current thread. The
+	 * previous port is restored afterwards.
+	 *
+	 * @param <T> The result type of the body.
+	 * @param out The output port to bind.
+	 * @param body The code to run.
+	 * @return The result of {@code body}.
+	 */
+	public static <T> T callWith(PrintStream out, Supplier<T> body) {
+		PrintStream previous = port.get();
+		port.set(out);
+		try {
+			return body.get();
+		} finally {
+			if (previous != null)
+				port.set(previous);
+			else
+				port.remove();
+		}
+	}
+}
@@ -1,5 +1,6 @@
 package com.bhoffpauir.blisp.lib;
 
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -9,10 +10,13 @@ import com.bhoffpauir.blisp.lib.atom.BooleanAtom;
 import com.bhoffpauir.blisp.lib.atom.CharacterAtom;
 import com.bhoffpauir.blisp.lib.atom.ListAtom;
 import com.bhoffpauir.blisp.lib.atom.NumberAtom;
+import com.bhoffpauir.blisp.lib.atom.Ratio;
 import com.bhoffpauir.blisp.lib.atom.StringAtom;
 import com.bhoffpauir.blisp.lib.atom.SymbolAtom;
 import com.bhoffpauir.blisp.lib.exception.LispRuntimeException;
 import com.bhoffpauir.blisp.lib.exception.UnbalancedParenthesisException;
+import com.bhoffpauir.blisp.lib.jfr.BlispEvents;
+import com.bhoffpauir.blisp.lib.jfr.ParseEvent;
 
 /**
  * The parser parses expressions from a given list of tokens. 
@@ -41,7 +45,62 @@ public class Parser {
     		throw new IllegalArgumentException("No tokens to parse.");
     	}
     	
-    	return parseExpression();
+    	if (!BlispEvents.isEnabled()) {
+    		return parseExpression();
+    	}
+    	ParseEvent event = new ParseEvent();
+    	event.begin();
+    	int start = currentIndex;
+    	Object expr = parseExpression();
+    	commit(event, start, 1);
+    	return expr;
+    }
+    
+    /**
+     * Parse every top-level expression from the token list.
+     * 
+     * @return The parsed top-level expressions in source order.
+     */
+    public List<Object> parseAll() {
+    	ParseEvent event = null;
+    	int start = currentIndex;
+    	if (BlispEvents.isEnabled()) {
+    		event = new ParseEvent();
+    		event.begin();
+    	}
+    	List<Object> exprs = new ArrayList<>();
+    	while (currentIndex < tokens.size()) {
+    		exprs.add(parseExpression());
+    	}
+    	if (event != null) {
+    		commit(event, start, exprs.size());
+    	}
+    	return exprs;
+    }
+    
+    private void commit(ParseEvent event, int start, int forms) {
+    	event.end();
+    	if (event.shouldCommit()) {
+    		event.tokens = currentIndex - start;
+    		event.forms = forms;
+    		event.commit();
+    	}
+    }
+    
+    /**
+     * Retrieve the special form a quote token stands for.
+     * 
+     * @param token The token.
+     * @return The name of the special form, or null if the token is not a quote.
+     */
+    private static String readerMacro(String token) {
+    	return switch (token) {
+    		case "'" -> "quote";
+    		case "`" -> "quasiquote";
+    		case "," -> "unquote";
+    		case ",@" -> "unquote-splicing";
+    		default -> null;
+    	};
     }
     
     /**
@@ -57,18 +116,21 @@ public class Parser {
     	String token = tokens.get(currentIndex);
     	currentIndex++;
     	
-    	if (token.equals('\'')) {
-    		currentIndex++;
-    		return parseExpression();
+    	String readerMacro = readerMacro(token);
+    	if (readerMacro != null) {
+    		// 'x reads as (quote x), `x as (quasiquote x), ,x as (unquote x) and ,@x as (unquote-splicing x)
+    		if (currentIndex >= tokens.size()) {
+    			throw new LispRuntimeException("Missing expression after " + token);
+    		}
+    		return new ListAtom(new ArrayList<>(List.of(new SymbolAtom(readerMacro), parseExpression())));
     	} else if (token.equals("(")) {
     		// Parse a list
     		List<Object> list = new ArrayList<>();
-    		// Note: Right now trying to parse a single ( as input will result in out of bounds
-    		while (!tokens.get(currentIndex).equals(")")) {
+    		while (currentIndex < tokens.size() && !tokens.get(currentIndex).equals(")")) {
     			list.add(parseExpression());
-    			if (currentIndex >= tokens.size()) {
-    				throw new UnbalancedParenthesisException("No closing parenthesis");
-    			}
+    		}
+    		if (currentIndex >= tokens.size()) {
+    			throw new UnbalancedParenthesisException("No closing parenthesis");
     		}
     		currentIndex++; // Skip the closing parenthesis
     		return new ListAtom(list);
@@ -80,6 +142,26 @@ public class Parser {
     	}
     }
     
+    /**
+     * Parse a number token: an integer, a ratio or a floating-point number.
+     * 
+     * @param token The number token.
+     * @return The number atom.
+     */
+    static NumberAtom parseNumber(String token) {
+    	int slash = token.indexOf('/');
+    	if (slash >= 0) {
+    		BigInteger denominator = new BigInteger(token.substring(slash + 1));
+    		if (denominator.signum() == 0)
+    			throw new LispRuntimeException("Invalid number: " + token);
+    		return NumberAtom.valueOf(Ratio.of(new BigInteger(token.substring(0, slash)), denominator));
+    	}
+    	if (token.indexOf('.') < 0 && token.indexOf('e') < 0 && token.indexOf('E') < 0) {
+    		return NumberAtom.valueOf(Numbers.demote(new BigInteger(token)));
+    	}
+    	return new NumberAtom(Double.parseDouble(token));
+    }
+    
     /**
      * Parse atomic tokens.
      * 
@@ -94,6 +176,7 @@ public class Parser {
     	Pattern charPattern = new CharacterAtom('A').getRegexPattern();
     	Pattern symbolPattern = new SymbolAtom("").getRegexPattern();
     	Pattern stringPattern = new StringAtom().getRegexPattern();
+    	Pattern numberPattern = new NumberAtom().getRegexPattern();
     	
     	if (token.startsWith("\\")) {
     		String subToken = token.substring(1);
@@ -114,6 +197,10 @@ public class Parser {
     		}
     		// TODO: Throw exception for unbalanced quotes.
     	}
+    	// Numbers first, signed numbers would also match the symbol pattern
+    	if (numberPattern.matcher(token).matches()) {
+    		return parseNumber(token);
+    	}
     	// Check if it's a valid symbol using regex
         if (symbolPattern.matcher(token).matches()) {
         	// Check for special symbols
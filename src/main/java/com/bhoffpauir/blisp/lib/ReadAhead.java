@@ -0,0 +1,209 @@
+package com.bhoffpauir.blisp.lib;
+
+import java.lang.ref.Cleaner;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import com.bhoffpauir.blisp.lib.exception.LispRuntimeException;
+
+/**
+ * An iterator that produces the elements of another iterator ahead of time, on a virtual
+ * thread, so reading (and converting) the next elements overlaps with the work done on the
+ * current ones.
+ *
+ * <p>Elements are handed over in batches of {@link #BATCH_SIZE}, through a queue of at most
+ * {@link #QUEUE_BATCHES} batches, which bounds the memory used by elements produced but not yet
+ * consumed. An exception raised by the source or the conversion is raised again by
+ * {@link #next()} in the consuming thread, and an {@link Error} (e.g. a stack overflow while
+ * converting) is raised wrapped in a {@link LispRuntimeException}. If the iterator is abandoned before the end, the producing thread
+ * notices once the iterator is garbage collected and stops.</p>
+ *
+ * @see #over(Iterator, Function, Runnable)
+ */
+public final class ReadAhead implements Iterator<Object> {
+	/**
+	 * Number of elements handed over at a time.
+	 */
+	public static final int BATCH_SIZE = 256;
+	/**
+	 * Maximum number of batches waiting to be consumed.
+	 */
+	public static final int QUEUE_BATCHES = 16;
+	private static final Object[] END = new Object[0];
+	private static final Cleaner cleaner = Cleaner.create();
+	private final Producer producer;
+	private Object[] batch = new Object[0];
+	private int index = 0;
+
+	/**
+	 * Start reading ahead.
+	 *
+	 * @param source The source of the elements, only used by the producing thread.
+	 * @param convert The conversion applied to each element on the producing thread; elements
+	 *        converted to null are skipped.
+	 * @param onEnd Called by the producing thread when it stops, e.g. to close the source.
+	 */
+	public ReadAhead(Iterator<?> source, Function<Object, Object> convert, Runnable onEnd) {
+		// The producer must not refer to this iterator, or it would never become unreachable
+		producer = new Producer(source, convert, onEnd);
+		cleaner.register(this, producer::cancel);
+		Thread.ofVirtual().name("blisp-read-ahead").start(producer);
+	}
+
+	/**
+	 * Produce the converted elements of an iterator, reading ahead if there is a processor to
+	 * spare for it. On a single processor, handing elements over to another thread only adds
+	 * work, so they are read and converted as they are consumed instead.
+	 *
+	 * @param source The source of the elements.
+	 * @param convert The conversion applied to each element; elements converted to null are
+	 *        skipped.
+	 * @param onEnd Called once the source is exhausted, or fails.
+	 * @return The iterator.
+	 */
+	public static Iterator<Object> over(Iterator<?> source, Function<Object, Object> convert, Runnable onEnd) {
+		if (Runtime.getRuntime().availableProcessors() > 1)
+			return new ReadAhead(source, convert, onEnd);
+		return new Iterator<>() {
+			private Object pending = null;
+			private boolean ended = false;
+
+			@Override
+			public boolean hasNext() {
+				try {
+					while (pending == null && !ended) {
+						if (source.hasNext())
+							pending = convert.apply(source.next());
+						else
+							end();
+					}
+				} catch (RuntimeException ex) {
+					end();
+					throw ex;
+				}
+				return pending != null;
+			}
+
+			@Override
+			public Object next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				Object element = pending;
+				pending = null;
+				return element;
+			}
+
+			private void end() {
+				ended = true;
+				if (onEnd != null)
+					onEnd.run();
+			}
+		};
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (index < batch.length)
+			return true;
+		if (batch == END)
+			return false;
+		try {
+			Object next = producer.queue.take();
+			if (next instanceof Throwable ex) {
+				batch = END;
+				if (ex instanceof RuntimeException runtime)
+					throw runtime;
+				throw new LispRuntimeException(readError(ex), ex);
+			}
+			batch = (Object[]) next;
+			index = 0;
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new LispRuntimeException("Interrupted while reading");
+		}
+		return batch != END;
+	}
+
+	@Override
+	public Object next() {
+		if (!hasNext())
+			throw new NoSuchElementException();
+		Object element = batch[index];
+		batch[index++] = null; // Not kept once consumed
+		return element;
+	}
+
+	private static String readError(Throwable ex) {
+		if (ex instanceof StackOverflowError)
+			return "Stack overflow while reading ahead";
+		return "Error while reading ahead: " + ex;
+	}
+
+	/**
+	 * The producing side, run on its own thread.
+	 */
+	private static final class Producer implements Runnable {
+		final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(QUEUE_BATCHES);
+		private final Iterator<?> source;
+		private final Function<Object, Object> convert;
+		private final Runnable onEnd;
+		private volatile boolean cancelled = false;
+
+		Producer(Iterator<?> source, Function<Object, Object> convert, Runnable onEnd) {
+			this.source = source;
+			this.convert = convert;
+			this.onEnd = onEnd;
+		}
+
+		void cancel() {
+			cancelled = true;
+		}
+
+		@Override
+		public void run() {
+			try {
+				Object[] batch = new Object[BATCH_SIZE];
+				int count = 0;
+				while (source.hasNext()) {
+					Object element = convert.apply(source.next());
+					if (element == null)
+						continue;
+					batch[count++] = element;
+					if (count == BATCH_SIZE) {
+						if (!hand(batch))
+							return;
+						batch = new Object[BATCH_SIZE];
+						count = 0;
+					}
+				}
+				if (count > 0 && !hand(Arrays.copyOf(batch, count)))
+					return;
+				hand(END);
+			} catch (Throwable ex) {
+				// Anything the consumer isn't told about would leave it waiting forever
+				hand(ex);
+			} finally {
+				if (onEnd != null)
+					onEnd.run();
+			}
+		}
+
+		// Wait for room in the queue, returns false if the consumer is gone
+		private boolean hand(Object item) {
+			try {
+				while (!cancelled) {
+					if (queue.offer(item, 100, TimeUnit.MILLISECONDS))
+						return true;
+				}
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+			return false;
+		}
+	}
+}
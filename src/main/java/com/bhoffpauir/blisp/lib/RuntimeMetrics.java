@@ -0,0 +1,161 @@
+package com.bhoffpauir.blisp.lib;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Live counters of the blisp runtime: forms evaluated and failed, lambda and builtin calls,
+ * environments created and symbol lookups that fell back to the global environment.
+ *
+ * <p>The counters are always on. They are {@link LongAdder}s, which spread concurrent increments
+ * over striped cells, so evaluations running on many threads don't contend on a shared counter;
+ * reading a counter sums the cells. Every builtin has its own counter, looked up once per
+ * builtin and then kept by its {@link Lambda}.</p>
+ *
+ * <p>The counters are read by the {@code runtime-stats} builtin and, once
+ * {@link #registerMBean()} has been called, through JMX (e.g. with JConsole or VisualVM) as
+ * {@value #OBJECT_NAME}. Long-running hosts such as the {@link EvaluationService} register the
+ * MBean themselves.</p>
+ */
+public final class RuntimeMetrics implements RuntimeMetricsMXBean {
+	/**
+	 * JMX object name of the metrics MBean.
+	 */
+	public static final String OBJECT_NAME = "com.bhoffpauir.blisp:type=RuntimeMetrics";
+	private static final RuntimeMetrics instance = new RuntimeMetrics();
+	private static boolean registered = false;
+
+	private static final LongAdder formsEvaluated = new LongAdder();
+	private static final LongAdder formErrors = new LongAdder();
+	private static final LongAdder lambdaCalls = new LongAdder();
+	private static final LongAdder environmentsCreated = new LongAdder();
+	private static final LongAdder globalLookupFallbacks = new LongAdder();
+	private static final ConcurrentHashMap<String, LongAdder> builtinCalls = new ConcurrentHashMap<>();
+
+	private RuntimeMetrics() {
+	}
+
+	/**
+	 * Retrieve the metrics MBean.
+	 *
+	 * @return The metrics.
+	 */
+	public static RuntimeMetrics getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Register the metrics MBean with the platform MBean server, if not done already.
+	 */
+	public static synchronized void registerMBean() {
+		if (registered)
+			return;
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(OBJECT_NAME);
+			if (!server.isRegistered(name))
+				server.registerMBean(instance, name);
+			registered = true;
+		} catch (JMException ex) {
+			throw new IllegalStateException("Cannot register " + OBJECT_NAME, ex);
+		}
+	}
+
+	static void formEvaluated() {
+		formsEvaluated.increment();
+	}
+
+	static void formFailed() {
+		formErrors.increment();
+	}
+
+	static void lambdaCalled() {
+		lambdaCalls.increment();
+	}
+
+	static void environmentCreated() {
+		environmentsCreated.increment();
+	}
+
+	static void globalLookupFallback() {
+		globalLookupFallbacks.increment();
+	}
+
+	/**
+	 * Retrieve the call counter of a builtin.
+	 *
+	 * @param name The builtin name.
+	 * @return The counter, shared by every builtin of that name.
+	 */
+	static LongAdder builtinCounter(String name) {
+		return builtinCalls.computeIfAbsent(name, k -> new LongAdder());
+	}
+
+	@Override
+	public long getFormsEvaluated() {
+		return formsEvaluated.sum();
+	}
+
+	@Override
+	public long getFormErrors() {
+		return formErrors.sum();
+	}
+
+	@Override
+	public double getErrorRate() {
+		long forms = formsEvaluated.sum();
+		return (forms == 0) ? 0.0 : (double) formErrors.sum() / forms;
+	}
+
+	@Override
+	public long getLambdaCalls() {
+		return lambdaCalls.sum();
+	}
+
+	@Override
+	public long getBuiltinCalls() {
+		long total = 0;
+		for (var counter : builtinCalls.values()) {
+			total += counter.sum();
+		}
+		return total;
+	}
+
+	@Override
+	public Map<String, Long> getBuiltinCallCounts() {
+		Map<String, Long> counts = new TreeMap<>();
+		builtinCalls.forEach((name, counter) -> {
+			long calls = counter.sum();
+			if (calls > 0)
+				counts.put(name, calls);
+		});
+		return counts;
+	}
+
+	@Override
+	public long getEnvironmentsCreated() {
+		return environmentsCreated.sum();
+	}
+
+	@Override
+	public long getGlobalLookupFallbacks() {
+		return globalLookupFallbacks.sum();
+	}
+
+	@Override
+	public void reset() {
+		formsEvaluated.reset();
+		formErrors.reset();
+		lambdaCalls.reset();
+		environmentsCreated.reset();
+		globalLookupFallbacks.reset();
+		builtinCalls.values().forEach(LongAdder::reset);
+	}
+}
@@ -0,0 +1,55 @@
+package com.bhoffpauir.blisp.lib;
+
+import java.util.Map;
+
+/**
+ * Management interface of the {@link RuntimeMetrics} counters, registered with the platform
+ * MBean server as {@value RuntimeMetrics#OBJECT_NAME}.
+ */
+public interface RuntimeMetricsMXBean {
+	/**
+	 * @return The number of top-level forms evaluated.
+	 */
+	long getFormsEvaluated();
+
+	/**
+	 * @return The number of top-level forms that failed with an error.
+	 */
+	long getFormErrors();
+
+	/**
+	 * @return The fraction of top-level forms that failed, between 0 and 1.
+	 */
+	double getErrorRate();
+
+	/**
+	 * @return The number of calls of lambdas defined in blisp.
+	 */
+	long getLambdaCalls();
+
+	/**
+	 * @return The number of calls of builtin procedures.
+	 */
+	long getBuiltinCalls();
+
+	/**
+	 * @return The number of calls of every builtin procedure called so far, by name.
+	 */
+	Map<String, Long> getBuiltinCallCounts();
+
+	/**
+	 * @return The number of environments created.
+	 */
+	long getEnvironmentsCreated();
+
+	/**
+	 * @return The number of symbol lookups that missed the local scope and fell back to the
+	 *         global environment.
+	 */
+	long getGlobalLookupFallbacks();
+
+	/**
+	 * Set every counter back to zero.
+	 */
+	void reset();
+}
@@ -0,0 +1,190 @@
+package com.bhoffpauir.blisp.lib;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+import com.bhoffpauir.blisp.lib.jfr.BlispEvents;
+import com.bhoffpauir.blisp.lib.jfr.ScriptLoadEvent;
+
+/**
+ * On-disk cache of parsed blisp scripts.
+ *
+ * <p>Scripts are keyed by a SHA-256 hash of their content, so an unchanged script is only
+ * tokenized and parsed once. Later loads read the top-level forms back from a compact
+ * binary file written with {@link AtomOutputStream}, skipping the {@link Tokenizer} and
+ * {@link Parser} entirely. A missing, stale or unreadable cache entry is never an error; the
+ * script is simply parsed again and the entry rewritten. Each entry records the
+ * {@linkplain Version#readerImplementation() reader implementation} that parsed it, so entries
+ * written before a change to the tokenizer or parser are parsed again too.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>
+ *     ScriptCache cache = new ScriptCache(ScriptCache.defaultCacheDir());
+ *     for (Object form : cache.load(Path.of("scripts/test.blisp"))) {
+ *         evaluator.evaluate(form, env);
+ *     }
+ * </pre>
+ */
+public class ScriptCache {
+	private static final int MAGIC = 0x424C5350; // "BLSP"
+	private static final int FORMAT_VERSION = 3;
+	private static final String FILE_EXTENSION = ".blispc";
+
+	private final Path cacheDir;
+
+	/**
+	 * Constructs a script cache that stores its entries in {@code cacheDir}. The directory is
+	 * created on the first write.
+	 *
+	 * @param cacheDir The directory for the cache entries.
+	 */
+	public ScriptCache(Path cacheDir) {
+		this.cacheDir = cacheDir;
+	}
+
+	/**
+	 * The default cache directory, {@code $XDG_CACHE_HOME/blisp} or {@code ~/.cache/blisp}.
+	 *
+	 * @return The default cache directory.
+	 */
+	public static Path defaultCacheDir() {
+		String xdgCacheHome = System.getenv("XDG_CACHE_HOME");
+		if (xdgCacheHome != null && !xdgCacheHome.isBlank()) {
+			return Paths.get(xdgCacheHome, "blisp");
+		}
+		return Paths.get(System.getProperty("user.home"), ".cache", "blisp");
+	}
+
+	/**
+	 * Retrieve the directory the cache entries are stored in.
+	 *
+	 * @return The cache directory.
+	 */
+	public Path getCacheDir() {
+		return cacheDir;
+	}
+
+	/**
+	 * Load the top-level forms of a script, from the cache when the script content is unchanged
+	 * or by parsing (and caching) the script otherwise.
+	 *
+	 * @param scriptPath The script file to load.
+	 * @return The parsed top-level forms in source order.
+	 * @throws IOException if the script file cannot be read.
+	 */
+	public List<Object> load(Path scriptPath) throws IOException {
+		ScriptLoadEvent event = BlispEvents.isEnabled() ? new ScriptLoadEvent() : null;
+		if (event != null)
+			event.begin();
+		byte[] source = Files.readAllBytes(scriptPath);
+		Path entry = cacheDir.resolve(hash(source) + FILE_EXTENSION);
+
+		List<Object> forms = readEntry(entry);
+		boolean hit = (forms != null);
+		if (!hit) {
+			forms = parse(new String(source, StandardCharsets.UTF_8));
+			writeEntry(entry, forms);
+		}
+		if (event != null) {
+			event.end();
+			if (event.shouldCommit()) {
+				event.path = scriptPath.toString();
+				event.size = source.length;
+				event.forms = forms.size();
+				event.cached = hit;
+				event.commit();
+			}
+		}
+		return forms;
+	}
+
+	/**
+	 * Tokenize and parse all of the top-level forms in {@code source}.
+	 *
+	 * @param source The script source.
+	 * @return The parsed top-level forms.
+	 */
+	private static List<Object> parse(String source) {
+		List<String> tokens = new Tokenizer(source).tokenize();
+		return tokens.isEmpty() ? new ArrayList<>() : new Parser(tokens).parseAll();
+	}
+
+	/**
+	 * Read the forms from a cache entry.
+	 *
+	 * @param entry The cache entry file.
+	 * @return The cached forms, or null if the entry is missing or unusable.
+	 */
+	private static List<Object> readEntry(Path entry) {
+		if (!Files.isRegularFile(entry)) {
+			return null;
+		}
+
+		try (InputStream in = Files.newInputStream(entry);
+			 AtomInputStream ais = new AtomInputStream(new BufferedInputStream(in))) {
+			if (ais.readInt() != MAGIC || ais.readInt() != FORMAT_VERSION
+					|| !ais.readString().equals(Version.readerImplementation())) {
+				return null; // Written by another version, the script may parse differently now
+			}
+
+			int count = ais.readInt();
+			List<Object> forms = new ArrayList<>();
+			for (int i = 0; i < count; i++) {
+				forms.add(ais.readAtom());
+			}
+			return forms;
+		} catch (IOException ex) {
+			return null; // Corrupt or truncated entry, parse the script again
+		}
+	}
+
+	/**
+	 * Write the forms to a cache entry. The entry is written to a temporary file first and then
+	 * moved into place, so concurrent readers never see a partial entry.
+	 *
+	 * @param entry The cache entry file.
+	 * @param forms The forms to cache.
+	 */
+	private static void writeEntry(Path entry, List<Object> forms) {
+		try {
+			Files.createDirectories(entry.getParent());
+			AtomOutputStream.writeFile(entry, (out) -> {
+				out.writeInt(MAGIC);
+				out.writeInt(FORMAT_VERSION);
+				out.writeString(Version.readerImplementation());
+				out.writeInt(forms.size());
+				for (var form : forms) {
+					out.writeAtom(form);
+				}
+			});
+		} catch (IOException | IllegalArgumentException ex) {
+			// Caching is best-effort; the parsed forms are still usable
+		}
+	}
+
+	/**
+	 * Hash the script content.
+	 *
+	 * @param source The script content.
+	 * @return The hexadecimal SHA-256 digest of {@code source}.
+	 */
+	private static String hash(byte[] source) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			return HexFormat.of().formatHex(digest.digest(source));
+		} catch (NoSuchAlgorithmException ex) {
+			// Every Java platform is required to support SHA-256
+			throw new IllegalStateException(ex);
+		}
+	}
+}
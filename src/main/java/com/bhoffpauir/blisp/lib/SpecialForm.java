@@ -0,0 +1,35 @@
+package com.bhoffpauir.blisp.lib;
+
+import java.util.List;
+
+/**
+ * A special form: an operator that receives the unevaluated forms of a call and decides itself
+ * which of them to evaluate, and in which environment.
+ *
+ * <p>Special forms are registered by name with {@link SpecialForms#define(String, SpecialForm)}.
+ * An implementation evaluates subforms with {@link Evaluator#evaluate(Object, Environment)}.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>
+ *     // (unless test body) evaluates body when test is false
+ *     SpecialForms.define("unless", (evaluator, args, env) -&gt; {
+ *         if (evaluator.evaluate(args.get(0), env) instanceof BooleanAtom test &amp;&amp; !test.getValue())
+ *             return evaluator.evaluate(args.get(1), env);
+ *         return SymbolAtom.nil;
+ *     });
+ * </pre>
+ *
+ * @see SpecialForms
+ */
+@FunctionalInterface
+public interface SpecialForm {
+	/**
+	 * Evaluate a call of this special form.
+	 *
+	 * @param evaluator The evaluator of the call.
+	 * @param args The unevaluated forms following the operator.
+	 * @param env The environment of the call.
+	 * @return The value of the call.
+	 */
+	Object evaluate(Evaluator evaluator, List<Object> args, Environment env);
+}
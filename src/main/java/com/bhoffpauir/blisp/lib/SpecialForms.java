@@ -0,0 +1,118 @@
+package com.bhoffpauir.blisp.lib;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.bhoffpauir.blisp.lib.atom.SymbolAtom;
+import com.bhoffpauir.blisp.lib.exception.LispRuntimeException;
+
+/**
+ * Table of the {@link SpecialForm}s known to every {@link Evaluator}, keyed by lowercase name.
+ *
+ * <p>The table is immutable and replaced as a whole when a form is defined. The operator symbol
+ * of each call site caches what it resolved to together with the table it was resolved against,
+ * so after the first evaluation a call site costs a single identity check to know whether it is
+ * a special form or an ordinary call. Defining or removing a form invalidates every cached
+ * resolution.</p>
+ *
+ * <p>Special forms take precedence over bindings of the same name, and their names cannot be
+ * bound with {@code define}.</p>
+ *
+ * @see SpecialForm
+ */
+public final class SpecialForms {
+	private static final Object NONE = new Object(); // Cached resolution of ordinary operators
+	private static volatile Map<String, SpecialForm> forms;
+
+	static {
+		Map<String, SpecialForm> standard = new HashMap<>();
+		standard.put("define", Evaluator::evaluateDefine);
+		standard.put("lambda", Evaluator::evaluateLambda);
+		standard.put("λ", Evaluator::evaluateLambda);
+		standard.put("if", Evaluator::evaluateIf);
+		standard.put("begin", Evaluator::evaluateBegin);
+		standard.put("future", Evaluator::evaluateFuture);
+		standard.put("spawn", Evaluator::evaluateSpawn);
+		standard.put("dosync", Evaluator::evaluateDosync);
+		standard.put("quote", Evaluator::evaluateQuote);
+		standard.put("quasiquote", Evaluator::evaluateQuasiquote);
+		standard.put("unquote", (evaluator, args, env) -> {
+			throw new LispRuntimeException("unquote outside of quasiquote");
+		});
+		standard.put("unquote-splicing", (evaluator, args, env) -> {
+			throw new LispRuntimeException("unquote-splicing outside of quasiquote");
+		});
+		standard.put("let", Evaluator::evaluateLet);
+		standard.put("loop", Evaluator::evaluateLoop);
+		standard.put("dotimes", Evaluator::evaluateDotimes);
+		standard.put("while", Evaluator::evaluateWhile);
+		standard.put("set!", Evaluator::evaluateSet);
+		standard.put("with-open", Evaluator::evaluateWithOpen);
+		standard.put("defmacro", Evaluator::evaluateDefmacro);
+		standard.put("macroexpand", Evaluator::evaluateMacroexpand);
+		forms = Map.copyOf(standard);
+	}
+
+	private SpecialForms() {
+	}
+
+	/**
+	 * Define a special form, replacing any form of the same name.
+	 *
+	 * @param name The name of the form, case-insensitive.
+	 * @param form The form.
+	 * @return The form previously defined with this name, or null if there was none.
+	 */
+	public static synchronized SpecialForm define(String name, SpecialForm form) {
+		if (form == null)
+			throw new IllegalArgumentException("form must not be null");
+		Map<String, SpecialForm> updated = new HashMap<>(forms);
+		SpecialForm previous = updated.put(name.toLowerCase(), form);
+		forms = Map.copyOf(updated);
+		return previous;
+	}
+
+	/**
+	 * Remove a special form, e.g. one defined by an embedder that is done with it.
+	 *
+	 * @param name The name of the form, case-insensitive.
+	 * @return The removed form, or null if there was none with this name.
+	 */
+	public static synchronized SpecialForm remove(String name) {
+		String key = name.toLowerCase();
+		if (!forms.containsKey(key))
+			return null;
+		Map<String, SpecialForm> updated = new HashMap<>(forms);
+		SpecialForm previous = updated.remove(key);
+		forms = Map.copyOf(updated);
+		return previous;
+	}
+
+	/**
+	 * Retrieve a special form by name.
+	 *
+	 * @param name The name of the form, case-insensitive.
+	 * @return The form, or null if there is none with this name.
+	 */
+	public static SpecialForm get(String name) {
+		return forms.get(name.toLowerCase());
+	}
+
+	/**
+	 * Resolve the operator symbol of a call site, using the resolution cached on the symbol when
+	 * the table hasn't changed since.
+	 *
+	 * @param operator The operator symbol.
+	 * @return The special form, or null if the call is an ordinary call.
+	 */
+	static SpecialForm lookup(SymbolAtom operator) {
+		Map<String, SpecialForm> current = forms;
+		Object target = operator.getDispatch(current);
+		if (target == null) {
+			SpecialForm form = current.get(operator.getValue().toLowerCase());
+			target = (form != null) ? form : NONE;
+			operator.setDispatch(current, target);
+		}
+		return (target == NONE) ? null : (SpecialForm) target;
+	}
+}
@@ -6,6 +6,8 @@ import java.util.regex.Pattern;
 
 import com.bhoffpauir.blisp.lib.exception.LispRuntimeException;
 import com.bhoffpauir.blisp.lib.exception.UnknownTokenException;
+import com.bhoffpauir.blisp.lib.jfr.BlispEvents;
+import com.bhoffpauir.blisp.lib.jfr.TokenizeEvent;
 
 /**
  * The {@code Tokenizer} takes an syntax string as input. It 
@@ -25,6 +27,22 @@ public class Tokenizer {
      * @return The language tokens as strings.
      */
     public List<String> tokenize() {
+    	if (!BlispEvents.isEnabled()) {
+    		return readTokens();
+    	}
+    	TokenizeEvent event = new TokenizeEvent();
+    	event.begin();
+    	List<String> tokens = readTokens();
+    	event.end();
+    	if (event.shouldCommit()) {
+    		event.characters = input.length();
+    		event.tokens = tokens.size();
+    		event.commit();
+    	}
+    	return tokens;
+    }
+    
+    private List<String> readTokens() {
         // Tokenize input, e.g., break into atoms, numbers, parentheses
         List<String> tokens = new ArrayList<>();
         while (currentIndex < input.length()) {
@@ -42,9 +60,14 @@ public class Tokenizer {
         		continue;
         	}
         	
-        	// Handle syntax quote
-        	if (ch == '\'') {
-        		tokens.add(Character.toString('\''));
+        	// Handle quote, quasiquote and unquote (",@" splices)
+        	if (ch == '\'' || ch == '`' || ch == ',') {
+        		if (ch == ',' && currentIndex + 1 < input.length() && input.charAt(currentIndex + 1) == '@') {
+        			tokens.add(",@");
+        			currentIndex += 2;
+        			continue;
+        		}
+        		tokens.add(Character.toString(ch));
         		currentIndex++;
         		continue;
         	}
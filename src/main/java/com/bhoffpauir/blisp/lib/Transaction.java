@@ -0,0 +1,199 @@
+package com.bhoffpauir.blisp.lib;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import com.bhoffpauir.blisp.lib.atom.RefAtom;
+import com.bhoffpauir.blisp.lib.exception.LispRuntimeException;
+
+/**
+ * Software transactional memory for {@link RefAtom}s, backing the {@code dosync} special form.
+ *
+ * <p>A transaction reads every ref as of its read point, the value of a global clock when the
+ * transaction started, and buffers its writes. On commit the written refs are locked in id
+ * order, checked for writes committed by other transactions since the read point, and given new
+ * versions stamped with the next clock value. A conflict discards the buffered writes and runs the
+ * body again, so the body must be free of side effects other than ref updates. Transactions that
+ * only read never lock and always commit.</p>
+ *
+ * <p>This gives snapshot isolation, as with Clojure refs: two transactions that write different
+ * refs based on each other's reads may both commit.</p>
+ *
+ * @see RefAtom
+ */
+public final class Transaction {
+	private static final int MAX_RETRIES = 10_000;
+	private static final int MAX_LOCK_SPINS = 100;
+	private static final AtomicLong clock = new AtomicLong();
+	private static final ThreadLocal<Transaction> current = new ThreadLocal<>();
+	private static final LongAdder commits = new LongAdder();
+	private static final LongAdder retries = new LongAdder();
+
+	private final long readPoint;
+	private final Map<RefAtom, Object> writes = new IdentityHashMap<>();
+
+	private Transaction(long readPoint) {
+		this.readPoint = readPoint;
+	}
+
+	/**
+	 * Run {@code body} in a transaction, retrying it until it commits. A nested call joins the
+	 * enclosing transaction.
+	 *
+	 * @param body The transaction body.
+	 * @return The result of the body.
+	 */
+	public static Object run(Supplier<Object> body) {
+		if (current.get() != null) {
+			return body.get();
+		}
+
+		for (int attempt = 0; attempt < MAX_RETRIES; attempt++) {
+			Transaction tx = new Transaction(clock.get());
+			current.set(tx);
+			try {
+				Object result = body.get();
+				if (tx.commit()) {
+					commits.increment();
+					return result;
+				}
+			} catch (RetryException ex) {
+				// Conflict detected while running, start over with a newer read point
+			} finally {
+				current.remove();
+			}
+			retries.increment();
+			if (attempt >= 8)
+				Thread.yield(); // Heavy contention, let the winners finish
+		}
+		throw new LispRuntimeException("Transaction gave up after " + MAX_RETRIES + " retries");
+	}
+
+	/**
+	 * Retrieve the transaction running on the current thread.
+	 *
+	 * @return The transaction, or null outside of {@code dosync}.
+	 */
+	public static Transaction current() {
+		return current.get();
+	}
+
+	/**
+	 * Retrieve the transaction running on the current thread, failing outside of {@code dosync}.
+	 *
+	 * @param operation The name of the operation, for the error message.
+	 * @return The transaction.
+	 */
+	public static Transaction require(String operation) {
+		Transaction tx = current.get();
+		if (tx == null)
+			throw new LispRuntimeException(operation + " requires a running transaction (dosync)");
+		return tx;
+	}
+
+	/**
+	 * Read a ref as of the read point of the transaction, or the value written by it.
+	 *
+	 * @param ref The ref to read.
+	 * @return The value of the ref.
+	 */
+	public Object read(RefAtom ref) {
+		Object value = writes.get(ref);
+		if (value != null)
+			return value;
+
+		// A transaction that already took its commit point may still be publishing this ref
+		int spins = 0;
+		while (ref.getLock().isLocked()) {
+			if (++spins > MAX_LOCK_SPINS)
+				throw RetryException.INSTANCE;
+			Thread.onSpinWait();
+		}
+		value = ref.valueAt(readPoint);
+		if (value == null)
+			throw RetryException.INSTANCE; // Version no longer in the history
+		return value;
+	}
+
+	/**
+	 * Set the value of a ref in this transaction.
+	 *
+	 * @param ref The ref to set.
+	 * @param value The new value.
+	 * @return The new value.
+	 */
+	public Object write(RefAtom ref, Object value) {
+		// Fail early when another transaction already committed to the ref
+		if (ref.latest().getPoint() > readPoint)
+			throw RetryException.INSTANCE;
+		writes.put(ref, value);
+		return value;
+	}
+
+	/**
+	 * Try to commit the buffered writes.
+	 *
+	 * @return True if the writes were committed, false on a conflict.
+	 */
+	private boolean commit() {
+		if (writes.isEmpty())
+			return true;
+
+		List<RefAtom> refs = new ArrayList<>(writes.keySet());
+		refs.sort(Comparator.comparingLong(RefAtom::getId)); // Fixed lock order, no deadlocks
+		int locked = 0;
+		try {
+			for (var ref : refs) {
+				ref.getLock().lock();
+				locked++;
+				if (ref.latest().getPoint() > readPoint)
+					return false;
+			}
+			long commitPoint = clock.incrementAndGet();
+			for (var ref : refs) {
+				ref.commit(writes.get(ref), commitPoint);
+			}
+			return true;
+		} finally {
+			for (int i = 0; i < locked; i++) {
+				refs.get(i).getLock().unlock();
+			}
+		}
+	}
+
+	/**
+	 * Retrieve the number of committed transactions.
+	 *
+	 * @return The commit count.
+	 */
+	public static long getCommitCount() {
+		return commits.sum();
+	}
+
+	/**
+	 * Retrieve the number of transaction attempts that were retried.
+	 *
+	 * @return The retry count.
+	 */
+	public static long getRetryCount() {
+		return retries.sum();
+	}
+
+	/**
+	 * Thrown to abandon the current attempt of a transaction.
+	 */
+	private static final class RetryException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+		static final RetryException INSTANCE = new RetryException();
+
+		private RetryException() {
+			super(null, null, false, false);
+		}
+	}
+}
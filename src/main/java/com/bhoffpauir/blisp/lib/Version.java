@@ -1,11 +1,80 @@
 package com.bhoffpauir.blisp.lib;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+import com.bhoffpauir.blisp.lib.atom.BooleanAtom;
+import com.bhoffpauir.blisp.lib.atom.CharacterAtom;
+import com.bhoffpauir.blisp.lib.atom.ListAtom;
+import com.bhoffpauir.blisp.lib.atom.NumberAtom;
+import com.bhoffpauir.blisp.lib.atom.Ratio;
+import com.bhoffpauir.blisp.lib.atom.StringAtom;
+import com.bhoffpauir.blisp.lib.atom.SymbolAtom;
+
 /**
  * Representation for the language version.
  */
 public record Version(int major, int minor, int patch) {
+	/**
+	 * The version of the language implemented by this library.
+	 */
+	public static final Version CURRENT = new Version(1, 0, 0);
+	// Classes that decide what a script parses to:
+	private static final Class<?>[] READER_CLASSES = {
+		Tokenizer.class, Token.class, TokenType.class, Parser.class, Numbers.class,
+		BooleanAtom.class, CharacterAtom.class, ListAtom.class, NumberAtom.class, Ratio.class,
+		StringAtom.class, SymbolAtom.class
+	};
+	private static volatile String readerImplementation;
+
 	@Override
 	public String toString() {
 		return String.format("v%d.%d.%d", major, minor, patch);
 	}
+
+	/**
+	 * Identify the implementation of the reader, for data derived from parsing scripts such as
+	 * the entries of the {@link ScriptCache}. The identifier combines the language version with
+	 * a hash of the compiled reader classes, so it changes with every change to the tokenizer,
+	 * the parser or the literal syntax, without anyone having to bump a version number.
+	 *
+	 * @return The reader implementation identifier.
+	 */
+	public static String readerImplementation() {
+		String implementation = readerImplementation;
+		if (implementation == null) {
+			readerImplementation = implementation = CURRENT + "+" + hashClasses(READER_CLASSES);
+		}
+		return implementation;
+	}
+
+	/**
+	 * Hash the class files of {@code classes}.
+	 *
+	 * @param classes The classes to hash.
+	 * @return The hexadecimal SHA-256 digest of the class files, or of the class names when a
+	 *         class file isn't available to read.
+	 */
+	private static String hashClasses(Class<?>... classes) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			for (var cls : classes) {
+				digest.update(cls.getName().getBytes());
+				try (InputStream in = cls.getResourceAsStream(cls.getSimpleName() + ".class")) {
+					if (in != null) {
+						digest.update(in.readAllBytes());
+					}
+				} catch (IOException ex) {
+					// Hash what is known; the language version still tells implementations apart
+				}
+			}
+			return HexFormat.of().formatHex(digest.digest(), 0, 8);
+		} catch (NoSuchAlgorithmException ex) {
+			// Every Java platform is required to support SHA-256
+			throw new IllegalStateException(ex);
+		}
+	}
 }
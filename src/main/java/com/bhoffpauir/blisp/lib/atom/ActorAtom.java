@@ -0,0 +1,48 @@
+package com.bhoffpauir.blisp.lib.atom;
+
+import java.util.regex.Pattern;
+
+import com.bhoffpauir.blisp.lib.Actor;
+
+/**
+ * Represents an actor in blisp, using {@link Actor} as its value. Actor atoms are created by
+ * the {@code spawn} special form and the {@code self} procedure, and are the target of
+ * {@code send}.
+ *
+ * @see Atom
+ */
+public class ActorAtom extends Atom<Actor> {
+	/**
+	 * Constructs a new {@code ActorAtom} for an actor. Every actor has exactly one atom, see
+	 * {@link Actor#getAtom()}.
+	 *
+	 * @param value The actor.
+	 */
+	public ActorAtom(Actor value) {
+		super(value);
+	}
+
+	/**
+	 * Actors have no literal syntax, the pattern matches their printed form.
+	 *
+	 * @return A regex pattern for the printed form.
+	 */
+	@Override
+	public Pattern getRegexPattern() {
+		return Pattern.compile("#<actor \\d+>");
+	}
+
+	/**
+	 * Returns a string representation of the actor, with its id and queue depth.
+	 *
+	 * @return The string representation of the actor atom.
+	 */
+	@Override
+	public String toString() {
+		if (extendedPrint) {
+			return "Actor: #<actor " + value.getId() + " depth " + value.getMailbox().size() + ">";
+		} else {
+			return "#<actor " + value.getId() + ">";
+		}
+	}
+}
@@ -0,0 +1,84 @@
+package com.bhoffpauir.blisp.lib.atom;
+
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+/**
+ * Represents a fixed-length, mutable array of numbers, stored unboxed in a {@code double[]}.
+ *
+ * <p>An array holds each element in 8 bytes, where a list of {@link NumberAtom}s needs a
+ * reference, an atom and a boxed {@link Double} per element. Arrays are made with
+ * {@code make-array}, {@code array} or {@code list->array} and processed with the
+ * {@code array-*} builtins and {@code dot}.</p>
+ *
+ * @see Atom
+ * @see com.bhoffpauir.blisp.lib.ArrayOps
+ */
+public class ArrayAtom extends Atom<double[]> {
+	private static final int PRINT_LIMIT = 100;
+
+	/**
+	 * Constructs a new {@code ArrayAtom} backed by the given array, without copying it.
+	 *
+	 * @param value The elements.
+	 */
+	public ArrayAtom(double[] value) {
+		super(value);
+	}
+
+	/**
+	 * Retrieve the number of elements.
+	 *
+	 * @return The length of the array.
+	 */
+	public int length() {
+		return value.length;
+	}
+
+	/**
+	 * Tests equality of arrays based on their elements.
+	 *
+	 * @param obj The object to compare to.
+	 * @return {@code true} if {@code obj} is an array with the same elements, {@code false} otherwise.
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) return true;
+		return (obj instanceof ArrayAtom other) && Arrays.equals(value, other.value);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(value);
+	}
+
+	/**
+	 * Arrays have no literal syntax, the pattern matches their printed form.
+	 *
+	 * @return A regex pattern for the printed form.
+	 */
+	@Override
+	public Pattern getRegexPattern() {
+		return Pattern.compile("#\\(.*\\)");
+	}
+
+	/**
+	 * Returns a string representation of the array. Only the first 100 elements are printed.
+	 *
+	 * @return The string representation of the array atom.
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("#(");
+		int printed = Math.min(value.length, PRINT_LIMIT);
+		for (int i = 0; i < printed; i++) {
+			if (i > 0)
+				sb.append(' ');
+			sb.append(value[i]);
+		}
+		if (printed < value.length)
+			sb.append(" ... ").append(value.length - printed).append(" more");
+		sb.append(')');
+		return extendedPrint ? "Array: " + sb : sb.toString();
+	}
+}
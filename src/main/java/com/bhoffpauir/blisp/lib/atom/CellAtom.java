@@ -0,0 +1,47 @@
+package com.bhoffpauir.blisp.lib.atom;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+
+/**
+ * Represents an independently updated mutable cell, created by {@code atom} and changed with
+ * {@code swap!}, {@code reset!} and {@code compare-and-set!}.
+ *
+ * <p>Cells are lock-free: updates are applied with a compare-and-set loop on an
+ * {@link AtomicReference}, so the update function of {@code swap!} may run more than once under
+ * contention and must be free of side effects. Use a {@link RefAtom} to change several values
+ * together.</p>
+ *
+ * @see Atom
+ */
+public class CellAtom extends Atom<AtomicReference<Object>> {
+	/**
+	 * Constructs a new {@code CellAtom} with an initial value.
+	 *
+	 * @param initial The initial value.
+	 */
+	public CellAtom(Object initial) {
+		super(new AtomicReference<>(initial));
+	}
+
+	/**
+	 * Cells have no literal syntax, the pattern matches their printed form.
+	 *
+	 * @return A regex pattern for the printed form.
+	 */
+	@Override
+	public Pattern getRegexPattern() {
+		return Pattern.compile("#<atom .*>");
+	}
+
+	/**
+	 * Returns a string representation of the cell, including its value.
+	 *
+	 * @return The string representation of the cell atom.
+	 */
+	@Override
+	public String toString() {
+		final var str = "#<atom " + value.get() + ">";
+		return extendedPrint ? "Atom: " + str : str;
+	}
+}
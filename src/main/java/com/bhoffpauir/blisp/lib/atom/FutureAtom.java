@@ -0,0 +1,70 @@
+package com.bhoffpauir.blisp.lib.atom;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Pattern;
+
+/**
+ * Represents the eventual result of a concurrent computation, using
+ * {@link java.util.concurrent.CompletableFuture} as its value.
+ *
+ * <p>Future atoms are created by the {@code future} special form, which evaluates its body on
+ * another thread, and by the {@code promise} procedure, whose value is supplied later with
+ * {@code deliver}. Either kind is read with {@code deref} or {@code await}.</p>
+ *
+ * @see Atom
+ */
+public class FutureAtom extends Atom<CompletableFuture<Object>> {
+	private final boolean promise;
+
+	/**
+	 * Constructs a new {@code FutureAtom} for the given future.
+	 *
+	 * @param value The future holding the result.
+	 * @param promise True if the value is delivered explicitly rather than computed.
+	 */
+	public FutureAtom(CompletableFuture<Object> value, boolean promise) {
+		super(value);
+		this.promise = promise;
+	}
+
+	/**
+	 * Check if the atom is a promise, delivered explicitly rather than computed.
+	 *
+	 * @return True for a promise, false for a future.
+	 */
+	public boolean isPromise() {
+		return promise;
+	}
+
+	/**
+	 * Future atoms have no literal syntax, the pattern matches their printed form.
+	 *
+	 * @return A regex pattern for the printed form.
+	 */
+	@Override
+	public Pattern getRegexPattern() {
+		return Pattern.compile("#<(future|promise) .*>");
+	}
+
+	/**
+	 * Returns a string representation of the future, including its value once it is realized.
+	 *
+	 * @return The string representation of the future atom.
+	 */
+	@Override
+	public String toString() {
+		String kind = promise ? "promise" : "future";
+		String state;
+		if (value.isCancelled())
+			state = "cancelled";
+		else if (value.isCompletedExceptionally())
+			state = "failed";
+		else if (value.isDone())
+			state = String.valueOf(value.getNow(null));
+		else
+			state = "pending";
+
+		final var str = "#<" + kind + " " + state + ">";
+		return extendedPrint ? "Future: " + str : str;
+	}
+}
@@ -24,6 +24,9 @@ import com.bhoffpauir.blisp.lib.EvalState;
  * @see Atom
  */
 public class ListAtom extends Atom<List<Object>> {
+	// Macro expansion of this list as a call site, kept by the evaluator
+	private Expansion expansion = null;
+	
 	/**
 	 * Constructs an ListAtom with an empty list.  The empty list is equal to the nil symbol.
 	 */
@@ -117,4 +120,28 @@ public class ListAtom extends Atom<List<Object>> {
 			return sb.toString();
 		}
 	}
+
+	/**
+	 * Retrieve the cached macro expansion of this list, when evaluated as a call site.
+	 * 
+	 * @param macro The macro the call site refers to now.
+	 * @return The expansion made by {@code macro}, or null if there is none.
+	 */
+	public Object getExpansion(Object macro) {
+		Expansion cached = expansion;
+		return (cached != null && cached.macro() == macro) ? cached.form() : null;
+	}
+	
+	/**
+	 * Cache the macro expansion of this list, when evaluated as a call site.
+	 * 
+	 * @param macro The macro that made the expansion.
+	 * @param form The expansion.
+	 */
+	public void setExpansion(Object macro, Object form) {
+		expansion = new Expansion(macro, form); // Immutable, so safe to publish without a lock
+	}
+	
+	private record Expansion(Object macro, Object form) {
+	}
 }
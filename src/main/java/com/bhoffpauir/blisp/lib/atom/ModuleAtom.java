@@ -0,0 +1,47 @@
+package com.bhoffpauir.blisp.lib.atom;
+
+import java.util.regex.Pattern;
+
+import com.bhoffpauir.blisp.lib.Module;
+
+/**
+ * Represents a loaded module in blisp, using {@link Module} as its value. Module atoms are
+ * returned by {@code require}.
+ *
+ * @see Atom
+ */
+public class ModuleAtom extends Atom<Module> {
+	/**
+	 * Constructs a new {@code ModuleAtom} for a module. Every module has exactly one atom, see
+	 * {@link Module#getAtom()}.
+	 *
+	 * @param value The module.
+	 */
+	public ModuleAtom(Module value) {
+		super(value);
+	}
+
+	/**
+	 * Modules have no literal syntax, the pattern matches their printed form.
+	 *
+	 * @return A regex pattern for the printed form.
+	 */
+	@Override
+	public Pattern getRegexPattern() {
+		return Pattern.compile("#<module [^>]*>");
+	}
+
+	/**
+	 * Returns a string representation of the module, with its path.
+	 *
+	 * @return The string representation of the module atom.
+	 */
+	@Override
+	public String toString() {
+		if (extendedPrint) {
+			return "Module: #<module " + value.getPath() + " exports " + value.getExports().keySet() + ">";
+		} else {
+			return "#<module " + value.getPath() + ">";
+		}
+	}
+}
@@ -1,18 +1,23 @@
 package com.bhoffpauir.blisp.lib.atom;
 
+import java.math.BigInteger;
 import java.util.regex.Pattern;
 
 import com.bhoffpauir.blisp.lib.EvalState;
+import com.bhoffpauir.blisp.lib.Numbers;
 import com.bhoffpauir.blisp.lib.exception.LispRuntimeException;
 
 /**
  * Atom representation for numbers in blisp.
  * 
- * <p>This class encapsulates numeric values, primarily represented as {@link java.lang.Double} by default.
- * Numbers can also be represented as {@link java.lang.Integer}. It can be expanded to support other number
- * types by switching to a {@link java.lang.Number} base type in the future.</p>
+ * <p>Numbers form a tower of four levels: fixnums ({@link java.lang.Long}, or
+ * {@link java.lang.Integer}), bignums ({@link java.math.BigInteger}), exact rationals
+ * ({@link Ratio}) and floating-point numbers ({@link java.lang.Double}). Integer literals are
+ * fixnums, or bignums when they don't fit a {@code long}, and literals such as {@code 1/3} are
+ * rationals.</p>
  * 
- * <p>Numbers are promoted to floating-point as necessary during arithmetic operations.</p>
+ * <p>Arithmetic promotes a fixnum to a bignum only when the result overflows, and exact numbers
+ * to floating-point only when combined with one; see {@link com.bhoffpauir.blisp.lib.Numbers}.</p>
  * 
  * <p>Number representations can handle integer and floating-point formats, including optional scientific notation.</p>
  * 
@@ -21,16 +26,29 @@ import com.bhoffpauir.blisp.lib.exception.LispRuntimeException;
  *   <li>123</li>
  *   <li>-456.789</li>
  *   <li>3.14e+10</li>
+ *   <li>22/7</li>
  * </ul>
  * 
  * <p>This class also implements {@link java.lang.Comparable} to allow comparisons between number atoms, and 
  * it provides pattern matching to validate number formats.</p>
  * 
  * @see java.lang.Number
- * @see java.lang.Integer
+ * @see java.lang.Long
+ * @see java.math.BigInteger
+ * @see Ratio
  * @see java.lang.Double
  */
 public class NumberAtom extends Atom<Number> implements Comparable<NumberAtom> {
+	// Shared atoms of the small fixnums, which loop counters and indices mostly are
+	private static final int CACHE_LOW = -128, CACHE_HIGH = 1024;
+	private static final NumberAtom[] cache = new NumberAtom[CACHE_HIGH - CACHE_LOW + 1];
+	
+	static {
+		for (int i = 0; i < cache.length; i++) {
+			cache[i] = new NumberAtom((long) (i + CACHE_LOW));
+		}
+	}
+	
 	/**
      * Default constructor initializing the number atom to 0.0.
      */
@@ -75,12 +93,62 @@ public class NumberAtom extends Atom<Number> implements Comparable<NumberAtom> {
     public NumberAtom(Double value, EvalState state) {
     	super(value, state);
     }
+    
+    /**
+     * Constructor that initializes the number atom with any number of the tower: a
+     * {@link java.lang.Long}, {@link java.math.BigInteger}, {@link Ratio} or
+     * {@link java.lang.Double}.
+     * 
+     * @param value The numeric value to assign to this atom.
+     * @throws IllegalArgumentException if the number is of another type.
+     */
+    public NumberAtom(Number value) {
+    	super(checkType(value));
+    }
+    
+    /**
+     * Retrieve a number atom holding a fixnum, shared for small values.
+     * 
+     * @param value The value.
+     * @return The number atom.
+     */
+    public static NumberAtom valueOf(long value) {
+    	if (value >= CACHE_LOW && value <= CACHE_HIGH)
+    		return cache[(int) value - CACHE_LOW];
+    	return new NumberAtom(value);
+    }
+    
+    /**
+     * Retrieve a number atom holding any number of the tower.
+     * 
+     * @param value The value.
+     * @return The number atom, shared for small fixnums.
+     */
+    public static NumberAtom valueOf(Number value) {
+    	if (value instanceof Long || value instanceof Integer)
+    		return valueOf(value.longValue());
+    	return new NumberAtom(value);
+    }
+    
+    private static Number checkType(Number value) {
+    	if (value instanceof Integer || value instanceof Long || value instanceof BigInteger
+    			|| value instanceof Ratio || value instanceof Double)
+    		return value;
+    	throw new IllegalArgumentException("Unsupported number type: " + value.getClass().getName());
+    }
 	
     /**
-     * @return True if the value held by this number atom is an Integer, false otherwise.
+     * @return True if the value held by this number atom is an exact integer (a fixnum or bignum), false otherwise.
      */
     public boolean isInteger() {
-    	return (value instanceof Integer);
+    	return Numbers.isExactInteger(value);
+    }
+    
+    /**
+     * @return True if the value held by this number atom is exact (not a Double), false otherwise.
+     */
+    public boolean isExact() {
+    	return Numbers.isExact(value);
     }
     
     /**
@@ -99,9 +167,7 @@ public class NumberAtom extends Atom<Number> implements Comparable<NumberAtom> {
      */
 	@Override
 	public int compareTo(NumberAtom obj) {
-		Double thisValue = value.doubleValue();
-		Double otherValue = obj.value.doubleValue();
-		return thisValue.compareTo(otherValue);
+		return Numbers.compare(value, obj.value);
 	}
 	
 	/**
@@ -117,21 +183,23 @@ public class NumberAtom extends Atom<Number> implements Comparable<NumberAtom> {
 	    if (!(obj instanceof NumberAtom)) return false;
 
 	    NumberAtom numAtom = (NumberAtom) obj;
-	    // Convert both values to Double for comparison
-	    Double thisValue = value.doubleValue();
-	    Double otherValue = numAtom.value.doubleValue();
-
-	    return thisValue.equals(otherValue);
+	    // Equal values compare equal across the tower, e.g. 1 and 1.0
+	    return Numbers.compare(value, numAtom.value) == 0;
+	}
+	
+	@Override
+	public int hashCode() {
+		return Double.hashCode(value.doubleValue()); // Consistent with equals across the tower
 	}
 	
 	/**
-     * Returns the regular expression pattern to validate number formats, including integers, decimals, and scientific notation.
+     * Returns the regular expression pattern to validate number formats, including integers, ratios, decimals, and scientific notation.
      * 
      * @return A {@link java.util.regex.Pattern} object for validating number strings.
      */
 	@Override
 	public Pattern getRegexPattern() {
-		return Pattern.compile("-?\\\\d+(\\\\.\\\\d+)?([eE][+-]?\\\\d+)?");
+		return Pattern.compile("[+-]?(\\d+/\\d+|(\\d+\\.?\\d*|\\.\\d+)([eE][+-]?\\d+)?)");
 	}
 
 	/**
@@ -141,17 +209,15 @@ public class NumberAtom extends Atom<Number> implements Comparable<NumberAtom> {
      */
 	@Override
 	public String toString() {
-		String typeName = value.getClass().getName();
 		String num = switch (value) {
 			case Integer i -> Integer.toString(i);
+			case Long l -> Long.toString(l);
+			case BigInteger b -> b.toString();
+			case Ratio r -> r.toString();
 			case Double d -> Double.toString(d);
 			default -> throw new LispRuntimeException("Invalid number type");
 		};
 		
-		if (extendedPrint) {
-			return String.format("%s: ", typeName) + num;
-		} else {
-			return num;
-		}
+		return extendedPrint ? "Number: " + num : num;
 	}
 }
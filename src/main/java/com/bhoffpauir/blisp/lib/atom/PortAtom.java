@@ -0,0 +1,47 @@
+package com.bhoffpauir.blisp.lib.atom;
+
+import java.util.regex.Pattern;
+
+import com.bhoffpauir.blisp.lib.FilePort;
+
+/**
+ * Represents an open file, created by {@code open-input-file} and {@code open-output-file}.
+ *
+ * <p>Ports are read with {@code read-line}, {@code read-lines} and {@code read-bytes}, written
+ * with {@code write-string}, and closed with {@code close} or at the end of a
+ * {@code with-open} form.</p>
+ *
+ * @see Atom
+ * @see FilePort
+ */
+public class PortAtom extends Atom<FilePort> {
+	/**
+	 * Constructs a new {@code PortAtom} for an open file.
+	 *
+	 * @param value The file port.
+	 */
+	public PortAtom(FilePort value) {
+		super(value);
+	}
+
+	/**
+	 * Ports have no literal syntax, the pattern matches their printed form.
+	 *
+	 * @return A regex pattern for the printed form.
+	 */
+	@Override
+	public Pattern getRegexPattern() {
+		return Pattern.compile("#<port .*>");
+	}
+
+	/**
+	 * Returns a string representation of the port, including its file.
+	 *
+	 * @return The string representation of the port atom.
+	 */
+	@Override
+	public String toString() {
+		final var str = "#<port " + value + (value.isClosed() ? " closed>" : ">");
+		return extendedPrint ? "Port: " + str : str;
+	}
+}
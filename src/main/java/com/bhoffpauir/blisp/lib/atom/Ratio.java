@@ -0,0 +1,111 @@
+package com.bhoffpauir.blisp.lib.atom;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+
+/**
+ * An exact rational number, the value of a {@link NumberAtom} such as {@code 1/3}.
+ *
+ * <p>Ratios are always in lowest terms with a positive denominator greater than one; results
+ * of arithmetic that turn out to be integers are represented as integers instead, see
+ * {@link com.bhoffpauir.blisp.lib.Numbers}.</p>
+ *
+ * @see NumberAtom
+ */
+public final class Ratio extends Number implements Comparable<Ratio> {
+	private static final long serialVersionUID = 1L;
+	private final BigInteger numerator;
+	private final BigInteger denominator;
+
+	private Ratio(BigInteger numerator, BigInteger denominator) {
+		this.numerator = numerator;
+		this.denominator = denominator;
+	}
+
+	/**
+	 * Make the ratio {@code numerator/denominator} in lowest terms.
+	 *
+	 * @param numerator The numerator.
+	 * @param denominator The denominator, not zero.
+	 * @return The ratio, or the integer it is equal to as a {@link Long} or {@link BigInteger}.
+	 * @throws ArithmeticException if the denominator is zero.
+	 */
+	public static Number of(BigInteger numerator, BigInteger denominator) {
+		if (denominator.signum() == 0)
+			throw new ArithmeticException("Division by zero");
+		if (denominator.signum() < 0) {
+			numerator = numerator.negate();
+			denominator = denominator.negate();
+		}
+		BigInteger gcd = numerator.gcd(denominator);
+		if (!gcd.equals(BigInteger.ONE)) {
+			numerator = numerator.divide(gcd);
+			denominator = denominator.divide(gcd);
+		}
+		if (denominator.equals(BigInteger.ONE))
+			return (numerator.bitLength() < 64) ? (Number) numerator.longValue() : numerator;
+		return new Ratio(numerator, denominator);
+	}
+
+	/**
+	 * Retrieve the numerator.
+	 *
+	 * @return The numerator, sharing the sign of the ratio.
+	 */
+	public BigInteger getNumerator() {
+		return numerator;
+	}
+
+	/**
+	 * Retrieve the denominator.
+	 *
+	 * @return The denominator, always greater than one.
+	 */
+	public BigInteger getDenominator() {
+		return denominator;
+	}
+
+	@Override
+	public int intValue() {
+		return (int) longValue();
+	}
+
+	@Override
+	public long longValue() {
+		return numerator.divide(denominator).longValue(); // Truncates toward zero
+	}
+
+	@Override
+	public float floatValue() {
+		return (float) doubleValue();
+	}
+
+	@Override
+	public double doubleValue() {
+		if (numerator.bitLength() < 53 && denominator.bitLength() < 53)
+			return numerator.doubleValue() / denominator.doubleValue(); // Both exact as doubles
+		return new BigDecimal(numerator).divide(new BigDecimal(denominator), MathContext.DECIMAL64).doubleValue();
+	}
+
+	@Override
+	public int compareTo(Ratio other) {
+		return numerator.multiply(other.denominator).compareTo(other.numerator.multiply(denominator));
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return (obj instanceof Ratio other)
+			&& numerator.equals(other.numerator) && denominator.equals(other.denominator);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * numerator.hashCode() + denominator.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return numerator + "/" + denominator;
+	}
+}
@@ -0,0 +1,150 @@
+package com.bhoffpauir.blisp.lib.atom;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+/**
+ * Represents a transactional reference, created by {@code ref} and changed with {@code alter}
+ * and {@code ref-set} inside {@code dosync}.
+ *
+ * <p>A ref keeps a short history of committed versions, each stamped with the commit point of
+ * the transaction that wrote it. Transactions read the newest version that is no newer than their
+ * read point, so they see a consistent snapshot without blocking writers (multiversion
+ * concurrency control). The transaction logic itself lives in
+ * {@link com.bhoffpauir.blisp.lib.Transaction}.</p>
+ *
+ * @see Atom
+ */
+public class RefAtom extends Atom<AtomicReference<RefAtom.Version>> {
+	/**
+	 * Number of committed versions kept for readers with older read points.
+	 */
+	public static final int HISTORY_SIZE = 8;
+	private static final AtomicLong ids = new AtomicLong();
+
+	private final long id = ids.incrementAndGet();
+	private final ReentrantLock lock = new ReentrantLock();
+
+	/**
+	 * A committed value of a ref.
+	 */
+	public static final class Version {
+		private final Object value;
+		private final long point;
+		private Version prior;
+
+		Version(Object value, long point, Version prior) {
+			this.value = value;
+			this.point = point;
+			this.prior = prior;
+		}
+
+		/**
+		 * Retrieve the committed value.
+		 *
+		 * @return The value.
+		 */
+		public Object getValue() {
+			return value;
+		}
+
+		/**
+		 * Retrieve the commit point of the transaction that wrote the value.
+		 *
+		 * @return The commit point.
+		 */
+		public long getPoint() {
+			return point;
+		}
+	}
+
+	/**
+	 * Constructs a new {@code RefAtom} with an initial value, visible to every transaction.
+	 *
+	 * @param initial The initial value.
+	 */
+	public RefAtom(Object initial) {
+		super(new AtomicReference<>(new Version(initial, 0, null)));
+	}
+
+	/**
+	 * Retrieve the identity of the ref, which orders the locking of refs on commit.
+	 *
+	 * @return The ref id.
+	 */
+	public long getId() {
+		return id;
+	}
+
+	/**
+	 * Retrieve the lock held while a transaction commits to this ref.
+	 *
+	 * @return The commit lock.
+	 */
+	public ReentrantLock getLock() {
+		return lock;
+	}
+
+	/**
+	 * Retrieve the newest committed version.
+	 *
+	 * @return The newest version.
+	 */
+	public Version latest() {
+		return value.get();
+	}
+
+	/**
+	 * Retrieve the newest value committed at or before {@code readPoint}.
+	 *
+	 * @param readPoint The read point of a transaction.
+	 * @return The value, or null if that version is no longer in the history.
+	 */
+	public Object valueAt(long readPoint) {
+		for (Version version = value.get(); version != null; version = version.prior) {
+			if (version.point <= readPoint)
+				return version.value;
+		}
+		return null;
+	}
+
+	/**
+	 * Commit a new version. Must be called with the commit lock held.
+	 *
+	 * @param newValue The new value.
+	 * @param point The commit point of the transaction.
+	 */
+	public void commit(Object newValue, long point) {
+		Version head = new Version(newValue, point, value.get());
+		// Trim the history, older readers will retry with a newer read point
+		Version last = head;
+		for (int i = 1; i < HISTORY_SIZE && last.prior != null; i++) {
+			last = last.prior;
+		}
+		last.prior = null;
+		value.set(head);
+	}
+
+	/**
+	 * Refs have no literal syntax, the pattern matches their printed form.
+	 *
+	 * @return A regex pattern for the printed form.
+	 */
+	@Override
+	public Pattern getRegexPattern() {
+		return Pattern.compile("#<ref .*>");
+	}
+
+	/**
+	 * Returns a string representation of the ref, including its newest value.
+	 *
+	 * @return The string representation of the ref atom.
+	 */
+	@Override
+	public String toString() {
+		final var str = "#<ref " + value.get().value + ">";
+		return extendedPrint ? "Ref: " + str : str;
+	}
+}
@@ -0,0 +1,45 @@
+package com.bhoffpauir.blisp.lib.atom;
+
+import java.util.Iterator;
+import java.util.regex.Pattern;
+
+/**
+ * Represents a lazily realized sequence, such as the lines returned by {@code read-lines}.
+ *
+ * <p>Elements are produced one at a time as the sequence is consumed, and a sequence can be
+ * consumed once: like the port it may read from, it does not keep the elements it has produced.
+ * This lets a script stream through more data than fits in memory.</p>
+ *
+ * @see Atom
+ */
+public class SeqAtom extends Atom<Iterator<?>> {
+	/**
+	 * Constructs a new {@code SeqAtom} producing the elements of an iterator.
+	 *
+	 * @param value The iterator.
+	 */
+	public SeqAtom(Iterator<?> value) {
+		super(value);
+	}
+
+	/**
+	 * Sequences have no literal syntax, the pattern matches their printed form.
+	 *
+	 * @return A regex pattern for the printed form.
+	 */
+	@Override
+	public Pattern getRegexPattern() {
+		return Pattern.compile("#<seq>");
+	}
+
+	/**
+	 * Returns a string representation of the sequence, without realizing it.
+	 *
+	 * @return The string representation of the sequence atom.
+	 */
+	@Override
+	public String toString() {
+		final var str = "#<seq>";
+		return extendedPrint ? "Seq: " + str : str;
+	}
+}
@@ -1,5 +1,7 @@
 package com.bhoffpauir.blisp.lib.atom;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.regex.Pattern;
 
 import com.bhoffpauir.blisp.lib.EvalState;
@@ -14,15 +16,26 @@ import com.bhoffpauir.blisp.lib.EvalState;
  * <p>The class includes functionality for equality testing, string comparison, 
  * and regular expression pattern matching for valid strings in the language.</p>
  * 
+ * <p>A string made by {@link #concat(StringAtom)} is a rope: it only refers to the two strings
+ * it joins, and their characters are copied into a single {@code String} the first time its
+ * value is needed. Building a long string by appending pieces one at a time therefore copies
+ * every character once, instead of once per append. Short pieces are joined right away, since
+ * copying them is cheaper than keeping a node.</p>
+ * 
  * @see Atom
  * @see Comparable
  */
 public class StringAtom extends Atom<String> implements Comparable<StringAtom> {
+	private static final int FLAT_CONCAT_LIMIT = 64; // Joined right away up to this length
+	private final int length;
+	private volatile String flat;
+	private volatile Concat rope; // The joined strings until flattened
+	
     /**
      * Constructs a new {@code StringAtom} with an empty string value.
      */
     public StringAtom() {
-        super(new String());
+        this(new String());
     }
     
     /**
@@ -32,6 +45,8 @@ public class StringAtom extends Atom<String> implements Comparable<StringAtom> {
      */
     public StringAtom(String value) {
         super(value);
+        this.length = value.length();
+        this.flat = value;
     }
     
     /**
@@ -42,6 +57,74 @@ public class StringAtom extends Atom<String> implements Comparable<StringAtom> {
      */
     public StringAtom(String value, EvalState state) {
     	super(value, state);
+    	this.length = value.length();
+    	this.flat = value;
+    }
+    
+    private StringAtom(StringAtom left, StringAtom right) {
+    	super(null);
+    	this.length = left.length + right.length;
+    	this.rope = new Concat(left, right);
+    }
+    
+    /**
+     * Join this string and another without copying their characters.
+     * 
+     * @param other The string to append.
+     * @return The joined string.
+     */
+    public StringAtom concat(StringAtom other) {
+    	if (other.length == 0)
+    		return this;
+    	if (length == 0)
+    		return other;
+    	String left = flat, right = other.flat;
+    	if (left != null && right != null && length + other.length <= FLAT_CONCAT_LIMIT)
+    		return new StringAtom(left + right);
+    	return new StringAtom(this, other);
+    }
+    
+    /**
+     * Retrieve the number of characters, without flattening.
+     * 
+     * @return The length of the string.
+     */
+    public int length() {
+    	return length;
+    }
+    
+    /**
+     * Retrieve the string, copying the pieces of a rope into a single {@code String} on the
+     * first call.
+     * 
+     * @return The string value.
+     */
+    @Override
+    public String getValue() {
+    	String value = flat;
+    	return (value != null) ? value : flatten();
+    }
+    
+    private synchronized String flatten() {
+    	if (flat != null)
+    		return flat;
+    	StringBuilder sb = new StringBuilder(length);
+    	// Walk the tree with an explicit stack, ropes built in a loop are as deep as they are long
+    	Deque<StringAtom> pending = new ArrayDeque<>();
+    	pending.push(this);
+    	while (!pending.isEmpty()) {
+    		StringAtom node = pending.pop();
+    		Concat concat = node.rope; // Read before flat, which is set before rope is cleared
+    		if (concat == null) {
+    			sb.append(node.flat);
+    		} else {
+    			pending.push(concat.right());
+    			pending.push(concat.left());
+    		}
+    	}
+    	flat = sb.toString();
+    	rope = null; // Let go of the pieces
+    	return flat;
     }
     
     /**
@@ -55,7 +138,7 @@ public class StringAtom extends Atom<String> implements Comparable<StringAtom> {
 	public boolean equals(Object obj) {
 		if (obj instanceof StringAtom) {
 			StringAtom strAtom = (StringAtom) obj;
-			return value.equals(strAtom.value);
+			return getValue().equals(strAtom.getValue());
 		} else
 			throw new IllegalArgumentException("obj must be a StringAtom");
 	}
@@ -69,7 +152,7 @@ public class StringAtom extends Atom<String> implements Comparable<StringAtom> {
      */
 	@Override
 	public int compareTo(StringAtom obj) {
-		return value.compareTo(obj.value);
+		return getValue().compareTo(obj.getValue());
 	}
 	
 	/**
@@ -91,11 +174,14 @@ public class StringAtom extends Atom<String> implements Comparable<StringAtom> {
      */
 	@Override
 	public String toString() {
-		final var quoted = '"' + value + '"';
+		final var quoted = '"' + getValue() + '"';
 		if (extendedPrint) {
 			return "String: " + quoted;
 		} else {
 			return quoted;
 		}
 	}
+	
+	private record Concat(StringAtom left, StringAtom right) {
+	}
 }
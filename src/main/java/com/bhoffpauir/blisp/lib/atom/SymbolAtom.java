@@ -32,6 +32,8 @@ public class SymbolAtom extends Atom<String> implements Comparable<SymbolAtom> {
      */
     public static final SymbolAtom nil = new SymbolAtom("nil");
     
+    private Dispatch dispatch = null; // Resolution as an operator, cached by the evaluator
+    
     /**
      * Constructs a new {@code SymbolAtom} with the specified value.
      * 
@@ -104,4 +106,28 @@ public class SymbolAtom extends Atom<String> implements Comparable<SymbolAtom> {
             return value.toUpperCase();
         }
     }
+    
+    /**
+     * Retrieve the cached resolution of this symbol, when evaluated as the operator of a list.
+     * 
+     * @param table The table the symbol is resolved against now.
+     * @return The resolution made against {@code table}, or null if there is none.
+     */
+    public Object getDispatch(Object table) {
+        Dispatch cached = dispatch;
+        return (cached != null && cached.table() == table) ? cached.target() : null;
+    }
+    
+    /**
+     * Cache the resolution of this symbol, when evaluated as the operator of a list.
+     * 
+     * @param table The table the symbol was resolved against.
+     * @param target The resolution.
+     */
+    public void setDispatch(Object table, Object target) {
+        dispatch = new Dispatch(table, target); // Immutable, so safe to publish without a lock
+    }
+    
+    private record Dispatch(Object table, Object target) {
+    }
 }
@@ -0,0 +1,39 @@
+package com.bhoffpauir.blisp.lib.exception;
+/**
+ * Runtime exception thrown when an evaluation exceeds one of the limits of its
+ * {@link com.bhoffpauir.blisp.lib.Budget}.
+ */
+public class BudgetExceededException extends LispRuntimeException {
+	private static final long serialVersionUID = -6620917395102384218L;
+
+	/**
+	 * The limits of a budget.
+	 */
+	public enum Limit {
+		STEPS("step", ""), TIME("time", " ms"), DEPTH("recursion depth", ""), LIST_SIZE("list size", "");
+
+		private final String description;
+		private final String unit;
+
+		Limit(String description, String unit) {
+			this.description = description;
+			this.unit = unit;
+		}
+	}
+
+	private final Limit limit;
+
+	public BudgetExceededException(Limit limit, long value) {
+		super("Evaluation exceeded its " + limit.description + " limit of " + value + limit.unit);
+		this.limit = limit;
+	}
+
+	/**
+	 * Retrieve the limit that was exceeded.
+	 *
+	 * @return The exceeded limit.
+	 */
+	public Limit getLimit() {
+		return limit;
+	}
+}
@@ -0,0 +1,12 @@
+package com.bhoffpauir.blisp.lib.exception;
+/**
+ * Runtime exception thrown when an evaluation is stopped because its thread was interrupted,
+ * e.g. by cancelling the request in an {@link com.bhoffpauir.blisp.lib.EvaluationService}.
+ */
+public class EvaluationCancelledException extends LispRuntimeException {
+	private static final long serialVersionUID = 4718021936412398671L;
+
+	public EvaluationCancelledException() {
+		super("Evaluation cancelled");
+	}
+}
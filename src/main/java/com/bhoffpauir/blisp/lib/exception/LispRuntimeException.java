@@ -8,4 +8,8 @@ public class LispRuntimeException extends RuntimeException {
 	public LispRuntimeException(String message) {
 		super(message);
 	}
+
+	public LispRuntimeException(String message, Throwable cause) {
+		super(message, cause);
+	}
 }
@@ -0,0 +1,93 @@
+package com.bhoffpauir.blisp.lib.jfr;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+/**
+ * Switch for the blisp Java Flight Recorder events.
+ *
+ * <p>The tokenizer, parser, evaluator and a few allocation-heavy builtins emit
+ * {@link jdk.jfr.Event}s describing blisp work, so a recording shows which script, form or
+ * procedure was running rather than a blur of evaluator frames. Creating the events is skipped
+ * entirely while they are disabled, so the cost is a single flag check per hook. Enabling them
+ * does not start a recording by itself: use {@link #startRecording(Path)}, the interpreter's
+ * {@code --jfr} option, or any JFR recording started with {@code -XX:StartFlightRecording} or
+ * {@code jcmd}.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>
+ *     BlispEvents.setEnabled(true);
+ *     Recording recording = BlispEvents.startRecording(Path.of("blisp.jfr"));
+ *     evaluator.evaluate(expr, env);
+ *     recording.stop(); // Writes blisp.jfr
+ * </pre>
+ */
+public final class BlispEvents {
+	/**
+	 * Maximum length of the form text recorded by {@link FormEvaluationEvent}.
+	 */
+	public static final int MAX_FORM_LENGTH = 200;
+	private static volatile boolean enabled = false;
+
+	private BlispEvents() {
+	}
+
+	/**
+	 * Check if the blisp events are emitted.
+	 *
+	 * @return True if the events are emitted.
+	 */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Turn the blisp events on or off.
+	 *
+	 * @param value True to emit the events.
+	 */
+	public static void setEnabled(boolean value) {
+		enabled = value;
+	}
+
+	/**
+	 * Start a recording with the JDK's {@code default} settings plus the blisp events, written
+	 * to {@code file} when the recording is stopped or closed. Also enables the blisp events.
+	 *
+	 * @param file The file to write the recording to.
+	 * @return The running recording.
+	 * @throws IOException if the settings cannot be read or the file cannot be written.
+	 */
+	public static Recording startRecording(Path file) throws IOException {
+		Configuration configuration;
+		try {
+			configuration = Configuration.getConfiguration("default");
+		} catch (ParseException ex) {
+			throw new IOException("Invalid JFR configuration: " + ex.getMessage(), ex);
+		}
+		Recording recording = new Recording(configuration);
+		recording.setName("blisp");
+		recording.setDestination(file);
+		recording.setToDisk(true);
+		setEnabled(true);
+		recording.start();
+		return recording;
+	}
+
+	/**
+	 * Shorten a form for {@link FormEvaluationEvent}.
+	 *
+	 * @param form The form.
+	 * @return The text of the form, at most {@link #MAX_FORM_LENGTH} characters long.
+	 */
+	public static String describe(Object form) {
+		String text = String.valueOf(form);
+		if (text.length() <= MAX_FORM_LENGTH)
+			return text;
+		return text.substring(0, MAX_FORM_LENGTH - 3) + "...";
+	}
+}
@@ -0,0 +1,29 @@
+package com.bhoffpauir.blisp.lib.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Call of a builtin that allocates in proportion to its input, such as {@code range} or
+ * {@code map}.
+ */
+@Name("blisp.Builtin")
+@Label("Builtin")
+@Category("blisp")
+@Description("Call of an allocation-heavy blisp builtin")
+@StackTrace(false)
+public class BuiltinEvent extends jdk.jfr.Event {
+	@Label("Builtin")
+	public String builtin;
+
+	@Label("Input Size")
+	@Description("Number of elements of the input list, if any")
+	public int inputSize;
+
+	@Label("Result Size")
+	@Description("Number of elements of the result list, if any")
+	public int resultSize;
+}
@@ -0,0 +1,21 @@
+package com.bhoffpauir.blisp.lib.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Evaluation of a top-level form.
+ */
+@Name("blisp.FormEvaluation")
+@Label("Form Evaluation")
+@Category("blisp")
+@Description("Evaluation of a top-level blisp form")
+@StackTrace(false)
+public class FormEvaluationEvent extends jdk.jfr.Event {
+	@Label("Form")
+	@Description("The form, shortened to " + BlispEvents.MAX_FORM_LENGTH + " characters")
+	public String form;
+}
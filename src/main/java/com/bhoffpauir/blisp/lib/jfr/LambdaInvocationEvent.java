@@ -0,0 +1,25 @@
+package com.bhoffpauir.blisp.lib.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Call of a lambda or builtin that took longer than the threshold.
+ */
+@Name("blisp.LambdaInvocation")
+@Label("Lambda Invocation")
+@Category("blisp")
+@Description("Call of a blisp procedure that took longer than the threshold")
+@Threshold("10 ms")
+@StackTrace(false)
+public class LambdaInvocationEvent extends jdk.jfr.Event {
+	@Label("Procedure")
+	public String procedure;
+
+	@Label("Arguments")
+	public int arguments;
+}
@@ -0,0 +1,23 @@
+package com.bhoffpauir.blisp.lib.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Parsing of a token list into forms.
+ */
+@Name("blisp.Parse")
+@Label("Parse")
+@Category("blisp")
+@Description("Parsing of blisp tokens into forms")
+@StackTrace(false)
+public class ParseEvent extends jdk.jfr.Event {
+	@Label("Tokens")
+	public int tokens;
+
+	@Label("Forms")
+	public int forms;
+}
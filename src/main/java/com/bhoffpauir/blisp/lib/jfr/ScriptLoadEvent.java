@@ -0,0 +1,33 @@
+package com.bhoffpauir.blisp.lib.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Loading of a script file: reading, tokenizing and parsing it, or reading its cached parse.
+ */
+@Name("blisp.ScriptLoad")
+@Label("Script Load")
+@Category("blisp")
+@Description("Loading of a blisp script file")
+@StackTrace(false)
+public class ScriptLoadEvent extends jdk.jfr.Event {
+	@Label("Path")
+	public String path;
+
+	@Label("Size")
+	@DataAmount
+	public long size;
+
+	@Label("Forms")
+	@Description("Number of top-level forms in the script")
+	public int forms;
+
+	@Label("Cached")
+	@Description("Whether the forms were read from the script cache")
+	public boolean cached;
+}
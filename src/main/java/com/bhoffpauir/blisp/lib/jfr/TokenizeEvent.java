@@ -0,0 +1,23 @@
+package com.bhoffpauir.blisp.lib.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Tokenizing of source text.
+ */
+@Name("blisp.Tokenize")
+@Label("Tokenize")
+@Category("blisp")
+@Description("Tokenizing of blisp source text")
+@StackTrace(false)
+public class TokenizeEvent extends jdk.jfr.Event {
+	@Label("Characters")
+	public int characters;
+
+	@Label("Tokens")
+	public int tokens;
+}
@@ -0,0 +1,8 @@
+/**
+ * Java Flight Recorder events for blisp.
+ *
+ * <p>The events show blisp work in a recording in terms of scripts, forms and procedures rather
+ * than evaluator frames. They are only created while {@link com.bhoffpauir.blisp.lib.jfr.BlispEvents}
+ * is enabled, through the interpreter's {@code --jfr} option or the embedding API.</p>
+ */
+package com.bhoffpauir.blisp.lib.jfr;
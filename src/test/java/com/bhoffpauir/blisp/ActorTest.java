@@ -0,0 +1,64 @@
+package com.bhoffpauir.blisp;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.jupiter.api.Test;
+
+import com.bhoffpauir.blisp.lib.Actor;
+import com.bhoffpauir.blisp.lib.atom.SymbolAtom;
+import com.bhoffpauir.blisp.lib.exception.LispRuntimeException;
+
+/**
+ * Unit test for sending to {@link Actor}s.
+ */
+public class ActorTest {
+	// An actor that never receives, so its mailbox fills up
+	private static Actor idle(int capacity, long nanos) {
+		return Actor.spawn(capacity, () -> {
+			long deadline = System.nanoTime() + nanos;
+			while (!Thread.currentThread().isInterrupted() && System.nanoTime() < deadline) {
+				LockSupport.parkNanos(deadline - System.nanoTime());
+			}
+			return SymbolAtom.nil;
+		});
+	}
+
+	@Test
+	public void testSendToFullMailbox() {
+		for (int capacity = 1; capacity <= 3; capacity++) {
+			Actor actor = idle(capacity, TimeUnit.SECONDS.toNanos(10));
+			for (int i = 0; i < capacity; i++) {
+				assertTrue(actor.send(i, -1));
+			}
+			assertFalse(actor.send("more", 50));
+			actor.stop();
+		}
+	}
+
+	@Test
+	public void testWaitingSendersFailOnTermination() {
+		assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+			// The actor finishes while the sender waits for room
+			Actor finishing = idle(1, TimeUnit.MILLISECONDS.toNanos(200));
+			assertTrue(finishing.send("one", -1));
+			assertThrows(LispRuntimeException.class, () -> finishing.send("two", -1));
+
+			// The actor is stopped while the sender waits for room
+			Actor stopped = idle(1, TimeUnit.SECONDS.toNanos(10));
+			assertTrue(stopped.send("one", -1));
+			Thread.ofVirtual().start(() -> {
+				LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(200));
+				stopped.stop();
+			});
+			assertThrows(LispRuntimeException.class, () -> stopped.send("two", -1));
+			assertThrows(LispRuntimeException.class, () -> stopped.send("three", -1));
+		});
+	}
+}
@@ -0,0 +1,160 @@
+package com.bhoffpauir.blisp;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.bhoffpauir.blisp.lib.AtomInputStream;
+import com.bhoffpauir.blisp.lib.AtomOutputStream;
+import com.bhoffpauir.blisp.lib.atom.ArrayAtom;
+import com.bhoffpauir.blisp.lib.atom.Atom;
+import com.bhoffpauir.blisp.lib.atom.BooleanAtom;
+import com.bhoffpauir.blisp.lib.atom.CharacterAtom;
+import com.bhoffpauir.blisp.lib.atom.ListAtom;
+import com.bhoffpauir.blisp.lib.atom.NumberAtom;
+import com.bhoffpauir.blisp.lib.atom.Ratio;
+import com.bhoffpauir.blisp.lib.atom.StringAtom;
+import com.bhoffpauir.blisp.lib.atom.SymbolAtom;
+
+/**
+ * Unit test for the binary atom encoding of {@link AtomOutputStream} and {@link AtomInputStream}.
+ */
+public class AtomStreamTest {
+	private static byte[] encode(Object... atoms) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (AtomOutputStream out = new AtomOutputStream(bytes)) {
+			for (var atom : atoms) {
+				out.writeAtom(atom);
+			}
+		}
+		return bytes.toByteArray();
+	}
+
+	private static List<Object> decode(byte[] bytes) throws IOException {
+		List<Object> atoms = new ArrayList<>();
+		try (AtomInputStream in = new AtomInputStream(new ByteArrayInputStream(bytes))) {
+			for (Object atom; (atom = in.readNextAtom()) != null; ) {
+				atoms.add(atom);
+			}
+		}
+		return atoms;
+	}
+
+	// Atoms compare equal across types (e.g. 1 and 1.0), the encoding must keep the types too
+	private static void assertSameAtom(Object expected, Object actual) {
+		assertEquals(expected.getClass(), actual.getClass());
+		switch (expected) {
+			case ListAtom list -> {
+				List<Object> elements = ((ListAtom) actual).getValue();
+				assertEquals(list.getValue().size(), elements.size());
+				for (int i = 0; i < elements.size(); i++) {
+					assertSameAtom(list.getValue().get(i), elements.get(i));
+				}
+			}
+			case ArrayAtom array -> assertArrayEquals(array.getValue(), ((ArrayAtom) actual).getValue());
+			case NumberAtom num -> {
+				assertEquals(num.getValue().getClass(), ((NumberAtom) actual).getValue().getClass());
+				assertEquals(num.getValue(), ((NumberAtom) actual).getValue());
+			}
+			default -> assertEquals(((Atom<?>) expected).getValue(), ((Atom<?>) actual).getValue());
+		}
+	}
+
+	private static void assertRoundTrip(Object... atoms) throws IOException {
+		List<Object> decoded = decode(encode(atoms));
+		assertEquals(atoms.length, decoded.size());
+		for (int i = 0; i < atoms.length; i++) {
+			assertSameAtom(atoms[i], decoded.get(i));
+		}
+	}
+
+	private static ListAtom list(Object... elements) {
+		return new ListAtom(new ArrayList<>(List.of(elements)));
+	}
+
+	@Test
+	public void testEveryTag() throws IOException {
+		BigInteger big = BigInteger.TWO.pow(200).negate();
+		assertRoundTrip(
+			new BooleanAtom(true), new BooleanAtom(false),
+			new CharacterAtom('x'), new CharacterAtom('λ'), new CharacterAtom(Character.MAX_VALUE),
+			new NumberAtom(0), new NumberAtom(-1), new NumberAtom(Integer.MIN_VALUE), new NumberAtom(Integer.MAX_VALUE),
+			NumberAtom.valueOf(Long.MIN_VALUE), NumberAtom.valueOf(Long.MAX_VALUE),
+			new NumberAtom(big), new NumberAtom(big.negate().add(BigInteger.ONE)),
+			new NumberAtom(Ratio.of(BigInteger.ONE, BigInteger.valueOf(3))), new NumberAtom(Ratio.of(big, BigInteger.valueOf(7))),
+			new NumberAtom(2.5), new NumberAtom(Double.NaN), new NumberAtom(Double.NEGATIVE_INFINITY),
+			new StringAtom(""), new StringAtom("héllo, 世界"), new StringAtom("x".repeat(100_000)),
+			new SymbolAtom("define"), new ListAtom(new ArrayList<>()),
+			list(new SymbolAtom("a"), list(NumberAtom.valueOf(1), list(new StringAtom("deep")))),
+			new ArrayAtom(new double[0]), new ArrayAtom(new double[] { 1.5, -0.0, Double.MAX_VALUE }),
+			new ArrayAtom(new double[20_000]));
+	}
+
+	@Test
+	public void testSymbolTable() throws IOException {
+		// Later occurrences of a symbol are references to the first
+		assertEquals(3, encode(new SymbolAtom("x")).length); // Tag, length and name
+		assertEquals(5, encode(new SymbolAtom("x"), new SymbolAtom("x")).length); // Then tag and number
+		ListAtom form = list(new SymbolAtom("lambda"), list(new SymbolAtom("x")), list(new SymbolAtom("x"), new SymbolAtom("x")));
+		assertTrue(encode(form, form).length < 2 * encode(form).length);
+		assertRoundTrip(form, form);
+	}
+
+	@Test
+	public void testVarInts() throws IOException {
+		long[] values = { 0, 1, 63, 64, 127, 128, -1, -64, -65, 1L << 40, Long.MIN_VALUE, Long.MAX_VALUE };
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (AtomOutputStream out = new AtomOutputStream(bytes)) {
+			for (var value : values) {
+				out.writeSignedVarLong(value);
+				out.writeVarLong(value);
+			}
+		}
+		try (AtomInputStream in = new AtomInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			for (var value : values) {
+				assertEquals(value, in.readSignedVarLong());
+				assertEquals(value, in.readVarLong());
+			}
+			assertNull(in.readNextAtom());
+		}
+	}
+
+	@Test
+	public void testCorruptInput() {
+		// Lengths far beyond the data end the stream, instead of being allocated up front
+		int huge = Integer.MAX_VALUE;
+		assertThrows(EOFException.class, () -> decode(withLength(5, huge, 'a', 'b')));   // String
+		assertThrows(EOFException.class, () -> decode(withLength(6, huge, 'a')));        // Symbol
+		assertThrows(EOFException.class, () -> decode(withLength(7, huge)));             // List
+		assertThrows(EOFException.class, () -> decode(withLength(8, huge, 0, 0, 0)));    // Array
+		assertThrows(EOFException.class, () -> decode(withLength(10, huge, 1)));         // Bignum
+		assertThrows(StreamCorruptedException.class, () -> decode(withLength(12, 0)));  // Symbol reference
+		assertThrows(StreamCorruptedException.class, () -> decode(new byte[] { 99 }));
+		assertThrows(StreamCorruptedException.class, () -> decode(withLength(7, -1L)));  // Count over 2^31
+	}
+
+	private static byte[] withLength(int tag, long length, int... payload) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (AtomOutputStream out = new AtomOutputStream(bytes)) {
+			out.writeByte(tag);
+			out.writeVarLong(length);
+			for (var b : payload) {
+				out.writeByte(b);
+			}
+		}
+		return bytes.toByteArray();
+	}
+}
@@ -0,0 +1,78 @@
+package com.bhoffpauir.blisp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.bhoffpauir.blisp.interp.BlispServer;
+import com.bhoffpauir.blisp.lib.Environment;
+import com.bhoffpauir.blisp.lib.EvaluationService;
+import com.bhoffpauir.blisp.lib.Evaluator;
+import com.bhoffpauir.blisp.lib.Lambda;
+import com.bhoffpauir.blisp.lib.Parser;
+import com.bhoffpauir.blisp.lib.Tokenizer;
+
+/**
+ * Unit test for the requests of a {@link BlispServer}.
+ */
+public class BlispServerTest {
+	@TempDir
+	Path dir;
+
+	private static String send(SocketAddress address, String source) throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		BlispServer.connect(address, new ByteArrayInputStream(source.getBytes(StandardCharsets.UTF_8)), output);
+		return output.toString(StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void testExitEndsRequest() throws Exception {
+		// A prelude procedure calling exit resolves the global builtin, not the request's
+		Environment globalEnv = Environment.createGlobalEnv();
+		Evaluator evaluator = new Evaluator(globalEnv);
+		for (var form : new Parser(new Tokenizer("(define (quit code) (exit code))").tokenize()).parseAll()) {
+			evaluator.evaluate(form, globalEnv);
+		}
+		Object builtinExit = globalEnv.lookup("exit");
+		SocketAddress address = BlispServer.parseAddress(dir.resolve("blisp.sock").toString());
+		try (EvaluationService service = new EvaluationService(globalEnv, 4)) {
+			Thread server = Thread.ofPlatform().daemon().start(() -> {
+				try {
+					new BlispServer(service, address).serve();
+				} catch (IOException ex) {
+					// Closed by the interrupt that stops the server
+				}
+			});
+			assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+				// Wait for the server to listen
+				while (true) {
+					try {
+						send(address, "");
+						break;
+					} catch (IOException ex) {
+						Thread.sleep(10);
+					}
+				}
+				assertEquals("1\n", send(address, "(println 1) (quit 3) (println 2)"));
+				assertEquals("1\n", send(address, "(println 1) (exit) (println 2)"));
+				// The server is still there
+				assertEquals("3\n", send(address, "(println (+ 1 2))"));
+				server.interrupt();
+				server.join();
+			});
+		}
+		// The builtin is back once the server stops
+		assertEquals(builtinExit, globalEnv.lookup("exit"));
+		assertEquals("exit", ((Lambda) globalEnv.lookup("exit")).getName());
+	}
+}
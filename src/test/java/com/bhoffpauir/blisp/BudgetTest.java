@@ -0,0 +1,88 @@
+package com.bhoffpauir.blisp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import com.bhoffpauir.blisp.lib.Budget;
+import com.bhoffpauir.blisp.lib.Environment;
+import com.bhoffpauir.blisp.lib.Evaluator;
+import com.bhoffpauir.blisp.lib.Parser;
+import com.bhoffpauir.blisp.lib.Tokenizer;
+import com.bhoffpauir.blisp.lib.atom.ListAtom;
+import com.bhoffpauir.blisp.lib.atom.NumberAtom;
+import com.bhoffpauir.blisp.lib.exception.BudgetExceededException;
+import com.bhoffpauir.blisp.lib.exception.BudgetExceededException.Limit;
+import com.bhoffpauir.blisp.lib.exception.LispRuntimeException;
+
+/**
+ * Unit test for evaluation {@link Budget}s.
+ */
+public class BudgetTest {
+	private final Environment env = Environment.createGlobalEnv();
+	
+	private Object eval(String source, Budget budget) {
+		Evaluator evaluator = new Evaluator(env);
+		Object result = null;
+		for (var form : new Parser(new Tokenizer(source).tokenize()).parseAll()) {
+			result = evaluator.evaluate(form, env, budget);
+		}
+		return result;
+	}
+	
+	private Limit exceeded(String source, Budget budget) {
+		return assertThrows(BudgetExceededException.class, () -> eval(source, budget)).getLimit();
+	}
+	
+	@Test
+	public void testWithinBudget() {
+		Budget budget = new Budget().maxSteps(1000).maxDepth(50).maxListSize(100).timeout(Duration.ofSeconds(10));
+		eval("(define count-down (lambda (n) (if (= n 0) 0 (recur (- n 1)))))", budget);
+		assertEquals(0.0, ((NumberAtom) eval("(count-down 40)", budget)).getValue().doubleValue());
+		assertEquals(100, ((ListAtom) eval("(range 100)", budget)).getValue().size());
+	}
+	
+	@Test
+	public void testLimits() {
+		eval("(define count-down (lambda (n) (if (= n 0) 0 (recur (- n 1)))))", new Budget());
+		assertEquals(Limit.STEPS, exceeded("(count-down 100)", new Budget().maxSteps(50)));
+		assertEquals(Limit.DEPTH, exceeded("(count-down 100)", new Budget().maxDepth(20)));
+		assertEquals(Limit.LIST_SIZE, exceeded("(range 1000000000)", new Budget().maxListSize(1000)));
+		assertEquals(Limit.TIME, exceeded("(map (lambda (x) (* x x)) (range 1000000))", new Budget().timeout(Duration.ofMillis(20))));
+		// The evaluator is usable again after a limit was hit
+		assertEquals(0.0, ((NumberAtom) eval("(count-down 10)", new Budget().maxSteps(1000))).getValue().doubleValue());
+	}
+	
+	@Test
+	public void testLoopsWithoutCalls() {
+		// Loops whose test and body are atoms make no calls, each iteration is still a step
+		assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+			Budget steps = new Budget().maxSteps(1000);
+			assertEquals(Limit.STEPS, exceeded("(while true)", steps));
+			assertEquals(Limit.STEPS, exceeded("(dotimes (i 100000000000))", steps));
+			assertEquals(Limit.STEPS, exceeded("(loop ((i 0)) (recur i))", steps));
+			Budget time = new Budget().timeout(Duration.ofMillis(100));
+			assertEquals(Limit.TIME, exceeded("(while true)", time));
+			assertEquals(Limit.TIME, exceeded("(dotimes (i 100000000000))", time));
+			assertEquals(Limit.TIME, exceeded("(loop ((i 0)) (recur i))", time));
+		});
+	}
+	
+	@Test
+	public void testFuturesAndActors() {
+		assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+			// Futures and actors run within the budget of the evaluation that started them
+			assertEquals(Limit.STEPS, exceeded("(deref (future (while true)))", new Budget().maxSteps(1000)));
+			assertEquals(Limit.TIME, exceeded("(deref (spawn (while true)))", new Budget().timeout(Duration.ofMillis(100))));
+			assertEquals(Limit.STEPS, exceeded("(deref (future (deref (future (dotimes (i 100000000000))))))", new Budget().maxSteps(1000)));
+			// and stop when it finishes
+			eval("(define f (future (while true))) (define a (spawn (while true)))", new Budget());
+			assertThrows(LispRuntimeException.class, () -> eval("(deref f)", new Budget()));
+			assertThrows(LispRuntimeException.class, () -> eval("(deref a)", new Budget()));
+		});
+	}
+}
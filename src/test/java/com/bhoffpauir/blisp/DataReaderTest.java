@@ -0,0 +1,57 @@
+package com.bhoffpauir.blisp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.StringReader;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.bhoffpauir.blisp.lib.DataReader;
+import com.bhoffpauir.blisp.lib.Parser;
+import com.bhoffpauir.blisp.lib.Tokenizer;
+import com.bhoffpauir.blisp.lib.exception.LispRuntimeException;
+import com.bhoffpauir.blisp.lib.exception.UnbalancedParenthesisException;
+
+/**
+ * Unit test for the data reader.
+ */
+public class DataReaderTest {
+	@Test
+	public void testSameAsParser() {
+		String source = """
+			; a comment
+			(point 1 -2 2.5 1e3 1/2 -3/6 123456789012345678901234 "a b" \\x \\0x41)
+			'sym `(a ,b ,@c) true FALSE nil (() (nested (list)))
+			""";
+		List<Object> expected = new Parser(new Tokenizer(source).tokenize()).parseAll();
+		assertEquals(expected.toString(), DataReader.readAll(source).toString());
+	}
+
+	@Test
+	public void testIncremental() {
+		DataReader reader = new DataReader(new StringReader("(a 1)\n(b 2)\n\n(c\n 3)"));
+		assertEquals("(A, 1)", reader.read().toString());
+		assertEquals("(B, 2)", reader.read().toString());
+		assertEquals("(C, 3)", reader.read().toString());
+		assertEquals(5, reader.getLine());
+		assertNull(reader.read());
+	}
+
+	@Test
+	public void testDeepNesting() {
+		int depth = 100_000;
+		String source = "(".repeat(depth) + ")".repeat(depth);
+		assertEquals(1, DataReader.readAll(source).size());
+	}
+
+	@Test
+	public void testErrors() {
+		assertThrows(LispRuntimeException.class, () -> DataReader.readAll("(1 2"));
+		assertThrows(UnbalancedParenthesisException.class, () -> DataReader.readAll(")"));
+		assertThrows(UnbalancedParenthesisException.class, () -> DataReader.readAll("(')"));
+		assertThrows(LispRuntimeException.class, () -> DataReader.readAll("\"abc"));
+	}
+}
@@ -0,0 +1,82 @@
+package com.bhoffpauir.blisp;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.bhoffpauir.blisp.lib.Environment;
+import com.bhoffpauir.blisp.lib.EnvironmentImage;
+import com.bhoffpauir.blisp.lib.Evaluator;
+import com.bhoffpauir.blisp.lib.Lambda;
+import com.bhoffpauir.blisp.lib.Parser;
+import com.bhoffpauir.blisp.lib.Tokenizer;
+import com.bhoffpauir.blisp.lib.atom.NumberAtom;
+
+/**
+ * Unit test for saving and restoring {@link EnvironmentImage}s.
+ */
+public class EnvironmentImageTest {
+	@TempDir
+	Path dir;
+
+	private static Object eval(Environment env, String source) {
+		Evaluator evaluator = new Evaluator(env);
+		Object result = null;
+		for (var form : new Parser(new Tokenizer(source).tokenize()).parseAll()) {
+			result = evaluator.evaluateTopLevel(form, env);
+		}
+		return result;
+	}
+
+	private static double evalNumber(Environment env, String source) {
+		return ((NumberAtom) eval(env, source)).getValue().doubleValue();
+	}
+
+	@Test
+	public void testSaveAndRestore() throws IOException {
+		Environment env = Environment.createGlobalEnv();
+		eval(env, "(define data (list 1 2/3 \"three\" 'four))");
+		eval(env, "(define (fact n) (if (= n 0) 1 (* n (fact (- n 1)))))");
+		eval(env, "(define make-adder (lambda (n) (lambda (x) (+ x n))))");
+		eval(env, "(define add5 (make-adder 5))");
+		eval(env, "(define plus +)");
+		eval(env, "(defmacro unless (test body) `(if ,test nil ,body))");
+		Path image = dir.resolve("prelude.img");
+		EnvironmentImage.save(env, image);
+
+		Environment restored = EnvironmentImage.restore(image);
+		assertEquals(eval(env, "data"), eval(restored, "data"));
+		assertEquals(120.0, evalNumber(restored, "(fact 5)"));
+		assertEquals(12.0, evalNumber(restored, "(add5 7)"));
+		assertEquals(3.0, evalNumber(restored, "(plus 1 2)"));
+		assertEquals(1.0, evalNumber(restored, "(unless false 1)"));
+		// Names show up in profiles and error messages
+		assertEquals("fact", ((Lambda) eval(restored, "fact")).getName());
+	}
+
+	@Test
+	public void testUnsavableBinding() throws IOException {
+		Environment env = Environment.createGlobalEnv();
+		eval(env, "(define n 1)");
+		Path image = dir.resolve("prelude.img");
+		EnvironmentImage.save(env, image);
+		byte[] saved = Files.readAllBytes(image);
+
+		eval(env, "(define r (ref 1))");
+		assertThrows(NotSerializableException.class, () -> EnvironmentImage.save(env, image));
+		// The previous image is left as it was, without temporary files next to it
+		assertArrayEquals(saved, Files.readAllBytes(image));
+		try (var files = Files.list(dir)) {
+			assertEquals(1, files.count());
+		}
+		assertEquals(1.0, evalNumber(EnvironmentImage.restore(image), "n"));
+	}
+}
@@ -0,0 +1,79 @@
+package com.bhoffpauir.blisp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.time.Duration;
+
+import java.util.concurrent.ExecutionException;
+
+import org.junit.jupiter.api.Test;
+
+import com.bhoffpauir.blisp.lib.Environment;
+import com.bhoffpauir.blisp.lib.EvaluationService;
+import com.bhoffpauir.blisp.lib.Evaluator;
+import com.bhoffpauir.blisp.lib.Futures;
+import com.bhoffpauir.blisp.lib.Parser;
+import com.bhoffpauir.blisp.lib.Tokenizer;
+import com.bhoffpauir.blisp.lib.atom.FutureAtom;
+import com.bhoffpauir.blisp.lib.atom.NumberAtom;
+import com.bhoffpauir.blisp.lib.exception.LispRuntimeException;
+
+/**
+ * Unit test for the isolation of {@link EvaluationService} requests.
+ */
+public class EvaluationServiceTest {
+	private Object submit(EvaluationService service, String source) throws Exception {
+		return service.submit(source, null).get();
+	}
+
+	private double submitNumber(EvaluationService service, String source) throws Exception {
+		return ((NumberAtom) submit(service, source)).getValue().doubleValue();
+	}
+
+	private void assertFails(EvaluationService service, String source) {
+		var ex = assertThrows(ExecutionException.class, () -> submit(service, source));
+		assertInstanceOf(LispRuntimeException.class, ex.getCause());
+	}
+
+	@Test
+	public void testSetCannotChangeGlobals() throws Exception {
+		// A prelude, evaluated in the global environment before the service starts
+		Environment globalEnv = Environment.createGlobalEnv();
+		Evaluator evaluator = new Evaluator(globalEnv);
+		for (var form : new Parser(new Tokenizer("(define limit 10) (define bump (lambda () (set! limit (+ limit 1))))").tokenize()).parseAll()) {
+			evaluator.evaluate(form, globalEnv);
+		}
+		try (EvaluationService service = new EvaluationService(globalEnv, 4)) {
+			assertFails(service, "(set! + -)");
+			assertFails(service, "(set! limit 999999)");
+			assertFails(service, "(bump)");
+			assertEquals(8.0, submitNumber(service, "(+ 5 3)"));
+			assertEquals(10.0, submitNumber(service, "limit"));
+		}
+	}
+
+	@Test
+	public void testSetWithinRequest() throws Exception {
+		try (EvaluationService service = new EvaluationService(Environment.createGlobalEnv(), 4)) {
+			// Bindings of the request itself can be changed, and aren't seen by the next request
+			assertEquals(3.0, submitNumber(service, "(define n 1) (set! n 3) n"));
+			assertEquals(4.0, submitNumber(service, "(define + -) (set! + *) (+ 2 2)"));
+			assertEquals(4.0, submitNumber(service, "(+ 2 2)"));
+			assertFails(service, "n");
+		}
+	}
+
+	@Test
+	public void testFuturesEndWithRequest() throws Exception {
+		try (EvaluationService service = new EvaluationService(Environment.createGlobalEnv(), 4)) {
+			// A future left running by a request doesn't outlive it
+			FutureAtom future = (FutureAtom) submit(service, "(future (while true))");
+			assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+				assertThrows(LispRuntimeException.class, () -> Futures.await(future, -1));
+			});
+		}
+	}
+}
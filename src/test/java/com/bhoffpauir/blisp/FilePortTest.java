@@ -0,0 +1,118 @@
+package com.bhoffpauir.blisp;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.bhoffpauir.blisp.lib.Environment;
+import com.bhoffpauir.blisp.lib.Evaluator;
+import com.bhoffpauir.blisp.lib.FilePort;
+import com.bhoffpauir.blisp.lib.Parser;
+import com.bhoffpauir.blisp.lib.Tokenizer;
+import com.bhoffpauir.blisp.lib.atom.ListAtom;
+import com.bhoffpauir.blisp.lib.exception.LispRuntimeException;
+
+/**
+ * Unit test for file ports.
+ */
+public class FilePortTest {
+	@TempDir
+	Path dir;
+
+	private static Object eval(Environment env, String source) {
+		return new Evaluator(env).evaluate(new Parser(new Tokenizer(source).tokenize()).parseAll().get(0), env);
+	}
+
+	@Test
+	public void testLines() {
+		Path file = dir.resolve("small.txt");
+		try (FilePort out = FilePort.openOutput(file, false)) {
+			out.write("one\r\ntwo\n\nthree");
+		}
+		try (FilePort in = FilePort.openInput(file)) {
+			assertFalse(in.isMapped());
+			assertEquals("one", in.readLine());
+			assertEquals("two", in.readLine());
+			assertEquals("", in.readLine());
+			assertEquals("three", in.readLine());
+			assertNull(in.readLine());
+		}
+	}
+
+	@Test
+	public void testMappedLines() {
+		// Lines longer than the write buffer, in a file large enough to be mapped
+		Path file = dir.resolve("large.txt");
+		String line = "x".repeat(100_000);
+		int count = (int) (FilePort.MAP_THRESHOLD / line.length()) + 2;
+		try (FilePort out = FilePort.openOutput(file, false)) {
+			for (int i = 0; i < count; i++) {
+				out.write(line + i + "\n");
+			}
+		}
+		try (FilePort in = FilePort.openInput(file)) {
+			assertTrue(in.isMapped());
+			var lines = in.lines();
+			for (int i = 0; i < count; i++) {
+				assertEquals(line + i, lines.next());
+			}
+			assertFalse(lines.hasNext());
+		}
+	}
+
+	@Test
+	public void testBytes() {
+		Path file = dir.resolve("bytes.txt");
+		try (FilePort out = FilePort.openOutput(file, false)) {
+			out.write("é");
+		}
+		try (FilePort out = FilePort.openOutput(file, true)) {
+			out.write("!");
+		}
+		try (FilePort in = FilePort.openInput(file)) {
+			assertArrayEquals(new byte[] { (byte) 0xc3, (byte) 0xa9 }, in.readBytes(2));
+			assertArrayEquals(new byte[] { '!' }, in.readBytes(10));
+			assertNull(in.readBytes(1));
+		}
+	}
+
+	@Test
+	public void testLargeByteCounts() throws IOException {
+		// Counts beyond the file read what is there, without allocating the count up front
+		Path file = dir.resolve("small.bin");
+		Files.write(file, new byte[] { 1, 2, 3, 4, 5, 6 });
+		try (FilePort in = FilePort.openInput(file)) {
+			assertArrayEquals(new byte[] { 1, 2, 3, 4, 5, 6 }, in.readBytes(Integer.MAX_VALUE));
+		}
+		// A file larger than the read buffer, in one read
+		byte[] data = new byte[300_000];
+		new Random(42).nextBytes(data);
+		Files.write(dir.resolve("large.bin"), data);
+		try (FilePort in = FilePort.openInput(dir.resolve("large.bin"))) {
+			assertArrayEquals(Arrays.copyOf(data, 200_000), in.readBytes(200_000));
+			assertArrayEquals(Arrays.copyOfRange(data, 200_000, data.length), in.readBytes(1_000_000_000));
+		}
+
+		// Counts that don't fit an int are rejected rather than narrowed
+		Environment env = Environment.createGlobalEnv();
+		eval(env, "(define p (open-input-file \"" + file.toString().replace('\\', '/') + "\"))");
+		for (String count : List.of("4294967298", "3000000000", "-1", "100000000000000000000000", "1.5")) {
+			var ex = assertThrows(LispRuntimeException.class, () -> eval(env, "(read-bytes p " + count + ")"));
+			assertTrue(ex.getMessage().startsWith("Invalid byte count"), ex.getMessage());
+		}
+		assertEquals(6, ((ListAtom) eval(env, "(read-bytes p 1000000000)")).getValue().size());
+	}
+}
@@ -0,0 +1,135 @@
+package com.bhoffpauir.blisp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import com.bhoffpauir.blisp.lib.Environment;
+import com.bhoffpauir.blisp.lib.Evaluator;
+import com.bhoffpauir.blisp.lib.Futures;
+import com.bhoffpauir.blisp.lib.Parser;
+import com.bhoffpauir.blisp.lib.Tokenizer;
+import com.bhoffpauir.blisp.lib.atom.FutureAtom;
+import com.bhoffpauir.blisp.lib.atom.NumberAtom;
+import com.bhoffpauir.blisp.lib.atom.SymbolAtom;
+import com.bhoffpauir.blisp.lib.exception.LispRuntimeException;
+import com.bhoffpauir.blisp.lib.exception.UnboundSymbolException;
+
+/**
+ * Unit test for the {@code let}, {@code loop}, {@code dotimes}, {@code while} and {@code set!}
+ * special forms.
+ */
+public class LoopTest {
+	private final Environment env = Environment.createGlobalEnv();
+
+	private Object eval(String source) {
+		Evaluator evaluator = new Evaluator(env);
+		Object result = null;
+		for (var form : new Parser(new Tokenizer(source).tokenize()).parseAll()) {
+			result = evaluator.evaluate(form, env);
+		}
+		return result;
+	}
+
+	private double evalNumber(String source) {
+		return ((NumberAtom) eval(source)).getValue().doubleValue();
+	}
+
+	private void assertNotTail(String source) {
+		var ex = assertThrows(LispRuntimeException.class, () -> eval(source));
+		assertEquals("recur is not in tail position", ex.getMessage());
+	}
+
+	@Test
+	public void testTailRecur() {
+		// Far more iterations than the Java stack could take as calls
+		assertEquals(5_000_050_000.0, evalNumber("(loop ((i 0) (acc 0)) (if (> i 100000) acc (recur (+ i 1) (+ acc i))))"));
+		assertEquals(3.0, evalNumber("(loop ((i 0)) (begin (define j (+ i 1)) (if (< i 3) (recur j) i)))"));
+		assertEquals(6.0, evalNumber("(loop ((i 0) (j i)) (if (< i 3) (recur (+ i 1) (+ j i)) (+ i j)))"));
+		// Nested loops each have their own recur
+		assertEquals(9.0, evalNumber("(loop ((i 0) (n 0)) (if (< i 3) (recur (+ i 1) (loop ((j 0) (m n)) (if (< j 3) (recur (+ j 1) (+ m 1)) m))) n))"));
+		assertThrows(LispRuntimeException.class, () -> eval("(loop ((i 0)) (recur 1 2))"));
+	}
+
+	@Test
+	public void testNonTailRecur() {
+		assertNotTail("(loop ((i 0)) (begin (if (< i 3) (recur (+ i 1)) i) 42))");
+		assertNotTail("(loop ((i 0)) (if (< i 3) (recur (+ i 1)) i) 42)");
+		assertNotTail("(loop ((i 0)) (if (< i 3) (list (recur (+ i 1))) i))");
+		assertNotTail("(loop ((i 0)) (define x (recur 1)))");
+		assertNotTail("(define y 0) (loop ((i 0)) (set! y (recur 1)))");
+		assertNotTail("(loop ((i 0)) (let ((r recur)) r))");
+		assertNotTail("(loop ((i 0)) (recur (recur 1)))");
+		assertNotTail("(loop ((i 0)) (if (recur 1) 1 2))");
+		assertNotTail("(loop ((i 0)) (dotimes (k 2) (recur 1)))");
+		assertNotTail("(loop ((i 0)) `(a ,(recur 1)))");
+		assertNotTail("(loop ((i 0)) recur)");
+		// Not from another thread either, which would race with the loop
+		FutureAtom future = (FutureAtom) eval("(loop ((i 0)) (future (recur 1)))");
+		var ex = assertThrows(LispRuntimeException.class, () -> Futures.await(future, -1));
+		assertEquals("recur is not in tail position", ex.getMessage());
+	}
+
+	@Test
+	public void testClosuresKeepTheirIteration() throws Exception {
+		// Lambda bodies must be lists, hence (begin i)
+		eval("(define fs (loop ((i 0) (fs (list))) (if (< i 3) (recur (+ i 1) `(,(lambda () (begin i)) ,@fs)) fs)))");
+		assertEquals(2.0, evalNumber("((first fs))"));
+		assertEquals(0.0, evalNumber("((nth fs 2))"));
+		eval("(define gs (list)) (dotimes (k 3) (set! gs `(,(lambda () (begin k)) ,@gs)))");
+		assertEquals(2.0, evalNumber("((first gs))"));
+		assertEquals(0.0, evalNumber("((nth gs 2))"));
+		// Closures made inside a let of the body capture the iteration too
+		eval("(define hs (list)) (dotimes (k 3) (let ((twice (* 2 k))) (set! hs `(,(lambda () (+ k twice)) ,@hs))))");
+		assertEquals(0.0, evalNumber("((nth hs 2))"));
+		// A future started in the first iteration doesn't race with the later ones
+		eval("(define f nil) (dotimes (k 1000) (if (= k 0) (set! f (future (sleep 50) k)) nil))");
+		assertEquals(0.0, ((NumberAtom) Futures.await((FutureAtom) eval("f"), -1)).getValue().doubleValue());
+		eval("(define g (loop ((i 0) (g nil)) (if (< i 1000) (recur (+ i 1) (if (= i 0) (future (sleep 50) i) g)) g)))");
+		assertEquals(0.0, ((NumberAtom) Futures.await((FutureAtom) eval("g"), -1)).getValue().doubleValue());
+	}
+
+	@Test
+	public void testLet() {
+		// Each value can refer to the names before it, and the names are gone afterwards
+		assertEquals(6.0, evalNumber("(let ((a 1) (b (+ a 1)) (c (+ a b))) (+ a b c))"));
+		assertEquals(2.0, evalNumber("(define a 10) (let ((a 1)) (define b 2) (+ a 1))"));
+		assertEquals(10.0, evalNumber("a"));
+		assertThrows(LispRuntimeException.class, () -> eval("b"));
+		assertEquals(SymbolAtom.nil, eval("(let ())"));
+		assertThrows(LispRuntimeException.class, () -> eval("(let (a 1) a)"));
+	}
+
+	@Test
+	public void testDotimes() {
+		assertEquals(45.0, evalNumber("(define sum 0) (dotimes (i 10) (set! sum (+ sum i))) sum"));
+		// The body doesn't run for a zero or negative count
+		assertEquals(SymbolAtom.nil, eval("(define runs 0) (dotimes (i 0) (set! runs (+ runs 1)))"));
+		eval("(dotimes (i -5) (set! runs (+ runs 1)))");
+		assertEquals(0.0, evalNumber("runs"));
+		assertThrows(LispRuntimeException.class, () -> eval("i"));
+		assertThrows(LispRuntimeException.class, () -> eval("(dotimes (i \"3\") 1)"));
+		assertThrows(LispRuntimeException.class, () -> eval("(dotimes i 1)"));
+	}
+
+	@Test
+	public void testWhile() {
+		assertEquals(1024.0, evalNumber("(define n 1) (while (< n 1000) (set! n (* n 2))) n"));
+		assertEquals(SymbolAtom.nil, eval("(while false (set! n 0))"));
+		assertEquals(1024.0, evalNumber("n"));
+		assertThrows(LispRuntimeException.class, () -> eval("(while 1 nil)"));
+	}
+
+	@Test
+	public void testSet() {
+		// set! changes the nearest binding, and only existing ones
+		assertEquals(3.0, evalNumber("(define x 1) (let ((x 2)) (set! x 3)) (+ x 2)"));
+		assertEquals(5.0, evalNumber("(let ((y 2)) (set! x 5)) x"));
+		assertThrows(UnboundSymbolException.class, () -> eval("(set! undefined-name 1)"));
+		assertThrows(LispRuntimeException.class, () -> eval("undefined-name"));
+		assertThrows(LispRuntimeException.class, () -> eval("(set! x)"));
+		// Loop variables can be changed within an iteration
+		assertEquals(10.0, evalNumber("(loop ((i 0)) (set! i (+ i 5)) (if (< i 10) (recur i) i))"));
+	}
+}
@@ -0,0 +1,65 @@
+package com.bhoffpauir.blisp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import com.bhoffpauir.blisp.lib.Environment;
+import com.bhoffpauir.blisp.lib.Evaluator;
+import com.bhoffpauir.blisp.lib.Parser;
+import com.bhoffpauir.blisp.lib.Tokenizer;
+import com.bhoffpauir.blisp.lib.atom.NumberAtom;
+import com.bhoffpauir.blisp.lib.exception.LispRuntimeException;
+
+/**
+ * Unit test for {@code defmacro} and quasiquote.
+ */
+public class MacroTest {
+	private final Environment env = Environment.createGlobalEnv();
+	
+	private Object eval(String source) {
+		Evaluator evaluator = new Evaluator(env);
+		Object result = null;
+		for (var form : new Parser(new Tokenizer(source).tokenize()).parseAll()) {
+			result = evaluator.evaluate(form, env);
+		}
+		return result;
+	}
+	
+	private double evalNumber(String source) {
+		return ((NumberAtom) eval(source)).getValue().doubleValue();
+	}
+	
+	@Test
+	public void testQuasiquote() {
+		eval("(define x 2)");
+		assertEquals(eval("(quote (1 2 3 4))"), eval("`(1 ,x ,@(list 3 4))"));
+		assertEquals(eval("'(a (quasiquote (b (unquote (c 2)))))"), eval("`(a `(b ,(c ,x)))"));
+		assertThrows(LispRuntimeException.class, () -> eval("(unquote x)"));
+	}
+	
+	@Test
+	public void testMacros() {
+		eval("(defmacro unless (c &rest body) `(if ,c nil (begin ,@body)))");
+		eval("(defmacro swap-args (f a b) `(,f ,b ,a))");
+		assertEquals(7.0, evalNumber("(unless (= 1 2) 6 7)"));
+		assertEquals(9.0, evalNumber("(swap-args - 1 10)"));
+		assertEquals(eval("'(if c nil (begin (a)))"), eval("(macroexpand '(unless c (a)))"));
+		assertThrows(LispRuntimeException.class, () -> eval("(swap-args - 1)"));
+	}
+	
+	@Test
+	public void testCallSitesExpandOnce() {
+		// The expander counts its runs, the loop evaluates the call site 20 times
+		eval("(define expansions (atom 0))");
+		eval("(defmacro twice (x) (begin (swap! expansions + 1) `(* 2 ,x)))");
+		eval("(define f (lambda (n acc) (if (= n 0) acc (recur (- n 1) (twice acc)))))");
+		assertEquals(1048576.0, evalNumber("(f 20 1)"));
+		assertEquals(1.0, evalNumber("(deref expansions)"));
+		// Redefining the macro invalidates the cached expansion
+		eval("(defmacro twice (x) (begin (swap! expansions + 1) `(+ ,x ,x)))");
+		assertEquals(1048576.0, evalNumber("(f 20 1)"));
+		assertEquals(2.0, evalNumber("(deref expansions)"));
+	}
+}
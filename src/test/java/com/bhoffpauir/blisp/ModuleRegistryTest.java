@@ -0,0 +1,115 @@
+package com.bhoffpauir.blisp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.bhoffpauir.blisp.lib.Environment;
+import com.bhoffpauir.blisp.lib.Evaluator;
+import com.bhoffpauir.blisp.lib.OutputPort;
+import com.bhoffpauir.blisp.lib.Parser;
+import com.bhoffpauir.blisp.lib.Tokenizer;
+import com.bhoffpauir.blisp.lib.atom.ListAtom;
+import com.bhoffpauir.blisp.lib.atom.NumberAtom;
+import com.bhoffpauir.blisp.lib.exception.LispRuntimeException;
+
+/**
+ * Unit test for {@code require} and the module registry.
+ */
+public class ModuleRegistryTest {
+	@TempDir
+	Path dir;
+
+	private final Environment env = Environment.createGlobalEnv();
+
+	private Object eval(String source) {
+		Evaluator evaluator = new Evaluator(env);
+		Object result = null;
+		for (var form : new Parser(new Tokenizer(source).tokenize()).parseAll()) {
+			result = evaluator.evaluate(form, env);
+		}
+		return result;
+	}
+
+	private void write(String name, String source) throws IOException {
+		Files.writeString(dir.resolve(name), source);
+	}
+
+	@Test
+	public void testDependencies() throws IOException {
+		env.getModuleRegistry().setBaseDirectory(dir);
+		write("a.blisp", "(require \"b.blisp\") (require \"c.blisp\") (define a (+ b c))");
+		write("b.blisp", "(require \"c.blisp\") (define b (+ c 1))");
+		write("c.blisp", "(define c 1)");
+		eval("(require \"a.blisp\")");
+		assertEquals(3.0, ((NumberAtom) eval("a")).getValue().doubleValue());
+		assertEquals(3, env.getModuleRegistry().getModules().size());
+		// Form counts are exact integers, e.g. (path 3 ...) rather than (path 3.0 ...)
+		List<String> formCounts = new ArrayList<>();
+		for (var stats : ((ListAtom) eval("(module-stats)")).getValue()) {
+			formCounts.add(((ListAtom) stats).getValue().get(1).toString());
+		}
+		Collections.sort(formCounts);
+		assertEquals(List.of("1", "2", "3"), formCounts);
+	}
+
+	@Test
+	public void testCircularRequire() throws IOException {
+		env.getModuleRegistry().setBaseDirectory(dir);
+		write("a.blisp", "(require \"b.blisp\")");
+		write("b.blisp", "(require \"a.blisp\")");
+		var ex = assertThrows(LispRuntimeException.class, () -> eval("(require \"a.blisp\")"));
+		assertTrue(ex.getMessage().contains("Circular require"), ex.getMessage());
+	}
+
+	@Test
+	public void testCircularRequireOfSiblings() throws IOException {
+		// b and c start loading in parallel, each from its own chain of requires
+		env.getModuleRegistry().setBaseDirectory(dir);
+		write("a.blisp", "(require \"b.blisp\") (require \"c.blisp\")");
+		write("b.blisp", "(require \"c.blisp\") (define b 1)");
+		write("c.blisp", "(require \"b.blisp\") (define c 1)");
+		assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+			var ex = assertThrows(LispRuntimeException.class, () -> eval("(require \"a.blisp\")"));
+			assertTrue(ex.getMessage().contains("Circular require"), ex.getMessage());
+		});
+		// The failed modules were dropped, fixed files can be required again
+		write("c.blisp", "(define c 2)");
+		eval("(require \"a.blisp\") (require \"c.blisp\")");
+		assertEquals(2.0, ((NumberAtom) eval("c")).getValue().doubleValue());
+	}
+
+	@Test
+	public void testRequireOrder() throws IOException {
+		env.getModuleRegistry().setBaseDirectory(dir);
+		write("a.blisp", "(require \"b.blisp\") (sleep 200) (println \"a: start\") (require \"c.blisp\") (println \"a: end\")");
+		write("b.blisp", "(println \"b: loading\")");
+		write("c.blisp", "(println \"c: loading\")");
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		OutputPort.callWith(new PrintStream(bytes, true), () -> eval("(require \"a.blisp\")"));
+		// Only the opening require is loaded ahead, c waits for the forms before it
+		assertEquals(List.of("b: loading", "a: start", "c: loading", "a: end"), bytes.toString().lines().toList());
+
+		// A module that fails before a later require doesn't load it
+		write("d.blisp", "(require \"b.blisp\") (undefined-procedure) (require \"e.blisp\")");
+		write("e.blisp", "(println \"e: loading\")");
+		ByteArrayOutputStream more = new ByteArrayOutputStream();
+		assertThrows(LispRuntimeException.class,
+			() -> OutputPort.callWith(new PrintStream(more, true), () -> eval("(require \"d.blisp\")")));
+		assertEquals("", more.toString());
+	}
+}
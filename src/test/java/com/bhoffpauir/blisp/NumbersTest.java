@@ -0,0 +1,42 @@
+package com.bhoffpauir.blisp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.bhoffpauir.blisp.lib.Numbers;
+import com.bhoffpauir.blisp.lib.atom.Ratio;
+import com.bhoffpauir.blisp.lib.exception.LispRuntimeException;
+
+/**
+ * Unit test for the numeric tower.
+ */
+public class NumbersTest {
+	@Test
+	public void testFixnumOverflow() {
+		assertEquals(3L, Numbers.add(1L, 2));
+		assertEquals(BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.ONE), Numbers.add(Long.MAX_VALUE, 1L));
+		assertEquals(BigInteger.valueOf(Long.MIN_VALUE).subtract(BigInteger.ONE), Numbers.subtract(Long.MIN_VALUE, 1L));
+		assertEquals(BigInteger.valueOf(Long.MAX_VALUE).pow(2), Numbers.multiply(Long.MAX_VALUE, Long.MAX_VALUE));
+		assertEquals(Long.MIN_VALUE, Numbers.multiply(Long.MIN_VALUE, 1L));
+		// Results that fit again are demoted to fixnums
+		assertEquals(Long.MAX_VALUE, Numbers.subtract(Numbers.add(Long.MAX_VALUE, 1L), 1L));
+	}
+
+	@Test
+	public void testRatios() {
+		Number third = Numbers.divide(1L, 3L);
+		assertInstanceOf(Ratio.class, third);
+		assertEquals("1/3", third.toString());
+		assertEquals(1L, Numbers.add(third, Numbers.divide(2L, 3L)));
+		assertEquals(2L, Numbers.divide(6L, 3L));
+		assertEquals("-1/2", Numbers.divide(2L, -4L).toString());
+		assertEquals(0.5 / 3, Numbers.multiply(third, 0.5).doubleValue(), 1e-15);
+		assertEquals(-1, Numbers.compare(third, 0.34));
+		assertThrows(LispRuntimeException.class, () -> Numbers.divide(third, 0L));
+	}
+}
@@ -0,0 +1,48 @@
+package com.bhoffpauir.blisp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import com.bhoffpauir.blisp.lib.ReadAhead;
+import com.bhoffpauir.blisp.lib.exception.LispRuntimeException;
+
+/**
+ * Unit test for {@link ReadAhead}.
+ */
+public class ReadAheadTest {
+	private static Iterator<?> numbers(int count) {
+		return IntStream.range(0, count).boxed().iterator();
+	}
+
+	@Test
+	public void testOrder() {
+		Iterator<Object> it = new ReadAhead(numbers(1000), x -> ((Integer) x % 2 == 0) ? x : null, null);
+		int expected = 0;
+		while (it.hasNext()) {
+			assertEquals(expected, it.next());
+			expected += 2;
+		}
+		assertEquals(1000, expected);
+	}
+
+	@Test
+	public void testErrors() {
+		assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+			Iterator<Object> failing = new ReadAhead(List.of(1).iterator(), x -> { throw new LispRuntimeException("bad"); }, null);
+			assertEquals("bad", assertThrows(LispRuntimeException.class, failing::hasNext).getMessage());
+			// Errors, which the producing thread would otherwise die of, reach the consumer too
+			Iterator<Object> overflowing = new ReadAhead(numbers(10), x -> { throw new StackOverflowError(); }, null);
+			var ex = assertThrows(LispRuntimeException.class, overflowing::hasNext);
+			assertInstanceOf(StackOverflowError.class, ex.getCause());
+		});
+	}
+}
@@ -0,0 +1,114 @@
+package com.bhoffpauir.blisp;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.bhoffpauir.blisp.lib.AtomInputStream;
+import com.bhoffpauir.blisp.lib.AtomOutputStream;
+import com.bhoffpauir.blisp.lib.Parser;
+import com.bhoffpauir.blisp.lib.ScriptCache;
+import com.bhoffpauir.blisp.lib.Tokenizer;
+import com.bhoffpauir.blisp.lib.Version;
+import com.bhoffpauir.blisp.lib.atom.SymbolAtom;
+
+/**
+ * Unit test for the {@link ScriptCache}.
+ */
+public class ScriptCacheTest {
+	@TempDir
+	Path dir;
+
+	private static final String SOURCE = "(define x 1/3) 'y (+ x 2)";
+
+	private static List<Object> parse(String source) {
+		return new Parser(new Tokenizer(source).tokenize()).parseAll();
+	}
+
+	private Path entry() throws IOException {
+		try (var files = Files.list(dir.resolve("cache"))) {
+			List<Path> entries = files.toList();
+			assertEquals(1, entries.size());
+			return entries.get(0);
+		}
+	}
+
+	// Replace the forms of an entry, keeping its header
+	private static void plant(Path entry, String implementation, Object form) throws IOException {
+		int magic, version;
+		try (AtomInputStream in = new AtomInputStream(new ByteArrayInputStream(Files.readAllBytes(entry)))) {
+			magic = in.readInt();
+			version = in.readInt();
+			in.readString();
+		}
+		AtomOutputStream.writeFile(entry, (out) -> {
+			out.writeInt(magic);
+			out.writeInt(version);
+			out.writeString(implementation);
+			out.writeInt(1);
+			out.writeAtom(form);
+		});
+	}
+
+	@Test
+	public void testHitAndMiss() throws IOException {
+		ScriptCache cache = new ScriptCache(dir.resolve("cache"));
+		Path script = dir.resolve("script.blisp");
+		Files.writeString(script, SOURCE);
+		assertEquals(parse(SOURCE), cache.load(script));
+
+		// A hit reads the forms from the entry
+		Path entry = entry();
+		plant(entry, Version.readerImplementation(), new SymbolAtom("cached"));
+		assertEquals(List.of(new SymbolAtom("cached")), cache.load(script));
+
+		// Changed content misses
+		Files.writeString(script, SOURCE + " 'z");
+		assertEquals(parse(SOURCE + " 'z"), cache.load(script));
+		try (var files = Files.list(dir.resolve("cache"))) {
+			assertEquals(2, files.count());
+		}
+	}
+
+	@Test
+	public void testOtherReaderImplementation() throws IOException {
+		ScriptCache cache = new ScriptCache(dir.resolve("cache"));
+		Path script = dir.resolve("script.blisp");
+		Files.writeString(script, SOURCE);
+		cache.load(script);
+
+		// An entry from another version of the parser is parsed again and replaced
+		Path entry = entry();
+		byte[] written = Files.readAllBytes(entry);
+		plant(entry, Version.CURRENT + "+0000000000000000", new SymbolAtom("stale"));
+		assertEquals(parse(SOURCE), cache.load(script));
+		assertArrayEquals(written, Files.readAllBytes(entry));
+	}
+
+	@Test
+	public void testCorruptEntry() throws IOException {
+		ScriptCache cache = new ScriptCache(dir.resolve("cache"));
+		Path script = dir.resolve("script.blisp");
+		Files.writeString(script, SOURCE);
+		cache.load(script);
+		Path entry = entry();
+		byte[] written = Files.readAllBytes(entry);
+
+		// Truncated and garbage entries are parsed again and rewritten
+		Files.write(entry, Arrays.copyOf(written, written.length - 3));
+		assertEquals(parse(SOURCE), cache.load(script));
+		assertArrayEquals(written, Files.readAllBytes(entry));
+		Files.write(entry, new byte[] { 1, 2, 3 });
+		assertEquals(parse(SOURCE), cache.load(script));
+		assertArrayEquals(written, Files.readAllBytes(entry));
+	}
+}
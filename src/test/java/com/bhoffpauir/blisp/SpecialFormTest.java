@@ -0,0 +1,68 @@
+package com.bhoffpauir.blisp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.bhoffpauir.blisp.lib.Environment;
+import com.bhoffpauir.blisp.lib.Evaluator;
+import com.bhoffpauir.blisp.lib.Parser;
+import com.bhoffpauir.blisp.lib.SpecialForms;
+import com.bhoffpauir.blisp.lib.Tokenizer;
+import com.bhoffpauir.blisp.lib.atom.NumberAtom;
+import com.bhoffpauir.blisp.lib.exception.LispRuntimeException;
+import com.bhoffpauir.blisp.lib.exception.RebindKeywordSymbolException;
+
+/**
+ * Unit test for special forms registered by embedders.
+ */
+public class SpecialFormTest {
+	private final Environment env = Environment.createGlobalEnv();
+	private final Evaluator evaluator = new Evaluator(env);
+
+	// The table is shared by the whole JVM, don't leave the form to later tests
+	@AfterEach
+	public void removeForm() {
+		SpecialForms.remove("twice");
+	}
+
+	private Object eval(String source) {
+		return evaluator.evaluate(new Parser(new Tokenizer(source).tokenize()).parse(), env);
+	}
+
+	@Test
+	public void testDefineSpecialForm() {
+		// The same call site is evaluated before and after the form is defined
+		Object callSite = new Parser(new Tokenizer("(twice (set! n (+ n 1)))").tokenize()).parse();
+		assertThrows(LispRuntimeException.class, () -> evaluator.evaluate(callSite, env));
+
+		// (twice expr) evaluates expr twice without evaluating its own operator
+		assertNull(SpecialForms.define("twice", (evaluator, args, env) -> {
+			evaluator.evaluate(args.get(0), env);
+			return evaluator.evaluate(args.get(0), env);
+		}));
+		env.define("n", new NumberAtom(0.0));
+		assertEquals(2.0, ((NumberAtom) evaluator.evaluate(callSite, env)).getValue().doubleValue());
+		assertEquals(4.0, ((NumberAtom) evaluator.evaluate(callSite, env)).getValue().doubleValue());
+
+		// Removing the form makes the call site an ordinary call again
+		SpecialForms.remove("TWICE");
+		assertNull(SpecialForms.get("twice"));
+		assertThrows(LispRuntimeException.class, () -> evaluator.evaluate(callSite, env));
+	}
+
+	@Test
+	public void testFormNamesCannotBeBound() {
+		// Like the built-in forms, a defined form can't be shadowed by a binding it would hide
+		assertThrows(RebindKeywordSymbolException.class, () -> eval("(define if 1)"));
+		assertThrows(RebindKeywordSymbolException.class, () -> eval("(define quote 1)"));
+		SpecialForms.define("twice", (evaluator, args, env) -> args.get(0));
+		assertThrows(RebindKeywordSymbolException.class, () -> eval("(define twice 1)"));
+		assertThrows(RebindKeywordSymbolException.class, () -> eval("(define (Twice x) (+ x 1))"));
+		SpecialForms.remove("twice");
+		assertEquals(1.0, ((NumberAtom) eval("(define twice 1)")).getValue().doubleValue());
+	}
+}
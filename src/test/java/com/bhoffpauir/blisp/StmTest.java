@@ -0,0 +1,59 @@
+package com.bhoffpauir.blisp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import com.bhoffpauir.blisp.lib.Environment;
+import com.bhoffpauir.blisp.lib.Evaluator;
+import com.bhoffpauir.blisp.lib.Parser;
+import com.bhoffpauir.blisp.lib.Tokenizer;
+import com.bhoffpauir.blisp.lib.atom.NumberAtom;
+import com.bhoffpauir.blisp.lib.exception.LispRuntimeException;
+
+/**
+ * Unit test for the {@code ref}/{@code dosync} and {@code atom}/{@code swap!} primitives.
+ */
+public class StmTest {
+	private final Environment env = Environment.createGlobalEnv();
+	
+	private Object eval(String source) {
+		Evaluator evaluator = new Evaluator(env);
+		Object result = null;
+		for (var form : new Parser(new Tokenizer(source).tokenize()).parseAll()) {
+			result = evaluator.evaluate(form, env);
+		}
+		return result;
+	}
+	
+	private double evalNumber(String source) {
+		return ((NumberAtom) eval(source)).getValue().doubleValue();
+	}
+	
+	@Test
+	public void testConcurrentIncrements() {
+		eval("(define r (ref 0)) (define c (atom 0))");
+		eval("(define work (lambda (n) (if (= n 0) 0 (begin (dosync (alter r + 1)) (swap! c + 1) (recur (- n 1))))))");
+		eval("(map (lambda (f) (deref f)) (map (lambda (i) (future (work 100))) (range 0 16)))");
+		assertEquals(1600.0, evalNumber("(deref r)"));
+		assertEquals(1600.0, evalNumber("(deref c)"));
+	}
+	
+	@Test
+	public void testTransfersKeepTotal() {
+		eval("(define a (ref 1000)) (define b (ref 0))");
+		eval("(define move (lambda (n) (if (= n 0) 0 (begin (dosync (alter a - 1) (alter b + 1)) (recur (- n 1))))))");
+		eval("(define check (lambda (n) (if (= n 0) 0 (begin (if (= (dosync (+ (deref a) (deref b))) 1000) 0 (car)) (recur (- n 1))))))");
+		eval("(map (lambda (f) (deref f)) (map (lambda (i) (future (if (= (mod i 2) 0) (move 100) (check 100)))) (range 0 10)))");
+		assertEquals(500.0, evalNumber("(deref a)"));
+		assertEquals(500.0, evalNumber("(deref b)"));
+	}
+	
+	@Test
+	public void testAlterOutsideTransaction() {
+		eval("(define r (ref 0))");
+		assertThrows(LispRuntimeException.class, () -> eval("(alter r + 1)"));
+		assertEquals(0.0, evalNumber("(deref r)"));
+	}
+}
@@ -0,0 +1,170 @@
+package com.bhoffpauir.blisp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import com.bhoffpauir.blisp.lib.Environment;
+import com.bhoffpauir.blisp.lib.Evaluator;
+import com.bhoffpauir.blisp.lib.Parser;
+import com.bhoffpauir.blisp.lib.Tokenizer;
+import com.bhoffpauir.blisp.lib.atom.ListAtom;
+import com.bhoffpauir.blisp.lib.atom.NumberAtom;
+import com.bhoffpauir.blisp.lib.atom.StringAtom;
+import com.bhoffpauir.blisp.lib.exception.LispRuntimeException;
+
+/**
+ * Unit test for {@link StringAtom} ropes and the string builtins.
+ */
+public class StringAtomTest {
+	private final Environment env = Environment.createGlobalEnv();
+
+	private Object eval(String source) {
+		Evaluator evaluator = new Evaluator(env);
+		Object result = null;
+		for (var form : new Parser(new Tokenizer(source).tokenize()).parseAll()) {
+			result = evaluator.evaluate(form, env);
+		}
+		return result;
+	}
+
+	private String evalString(String source) {
+		return ((StringAtom) eval(source)).getValue();
+	}
+
+	private List<String> evalStrings(String source) {
+		List<String> strings = new ArrayList<>();
+		for (var element : ((ListAtom) eval(source)).getValue()) {
+			strings.add(((StringAtom) element).getValue());
+		}
+		return strings;
+	}
+
+	// A rope as deep as it is long, as built by appending in a loop
+	private static StringAtom appendAll(String pieces) {
+		StringAtom result = new StringAtom();
+		for (int i = 0; i < pieces.length(); i++) {
+			result = result.concat(new StringAtom(pieces.substring(i, i + 1)));
+		}
+		return result;
+	}
+
+	@Test
+	public void testConcat() {
+		String a = "a".repeat(32), b = "b".repeat(32);
+		StringAtom empty = new StringAtom(), left = new StringAtom(a);
+		assertSame(left, left.concat(empty));
+		assertSame(left, empty.concat(left));
+		// Up to the limit the characters are joined right away, past it a rope is made
+		assertEquals(a + b, left.concat(new StringAtom(b)).getValue());
+		StringAtom rope = left.concat(new StringAtom(b + "c"));
+		assertEquals(65, rope.length());
+		assertEquals(a + b + "c", rope.getValue());
+		// Ropes of ropes, and comparisons with flat strings
+		StringAtom joined = rope.concat(rope).concat(new StringAtom("!"));
+		assertEquals(131, joined.length());
+		assertEquals(a + b + "c" + a + b + "c!", joined.getValue());
+		assertEquals(new StringAtom(a + b + "c"), rope);
+		assertEquals(0, rope.compareTo(new StringAtom(a + b + "c")));
+		assertEquals("\"" + a + b + "c\"", rope.toString());
+	}
+
+	@Test
+	public void testDeepRope() throws Exception {
+		String expected = "0123456789".repeat(20_000);
+		// Flattened without recursion
+		assertEquals(expected, appendAll(expected).getValue());
+
+		// An inner node flattened before the rope that holds it
+		StringAtom inner = appendAll(expected);
+		StringAtom outer = inner.concat(appendAll(expected));
+		assertEquals(expected, inner.getValue());
+		assertEquals(expected + expected, outer.getValue());
+
+		// Flattened by several threads at once
+		StringAtom shared = appendAll(expected);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<String>> values = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				values.add(executor.submit(shared::getValue));
+			}
+			for (var value : values) {
+				assertEquals(expected, value.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(expected.length(), shared.length());
+	}
+
+	@Test
+	public void testStr() {
+		assertEquals("", evalString("(str)"));
+		// Strings as they are, anything else as printed
+		assertEquals("n=3 SYM (1, 2)", evalString("(str \"n=\" 3 \" \" 'sym \" \" (list 1 2))"));
+	}
+
+	@Test
+	public void testStringAppend() {
+		assertEquals("", evalString("(string-append)"));
+		assertEquals("ab", evalString("(string-append \"\" \"a\" \"\" \"b\")"));
+		eval("(define s \"\") (dotimes (i 10000) (set! s (string-append s \"xy\")))");
+		assertEquals(20_000.0, ((NumberAtom) eval("(string-length s)")).getValue().doubleValue());
+		assertEquals("xy".repeat(10_000), evalString("s"));
+		assertThrows(LispRuntimeException.class, () -> eval("(string-append \"a\" 1)"));
+	}
+
+	@Test
+	public void testSubstring() {
+		assertEquals("hello", evalString("(substring \"hello\" 0 5)"));
+		assertEquals("llo", evalString("(substring \"hello\" 2)"));
+		assertEquals("", evalString("(substring \"hello\" 5)"));
+		assertEquals("", evalString("(substring \"hello\" 2 2)"));
+		assertEquals("", evalString("(substring \"\" 0 0)"));
+		assertThrows(LispRuntimeException.class, () -> eval("(substring \"hello\" -1 2)"));
+		assertThrows(LispRuntimeException.class, () -> eval("(substring \"hello\" 0 6)"));
+		assertThrows(LispRuntimeException.class, () -> eval("(substring \"hello\" 6)"));
+		assertThrows(LispRuntimeException.class, () -> eval("(substring \"hello\" 3 2)"));
+		assertThrows(LispRuntimeException.class, () -> eval("(substring \"hello\")"));
+		// Of a rope
+		eval("(define r (string-append (substring \"" + "x".repeat(60) + "\" 0) \"0123456789\"))");
+		assertEquals("x0123", evalString("(substring r 59 64)"));
+		assertEquals("9", evalString("(substring r 69)"));
+	}
+
+	@Test
+	public void testStringJoin() {
+		assertEquals("a, b, c", evalString("(string-join (list \"a\" \"b\" \"c\") \", \")"));
+		assertEquals("abc", evalString("(string-join (list \"a\" \"b\" \"c\"))"));
+		assertEquals("a", evalString("(string-join (list \"a\") \",\")"));
+		assertEquals("", evalString("(string-join (list) \",\")"));
+		assertEquals(",", evalString("(string-join (list \"\" \"\") \",\")"));
+		assertThrows(LispRuntimeException.class, () -> eval("(string-join (list \"a\" 1) \",\")"));
+		assertThrows(LispRuntimeException.class, () -> eval("(string-join \"a\")"));
+	}
+
+	@Test
+	public void testSplit() {
+		assertEquals(List.of("a", "b", "c"), evalStrings("(split \"a,b,c\" \",\")"));
+		// Leading, trailing and adjacent separators give empty parts
+		assertEquals(List.of("", "a", "b", ""), evalStrings("(split \",a,b,\" \",\")"));
+		assertEquals(List.of("a", "", "b"), evalStrings("(split \"a,,b\" \",\")"));
+		assertEquals(List.of("", ""), evalStrings("(split \",\" \",\")"));
+		assertEquals(List.of(""), evalStrings("(split \"\" \",\")"));
+		assertEquals(List.of("abc"), evalStrings("(split \"abc\" \"abcd\")"));
+		// Multi-character separators don't overlap
+		assertEquals(List.of("a", "b"), evalStrings("(split \"a::b\" \"::\")"));
+		assertEquals(List.of("", ":"), evalStrings("(split \":::\" \"::\")"));
+		assertThrows(LispRuntimeException.class, () -> eval("(split \"abc\" \"\")"));
+		assertThrows(LispRuntimeException.class, () -> eval("(split \"abc\")"));
+	}
+}
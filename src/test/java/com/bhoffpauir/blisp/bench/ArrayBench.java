@@ -0,0 +1,90 @@
+package com.bhoffpauir.blisp.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.bhoffpauir.blisp.lib.ArrayOps;
+import com.bhoffpauir.blisp.lib.Environment;
+import com.bhoffpauir.blisp.lib.Evaluator;
+import com.bhoffpauir.blisp.lib.Parser;
+import com.bhoffpauir.blisp.lib.Tokenizer;
+import com.bhoffpauir.blisp.lib.atom.NumberAtom;
+
+/**
+ * Benchmark of numeric arrays against lists of numbers.
+ *
+ * <p>Sums and scales a numeric series stored as a list, with {@code reduce} and {@code map},
+ * and stored as an array, with {@code array-sum} and {@code array*}. The dot product kernel is
+ * also compared with the same loop over a list of {@link NumberAtom}s, without the interpreter,
+ * to show the cost of boxing alone. The heap used by each representation is reported too.</p>
+ *
+ * <p>Arguments: {@code [elements]}, defaulting to 100000.</p>
+ */
+public class ArrayBench {
+	public static void main(String[] args) {
+		int n = (args.length > 0) ? Integer.parseInt(args[0]) : 100_000;
+		Environment env = Environment.createGlobalEnv();
+		Evaluator evaluator = new Evaluator(env);
+		eval(evaluator, env, "(define xs (range " + n + "))");
+		eval(evaluator, env, "(define a (list->array xs))");
+		eval(evaluator, env, "(define double-it (lambda (x) (* x 2)))");
+
+		Object listSum = parse("(reduce + 0 xs)");
+		Object arraySum = parse("(array-sum a)");
+		Object listScale = parse("(map double-it xs)");
+		Object arrayScale = parse("(array* a 2)");
+		int runs = Math.max(5, 10_000_000 / n);
+		double listSumTime = Bench.time(runs / 5, runs / 5, () -> evaluator.evaluate(listSum, env));
+		double arraySumTime = Bench.time(runs, runs, () -> evaluator.evaluate(arraySum, env));
+		double listScaleTime = Bench.time(runs / 5, runs / 5, () -> evaluator.evaluate(listScale, env));
+		double arrayScaleTime = Bench.time(runs, runs, () -> evaluator.evaluate(arrayScale, env));
+		Bench.report("sum, list (reduce +)", "%10.2f ns/element", listSumTime / n);
+		Bench.report("sum, array-sum", "%10.2f ns/element  (%.0fx faster)", arraySumTime / n, listSumTime / arraySumTime);
+		Bench.report("scale, list (map)", "%10.2f ns/element", listScaleTime / n);
+		Bench.report("scale, array*", "%10.2f ns/element  (%.0fx faster)", arrayScaleTime / n, listScaleTime / arrayScaleTime);
+
+		// The kernels alone, without the interpreter
+		List<NumberAtom> boxed = new ArrayList<>(n);
+		double[] unboxed = new double[n];
+		for (int i = 0; i < n; i++) {
+			boxed.add(new NumberAtom((double) i));
+			unboxed[i] = i;
+		}
+		double boxedDot = Bench.time(runs, runs, () -> {
+			double sum = 0.0;
+			for (int i = 0; i < boxed.size(); i++) {
+				sum += boxed.get(i).getValue().doubleValue() * boxed.get(i).getValue().doubleValue();
+			}
+			return sum;
+		});
+		double arrayDot = Bench.time(runs, runs, () -> ArrayOps.dot(unboxed, unboxed));
+		Bench.report("dot, List<NumberAtom>", "%10.2f ns/element", boxedDot / n);
+		Bench.report("dot, ArrayOps.dot", "%10.2f ns/element  (%.0fx faster)", arrayDot / n, boxedDot / arrayDot);
+
+		long before = usedHeap();
+		Object list = eval(evaluator, env, "(range " + n + ")");
+		long listBytes = usedHeap() - before;
+		before = usedHeap();
+		Object array = eval(evaluator, env, "(make-array " + n + ")");
+		long arrayBytes = usedHeap() - before;
+		Bench.blackhole(List.of(list, array));
+		Bench.report("heap, list", "%10.1f bytes/element", (double) listBytes / n);
+		Bench.report("heap, array", "%10.1f bytes/element", (double) arrayBytes / n);
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	private static Object eval(Evaluator evaluator, Environment env, String source) {
+		return evaluator.evaluate(parse(source), env);
+	}
+
+	private static Object parse(String source) {
+		return new Parser(new Tokenizer(source).tokenize()).parse();
+	}
+}
@@ -0,0 +1,71 @@
+package com.bhoffpauir.blisp.bench;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * Small helpers shared by the benchmark harnesses in this package.
+ *
+ * <p>The harnesses are plain {@code main} programs rather than unit tests, run with:</p>
+ * <pre>
+ *     mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.bhoffpauir.blisp.bench.&lt;Name&gt;
+ * </pre>
+ */
+final class Bench {
+	private Bench() {
+	}
+
+	/**
+	 * Time {@code body} after running it {@code warmup} times, returning the average time of
+	 * {@code runs} timed runs in nanoseconds.
+	 */
+	static double time(int warmup, int runs, Supplier<?> body) {
+		Object sink = null;
+		for (int i = 0; i < warmup; i++) {
+			sink = body.get();
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < runs; i++) {
+			sink = body.get();
+		}
+		long elapsed = System.nanoTime() - start;
+		blackhole(sink);
+		return (double) elapsed / runs;
+	}
+
+	/**
+	 * Retrieve a percentile of the (unsorted) samples.
+	 *
+	 * @param samples The samples, sorted in place.
+	 * @param percentile The percentile, in [0, 100].
+	 * @return The sample at the percentile.
+	 */
+	static long percentile(long[] samples, double percentile) {
+		Arrays.sort(samples);
+		int index = (int) Math.ceil(percentile / 100.0 * samples.length) - 1;
+		return samples[Math.max(0, Math.min(index, samples.length - 1))];
+	}
+
+	/**
+	 * Print a result row.
+	 */
+	static void report(String name, String format, Object... values) {
+		System.out.printf("%-28s " + format + "%n", prepend(name, values));
+	}
+
+	private static Object[] prepend(Object first, Object[] rest) {
+		Object[] all = new Object[rest.length + 1];
+		all[0] = first;
+		System.arraycopy(rest, 0, all, 1, rest.length);
+		return all;
+	}
+
+	private static volatile Object sink;
+
+	/**
+	 * Keep a result alive so the JIT cannot drop the work that produced it.
+	 */
+	static void blackhole(Object value) {
+		sink = value;
+	}
+}
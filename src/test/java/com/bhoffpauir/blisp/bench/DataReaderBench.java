@@ -0,0 +1,77 @@
+package com.bhoffpauir.blisp.bench;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import com.bhoffpauir.blisp.lib.DataReader;
+import com.bhoffpauir.blisp.lib.Parser;
+import com.bhoffpauir.blisp.lib.Tokenizer;
+
+/**
+ * Benchmark of reading an s-expression dataset with the {@link DataReader} against the
+ * {@link Tokenizer} and {@link Parser}.
+ *
+ * <p>A dataset of records is written to a temporary file and read three ways: into a string that
+ * is tokenized and parsed, as scripts are; with {@link DataReader#readAll()}; and streamed one
+ * datum at a time with {@link DataReader#read()}, keeping nothing. The first two hold the whole
+ * dataset in memory and are skipped above 256 MB; streaming works for any size, e.g. with
+ * {@code 1024} for a 1 GB dataset.</p>
+ *
+ * <p>Arguments: {@code [megabytes]}, defaulting to 64.</p>
+ */
+public class DataReaderBench {
+	public static void main(String[] args) throws IOException {
+		long megabytes = (args.length > 0) ? Long.parseLong(args[0]) : 64;
+		Path file = Files.createTempFile("blisp-data", ".sx");
+		try {
+			try (var out = new PrintWriter(Files.newBufferedWriter(file))) {
+				for (long i = 0; i * 56 < megabytes << 20; i++) {
+					out.printf("(record %d \"name-%d\" %d.25 (tag-%d active) %d/3)%n", i, i, i % 1000, i % 7, i % 100 + 1);
+				}
+			}
+			double size = Files.size(file) / (double) (1 << 20);
+			System.out.printf("dataset of %.0f MB%n", size);
+
+			if (megabytes <= 256) {
+				run("tokenizer + parser", size, () -> {
+					String source = Files.readString(file, StandardCharsets.UTF_8);
+					return new Parser(new Tokenizer(source).tokenize()).parseAll().size();
+				});
+				run("DataReader.readAll", size, () -> {
+					try (var reader = new DataReader(Files.newBufferedReader(file))) {
+						return reader.readAll().size();
+					}
+				});
+			}
+			run("DataReader.read, streamed", size, () -> {
+				try (var reader = new DataReader(Files.newBufferedReader(file))) {
+					long count = 0;
+					while (reader.read() != null) {
+						count++;
+					}
+					return count;
+				}
+			});
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	private interface Read {
+		Object read() throws IOException;
+	}
+
+	private static void run(String name, double megabytes, Read read) throws IOException {
+		read.read(); // Warm up
+		System.gc();
+		long start = System.nanoTime();
+		Object count = read.read();
+		double seconds = (System.nanoTime() - start) / 1e9;
+		Bench.report(name, "%8.2f s  %7.1f MB/s  %s data", seconds, megabytes / seconds, count);
+		Bench.blackhole(List.of(count));
+	}
+}
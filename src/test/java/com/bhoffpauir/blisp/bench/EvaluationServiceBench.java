@@ -0,0 +1,90 @@
+package com.bhoffpauir.blisp.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.bhoffpauir.blisp.lib.Environment;
+import com.bhoffpauir.blisp.lib.EvaluationService;
+import com.bhoffpauir.blisp.lib.Evaluator;
+import com.bhoffpauir.blisp.lib.Parser;
+import com.bhoffpauir.blisp.lib.Tokenizer;
+
+/**
+ * Load test of the {@link EvaluationService}: virtual threads versus a platform thread pool.
+ *
+ * <p>Each request blocks for a while (standing in for an I/O builtin) and then computes, so a
+ * fixed pool of platform threads queues requests behind the blocked ones while virtual threads
+ * keep all of them in flight. Reports the throughput and the p50/p99 latency measured from
+ * submission to completion.</p>
+ *
+ * <p>Arguments: {@code [requests] [blockMillis] [poolSize]}, defaulting to 10000, 20 and 200.</p>
+ */
+public class EvaluationServiceBench {
+	private static final String PRELUDE =
+		"(define fact (lambda (n) (if (<= n 1) 1 (* n (recur (- n 1))))))";
+
+	public static void main(String[] args) throws Exception {
+		int requests = (args.length > 0) ? Integer.parseInt(args[0]) : 10_000;
+		int blockMillis = (args.length > 1) ? Integer.parseInt(args[1]) : 20;
+		int poolSize = (args.length > 2) ? Integer.parseInt(args[2]) : 200;
+		String request = "(sleep " + blockMillis + ") (fact 20)";
+
+		System.out.printf("%d requests, blocking %d ms each, platform pool of %d threads%n", requests, blockMillis, poolSize);
+		for (int round = 0; round < 2; round++) { // The first round warms up the JIT
+			boolean print = (round == 1);
+			try (var service = new EvaluationService(globalEnv(), Executors.newFixedThreadPool(poolSize), Integer.MAX_VALUE)) {
+				run("platform threads", service, request, requests, print);
+			}
+			try (var service = new EvaluationService(globalEnv(), Integer.MAX_VALUE)) {
+				run("virtual threads", service, request, requests, print);
+			}
+			try (var service = new EvaluationService(globalEnv(), poolSize)) {
+				run("virtual threads, limit " + poolSize, service, request, requests, print);
+			}
+		}
+	}
+
+	private static Environment globalEnv() {
+		Environment env = Environment.createGlobalEnv();
+		Evaluator evaluator = new Evaluator(env);
+		for (var form : new Parser(new Tokenizer(PRELUDE).tokenize()).parseAll()) {
+			evaluator.evaluate(form, env);
+		}
+		return env;
+	}
+
+	private static void run(String name, EvaluationService service, String request, int requests, boolean print)
+			throws InterruptedException, ExecutionException {
+		long[] submitted = new long[requests];
+		long[] latencies = new long[requests];
+		List<Future<Object>> futures = new ArrayList<>(requests);
+
+		long start = System.nanoTime();
+		for (int i = 0; i < requests; i++) {
+			final int id = i;
+			submitted[i] = System.nanoTime();
+			futures.add(service.submit((evaluator, env) -> {
+				Object result = null;
+				for (var form : new Parser(new Tokenizer(request).tokenize()).parseAll()) {
+					result = evaluator.evaluate(form, env);
+				}
+				latencies[id] = System.nanoTime() - submitted[id];
+				return result;
+			}, null));
+		}
+		for (var future : futures) {
+			future.get();
+		}
+		long elapsed = System.nanoTime() - start;
+
+		if (print) {
+			double throughput = requests / (elapsed / 1e9);
+			long p50 = Bench.percentile(latencies, 50);
+			long p99 = Bench.percentile(latencies, 99);
+			Bench.report(name, "%10.0f req/s   p50 %8.2f ms   p99 %8.2f ms", throughput, p50 / 1e6, p99 / 1e6);
+		}
+	}
+}
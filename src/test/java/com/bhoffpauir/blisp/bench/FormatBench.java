@@ -0,0 +1,79 @@
+package com.bhoffpauir.blisp.bench;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+
+import com.bhoffpauir.blisp.lib.Environment;
+import com.bhoffpauir.blisp.lib.Evaluator;
+import com.bhoffpauir.blisp.lib.FormatString;
+import com.bhoffpauir.blisp.lib.OutputPort;
+import com.bhoffpauir.blisp.lib.Parser;
+import com.bhoffpauir.blisp.lib.Procedure;
+import com.bhoffpauir.blisp.lib.Tokenizer;
+import com.bhoffpauir.blisp.lib.atom.NumberAtom;
+import com.bhoffpauir.blisp.lib.atom.StringAtom;
+import com.bhoffpauir.blisp.lib.atom.SymbolAtom;
+
+/**
+ * Benchmark of {@code printf} with a cached {@link FormatString} against {@link String#format}.
+ *
+ * <p>{@code printf-format} is defined the way {@code printf} used to be: the format string is
+ * parsed by {@link String#format} on every call, and the result printed. Both print a log line
+ * to a discarding stream from a script loop, and once more without the interpreter. A format of
+ * plain specifiers, which are appended directly, and one with widths and a precision, which go
+ * through a {@link java.util.Formatter} one specifier at a time, are measured.</p>
+ *
+ * <p>Arguments: {@code [lines]}, defaulting to 20000.</p>
+ */
+public class FormatBench {
+	private static final String PLAIN = "%s: request %d took %s ms%n";
+	private static final String PADDED = "[%-8s] request %6d took %8.2f ms%n";
+
+	public static void main(String[] args) {
+		int lines = (args.length > 0) ? Integer.parseInt(args[0]) : 20000;
+		PrintStream sink = new PrintStream(OutputStream.nullOutputStream());
+		Environment env = Environment.createGlobalEnv();
+		env.define("printf-format", (Procedure) (procArgs) -> {
+			Object[] values = new Object[procArgs.size() - 1];
+			for (int i = 0; i < values.length; i++) {
+				values[i] = switch (procArgs.get(i + 1)) {
+					case StringAtom str -> str.getValue();
+					case NumberAtom num -> num.getValue();
+					default -> procArgs.get(i + 1);
+				};
+			}
+			OutputPort.current().print(String.format(((StringAtom) procArgs.get(0)).getValue(), values));
+			return new SymbolAtom("nil");
+		});
+		Evaluator evaluator = new Evaluator(env);
+
+		for (String format : List.of(PLAIN, PADDED)) {
+			String name = (format == PLAIN) ? "plain" : "padded";
+			String loop = "(dotimes (i " + lines + ") (PRINTF \"" + format.replace("%n", "\\n") + "\" \"worker\" i 12.5))";
+			Object uncached = parse(loop.replace("PRINTF", "printf-format"));
+			Object cached = parse(loop.replace("PRINTF", "printf"));
+			double before = OutputPort.callWith(sink, () -> Bench.time(3, 10, () -> evaluator.evaluate(uncached, env)));
+			double after = OutputPort.callWith(sink, () -> Bench.time(3, 10, () -> evaluator.evaluate(cached, env)));
+			Bench.report(name + ", String.format", "%10.1f ns/line", before / lines);
+			Bench.report(name + ", printf", "%10.1f ns/line  (%.2fx)", after / lines, before / after);
+
+			// Formatting alone, without the interpreter
+			List<Object> atoms = List.of(new StringAtom("worker"), NumberAtom.valueOf(42), new NumberAtom(12.5));
+			double jdk = Bench.time(5 * lines, 5 * lines, () -> {
+				sink.print(String.format(format, "worker", 42L, 12.5));
+				return null;
+			});
+			double parsed = Bench.time(5 * lines, 5 * lines, () -> {
+				FormatString.of(format).print(sink, atoms);
+				return null;
+			});
+			Bench.report(name + ", String.format only", "%10.1f ns/line", jdk);
+			Bench.report(name + ", FormatString only", "%10.1f ns/line  (%.2fx)", parsed, jdk / parsed);
+		}
+	}
+
+	private static Object parse(String source) {
+		return new Parser(new Tokenizer(source).tokenize()).parse();
+	}
+}
@@ -0,0 +1,62 @@
+package com.bhoffpauir.blisp.bench;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.bhoffpauir.blisp.lib.Environment;
+import com.bhoffpauir.blisp.lib.Evaluator;
+import com.bhoffpauir.blisp.lib.Parser;
+import com.bhoffpauir.blisp.lib.Tokenizer;
+
+/**
+ * Benchmark of streaming a log file through a {@code filter}/{@code count} pipeline.
+ *
+ * <p>The pipeline is run over {@code read-lines}, which reads each line when it is consumed, and
+ * over {@code line-seq}, which reads ahead on another thread when there is a processor to spare,
+ * and against a hand-written {@code read-line} loop. Run with a small heap (e.g.
+ * {@code -Xmx32m}) and a large line count to check that neither sequence keeps the file in
+ * memory.</p>
+ *
+ * <p>Arguments: {@code [lines]}, defaulting to 1000000.</p>
+ */
+public class LineSeqBench {
+	private static final String DEFINITIONS = """
+		(define (long? l) (> (string-length l) 44))
+		(define (with-loop path)
+		  (with-open ((in (open-input-file path)))
+		    (loop ((line (read-line in)) (n 0))
+		      (if (string? line) (recur (read-line in) (if (long? line) (+ n 1) n)) n))))
+		(define (with-read-lines path)
+		  (with-open ((in (open-input-file path))) (count (filter long? (read-lines in)))))
+		(define (with-line-seq path)
+		  (count (filter long? (line-seq path))))
+		""";
+
+	public static void main(String[] args) throws IOException {
+		int lines = (args.length > 0) ? Integer.parseInt(args[0]) : 1_000_000;
+		Path file = Files.createTempFile("blisp-lines", ".log");
+		try {
+			try (var out = new PrintWriter(Files.newBufferedWriter(file))) {
+				for (int i = 0; i < lines; i++) {
+					out.printf("12:00:%02d INFO worker-%d request %d took %d ms%n", i % 60, i % 16, i, i % 997);
+				}
+			}
+			Environment env = Environment.createGlobalEnv();
+			Evaluator evaluator = new Evaluator(env);
+			for (var form : new Parser(new Tokenizer(DEFINITIONS).tokenize()).parseAll()) {
+				evaluator.evaluate(form, env);
+			}
+			System.out.printf("%d lines, %d MB, %d processor(s)%n", lines, Files.size(file) >> 20,
+				Runtime.getRuntime().availableProcessors());
+			for (String reader : new String[] { "with-loop", "with-read-lines", "with-line-seq" }) {
+				Object form = new Parser(new Tokenizer("(" + reader + " \"" + file + "\")").tokenize()).parse();
+				double time = Bench.time(2, 3, () -> evaluator.evaluate(form, env));
+				Bench.report(reader, "%10.1f ns/line  %s", time / lines, evaluator.evaluate(form, env));
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+}
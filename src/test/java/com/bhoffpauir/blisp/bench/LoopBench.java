@@ -0,0 +1,65 @@
+package com.bhoffpauir.blisp.bench;
+
+import java.util.List;
+
+import com.bhoffpauir.blisp.lib.Environment;
+import com.bhoffpauir.blisp.lib.Evaluator;
+import com.bhoffpauir.blisp.lib.Parser;
+import com.bhoffpauir.blisp.lib.Tokenizer;
+
+/**
+ * Benchmark of the loop special forms against iteration by lambda recursion.
+ *
+ * <p>Counts down from 1000 with a recursive lambda, with {@code loop}/{@code recur} and with
+ * {@code dotimes}/{@code set!}, then runs a ten-million-iteration {@code loop}, which recursion
+ * cannot do without overflowing the stack, and reports the heap in use before and after it.</p>
+ *
+ * <p>Arguments: {@code [runs] [longLoopIterations]}, defaulting to 2000 and 10000000.</p>
+ */
+public class LoopBench {
+	public static void main(String[] args) throws InterruptedException {
+		int runs = (args.length > 0) ? Integer.parseInt(args[0]) : 2000;
+		long longLoop = (args.length > 1) ? Long.parseLong(args[1]) : 10_000_000L;
+		// The recursive version needs a deeper stack than the exec plugin thread has
+		Thread bench = new Thread(null, () -> run(runs, longLoop), "loop-bench", 256L << 20);
+		bench.start();
+		bench.join();
+	}
+
+	private static void run(int runs, long longLoop) {
+		Environment env = Environment.createGlobalEnv();
+		Evaluator evaluator = new Evaluator(env);
+		evaluator.evaluate(parse("(define count-rec (lambda (n acc) (if (= n 0) acc (recur (- n 1) (+ acc 1)))))"), env);
+		evaluator.evaluate(parse("(define total 0)"), env);
+
+		Object recursive = parse("(count-rec 1000 0)");
+		Object loop = parse("(loop ((n 1000) (acc 0)) (if (= n 0) acc (recur (- n 1) (+ acc 1))))");
+		Object dotimes = parse("(dotimes (i 1000) (set! total (+ total 1)))");
+		double recursiveTime = Bench.time(runs / 4, runs, () -> evaluator.evaluate(recursive, env));
+		double loopTime = Bench.time(runs / 4, runs, () -> evaluator.evaluate(loop, env));
+		double dotimesTime = Bench.time(runs / 4, runs, () -> evaluator.evaluate(dotimes, env));
+		Bench.report("recursive lambda", "%10.1f ns/iteration", recursiveTime / 1000);
+		Bench.report("loop/recur", "%10.1f ns/iteration  (%.1fx faster)", loopTime / 1000, recursiveTime / loopTime);
+		Bench.report("dotimes/set!", "%10.1f ns/iteration  (%.1fx faster)", dotimesTime / 1000, recursiveTime / dotimesTime);
+
+		Object longForm = parse("(loop ((n " + longLoop + ") (acc 0)) (if (= n 0) acc (recur (- n 1) (+ acc 1))))");
+		long heapBefore = usedHeap();
+		long start = System.nanoTime();
+		Object result = evaluator.evaluate(longForm, env);
+		double seconds = (System.nanoTime() - start) / 1e9;
+		long heapAfter = usedHeap();
+		Bench.report("loop x " + longLoop, "%10.2f s  result %s, heap %d MB -> %d MB", seconds, result,
+			heapBefore >> 20, heapAfter >> 20);
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		System.gc();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	private static Object parse(String source) {
+		List<String> tokens = new Tokenizer(source).tokenize();
+		return new Parser(tokens).parse();
+	}
+}
@@ -0,0 +1,97 @@
+package com.bhoffpauir.blisp.bench;
+
+import java.util.List;
+
+import com.bhoffpauir.blisp.lib.Environment;
+import com.bhoffpauir.blisp.lib.Evaluator;
+import com.bhoffpauir.blisp.lib.Macro;
+import com.bhoffpauir.blisp.lib.Parser;
+import com.bhoffpauir.blisp.lib.Tokenizer;
+import com.bhoffpauir.blisp.lib.atom.ListAtom;
+
+/**
+ * Benchmark of macro-heavy code.
+ *
+ * <p>Runs the same loop written with macros and written out by hand. Since every call site is
+ * expanded once and the expansion is cached, the macro version should run at about the speed of
+ * the hand-written one after the first call. The cost of a single expansion is reported
+ * separately; without the cache, it would be paid for every macro call site on every
+ * iteration.</p>
+ *
+ * <p>Arguments: {@code [iterations]}, defaulting to 2000.</p>
+ */
+public class MacroBench {
+	private static final String MACROS = """
+		(defmacro unless (c &rest body) `(if ,c nil (begin ,@body)))
+		(defmacro when (c &rest body) `(if ,c (begin ,@body) nil))
+		(defmacro inc-by (x n) `(+ ,x ,n))
+		(defmacro square (x) `(* ,x ,x))
+		""";
+	private static final String WITH_MACROS = """
+		(define loop-macros (lambda (n acc)
+		  (when (> n 0)
+		    (unless (= n 0)
+		      (recur (- n 1) (inc-by acc (square (mod n 7))))))))
+		""";
+	private static final String BY_HAND = """
+		(define loop-hand (lambda (n acc)
+		  (if (> n 0)
+		    (begin (if (= n 0) nil
+		      (begin (recur (- n 1) (+ acc (* (mod n 7) (mod n 7)))))))
+		    nil)))
+		""";
+
+	public static void main(String[] args) throws InterruptedException {
+		int iterations = (args.length > 0) ? Integer.parseInt(args[0]) : 2000;
+		// Recursive blisp loops need a deeper stack than the exec plugin thread has
+		Thread bench = new Thread(null, () -> run(iterations), "macro-bench", 256L << 20);
+		bench.start();
+		bench.join();
+	}
+
+	private static void run(int iterations) {
+		Environment env = Environment.createGlobalEnv();
+		Evaluator evaluator = new Evaluator(env);
+		for (var source : List.of(MACROS, WITH_MACROS, BY_HAND)) {
+			for (var form : parseAll(source)) {
+				evaluator.evaluate(form, env);
+			}
+		}
+
+		// 100 iterations of the blisp loop per call
+		Object macroCall = parseAll("(loop-macros 100 0)").get(0);
+		Object handCall = parseAll("(loop-hand 100 0)").get(0);
+		Bench.time(iterations, 1, () -> evaluator.evaluate(macroCall, env)); // Warm up both loops first
+		double hand = Bench.time(iterations, iterations, () -> evaluator.evaluate(handCall, env));
+		double macro = Bench.time(iterations, iterations, () -> evaluator.evaluate(macroCall, env));
+		Bench.report("hand-written loop", "%10.1f us/call", hand / 1000);
+		Bench.report("macro loop (cached)", "%10.1f us/call  (%.2fx)", macro / 1000, macro / hand);
+
+		// Cost of expanding the four call sites of the loop body once, as paid without a cache
+		Macro unless = (Macro) env.lookup("unless");
+		Macro when = (Macro) env.lookup("when");
+		Macro incBy = (Macro) env.lookup("inc-by");
+		Macro square = (Macro) env.lookup("square");
+		List<Object> unlessForms = forms("(unless (= n 0) (recur (- n 1) (inc-by acc (square (mod n 7)))))");
+		List<Object> whenForms = forms("(when (> n 0) (unless (= n 0) x))");
+		List<Object> incByForms = forms("(inc-by acc (square (mod n 7)))");
+		List<Object> squareForms = forms("(square (mod n 7))");
+		double expand = Bench.time(iterations * 10, iterations * 100, () -> {
+			when.expand(whenForms);
+			unless.expand(unlessForms);
+			incBy.expand(incByForms);
+			return square.expand(squareForms);
+		});
+		Bench.report("expand 4 call sites", "%10.2f us  (x100 loop iterations = %.1f us/call uncached)",
+			expand / 1000, expand * 100 / 1000);
+	}
+
+	private static List<Object> forms(String callSite) {
+		List<Object> elements = ((ListAtom) parseAll(callSite).get(0)).getValue();
+		return elements.subList(1, elements.size());
+	}
+
+	private static List<Object> parseAll(String source) {
+		return new Parser(new Tokenizer(source).tokenize()).parseAll();
+	}
+}
@@ -0,0 +1,63 @@
+package com.bhoffpauir.blisp.bench;
+
+import com.bhoffpauir.blisp.lib.Environment;
+import com.bhoffpauir.blisp.lib.Evaluator;
+import com.bhoffpauir.blisp.lib.Parser;
+import com.bhoffpauir.blisp.lib.Tokenizer;
+
+/**
+ * Benchmark of the numeric tower against floating-point arithmetic.
+ *
+ * <p>Each computation is run twice, once seeded with exact integers, so it runs on fixnums and
+ * bignums, and once seeded with doubles, the only representation arithmetic results had before
+ * the tower. The fixnum counting loop shows the cost of the overflow checks; factorials and
+ * binomial coefficients show the cost of bignums, and how many digits the doubles get
+ * wrong.</p>
+ *
+ * <p>Arguments: {@code [runs]}, defaulting to 2000.</p>
+ */
+public class NumericBench {
+	private static final String DEFINITIONS = """
+		(define (count-up n one)
+		  (loop ((i 0) (acc (* 0 one)))
+		    (if (< i n) (recur (+ i 1) (+ acc one)) acc)))
+		(define (fact n one)
+		  (loop ((i n) (acc one))
+		    (if (= i 0) acc (recur (- i 1) (* acc i)))))
+		(define (choose n k one)
+		  (/ (fact n one) (* (fact k one) (fact (- n k) one))))
+		""";
+
+	public static void main(String[] args) {
+		int runs = (args.length > 0) ? Integer.parseInt(args[0]) : 2000;
+		Environment env = Environment.createGlobalEnv();
+		Evaluator evaluator = new Evaluator(env);
+		for (var form : new Parser(new Tokenizer(DEFINITIONS).tokenize()).parseAll()) {
+			evaluator.evaluate(form, env);
+		}
+
+		compare(evaluator, env, runs, "count to 1000", "(count-up 1000 %s)");
+		compare(evaluator, env, runs, "factorial 20", "(fact 20 %s)");
+		compare(evaluator, env, runs, "factorial 100", "(fact 100 %s)");
+		compare(evaluator, env, runs, "choose 100 50", "(choose 100 50 %s)");
+	}
+
+	private static void compare(Evaluator evaluator, Environment env, int runs, String name, String template) {
+		Object exactForm = parse(String.format(template, "1"));
+		Object doubleForm = parse(String.format(template, "1.0"));
+		double exact = Bench.time(runs, runs, () -> evaluator.evaluate(exactForm, env));
+		double inexact = Bench.time(runs, runs, () -> evaluator.evaluate(doubleForm, env));
+		String exactResult = evaluator.evaluate(exactForm, env).toString();
+		String doubleResult = evaluator.evaluate(doubleForm, env).toString();
+		Bench.report(name + ", exact", "%10.1f us  %s", exact / 1000, abbreviate(exactResult));
+		Bench.report(name + ", double", "%10.1f us  %s  (%.2fx)", inexact / 1000, abbreviate(doubleResult), exact / inexact);
+	}
+
+	private static String abbreviate(String digits) {
+		return (digits.length() <= 40) ? digits : digits.substring(0, 37) + "... (" + digits.length() + " chars)";
+	}
+
+	private static Object parse(String source) {
+		return new Parser(new Tokenizer(source).tokenize()).parse();
+	}
+}
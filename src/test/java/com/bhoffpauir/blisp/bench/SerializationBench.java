@@ -0,0 +1,73 @@
+package com.bhoffpauir.blisp.bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+import com.bhoffpauir.blisp.lib.AtomInputStream;
+import com.bhoffpauir.blisp.lib.AtomOutputStream;
+import com.bhoffpauir.blisp.lib.DataReader;
+import com.bhoffpauir.blisp.lib.atom.ListAtom;
+
+/**
+ * Benchmark of the binary atom encoding against printing and re-reading atoms as text.
+ *
+ * <p>A list of records is round-tripped through {@code toString} and the {@link DataReader},
+ * the fastest way back from text, and through {@link AtomOutputStream} and
+ * {@link AtomInputStream}. The encoded sizes are reported, and whether the round trip gave back
+ * an equal list. Printed lists separate their elements with commas, which cannot be read back,
+ * so the text path also has to remove them; the records hold no characters or strings with
+ * commas, which would not survive that either.</p>
+ *
+ * <p>Arguments: {@code [records]}, defaulting to 100000.</p>
+ */
+public class SerializationBench {
+	public static void main(String[] args) {
+		int records = (args.length > 0) ? Integer.parseInt(args[0]) : 100_000;
+		StringBuilder source = new StringBuilder("(");
+		for (int i = 0; i < records; i++) {
+			source.append(String.format("(record %d \"name-%d\" %d.25 (tag-%d active) %d/3 true)%n", i, i, i % 1000, i % 7, i % 100 + 1));
+		}
+		ListAtom data = (ListAtom) DataReader.readAll(source.append(")").toString()).get(0);
+		int runs = Math.max(3, 2_000_000 / records);
+
+		String text = print(data);
+		byte[] binary = encode(data);
+		double printTime = Bench.time(runs, runs, () -> print(data));
+		double readTime = Bench.time(runs, runs, () -> DataReader.readAll(text));
+		double encodeTime = Bench.time(runs, runs, () -> encode(data));
+		double decodeTime = Bench.time(runs, runs, () -> decode(binary));
+		Bench.report("text, print", "%10.1f ns/record", printTime / records);
+		Bench.report("text, read", "%10.1f ns/record", readTime / records);
+		Bench.report("binary, encode", "%10.1f ns/record  (%.1fx)", encodeTime / records, printTime / encodeTime);
+		Bench.report("binary, decode", "%10.1f ns/record  (%.1fx)", decodeTime / records, readTime / decodeTime);
+		Bench.report("text, size", "%10.1f bytes/record  round trip %s", (double) text.getBytes(StandardCharsets.UTF_8).length / records,
+			data.equals(DataReader.readAll(text).get(0)) ? "equal" : "NOT equal");
+		Bench.report("binary, size", "%10.1f bytes/record  round trip %s", (double) binary.length / records,
+			data.equals(decode(binary)) ? "equal" : "NOT equal");
+	}
+
+	private static String print(Object atom) {
+		return atom.toString().replace(", ", " ");
+	}
+
+	private static byte[] encode(Object atom) {
+		var bytes = new ByteArrayOutputStream();
+		try (var out = new AtomOutputStream(bytes)) {
+			out.writeAtom(atom);
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+		return bytes.toByteArray();
+	}
+
+	private static Object decode(byte[] bytes) {
+		try (var in = new AtomInputStream(new ByteArrayInputStream(bytes))) {
+			return in.readAtom();
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+}
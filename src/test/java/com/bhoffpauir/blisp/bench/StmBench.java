@@ -0,0 +1,100 @@
+package com.bhoffpauir.blisp.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+
+import com.bhoffpauir.blisp.lib.Environment;
+import com.bhoffpauir.blisp.lib.Evaluator;
+import com.bhoffpauir.blisp.lib.Parser;
+import com.bhoffpauir.blisp.lib.Tokenizer;
+import com.bhoffpauir.blisp.lib.Transaction;
+
+/**
+ * Contention benchmark for the {@code atom}/{@code swap!} cells and {@code ref}/{@code dosync}
+ * transactions.
+ *
+ * <p>Each thread repeatedly evaluates an update form, from one thread up to the number of cores.
+ * The "shared" cases all update a single cell or ref (worst-case contention); the "private" cases
+ * give every thread its own ref, which shows how transactions scale without conflicts. Reports
+ * the total updates per second and, for transactions, the share of attempts that were retried.</p>
+ *
+ * <p>Arguments: {@code [updatesPerThread] [maxThreads]}, defaulting to 200000 and the number of
+ * cores.</p>
+ */
+public class StmBench {
+	public static void main(String[] args) throws Exception {
+		int updates = (args.length > 0) ? Integer.parseInt(args[0]) : 200_000;
+		int cores = Runtime.getRuntime().availableProcessors();
+		int maxThreads = (args.length > 1) ? Integer.parseInt(args[1]) : cores;
+
+		List<Integer> threadCounts = new ArrayList<>();
+		for (int n = 1; n < maxThreads; n *= 2) {
+			threadCounts.add(n);
+		}
+		threadCounts.add(maxThreads);
+
+		System.out.printf("%d updates per thread, %d cores%n", updates, cores);
+		String[][] cases = {
+			{ "swap! shared atom", "(swap! cell + 1)" },
+			{ "alter shared ref", "(dosync (alter shared + 1))" },
+			{ "alter private ref", "(dosync (alter mine + 1))" },
+			{ "alter private + read shared", "(dosync (alter mine + (deref shared)))" },
+		};
+		for (var benchCase : cases) {
+			run(benchCase[0], benchCase[1], 1, updates / 10, false); // Warm up
+			for (int threads : threadCounts) {
+				run(benchCase[0], benchCase[1], threads, updates, true);
+			}
+		}
+	}
+
+	private static void run(String name, String form, int threads, int updates, boolean print) throws Exception {
+		Environment env = Environment.createGlobalEnv();
+		Evaluator evaluator = new Evaluator(env);
+		evaluator.evaluate(parse("(define cell (atom 0))"), env);
+		evaluator.evaluate(parse("(define shared (ref 0))"), env);
+		Object update = parse(form);
+
+		CyclicBarrier start = new CyclicBarrier(threads + 1);
+		List<Thread> workers = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			// Every thread binds its own private ref
+			Environment threadEnv = new Environment(env);
+			threadEnv.define("mine", evaluator.evaluate(parse("(ref 0)"), env));
+			Thread worker = new Thread(() -> {
+				try {
+					start.await();
+				} catch (Exception ex) {
+					throw new IllegalStateException(ex);
+				}
+				for (int i = 0; i < updates; i++) {
+					evaluator.evaluate(update, threadEnv);
+				}
+			});
+			worker.start();
+			workers.add(worker);
+		}
+
+		long retriesBefore = Transaction.getRetryCount();
+		long commitsBefore = Transaction.getCommitCount();
+		start.await();
+		long startTime = System.nanoTime();
+		for (var worker : workers) {
+			worker.join();
+		}
+		long elapsed = System.nanoTime() - startTime;
+
+		if (print) {
+			long retries = Transaction.getRetryCount() - retriesBefore;
+			long commits = Transaction.getCommitCount() - commitsBefore;
+			double retryRate = (commits == 0) ? 0 : 100.0 * retries / (retries + commits);
+			Bench.report(name, "%2d threads %12.0f updates/s   %5.1f%% retried",
+				threads, (double) threads * updates / (elapsed / 1e9), retryRate);
+		}
+	}
+
+	private static Object parse(String form) {
+		return new Parser(new Tokenizer(form).tokenize()).parse();
+	}
+}
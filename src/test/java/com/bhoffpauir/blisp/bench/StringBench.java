@@ -0,0 +1,53 @@
+package com.bhoffpauir.blisp.bench;
+
+import com.bhoffpauir.blisp.lib.Environment;
+import com.bhoffpauir.blisp.lib.Evaluator;
+import com.bhoffpauir.blisp.lib.Parser;
+import com.bhoffpauir.blisp.lib.Tokenizer;
+import com.bhoffpauir.blisp.lib.atom.StringAtom;
+
+/**
+ * Benchmark of building a large report string one line at a time.
+ *
+ * <p>Before the rope-backed {@link StringAtom} the only way to append to a string was
+ * {@code (sprintf "%s%s" report line)}, which copies the whole report on every line, so the time
+ * grows with the square of the line count. {@code string-append} joins without copying and the
+ * report is flattened once at the end, so doubling the lines should roughly double the time.</p>
+ *
+ * <p>Arguments: {@code [lines]}, defaulting to 20000 (about 1 MB of report at the largest
+ * size, 8 times that).</p>
+ */
+public class StringBench {
+	private static final String DEFINITIONS = """
+		(define (report-sprintf n)
+		  (let ((r ""))
+		    (dotimes (i n) (set! r (sprintf "%s%s" r "a line of about fifty characters in the report\\n")))
+		    (string-length r)))
+		(define (report-append n)
+		  (let ((r ""))
+		    (dotimes (i n) (set! r (string-append r "a line of about fifty characters in the report\\n")))
+		    (string-length (substring r 0))))
+		""";
+
+	public static void main(String[] args) {
+		int lines = (args.length > 0) ? Integer.parseInt(args[0]) : 20000;
+		Environment env = Environment.createGlobalEnv();
+		Evaluator evaluator = new Evaluator(env);
+		for (var form : new Parser(new Tokenizer(DEFINITIONS).tokenize()).parseAll()) {
+			evaluator.evaluate(form, env);
+		}
+
+		for (int n = lines / 8; n <= lines; n *= 2) {
+			Object sprintfForm = parse("(report-sprintf " + n + ")");
+			Object appendForm = parse("(report-append " + n + ")");
+			double copying = Bench.time(1, 3, () -> evaluator.evaluate(sprintfForm, env));
+			double rope = Bench.time(1, 3, () -> evaluator.evaluate(appendForm, env));
+			Bench.report(n + " lines, sprintf", "%10.1f ms", copying / 1e6);
+			Bench.report(n + " lines, string-append", "%10.1f ms  (%.1fx)", rope / 1e6, copying / rope);
+		}
+	}
+
+	private static Object parse(String source) {
+		return new Parser(new Tokenizer(source).tokenize()).parse();
+	}
+}